@@ -12,6 +12,17 @@ import org.smartregister.repository.Repository;
 import org.smartregister.repository.StructureRepository;
 import org.smartregister.repository.TaskNotesRepository;
 import org.smartregister.repository.TaskRepository;
+import org.smartregister.tasking.repository.GeometryMetadataRepository;
+import org.smartregister.tasking.repository.OfflineMapCatalogRepository;
+import org.smartregister.tasking.repository.OfflineMapQueueRepository;
+import org.smartregister.tasking.repository.StructureCentroidRepository;
+import org.smartregister.tasking.repository.TaskStructureLinkRepository;
+import org.smartregister.tasking.repository.UnprocessedEventRepository;
+import org.smartregister.tasking.util.OfflineMapDownloadScheduler;
+import org.smartregister.tasking.util.OfflineMapStorageManager;
+import org.smartregister.tasking.util.TaskOrdinals;
+import org.smartregister.tasking.util.TaskFacetIndex;
+import org.smartregister.tasking.util.TaskSnapshotStore;
 import org.smartregister.tasking.util.TaskingLibraryConfiguration;
 import org.smartregister.util.AppExecutors;
 import org.smartregister.view.activity.DrishtiApplication;
@@ -30,6 +41,16 @@ public class TaskingLibrary {
     private StructureRepository structureRepository;
     private EventClientRepository eventClientRepository;
     private AllSharedPreferences allSharedPreferences;
+    private TaskSnapshotStore taskSnapshotStore;
+    private GeometryMetadataRepository geometryMetadataRepository;
+    private StructureCentroidRepository structureCentroidRepository;
+    private OfflineMapDownloadScheduler offlineMapDownloadScheduler;
+    private OfflineMapCatalogRepository offlineMapCatalogRepository;
+    private OfflineMapQueueRepository offlineMapQueueRepository;
+    private OfflineMapStorageManager offlineMapStorageManager;
+    private TaskStructureLinkRepository taskStructureLinkRepository;
+    private UnprocessedEventRepository unprocessedEventRepository;
+    private TaskFacetIndex registerFacetIndex;
 
     private String digitalGlobeConnectId;
     private String mapboxAccessToken;
@@ -39,6 +60,7 @@ public class TaskingLibrary {
 
     public static void init(@NonNull TaskingLibraryConfiguration taskingLibraryConfiguration) {
         instance = new TaskingLibrary(taskingLibraryConfiguration);
+        TaskOrdinals.register(taskingLibraryConfiguration);
     }
 
     public static TaskingLibrary getInstance() {
@@ -90,6 +112,104 @@ public class TaskingLibrary {
         return structureRepository;
     }
 
+    @NonNull
+    public synchronized GeometryMetadataRepository getGeometryMetadataRepository() {
+        if (geometryMetadataRepository == null) {
+            geometryMetadataRepository = new GeometryMetadataRepository();
+        }
+
+        return geometryMetadataRepository;
+    }
+
+    @NonNull
+    public synchronized StructureCentroidRepository getStructureCentroidRepository() {
+        if (structureCentroidRepository == null) {
+            structureCentroidRepository = new StructureCentroidRepository();
+        }
+
+        return structureCentroidRepository;
+    }
+
+    @NonNull
+    public synchronized TaskSnapshotStore getTaskSnapshotStore() {
+        if (taskSnapshotStore == null) {
+            taskSnapshotStore = new TaskSnapshotStore();
+        }
+
+        return taskSnapshotStore;
+    }
+
+    /**
+     * @return the facet index of the register tasks the filter screen displays the option counts of, null if the
+     * register has not been fully loaded
+     */
+    @Nullable
+    public synchronized TaskFacetIndex getRegisterFacetIndex() {
+        return registerFacetIndex;
+    }
+
+    public synchronized void setRegisterFacetIndex(@Nullable TaskFacetIndex registerFacetIndex) {
+        this.registerFacetIndex = registerFacetIndex;
+    }
+
+    @NonNull
+    public synchronized TaskStructureLinkRepository getTaskStructureLinkRepository() {
+        if (taskStructureLinkRepository == null) {
+            taskStructureLinkRepository = new TaskStructureLinkRepository();
+        }
+
+        return taskStructureLinkRepository;
+    }
+
+    @NonNull
+    public synchronized UnprocessedEventRepository getUnprocessedEventRepository() {
+        if (unprocessedEventRepository == null) {
+            unprocessedEventRepository = new UnprocessedEventRepository();
+        }
+
+        return unprocessedEventRepository;
+    }
+
+    @NonNull
+    public synchronized OfflineMapCatalogRepository getOfflineMapCatalogRepository() {
+        if (offlineMapCatalogRepository == null) {
+            offlineMapCatalogRepository = new OfflineMapCatalogRepository();
+        }
+
+        return offlineMapCatalogRepository;
+    }
+
+    @NonNull
+    public synchronized OfflineMapQueueRepository getOfflineMapQueueRepository() {
+        if (offlineMapQueueRepository == null) {
+            offlineMapQueueRepository = new OfflineMapQueueRepository();
+        }
+
+        return offlineMapQueueRepository;
+    }
+
+    /**
+     * @return the offline map download scheduler, created with the map downloads queued before the app was restarted
+     */
+    @NonNull
+    public synchronized OfflineMapDownloadScheduler getOfflineMapDownloadScheduler(@NonNull Context context) {
+        if (offlineMapDownloadScheduler == null) {
+            offlineMapDownloadScheduler = new OfflineMapDownloadScheduler(context);
+            offlineMapDownloadScheduler.restore();
+        }
+
+        return offlineMapDownloadScheduler;
+    }
+
+    @NonNull
+    public synchronized OfflineMapStorageManager getOfflineMapStorageManager(@NonNull Context context) {
+        if (offlineMapStorageManager == null) {
+            offlineMapStorageManager = new OfflineMapStorageManager(context);
+        }
+
+        return offlineMapStorageManager;
+    }
+
     @NonNull
     public AllSharedPreferences getAllSharedPreferences() {
         return CoreLibrary.getInstance().context().allSharedPreferences();
@@ -68,9 +68,7 @@ public class FilterTasksActivity extends MultiLanguageActivity implements Filter
 
 
         TaskFilterParams filterParams = (TaskFilterParams) getIntent().getSerializableExtra(Filter.FILTER_SORT_PARAMS);
-        if (filterParams != null) {
-            presenter.restoreCheckedFilters(filterParams);
-        }
+        presenter.restoreCheckedFilters(filterParams);
     }
 
 
@@ -117,18 +115,18 @@ public class FilterTasksActivity extends MultiLanguageActivity implements Filter
         for (String intervention : options) {
 
             ToggleButton toggleButton = new ToggleButton(new ContextThemeWrapper(this, R.style.TaskFilterToggle), null, 0);
-            Integer label = presenter.getStringResource(intervention);
-            if (label == null) {
-                toggleButton.setText(intervention);
-            } else {
-                toggleButton.setText(label);
-            }
+            toggleButton.setText(getOptionLabel(intervention));
             toggleButton.setBackgroundDrawable(getResources().getDrawable(R.drawable.toggle_bg));
             toggleButton.setTag(intervention);
             layout.addView(toggleButton, params);
         }
     }
 
+    private String getOptionLabel(String option) {
+        Integer label = presenter.getStringResource(option);
+        return label == null ? option : getString(label);
+    }
+
     @Override
     public boolean onOptionsItemSelected(MenuItem item) {
         if (item.getItemId() == android.R.id.home) {
@@ -174,4 +172,9 @@ public class FilterTasksActivity extends MultiLanguageActivity implements Filter
     public void setSortBySelection(int sortBySpinner) {
         this.sortBySpinner.setSelection(sortBySpinner);
     }
+
+    @Override
+    public void setFilterOptionCount(ToggleButton toggleButton, String option, int count) {
+        toggleButton.setText(getString(R.string.filter_option_count_formatter, getOptionLabel(option), count));
+    }
 }
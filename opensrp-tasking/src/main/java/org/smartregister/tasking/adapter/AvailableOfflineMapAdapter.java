@@ -1,6 +1,8 @@
 package org.smartregister.tasking.adapter;
 
 import android.content.Context;
+import android.text.format.DateUtils;
+import android.text.format.Formatter;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -9,6 +11,8 @@ import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
 import org.smartregister.tasking.R;
+import org.smartregister.tasking.TaskingLibrary;
+import org.smartregister.tasking.model.OfflineMapDownloadProgress;
 import org.smartregister.tasking.model.OfflineMapModel;
 import org.smartregister.tasking.viewholder.AvailableOfflineMapViewHolder;
 
@@ -52,6 +56,7 @@ public class AvailableOfflineMapAdapter extends RecyclerView.Adapter<AvailableOf
             case DOWNLOAD_STARTED:
                 viewHolder.enableCheckBox(false);
                 viewHolder.displayDownloadingLabel(true);
+                viewHolder.setDownloadingLabel(getDownloadingLabel(offlineMapModel));
                 viewHolder.checkCheckBox(true);
                 break;
             case SELECTED_FOR_DOWNLOAD:
@@ -66,6 +71,16 @@ public class AvailableOfflineMapAdapter extends RecyclerView.Adapter<AvailableOf
 
     }
 
+    private String getDownloadingLabel(OfflineMapModel offlineMapModel) {
+        OfflineMapDownloadProgress progress = offlineMapModel.getDownloadAreaId() == null ? null
+                : TaskingLibrary.getInstance().getOfflineMapDownloadScheduler(context).getProgress(offlineMapModel.getDownloadAreaId());
+        if (progress == null || progress.getBytesPerSecond() == OfflineMapDownloadProgress.UNKNOWN) {
+            return context.getString(R.string.downloading);
+        }
+        return context.getString(R.string.map_download_rate, Formatter.formatShortFileSize(context, progress.getBytesPerSecond()),
+                DateUtils.formatElapsedTime(progress.getRemainingSeconds()));
+    }
+
     @Override
     public int getItemCount() {
         return offlineMapModels.size();
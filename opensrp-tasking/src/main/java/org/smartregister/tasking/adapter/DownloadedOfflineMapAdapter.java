@@ -62,7 +62,15 @@ public class DownloadedOfflineMapAdapter extends RecyclerView.Adapter<Downloaded
     }
 
     private void displayOfflineMapSize(OfflineMapModel offlineMapModel, DownloadedOfflineMapViewHolder viewHolder ) {
-        if (offlineMapModel == null || offlineMapModel.getOfflineRegion() == null) {
+        if (offlineMapModel == null) {
+            return;
+        } else if (offlineMapModel.getOfflineRegion() == null) {
+            // maps listed from the offline map catalog show the size recorded in the catalog
+            if (offlineMapModel.getSize() > 0) {
+                viewHolder.displayDownloadSizeLabel(true);
+                viewHolder.setDownloadedMapSize(context.getString(R.string.offline_map_size,
+                        Formatter.formatFileSize(context, offlineMapModel.getSize()), Utils.formatDate(offlineMapModel.getDateCreated())));
+            }
             return;
         }
 
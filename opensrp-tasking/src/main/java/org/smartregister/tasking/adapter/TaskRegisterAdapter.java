@@ -6,16 +6,21 @@ import android.view.View;
 import android.view.ViewGroup;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
+import org.apache.commons.lang3.ObjectUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.smartregister.domain.Task;
 import org.smartregister.tasking.R;
 import org.smartregister.tasking.TaskingLibrary;
 import org.smartregister.tasking.model.CardDetails;
 import org.smartregister.tasking.model.TaskDetails;
+import org.smartregister.tasking.model.TaskSnapshot;
 import org.smartregister.tasking.util.CardDetailsUtil;
 import org.smartregister.tasking.util.Constants.Intervention;
+import org.smartregister.tasking.util.Constants.TaskRegister;
 import org.smartregister.tasking.viewholder.TaskRegisterViewHolder;
 import org.smartregister.tasking.model.TaskDetails;
 import org.smartregister.tasking.viewholder.TaskRegisterViewHolder;
@@ -30,12 +35,18 @@ import static org.smartregister.tasking.util.Constants.BusinessStatus.NOT_ELIGIB
  */
 public class TaskRegisterAdapter extends RecyclerView.Adapter<TaskRegisterViewHolder> {
 
-    private List<TaskDetails> taskDetails = new ArrayList<>();
+    private final AsyncListDiffer<TaskRow> differ = new AsyncListDiffer<>(this, TASK_ROW_DIFF_CALLBACK);
+
+    private List<TaskRow> submittedRows = new ArrayList<>();
 
     private Context context;
 
     private View.OnClickListener registerActionHandler;
 
+    private OnLoadMoreListener onLoadMoreListener;
+
+    private int totalTaskCount;
+
     public TaskRegisterAdapter(Context context, View.OnClickListener registerActionHandler) {
         this.context = context;
         this.registerActionHandler = registerActionHandler;
@@ -115,16 +126,151 @@ public class TaskRegisterAdapter extends RecyclerView.Adapter<TaskRegisterViewHo
             viewHolder.hideHouseNumber();
         }*/
 
-        TaskingLibrary.getInstance().getTaskingLibraryConfiguration().onTaskRegisterBindViewHolder(context, viewHolder, registerActionHandler, taskDetails.get(position), position);
+        TaskingLibrary.getInstance().getTaskingLibraryConfiguration().onTaskRegisterBindViewHolder(context, viewHolder, registerActionHandler, differ.getCurrentList().get(position).getTask(), position);
+
+        if (onLoadMoreListener != null && position >= getItemCount() - TaskRegister.PAGE_PREFETCH_DISTANCE) {
+            onLoadMoreListener.onLoadMore();
+        }
     }
 
     @Override
     public int getItemCount() {
-        return taskDetails.size();
+        return differ.getCurrentList().size();
     }
 
+    /**
+     * Displays the tasks. The difference from the displayed rows is calculated on a background thread
+     * and only the rows that were inserted, moved, removed or changed are updated.
+     * Rows are compared on the snapshot columns so task objects are only created for the rows bound
+     *
+     * @param taskDetails the tasks to display
+     */
     public void setTaskDetails(List<TaskDetails> taskDetails) {
-        this.taskDetails = taskDetails;
-        notifyDataSetChanged();
+        TaskSnapshot snapshot = TaskSnapshot.of(taskDetails);
+        List<TaskRow> rows = new ArrayList<>(snapshot.size());
+        for (int i = 0; i < snapshot.size(); i++) {
+            rows.add(new TaskRow(snapshot, i));
+        }
+        totalTaskCount = 0;
+        submitRows(rows);
+    }
+
+    /**
+     * Appends the next page of tasks to the register
+     *
+     * @param tasks the tasks of the page
+     */
+    public void addTaskDetails(List<TaskDetails> tasks) {
+        List<TaskRow> rows = new ArrayList<>(submittedRows.size() + tasks.size());
+        rows.addAll(submittedRows);
+        TaskSnapshot snapshot = TaskSnapshot.of(tasks);
+        for (int i = 0; i < snapshot.size(); i++) {
+            rows.add(new TaskRow(snapshot, i));
+        }
+        submitRows(rows);
+    }
+
+    private void submitRows(List<TaskRow> rows) {
+        submittedRows = rows;
+        differ.submitList(rows);
+    }
+
+    /**
+     * Sets the total number of tasks when the register is paged and only some tasks are displayed
+     *
+     * @param totalTaskCount the total number of tasks
+     */
+    public void setTotalTaskCount(int totalTaskCount) {
+        this.totalTaskCount = totalTaskCount;
+    }
+
+    /**
+     * @return the total number of register tasks including those not yet loaded
+     */
+    public int getTaskCount() {
+        return Math.max(totalTaskCount, submittedRows.size());
+    }
+
+    public void setOnLoadMoreListener(OnLoadMoreListener onLoadMoreListener) {
+        this.onLoadMoreListener = onLoadMoreListener;
+    }
+
+    /**
+     * The displayed state of a task. Tasks are updated in place when distances are recalculated or a task is reset,
+     * so the values shown on the row are copied to detect which rows changed
+     */
+    private static class TaskRow {
+
+        private final TaskSnapshot snapshot;
+        private final int position;
+        private final String taskId;
+        private final float distanceFromUser;
+        private final boolean distanceFromCenter;
+        private final String businessStatus;
+        private final String taskStatus;
+        private final String aggregateBusinessStatus;
+        private final String structureName;
+        private final String familyName;
+        private final String familyMemberNames;
+        private final String houseNumber;
+        private final String taskDetails;
+        private final Integer taskCount;
+        private final Integer completeTaskCount;
+
+        private TaskRow(TaskSnapshot snapshot, int position) {
+            this.snapshot = snapshot;
+            this.position = position;
+            taskId = snapshot.getTaskId(position);
+            distanceFromUser = snapshot.getDistanceFromUser(position);
+            distanceFromCenter = snapshot.isDistanceFromCenter(position);
+            businessStatus = snapshot.getBusinessStatus(position);
+            taskStatus = snapshot.getTaskStatus(position);
+            aggregateBusinessStatus = snapshot.getAggregateBusinessStatus(position);
+            structureName = snapshot.getStructureName(position);
+            familyName = snapshot.getFamilyName(position);
+            familyMemberNames = snapshot.getFamilyMemberNames(position);
+            houseNumber = snapshot.getHouseNumber(position);
+            taskDetails = snapshot.getTaskDetails(position);
+            taskCount = snapshot.getTaskCount(position);
+            completeTaskCount = snapshot.getCompleteTaskCount(position);
+        }
+
+        private TaskDetails getTask() {
+            return snapshot.get(position);
+        }
+
+        private boolean hasSameContents(TaskRow other) {
+            return distanceFromUser == other.distanceFromUser
+                    && distanceFromCenter == other.distanceFromCenter
+                    && StringUtils.equals(businessStatus, other.businessStatus)
+                    && StringUtils.equals(taskStatus, other.taskStatus)
+                    && StringUtils.equals(aggregateBusinessStatus, other.aggregateBusinessStatus)
+                    && StringUtils.equals(structureName, other.structureName)
+                    && StringUtils.equals(familyName, other.familyName)
+                    && StringUtils.equals(familyMemberNames, other.familyMemberNames)
+                    && StringUtils.equals(houseNumber, other.houseNumber)
+                    && StringUtils.equals(taskDetails, other.taskDetails)
+                    && ObjectUtils.equals(taskCount, other.taskCount)
+                    && ObjectUtils.equals(completeTaskCount, other.completeTaskCount);
+        }
+    }
+
+    private static final DiffUtil.ItemCallback<TaskRow> TASK_ROW_DIFF_CALLBACK = new DiffUtil.ItemCallback<TaskRow>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull TaskRow oldRow, @NonNull TaskRow newRow) {
+            return StringUtils.equals(oldRow.taskId, newRow.taskId);
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull TaskRow oldRow, @NonNull TaskRow newRow) {
+            return oldRow.hasSameContents(newRow);
+        }
+    };
+
+    /**
+     * Notified when the rows near the end of the loaded tasks are displayed
+     */
+    public interface OnLoadMoreListener {
+        void onLoadMore();
     }
 }
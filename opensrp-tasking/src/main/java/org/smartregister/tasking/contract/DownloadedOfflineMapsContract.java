@@ -18,6 +18,12 @@ public interface DownloadedOfflineMapsContract extends OfflineMapsFragmentContra
         void fetchOAsWithOfflineDownloads(Pair<List<String>, Map<String, OfflineRegion>> offlineRegionInfo);
 
         void onOAsWithOfflineDownloadsFetched(List<OfflineMapModel> downloadedOfflineMapModelList);
+
+        void onMapDeleted(String mapName);
+
+        void fetchStorageUsage();
+
+        void onStorageUsageFetched(long storageUsage, long storageBudget);
     }
 
     interface View  {
@@ -26,10 +32,14 @@ public interface DownloadedOfflineMapsContract extends OfflineMapsFragmentContra
 
         void deleteDownloadedOfflineMaps();
 
+        void setStorageUsage(long storageUsage, long storageBudget);
+
     }
 
     interface Interactor {
 
         void fetchLocationsWithOfflineMapDownloads(Pair<List<String>, Map<String, OfflineRegion>> offlineRegionInfo);
+
+        void fetchStorageUsage();
     }
 }
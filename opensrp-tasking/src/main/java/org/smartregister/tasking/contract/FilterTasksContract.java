@@ -1,6 +1,7 @@
 package org.smartregister.tasking.contract;
 
 import android.content.Intent;
+import android.widget.ToggleButton;
 
 import androidx.annotation.StringRes;
 
@@ -28,6 +29,8 @@ public interface FilterTasksContract {
         FlexboxLayout getInterventionTypeLayout();
 
         void setSortBySelection(int sortBySpinner);
+
+        void setFilterOptionCount(ToggleButton toggleButton, String option, int count);
     }
 
     interface Presenter {
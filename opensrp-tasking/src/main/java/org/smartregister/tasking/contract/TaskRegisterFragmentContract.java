@@ -12,6 +12,7 @@ import org.smartregister.tasking.adapter.TaskRegisterAdapter;
 import org.smartregister.tasking.model.BaseTaskDetails;
 import org.smartregister.tasking.model.TaskDetails;
 import org.smartregister.tasking.model.TaskFilterParams;
+import org.smartregister.tasking.model.TaskRegisterPage;
 import org.smartregister.tasking.util.LocationUtils;
 import org.smartregister.view.contract.BaseRegisterFragmentContract;
 
@@ -51,6 +52,14 @@ public interface TaskRegisterFragmentContract {
         void resetTaskInfo(TaskDetails taskDetails);
 
         void onTaskInfoReset();
+
+        void refreshTasks(Set<String> changedIds);
+
+        void onTasksPageFound(TaskRegisterPage page, int structuresWithinBuffer);
+
+        void onTasksPageNotFound(TaskRegisterPage previousPage);
+
+        void loadNextTaskPage();
     }
 
     interface View extends BaseRegisterFragmentContract.View, BaseFormFragmentContract.View {
@@ -91,6 +100,10 @@ public interface TaskRegisterFragmentContract {
         void setSearchPhrase(String searchPhrase);
 
         void startMapActivity(TaskFilterParams taskFilterParams);
+
+        void addTaskDetails(List<TaskDetails> tasks);
+
+        void setTotalTaskCount(int totalTasks);
     }
 
     interface Interactor {
@@ -13,6 +13,7 @@ import androidx.localbroadcastmanager.content.LocalBroadcastManager;
 
 import org.smartregister.tasking.R;
 import org.smartregister.tasking.contract.OfflineMapsFragmentContract;
+import org.smartregister.tasking.util.OfflineMapHelper;
 
 import io.ona.kujaku.services.MapboxOfflineDownloaderService;
 import io.ona.kujaku.utils.Constants;
@@ -92,25 +93,30 @@ public abstract class BaseOfflineMapsFragment extends Fragment implements Offlin
     }
 
     public void handleSuccessResponse() {
+        // Maps split into several regions are reported by the name of the map, the last region is named after the map
+        String mapName = OfflineMapHelper.getMapName(mapUniqueName);
+        boolean regionPart = !mapName.equals(mapUniqueName);
         // We should disable the stop offline download button if it was stopped successfully
         if (serviceAction == MapboxOfflineDownloaderService.SERVICE_ACTION.STOP_CURRENT_DOWNLOAD) {
             currentMapDownload = null;
-            downloadStopped(mapUniqueName);
+            downloadStopped(mapName);
         } else if (serviceAction == MapboxOfflineDownloaderService.SERVICE_ACTION.DELETE_MAP) {
-            mapDeletedSuccessfully(mapUniqueName);
+            if (!regionPart) {
+                mapDeletedSuccessfully(mapName);
+            }
         } else {
             if (!TextUtils.isEmpty(message)) {
                 // This is a download progress message
                 if (isValidDouble(message)) {
-                    if (Double.valueOf(message) == 100d) {
+                    if (Double.valueOf(message) == 100d && !regionPart) {
                         currentMapDownload = null;
                         displayToast(getString(R.string.download_finished_successfuly));
-                        downloadCompleted(mapUniqueName);
+                        downloadCompleted(mapName);
                         // setCanStopMapDownload(false);
                     } else {
                         // setCanStopMapDownload(true);
                         displayToast(getString(R.string.map_download_progress, Double.valueOf(message)));
-                        downloadStarted(mapUniqueName);
+                        downloadStarted(mapName);
                     }
                 } else {
                     displayToast(message);
@@ -2,11 +2,13 @@ package org.smartregister.tasking.fragment;
 
 import android.content.Context;
 import android.os.Bundle;
+import android.text.format.Formatter;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.Button;
 import android.widget.CheckBox;
+import android.widget.TextView;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -35,6 +37,8 @@ public class DownloadedOfflineMapsFragment extends BaseOfflineMapsFragment imple
 
     private RecyclerView downloadedMapsRecyclerView;
 
+    private TextView storageUsageTextView;
+
     private DownloadedOfflineMapAdapter adapter;
 
     private DownloadedOfflineMapsPresenter presenter;
@@ -84,6 +88,7 @@ public class DownloadedOfflineMapsFragment extends BaseOfflineMapsFragment imple
 
     private void setUpViews(View view) {
         downloadedMapsRecyclerView = view.findViewById(R.id.offline_map_recyclerView);
+        storageUsageTextView = view.findViewById(R.id.offline_map_storage_usage);
 
         Button btnDeleteMap = view.findViewById(R.id.download_map);
         btnDeleteMap.setText(getString(R.string.delete).toUpperCase());
@@ -137,12 +142,28 @@ public class DownloadedOfflineMapsFragment extends BaseOfflineMapsFragment imple
         }
 
         for (OfflineMapModel offlineMapModel: offlineMapsTodelete) {
+            for (String regionPartName : offlineMapModel.getRegionPartNames()) {
+                OfflineServiceHelper.deleteOfflineMap(getActivity(),
+                        regionPartName,
+                        TaskingLibrary.getInstance().getMapboxAccessToken());
+            }
             OfflineServiceHelper.deleteOfflineMap(getActivity(),
                     offlineMapModel.getDownloadAreaId(),
                     TaskingLibrary.getInstance().getMapboxAccessToken());
         }
     }
 
+    @Override
+    public void setStorageUsage(long storageUsage, long storageBudget) {
+        if (storageUsageTextView == null || getContext() == null) {
+            return;
+        }
+        String usage = Formatter.formatFileSize(getContext(), storageUsage);
+        storageUsageTextView.setText(storageBudget > 0 ? getString(R.string.offline_map_storage_usage_budget, usage,
+                Formatter.formatFileSize(getContext(), storageBudget)) : getString(R.string.offline_map_storage_usage, usage));
+        storageUsageTextView.setVisibility(View.VISIBLE);
+    }
+
     public void updateDownloadedMapsList(OfflineMapModel offlineMapModel){
         downloadedOfflineMapModelList.add(offlineMapModel);
         setDownloadedOfflineMapModelList(downloadedOfflineMapModelList);
@@ -150,6 +171,7 @@ public class DownloadedOfflineMapsFragment extends BaseOfflineMapsFragment imple
 
     @Override
     protected void mapDeletedSuccessfully(String mapUniqueName) {
+        presenter.onMapDeleted(mapUniqueName);
         if (adapter ==null) {
             return;
         }
@@ -41,6 +41,7 @@ import org.smartregister.tasking.util.Utils;
 import org.smartregister.view.fragment.BaseRegisterFragment;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -52,6 +53,12 @@ import static android.content.DialogInterface.BUTTON_POSITIVE;
 import static org.apache.commons.lang3.StringUtils.isEmpty;
 import static org.smartregister.tasking.util.Constants.Action;
 import static org.smartregister.tasking.util.Constants.Filter.FILTER_SORT_PARAMS;
+import static org.smartregister.tasking.util.Constants.IntentKey.PROCESSED_EVENT_COUNT;
+import static org.smartregister.tasking.util.Constants.IntentKey.SYNCED_ENTITY_IDS;
+import static org.smartregister.tasking.util.Constants.IntentKey.SYNCED_STRUCTURE_COUNT;
+import static org.smartregister.tasking.util.Constants.IntentKey.SYNCED_TASK_COUNT;
+import static org.smartregister.tasking.util.Constants.IntentKey.SYNC_COMPLETE;
+import static org.smartregister.tasking.util.Constants.IntentKey.SYNC_PAGE;
 import static org.smartregister.tasking.util.Constants.Intervention.TASK_RESET_INTERVENTIONS;
 import static org.smartregister.tasking.util.Constants.RequestCode.REQUEST_CODE_FILTER_TASKS;
 
@@ -74,6 +81,10 @@ public class TaskRegisterFragment extends BaseRegisterFragment implements TaskRe
 
     private RefreshRegisterReceiver refreshRegisterReceiver = new RefreshRegisterReceiver();
 
+    private SyncProgressReceiver syncProgressReceiver = new SyncProgressReceiver();
+
+    private TextView syncProgressTextView;
+
     private CardView indicatorsCardView;
 
     private TextView filterTextView;
@@ -93,6 +104,7 @@ public class TaskRegisterFragment extends BaseRegisterFragment implements TaskRe
 
     public void initializeAdapter(Set<org.smartregister.configurableviews.model.View> visibleColumns) {
         taskAdapter = new TaskRegisterAdapter(getActivity(), registerActionHandler);
+        taskAdapter.setOnLoadMoreListener(() -> getPresenter().loadNextTaskPage());
         clientsView.setAdapter(taskAdapter);
     }
 
@@ -112,6 +124,8 @@ public class TaskRegisterFragment extends BaseRegisterFragment implements TaskRe
 
         initializeProgressIndicatorViews(view);
 
+        syncProgressTextView = view.findViewById(R.id.sync_progress_text);
+
         filterTextView = view.findViewById(R.id.filter_text_view);
         filterTextView.setOnClickListener(v -> {
             getPresenter().onFilterTasksClicked();
@@ -259,7 +273,7 @@ public class TaskRegisterFragment extends BaseRegisterFragment implements TaskRe
     public void setTotalTasks(int structuresWithinBuffer) {
         if (isAdded() && headerTextDisplay != null) {
             headerTextDisplay.setText(getResources().getQuantityString(R.plurals.structures,
-                    taskAdapter.getItemCount(), structuresWithinBuffer, Utils.getLocationBuffer(), taskAdapter.getItemCount()));
+                    taskAdapter.getTaskCount(), structuresWithinBuffer, Utils.getLocationBuffer(), taskAdapter.getTaskCount()));
 
             filterRelativeLayout.setVisibility(View.GONE);
         }
@@ -274,6 +288,16 @@ public class TaskRegisterFragment extends BaseRegisterFragment implements TaskRe
         TaskingLibrary.getInstance().getTaskingLibraryConfiguration().setTaskDetails(getActivity(), taskAdapter, tasks);
     }
 
+    @Override
+    public void addTaskDetails(List<TaskDetails> tasks) {
+        taskAdapter.addTaskDetails(tasks);
+    }
+
+    @Override
+    public void setTotalTaskCount(int totalTaskCount) {
+        taskAdapter.setTotalTaskCount(totalTaskCount);
+    }
+
     @Override
     public void displayNotification(int title, int message, Object... formatArgs) {
         setRefreshList(false);
@@ -436,8 +460,10 @@ public class TaskRegisterFragment extends BaseRegisterFragment implements TaskRe
 
     @Override
     public void onPause() {
-        if (getContext() != null)
+        if (getContext() != null) {
             LocalBroadcastManager.getInstance(getContext()).unregisterReceiver(refreshRegisterReceiver);
+            LocalBroadcastManager.getInstance(getContext()).unregisterReceiver(syncProgressReceiver);
+        }
         setViewVisibility(indicatorsCardView, false);
         super.onPause();
     }
@@ -448,13 +474,44 @@ public class TaskRegisterFragment extends BaseRegisterFragment implements TaskRe
         if (getContext() != null) {
             IntentFilter filter = new IntentFilter(Action.STRUCTURE_TASK_SYNCED);
             LocalBroadcastManager.getInstance(getContext()).registerReceiver(refreshRegisterReceiver, filter);
+            LocalBroadcastManager.getInstance(getContext()).registerReceiver(syncProgressReceiver,
+                    new IntentFilter(Action.STRUCTURE_TASK_SYNC_PROGRESS));
+        }
+    }
+
+    /**
+     * Shows the number of structures and tasks received and events processed while the structures and tasks are synced
+     */
+    public void setSyncProgress(int page, int structureCount, int taskCount, int processedEventCount, boolean complete) {
+        if (syncProgressTextView == null) {
+            return;
+        }
+        if (complete) {
+            syncProgressTextView.setVisibility(View.GONE);
+        } else {
+            syncProgressTextView.setText(getString(R.string.sync_progress, page, structureCount, taskCount, processedEventCount));
+            syncProgressTextView.setVisibility(View.VISIBLE);
         }
     }
 
     private class RefreshRegisterReceiver extends BroadcastReceiver {
         @Override
         public void onReceive(Context context, Intent intent) {
-            getPresenter().initializeQueries(getMainCondition());
+            List<String> syncedEntityIds = intent.getStringArrayListExtra(SYNCED_ENTITY_IDS);
+            if (syncedEntityIds == null) {
+                getPresenter().initializeQueries(getMainCondition());
+            } else {
+                getPresenter().refreshTasks(new HashSet<>(syncedEntityIds));
+            }
+        }
+    }
+
+    private class SyncProgressReceiver extends BroadcastReceiver {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            setSyncProgress(intent.getIntExtra(SYNC_PAGE, 0), intent.getIntExtra(SYNCED_STRUCTURE_COUNT, 0),
+                    intent.getIntExtra(SYNCED_TASK_COUNT, 0), intent.getIntExtra(PROCESSED_EVENT_COUNT, 0),
+                    intent.getBooleanExtra(SYNC_COMPLETE, false));
         }
     }
 
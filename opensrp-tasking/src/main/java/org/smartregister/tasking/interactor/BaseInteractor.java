@@ -277,6 +277,7 @@ public class BaseInteractor implements BaseContract.BaseInteractor {
                     taskingLibrary.getTaskingLibraryConfiguration().setSynced(false);
                     Context applicationContext = DrishtiApplication.getInstance().getApplicationContext();
                     clientProcessor.processClient(Collections.singletonList(new EventClient(event, null)), true);
+                    taskingLibrary.getTaskSnapshotStore().invalidate();
                     Task task = TaskingLibrary.getInstance().getTaskingLibraryConfiguration().generateTaskFromStructureType(applicationContext, structure.getId(), structureType);
                     /*Task task = null;
                     if (Constants.StructureType.RESIDENTIAL.equals(structureType) && Utils.isFocusInvestigationOrMDA()) {
@@ -346,6 +347,7 @@ public class BaseInteractor implements BaseContract.BaseInteractor {
                     org.smartregister.domain.Event event = saveEvent(jsonForm, eventType, FAMILY_MEMBER);
                     Client client = eventClientRepository.fetchClientByBaseEntityId(event.getBaseEntityId());
                     clientProcessor.processClient(Collections.singletonList(new EventClient(event, client)), true);
+                    taskingLibrary.getTaskSnapshotStore().invalidate();
                     appExecutors.mainThread().execute(new Runnable() {
                         @Override
                         public void run() {
@@ -10,17 +10,21 @@ import org.smartregister.domain.Location;
 import org.smartregister.repository.LocationRepository;
 import org.smartregister.tasking.TaskingLibrary;
 import org.smartregister.tasking.contract.DownloadedOfflineMapsContract;
+import org.smartregister.tasking.model.OfflineMapCatalogEntry;
 import org.smartregister.tasking.model.OfflineMapModel;
+import org.smartregister.tasking.repository.OfflineMapCatalogRepository;
 import org.smartregister.tasking.util.OfflineMapHelper;
+import org.smartregister.tasking.util.OfflineMapStorageManager;
 import org.smartregister.util.AppExecutors;
 import org.smartregister.view.activity.DrishtiApplication;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
-import io.ona.kujaku.data.realm.RealmDatabase;
 import io.ona.kujaku.data.realm.objects.MapBoxOfflineQueueTask;
 
 public class DownloadedOfflineMapsInteractor implements DownloadedOfflineMapsContract.Interactor {
@@ -31,16 +35,18 @@ public class DownloadedOfflineMapsInteractor implements DownloadedOfflineMapsCon
 
     private DownloadedOfflineMapsContract.Presenter presenter;
 
-    private RealmDatabase realmDatabase;
-
     private Map<String, MapBoxOfflineQueueTask> offlineQueueTaskMap;
 
+    private OfflineMapCatalogRepository catalogRepository;
+
     public DownloadedOfflineMapsInteractor(DownloadedOfflineMapsContract.Presenter presenter, Context context) {
         this.presenter = presenter;
         appExecutors = TaskingLibrary.getInstance().getAppExecutors();
         locationRepository = DrishtiApplication.getInstance().getContext().getInstance().getLocationRepository();
-        realmDatabase = TaskingLibrary.getInstance().getRealmDatabase(context);
         offlineQueueTaskMap = new HashMap<>();
+        catalogRepository = TaskingLibrary.getInstance().getOfflineMapCatalogRepository();
+        // the storage manager removes the regions of deleted maps from the catalog once they are deleted
+        TaskingLibrary.getInstance().getOfflineMapStorageManager(context);
     }
 
     @Override
@@ -55,8 +61,6 @@ public class DownloadedOfflineMapsInteractor implements DownloadedOfflineMapsCon
 
                 List<Location> operationalAreas = locationRepository.getLocationsByIds(offlineRegionInfo.first);
 
-                setOfflineQueueTaskMap(OfflineMapHelper.populateOfflineQueueTaskMap(realmDatabase));
-
                 List<OfflineMapModel> offlineMapModels = populateOfflineMapModelList(operationalAreas, offlineRegionInfo.second);
 
                 appExecutors.mainThread().execute(new Runnable() {
@@ -81,7 +85,19 @@ public class DownloadedOfflineMapsInteractor implements DownloadedOfflineMapsCon
             offlineMapModel.setOfflineMapStatus(OfflineMapModel.OfflineMapStatus.DOWNLOADED);
             offlineMapModel.setOfflineRegion(offlineRegionMap.get(location.getId()));
 
-            if (offlineQueueTaskMap.get(location.getId()) != null) {
+            Set<String> regionNames = new HashSet<>(offlineRegionMap.keySet());
+            long size = 0;
+            for (OfflineMapCatalogEntry entry : catalogRepository.getMapEntries(location.getId())) {
+                regionNames.add(entry.getRegionName());
+                size += entry.getSize();
+                if (entry.getRegionName().equals(location.getId())) {
+                    offlineMapModel.setDateCreated(entry.getDateCreated());
+                }
+            }
+            offlineMapModel.setRegionPartNames(OfflineMapHelper.getRegionPartNames(location.getId(), regionNames));
+            offlineMapModel.setSize(size);
+
+            if (offlineMapModel.getDateCreated() == null && offlineQueueTaskMap.get(location.getId()) != null) {
                 offlineMapModel.setDateCreated(offlineQueueTaskMap.get(location.getId()).getDateCreated());
             }
 
@@ -91,6 +107,27 @@ public class DownloadedOfflineMapsInteractor implements DownloadedOfflineMapsCon
         return offlineMapModels;
     }
 
+    /**
+     * Reads the storage usage from the catalog, the sizes of the regions are read from their status when a map download
+     * completes and when regions are added to the catalog, see {@link OfflineMapStorageManager}
+     */
+    @Override
+    public void fetchStorageUsage() {
+        appExecutors.diskIO().execute(new Runnable() {
+            @Override
+            public void run() {
+                final long storageUsage = catalogRepository.getStorageUsage();
+                final long storageBudget = TaskingLibrary.getInstance().getTaskingLibraryConfiguration().getOfflineMapStorageBudget();
+                appExecutors.mainThread().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        presenter.onStorageUsageFetched(storageUsage, storageBudget);
+                    }
+                });
+            }
+        });
+    }
+
     public void setOfflineQueueTaskMap(Map<String, MapBoxOfflineQueueTask> offlineQueueTaskMap) {
         this.offlineQueueTaskMap = offlineQueueTaskMap;
     }
@@ -9,6 +9,7 @@ import androidx.core.util.Pair;
 import com.google.common.annotations.VisibleForTesting;
 
 import net.sqlcipher.Cursor;
+import net.sqlcipher.database.SQLiteDatabase;
 
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -19,43 +20,46 @@ import org.smartregister.repository.LocationRepository;
 import org.smartregister.tasking.TaskingLibrary;
 import org.smartregister.tasking.contract.TaskRegisterFragmentContract;
 import org.smartregister.tasking.model.TaskDetails;
+import org.smartregister.tasking.model.TaskRegisterPage;
+import org.smartregister.tasking.model.TaskSnapshot;
 import org.smartregister.tasking.util.Constants;
 import org.smartregister.tasking.util.Constants.EventType;
 import org.smartregister.tasking.util.Constants.Properties;
 import org.smartregister.tasking.util.InteractorUtils;
+import org.smartregister.tasking.util.TaskDetailsRowMapper;
+import org.smartregister.tasking.util.TaskDetailsRowMapper.Projection;
+import org.smartregister.tasking.util.TaskOrdinals.TaskCode;
+import org.smartregister.tasking.util.TaskSpatialIndex;
+import org.smartregister.tasking.util.TaskingLibraryConfiguration;
 import org.smartregister.tasking.util.Utils;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 
 import timber.log.Timber;
 
 import static org.smartregister.domain.Task.INACTIVE_TASK_STATUS;
 import static org.smartregister.repository.EventClientRepository.Table.event;
-import static org.smartregister.tasking.util.Constants.DatabaseKeys.BUSINESS_STATUS;
 import static org.smartregister.tasking.util.Constants.DatabaseKeys.CODE;
-import static org.smartregister.tasking.util.Constants.DatabaseKeys.COMPLETED_TASK_COUNT;
-import static org.smartregister.tasking.util.Constants.DatabaseKeys.FAMILY_NAME;
-import static org.smartregister.tasking.util.Constants.DatabaseKeys.FIRST_NAME;
 import static org.smartregister.tasking.util.Constants.DatabaseKeys.FOR;
-import static org.smartregister.tasking.util.Constants.DatabaseKeys.GROUPED_STRUCTURE_TASK_CODE_AND_STATUS;
 import static org.smartregister.tasking.util.Constants.DatabaseKeys.GROUPID;
-import static org.smartregister.tasking.util.Constants.DatabaseKeys.HOUSE_NUMBER;
 import static org.smartregister.tasking.util.Constants.DatabaseKeys.ID;
 import static org.smartregister.tasking.util.Constants.DatabaseKeys.LATITUDE;
 import static org.smartregister.tasking.util.Constants.DatabaseKeys.LONGITUDE;
-import static org.smartregister.tasking.util.Constants.DatabaseKeys.NAME;
-import static org.smartregister.tasking.util.Constants.DatabaseKeys.NOT_SRAYED_OTHER_REASON;
-import static org.smartregister.tasking.util.Constants.DatabaseKeys.NOT_SRAYED_REASON;
-import static org.smartregister.tasking.util.Constants.DatabaseKeys.OTHER;
 import static org.smartregister.tasking.util.Constants.DatabaseKeys.PLAN_ID;
-import static org.smartregister.tasking.util.Constants.DatabaseKeys.REFERENCE_REASON;
-import static org.smartregister.tasking.util.Constants.DatabaseKeys.SPRAY_STATUS;
 import static org.smartregister.tasking.util.Constants.DatabaseKeys.STATUS;
 import static org.smartregister.tasking.util.Constants.DatabaseKeys.STRUCTURE_ID;
-import static org.smartregister.tasking.util.Constants.DatabaseKeys.STRUCTURE_NAME;
-import static org.smartregister.tasking.util.Constants.DatabaseKeys.TASK_COUNT;
 import static org.smartregister.tasking.util.Constants.DatabaseKeys.TASK_TABLE;
 import static org.smartregister.tasking.util.Constants.Intervention.BCC;
 import static org.smartregister.tasking.util.Constants.Intervention.CASE_CONFIRMATION;
@@ -69,8 +73,30 @@ public class TaskRegisterFragmentInteractor extends BaseInteractor implements Ta
     private final Float locationBuffer;
     private InteractorUtils interactorUtils;
 
+    private static final int REGISTER_QUERY_THREADS = 3;
 
-    private int structuresWithinBuffer = 0;
+    private static ExecutorService queryExecutor;
+
+    private volatile TaskSpatialIndex spatialIndex;
+
+    private static final String REGISTER_SORT_KEY = "register_sort_key";
+
+    private static final String REGISTERED_STRUCTURE_TASKS = "registered_structure_tasks";
+
+    private static final String GROUPED_TASK_STATES = "grouped_task_states";
+
+    private static final String GROUPED_STRUCTURE_ID = "grouped_structure_id";
+
+    private static final String GROUPED_TASK_ROWS = "grouped_task_rows";
+
+    private static final String REGISTER_SORT_KEY_TABLE = "task_register_sort_key";
+
+    private static final String SORT_KEY_TASK_ID = "task_id";
+
+    /**
+     * Larger than the squared distance in degrees of any location so tasks without coordinates are ordered last
+     */
+    private static final String NO_LOCATION_SORT_KEY = "1.0e9";
 
     public TaskRegisterFragmentInteractor(TaskRegisterFragmentContract.Presenter presenter) {
         this(presenter, Utils.getLocationBuffer());
@@ -139,6 +165,22 @@ public class TaskRegisterFragmentInteractor extends BaseInteractor implements Ta
         return TaskingLibrary.getInstance().getTaskingLibraryConfiguration().groupedRegisteredStructureTasksSelect(mainCondition);
     }
 
+    /**
+     * Joins the grouped registered structure tasks to the states of their tasks counted by structure, so the register
+     * reads the states as numbers instead of parsing the grouped task code and status column.
+     * The states are counted over the task rows of the grouped query, see
+     * {@link TaskingLibraryConfiguration#groupedRegisteredStructureTaskRowsSelect(String)}.
+     * The main condition params are bound twice, once for each query
+     */
+    @VisibleForTesting
+    protected String groupedRegisteredStructureTaskStatesSelect(String mainCondition) {
+        return String.format("SELECT %1$s.*, %2$s.* FROM (%3$s) %1$s LEFT JOIN (SELECT %4$s.%5$s AS %6$s, %7$s FROM (%8$s) %4$s " +
+                        "GROUP BY %4$s.%5$s) %2$s ON %2$s.%6$s = %1$s.%5$s",
+                REGISTERED_STRUCTURE_TASKS, GROUPED_TASK_STATES, groupedRegisteredStructureTasksSelect(mainCondition),
+                GROUPED_TASK_ROWS, STRUCTURE_ID, GROUPED_STRUCTURE_ID, Utils.getGroupedStructureTaskAggregateColumns(GROUPED_TASK_ROWS),
+                TaskingLibrary.getInstance().getTaskingLibraryConfiguration().groupedRegisteredStructureTaskRowsSelect(mainCondition));
+    }
+
     private String bccSelect() {
         return String.format("SELECT * FROM %s WHERE %s = ? AND %s = ? AND %s ='%s' AND %s NOT IN (%s)",
                 TASK_TABLE, FOR, PLAN_ID, CODE, BCC, STATUS,
@@ -179,131 +221,503 @@ public class TaskRegisterFragmentInteractor extends BaseInteractor implements Ta
 
 
     public void findTasks(Pair<String, String[]> mainCondition, Location lastLocation, Location operationalAreaCenter, String houseLabel) {
-        if (mainCondition == null || mainCondition.second == null || mainCondition.second.length < 3 || mainCondition.second[0] == null) {
+        if (!isValidCondition(mainCondition)) {
             getPresenter().onTasksFound(null, 0);
             return;
         }
-        // Fetch grouped tasks
-        List<TaskDetails> tasks = new ArrayList<>();
         appExecutors.diskIO().execute(() -> {
-            structuresWithinBuffer = 0;
-            if (Utils.isFocusInvestigationOrMDA()) { // perform task grouping
+            List<RegisterQuery> queries = getStructureTaskQueries(mainCondition, lastLocation, operationalAreaCenter, houseLabel);
+            queries.addAll(getOperationalAreaTaskQueries(mainCondition, lastLocation, operationalAreaCenter, houseLabel));
+            TaskSnapshot tasks;
+            try {
+                tasks = executeQueries(queries).sortByDistance();
+            } catch (RegisterQueryException e) {
+                onTasksNotFound(e);
+                return;
+            }
+            int structuresWithinBuffer = countStructuresWithinBuffer(tasks);
+            spatialIndex = new TaskSpatialIndex(tasks, locationBuffer);
+            appExecutors.mainThread().execute(() -> {
+                getPresenter().onTasksFound(tasks, structuresWithinBuffer);
+            });
 
-                tasks.addAll(queryTaskDetails(groupedRegisteredStructureTasksSelect(mainCondition.first),
-                        mainCondition.second, lastLocation, operationalAreaCenter, houseLabel, true));
+        });
 
+    }
 
-                tasks.addAll(queryTaskDetails(nonRegisteredStructureTasksSelect(mainCondition.first),
-                        mainCondition.second, lastLocation, operationalAreaCenter, houseLabel, false));
+    /**
+     * Displays the tasks of a snapshot loaded by another screen without querying the database.
+     * Only the distances of the tasks are recalculated, on a copy as the stored snapshot is shared with the other screens
+     *
+     * @param snapshot              the stored tasks of the operational area and plan
+     * @param lastLocation          the last known user location
+     * @param operationalAreaCenter the center of the operational area
+     */
+    public void loadTasks(TaskSnapshot snapshot, Location lastLocation, Location operationalAreaCenter) {
+        appExecutors.diskIO().execute(() -> {
+            TaskSnapshot snapshotCopy = snapshot.copy();
+            TaskSpatialIndex index = new TaskSpatialIndex(snapshotCopy, locationBuffer);
+            if (lastLocation != null) {
+                index.updateDistances(lastLocation);
+            } else if (operationalAreaCenter != null) {
+                index.updateDistances(operationalAreaCenter, true);
+            }
+            spatialIndex = index;
+            TaskSnapshot tasks = snapshotCopy.sortByDistance();
+            int structuresWithinBuffer = countStructuresWithinBuffer(tasks);
+            appExecutors.mainThread().execute(() -> {
+                getPresenter().onTasksFound(tasks, structuresWithinBuffer);
+            });
+        });
+    }
 
+    /**
+     * Refreshes the task register by re-querying only the tasks linked to the changed entities.
+     * Rows of unaffected structures are reused from the current tasks, rows of affected structures are replaced.
+     * Falls back to a full reload if the affected structures cannot be queried in one statement.
+     *
+     * @param currentTasks          the tasks currently displayed on the register
+     * @param changedIds            the ids of the tasks, structures or families that changed
+     * @param mainCondition         the register main condition and its params
+     * @param lastLocation          the last known user location
+     * @param operationalAreaCenter the center of the operational area
+     * @param houseLabel            the label appended to family names
+     */
+    public void refreshTasks(List<TaskDetails> currentTasks, Set<String> changedIds, Pair<String, String[]> mainCondition,
+                             Location lastLocation, Location operationalAreaCenter, String houseLabel) {
+        if (currentTasks == null || changedIds == null || changedIds.isEmpty() || !isValidCondition(mainCondition)) {
+            findTasks(mainCondition, lastLocation, operationalAreaCenter, houseLabel);
+            return;
+        }
+        TaskSnapshot previousTasks = TaskSnapshot.of(currentTasks);
+        appExecutors.diskIO().execute(() -> {
+            Set<String> structureIds = getAffectedStructureIds(changedIds);
+            TaskSnapshot.Builder tasksBuilder = new TaskSnapshot.Builder(previousTasks.size());
+            List<RegisterQuery> queries = new ArrayList<>();
+            if (structureIds.size() > Constants.TaskRegister.MAX_INCREMENTAL_REFRESH_STRUCTURES) {
+                Timber.d("%d structures changed, reloading all tasks", structureIds.size());
+                queries.addAll(getStructureTaskQueries(mainCondition, lastLocation, operationalAreaCenter, houseLabel));
             } else {
-
-                tasks.addAll(queryTaskDetails(mainSelect(mainCondition.first), mainCondition.second,
-                        lastLocation, operationalAreaCenter, houseLabel, false));
-
+                for (int i = 0; i < previousTasks.size(); i++) {
+                    if (!isOperationalAreaTask(previousTasks.getTaskCodeOrdinal(i), previousTasks.getTaskCount(i))
+                            && !changedIds.contains(previousTasks.getTaskId(i))
+                            && !structureIds.contains(previousTasks.getStructureId(i))) {
+                        tasksBuilder.add(previousTasks, i);
+                    }
+                }
+                if (!structureIds.isEmpty()) {
+                    queries.addAll(getStructureTaskQueries(getChangedStructuresCondition(mainCondition, structureIds),
+                            lastLocation, operationalAreaCenter, houseLabel));
+                }
             }
+            queries.addAll(getOperationalAreaTaskQueries(mainCondition, lastLocation, operationalAreaCenter, houseLabel));
+            TaskSnapshot tasks;
+            try {
+                tasks = tasksBuilder.addAll(executeQueries(queries)).build().sortByDistance();
+            } catch (RegisterQueryException e) {
+                onTasksNotFound(e);
+                return;
+            }
+            int structuresWithinBuffer = countStructuresWithinBuffer(tasks);
+            spatialIndex = new TaskSpatialIndex(tasks, locationBuffer);
+            appExecutors.mainThread().execute(() -> {
+                getPresenter().onTasksFound(tasks, structuresWithinBuffer);
+            });
+        });
+    }
 
-            // Query BCC task
-            tasks.addAll(queryTaskDetails(bccSelect(), mainCondition.second, lastLocation,
-                    operationalAreaCenter, houseLabel, false));
+    /**
+     * Finds a page of structure tasks ordered by distance from the reference location using keyset pagination,
+     * so only the rows of the page are read and mapped. The first page also contains the BCC and case confirmation tasks
+     * and the counts of all structure tasks and those within the location buffer.
+     *
+     * @param mainCondition         the register main condition and its params
+     * @param lastLocation          the last known user location
+     * @param operationalAreaCenter the center of the operational area
+     * @param houseLabel            the label appended to family names
+     * @param previousPage          the previously loaded page or null to load the first page
+     * @param pageSize              the maximum number of structure tasks in the page
+     */
+    public void findTasksPage(Pair<String, String[]> mainCondition, Location lastLocation, Location operationalAreaCenter,
+                              String houseLabel, TaskRegisterPage previousPage, int pageSize) {
+        Location referenceLocation = previousPage != null ? previousPage.getReferenceLocation() :
+                lastLocation != null ? lastLocation : operationalAreaCenter;
+        if (!isValidCondition(mainCondition) || referenceLocation == null) {
+            findTasks(mainCondition, lastLocation, operationalAreaCenter, houseLabel);
+            return;
+        }
+        appExecutors.diskIO().execute(() -> {
+            long start = System.currentTimeMillis();
+            if (previousPage == null) {
+                try {
+                    storeSortKeys(mainCondition, referenceLocation);
+                } catch (Exception e) {
+                    onTasksNotFound(e);
+                    return;
+                }
+            }
 
+            TaskRegisterPage page = new TaskRegisterPage();
+            page.setReferenceLocation(referenceLocation);
+            page.setFirstPage(previousPage == null);
+            String keyset = "";
+            String[] params = mainCondition.second;
+            if (previousPage != null) {
+                keyset = String.format(" WHERE k.%s > CAST(? AS REAL) OR (k.%s = CAST(? AS REAL) AND k.%s > ?)",
+                        REGISTER_SORT_KEY, REGISTER_SORT_KEY, SORT_KEY_TASK_ID);
+                params = ArrayUtils.addAll(params, String.valueOf(previousPage.getLastSortKey()),
+                        String.valueOf(previousPage.getLastSortKey()), previousPage.getLastTaskId());
+            }
+            String query = String.format("SELECT %s, k.%s FROM %s k JOIN (%s) m ON m.%s = k.%s%s ORDER BY k.%s, k.%s LIMIT %d",
+                    getMainColumnNames("m"), REGISTER_SORT_KEY, REGISTER_SORT_KEY_TABLE, mainSelect(mainCondition.first),
+                    ID, SORT_KEY_TASK_ID, keyset, REGISTER_SORT_KEY, SORT_KEY_TASK_ID, pageSize);
+
+            List<TaskDetails> tasks = new ArrayList<>();
+            Cursor cursor = null;
+            try {
+                cursor = getDatabase().rawQuery(query, params);
+                if (cursor != null) {
+                    TaskDetailsRowMapper rowMapper = TaskDetailsRowMapper.create(cursor, Projection.STRUCTURE_TASKS, houseLabel);
+                    int sortKeyIndex = cursor.getColumnIndex(REGISTER_SORT_KEY);
+                    while (cursor.moveToNext()) {
+                        TaskDetails task = rowMapper.map(cursor);
+                        calculateDistance(task, lastLocation, operationalAreaCenter);
+                        tasks.add(task);
+                        page.setLastSortKey(cursor.getDouble(sortKeyIndex));
+                        page.setLastTaskId(task.getTaskId());
+                    }
+                }
+            } catch (Exception e) {
+                onTasksPageNotFound(e, previousPage);
+                return;
+            } finally {
+                if (cursor != null) {
+                    cursor.close();
+                }
+            }
+            page.setHasMore(tasks.size() == pageSize);
 
-            // Query Case Confirmation task
-            String[] params = ArrayUtils.add(mainCondition.second, CASE_CONFIRMATION);
-            tasks.addAll(queryTaskDetails(indexCaseSelect(), params, lastLocation,
-                    operationalAreaCenter, houseLabel, false));
+            int structuresWithinBuffer = 0;
+            if (previousPage == null) {
+                double bufferDegrees = locationBuffer / TaskSpatialIndex.METRES_PER_DEGREE;
+                int[] counts = countPagedTasks(String.format("SELECT COUNT(*), SUM(CASE WHEN %s <= %s THEN 1 ELSE 0 END) FROM %s",
+                        REGISTER_SORT_KEY, bufferDegrees * bufferDegrees, REGISTER_SORT_KEY_TABLE), null);
+                structuresWithinBuffer = counts[1];
+                TaskSnapshot operationalAreaTasks;
+                try {
+                    operationalAreaTasks = executeQueries(getOperationalAreaTaskQueries(mainCondition,
+                            lastLocation, operationalAreaCenter, houseLabel)).sortByDistance();
+                } catch (RegisterQueryException e) {
+                    onTasksNotFound(e);
+                    return;
+                }
+                page.setTotalTasks(counts[0] + operationalAreaTasks.size());
+                tasks.addAll(0, operationalAreaTasks);
+            }
+            page.setTasks(tasks);
+            Timber.d("register page of %d tasks read in %d ms", tasks.size(), System.currentTimeMillis() - start);
 
-            Collections.sort(tasks);
+            int finalStructuresWithinBuffer = structuresWithinBuffer;
             appExecutors.mainThread().execute(() -> {
-                getPresenter().onTasksFound(tasks, structuresWithinBuffer);
+                getPresenter().onTasksPageFound(page, finalStructuresWithinBuffer);
             });
-
         });
+    }
+
+    /**
+     * Stores the sort key of every structure task in an indexed temporary table when the first page is loaded,
+     * so the following pages are read in key order through the index instead of computing and sorting the keys again.
+     * The key is the squared distance in degrees from the reference location, tasks without coordinates are ordered last
+     */
+    private void storeSortKeys(Pair<String, String[]> mainCondition, Location referenceLocation) {
+        double longitudeScale = Math.cos(Math.toRadians(referenceLocation.getLatitude()));
+        String sortKey = String.format("CASE WHEN %s IS NULL OR %s IS NULL THEN %s ELSE (%s - ?) * (%s - ?) + (%s - ?) * (%s - ?) * ? END",
+                LATITUDE, LONGITUDE, NO_LOCATION_SORT_KEY, LATITUDE, LATITUDE, LONGITUDE, LONGITUDE);
+        Object[] params = ArrayUtils.addAll(new Object[]{referenceLocation.getLatitude(), referenceLocation.getLatitude(),
+                referenceLocation.getLongitude(), referenceLocation.getLongitude(), longitudeScale * longitudeScale}, (Object[]) mainCondition.second);
+        SQLiteDatabase database = getDatabase();
+        database.execSQL(String.format("CREATE TEMP TABLE IF NOT EXISTS %s (%s VARCHAR PRIMARY KEY, %s REAL NOT NULL)",
+                REGISTER_SORT_KEY_TABLE, SORT_KEY_TASK_ID, REGISTER_SORT_KEY));
+        database.execSQL(String.format("CREATE INDEX IF NOT EXISTS temp.%s_index ON %s(%s, %s)",
+                REGISTER_SORT_KEY_TABLE, REGISTER_SORT_KEY_TABLE, REGISTER_SORT_KEY, SORT_KEY_TASK_ID));
+        database.beginTransaction();
+        try {
+            database.execSQL("DELETE FROM " + REGISTER_SORT_KEY_TABLE);
+            database.execSQL(String.format("INSERT OR REPLACE INTO %s SELECT %s, %s FROM (%s)", REGISTER_SORT_KEY_TABLE,
+                    ID, sortKey, mainSelect(mainCondition.first)), params);
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+    }
 
+    /**
+     * @return the names of the register main columns qualified with the alias of the main select, each name once so
+     * the task id is not selected twice
+     */
+    private String getMainColumnNames(String alias) {
+        String[] columns = mainColumns(TASK_TABLE);
+        Set<String> names = new LinkedHashSet<>();
+        for (String column : columns) {
+            String name = column.trim();
+            int aliasStart = name.toLowerCase(Locale.ENGLISH).lastIndexOf(" as ");
+            if (aliasStart >= 0) {
+                name = name.substring(aliasStart + 4).trim();
+            } else {
+                name = name.substring(name.lastIndexOf('.') + 1);
+            }
+            names.add(alias + "." + name);
+        }
+        return TextUtils.join(", ", names);
     }
 
-    private List<TaskDetails> queryTaskDetails(String query, String[] params, Location lastLocation,
-                                               Location operationalAreaCenter, String houseLabel, boolean groupedTasks) {
-        List<TaskDetails> tasks = new ArrayList<>();
+    private int[] countPagedTasks(String query, String[] params) {
+        int[] counts = new int[2];
         Cursor cursor = null;
         try {
             cursor = getDatabase().rawQuery(query, params);
-            while (cursor != null && cursor.moveToNext()) {
-                TaskDetails taskDetails = readTaskDetails(cursor, lastLocation, operationalAreaCenter, houseLabel, groupedTasks);
-                //skip BCC and Case confirmation tasks in tracking tasks within buffer
-                if (taskDetails.getDistanceFromUser() <= locationBuffer && taskDetails.getDistanceFromUser() >= 0) {
-                    structuresWithinBuffer += 1;
-                }
-                tasks.add(taskDetails);
+            if (cursor != null && cursor.moveToFirst()) {
+                counts[0] = cursor.getInt(0);
+                counts[1] = cursor.getInt(1);
             }
+        } catch (Exception e) {
+            Timber.e(e);
         } finally {
             if (cursor != null) {
                 cursor.close();
             }
         }
-        return tasks;
-    }
-
-
-    private TaskDetails readTaskDetails(Cursor cursor, Location lastLocation, Location operationalAreaCenter, String houseLabel, boolean isGroupedTasks) {
-        TaskDetails task = new TaskDetails(cursor.getString(cursor.getColumnIndex(ID)));
-        task.setTaskCode(cursor.getString(cursor.getColumnIndex(CODE)));
-        task.setTaskEntity(cursor.getString(cursor.getColumnIndex(FOR)));
-        task.setBusinessStatus(cursor.getString(cursor.getColumnIndex(BUSINESS_STATUS)));
-        task.setTaskStatus(cursor.getString(cursor.getColumnIndex(STATUS)));
-        if (isGroupedTasks) {
-            task.setTaskCount(cursor.getInt(cursor.getColumnIndex(TASK_COUNT)));
-            task.setCompleteTaskCount(cursor.getInt(cursor.getColumnIndex(COMPLETED_TASK_COUNT)));
-            task.setGroupedTaskCodeStatus(cursor.getString(cursor.getColumnIndex(GROUPED_STRUCTURE_TASK_CODE_AND_STATUS)));
-            task.setHouseNumber(cursor.getString(cursor.getColumnIndex(HOUSE_NUMBER)));
-            task.setFamilyMemberNames(cursor.getString(cursor.getColumnIndex(Properties.FAMILY_MEMBER_NAMES)));
+        return counts;
+    }
+
+    private boolean isValidCondition(Pair<String, String[]> mainCondition) {
+        return mainCondition != null && mainCondition.second != null && mainCondition.second.length >= 3 && mainCondition.second[0] != null;
+    }
+
+    private List<RegisterQuery> getStructureTaskQueries(Pair<String, String[]> mainCondition, Location lastLocation,
+                                                        Location operationalAreaCenter, String houseLabel) {
+        List<RegisterQuery> queries = new ArrayList<>();
+        if (Utils.isFocusInvestigationOrMDA()) { // perform task grouping
+
+            queries.add(new RegisterQuery("grouped registered structure tasks", groupedRegisteredStructureTaskStatesSelect(mainCondition.first),
+                    ArrayUtils.addAll(mainCondition.second, mainCondition.second), lastLocation, operationalAreaCenter, houseLabel, Projection.GROUPED_STRUCTURE_TASKS));
+
+            queries.add(new RegisterQuery("non registered structure tasks", nonRegisteredStructureTasksSelect(mainCondition.first),
+                    mainCondition.second, lastLocation, operationalAreaCenter, houseLabel, Projection.STRUCTURE_TASKS));
+
+        } else {
+
+            queries.add(new RegisterQuery("structure tasks", mainSelect(mainCondition.first), mainCondition.second,
+                    lastLocation, operationalAreaCenter, houseLabel, Projection.STRUCTURE_TASKS));
+
         }
-        Location location = new Location((String) null);
-
-        if (CASE_CONFIRMATION.equals(task.getTaskCode())) {
-            task.setReasonReference(cursor.getString(cursor.getColumnIndex(REFERENCE_REASON)));
-        } else if (!BCC.equals(task.getTaskCode())) {
-            location.setLatitude(cursor.getDouble(cursor.getColumnIndex(LATITUDE)));
-            location.setLongitude(cursor.getDouble(cursor.getColumnIndex(LONGITUDE)));
-            task.setLocation(location);
-            task.setStructureName(cursor.getString(cursor.getColumnIndex(NAME)));
-            if (StringUtils.isBlank(task.getStructureName())) {
-                task.setStructureName(cursor.getString(cursor.getColumnIndex(STRUCTURE_NAME)));
-            }
+        return queries;
+    }
+
+    private List<RegisterQuery> getOperationalAreaTaskQueries(Pair<String, String[]> mainCondition, Location lastLocation,
+                                                              Location operationalAreaCenter, String houseLabel) {
+        List<RegisterQuery> queries = new ArrayList<>();
+        // Query BCC task
+        queries.add(new RegisterQuery("BCC tasks", bccSelect(), mainCondition.second, lastLocation,
+                operationalAreaCenter, houseLabel, Projection.OPERATIONAL_AREA_TASKS));
+
+        // Query Case Confirmation task
+        String[] params = ArrayUtils.add(mainCondition.second, CASE_CONFIRMATION);
+        queries.add(new RegisterQuery("case confirmation tasks", indexCaseSelect(), params, lastLocation,
+                operationalAreaCenter, houseLabel, Projection.OPERATIONAL_AREA_TASKS));
+        return queries;
+    }
 
-            task.setFamilyName(cursor.getString(cursor.getColumnIndex(FIRST_NAME)));
-            if (task.getFamilyName() == null) {
-                task.setFamilyName(cursor.getString(cursor.getColumnIndex(FAMILY_NAME)));
+    /**
+     * Executes the register queries one after the other or concurrently depending on
+     * {@link org.smartregister.tasking.util.TaskingLibraryConfiguration#isParallelTaskRegisterQueriesEnabled()}
+     *
+     * @param queries the register queries to execute
+     * @return the snapshot of the tasks returned by all the queries in the order the queries were supplied
+     * @throws RegisterQueryException if any of the queries fails or the thread is interrupted, the queries still
+     *                                running are cancelled so a partial register is never displayed
+     */
+    private TaskSnapshot executeQueries(List<RegisterQuery> queries) throws RegisterQueryException {
+        long start = System.currentTimeMillis();
+        TaskSnapshot.Builder tasks = new TaskSnapshot.Builder(0);
+        boolean parallel = queries.size() > 1 && TaskingLibrary.getInstance().getTaskingLibraryConfiguration().isParallelTaskRegisterQueriesEnabled();
+        List<Future<TaskSnapshot>> results = new ArrayList<>();
+        if (parallel) {
+            try {
+                for (RegisterQuery query : queries.subList(1, queries.size())) {
+                    results.add(getQueryExecutor().submit(query));
+                }
+            } catch (RejectedExecutionException e) {
+                Timber.w(e, "Register query pool rejected the queries, executing them one after the other");
+                cancel(results);
+                results.clear();
+                parallel = false;
+            }
+        }
+        try {
+            if (parallel) {
+                // run the first query on the current thread while the rest are executing
+                tasks.addAll(queries.get(0).call());
+                for (Future<TaskSnapshot> result : results) {
+                    tasks.addAll(result.get());
+                }
+            } else {
+                for (RegisterQuery query : queries) {
+                    tasks.addAll(query.call());
+                }
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RegisterQueryException(e);
+        } catch (ExecutionException e) {
+            throw new RegisterQueryException(e.getCause());
+        } catch (RuntimeException e) {
+            throw new RegisterQueryException(e);
+        } finally {
+            cancel(results);
+        }
+        Timber.d("%d register queries returned %d tasks in %d ms, parallel: %b",
+                queries.size(), tasks.size(), System.currentTimeMillis() - start, parallel);
+        return tasks.build();
+    }
 
-            if (task.getFamilyName() != null)
-                task.setFamilyName(task.getFamilyName() + " " + houseLabel);
+    private void cancel(List<Future<TaskSnapshot>> results) {
+        for (Future<TaskSnapshot> result : results) {
+            result.cancel(true);
+        }
+    }
 
-            task.setSprayStatus(cursor.getString(cursor.getColumnIndex(SPRAY_STATUS)));
+    /**
+     * @return the pool of the concurrent register queries, shared by all the registers and kept for the life of the process
+     * so a load running for one register is never rejected because another register was destroyed
+     */
+    private static synchronized ExecutorService getQueryExecutor() {
+        if (queryExecutor == null) {
+            queryExecutor = Executors.newFixedThreadPool(REGISTER_QUERY_THREADS);
+        }
+        return queryExecutor;
+    }
 
-            if (Constants.BusinessStatus.NOT_SPRAYED.equals(task.getBusinessStatus())) {
-                String reason = cursor.getString(cursor.getColumnIndex(NOT_SRAYED_REASON));
-                if (OTHER.equals(reason)) {
-                    reason = cursor.getString(cursor.getColumnIndex(NOT_SRAYED_OTHER_REASON));
+    private void onTasksNotFound(Exception e) {
+        Timber.e(e, "Could not load the task register");
+        appExecutors.mainThread().execute(() -> {
+            getPresenter().onTasksFound(null, 0);
+        });
+    }
+
+    /**
+     * Reports a page that could not be read, a failed first page is reported like a failed register load
+     * while a failed next page leaves the loaded pages as they are so the page can be requested again
+     */
+    private void onTasksPageNotFound(Exception e, TaskRegisterPage previousPage) {
+        if (previousPage == null) {
+            onTasksNotFound(e);
+            return;
+        }
+        Timber.e(e, "Could not load the next task register page");
+        appExecutors.mainThread().execute(() -> {
+            getPresenter().onTasksPageNotFound(previousPage);
+        });
+    }
+
+    /**
+     * BCC and case confirmation tasks are not linked to a structure and are always re-queried on refresh
+     */
+    private boolean isOperationalAreaTask(int taskCode, Integer taskCount) {
+        return taskCode == TaskCode.BCC || (taskCode == TaskCode.CASE_CONFIRMATION && taskCount == null);
+    }
+
+    /**
+     * Resolves the structures whose register rows are affected by the changed ids.
+     * The changed ids may be structure ids, task ids or the entities the tasks are for
+     *
+     * @param changedIds the changed entity ids
+     * @return the ids of the affected structures
+     */
+    private Set<String> getAffectedStructureIds(Set<String> changedIds) {
+        Set<String> structureIds = new HashSet<>(changedIds);
+        if (changedIds.size() > Constants.TaskRegister.MAX_INCREMENTAL_REFRESH_STRUCTURES) {
+            return structureIds;
+        }
+        String placeholders = TextUtils.join(",", Collections.nCopies(changedIds.size(), "?"));
+        String query = String.format("SELECT DISTINCT %s FROM %s WHERE %s IN (%s) OR %s IN (%s)",
+                STRUCTURE_ID, TASK_TABLE, ID, placeholders, FOR, placeholders);
+        String[] ids = changedIds.toArray(new String[0]);
+        Cursor cursor = null;
+        try {
+            cursor = getDatabase().rawQuery(query, ArrayUtils.addAll(ids, ids));
+            while (cursor != null && cursor.moveToNext()) {
+                if (!cursor.isNull(0)) {
+                    structureIds.add(cursor.getString(0));
                 }
-                task.setTaskDetails(reason);
+            }
+        } catch (Exception e) {
+            Timber.e(e);
+        } finally {
+            if (cursor != null) {
+                cursor.close();
             }
         }
-        task.setStructureId(cursor.getString(cursor.getColumnIndex(STRUCTURE_ID)));
+        return structureIds;
+    }
+
+    private Pair<String, String[]> getChangedStructuresCondition(Pair<String, String[]> mainCondition, Set<String> structureIds) {
+        String placeholders = TextUtils.join(",", Collections.nCopies(structureIds.size(), "?"));
+        String condition = String.format("%s AND (%s.%s IN (%s) OR %s.%s IN (%s))", mainCondition.first,
+                TASK_TABLE, STRUCTURE_ID, placeholders, TASK_TABLE, FOR, placeholders);
+        String[] ids = structureIds.toArray(new String[0]);
+        return new Pair<>(condition, ArrayUtils.addAll(mainCondition.second, ArrayUtils.addAll(ids, ids)));
+    }
 
-        calculateDistance(task, location, lastLocation, operationalAreaCenter);
+    private int countStructuresWithinBuffer(TaskSnapshot tasks) {
+        int structuresWithinBuffer = 0;
+        for (int i = 0; i < tasks.size(); i++) {
+            //skip BCC and Case confirmation tasks in tracking tasks within buffer
+            if (tasks.getDistanceFromUser(i) <= locationBuffer && tasks.getDistanceFromUser(i) >= 0) {
+                structuresWithinBuffer += 1;
+            }
+        }
+        return structuresWithinBuffer;
+    }
 
-        return task;
+    /**
+     * Reads the query rows into a snapshot. Each row is mapped, copied to the snapshot columns and released
+     */
+    private TaskSnapshot queryTaskDetails(String query, String[] params, Location lastLocation,
+                                          Location operationalAreaCenter, String houseLabel, Projection projection) {
+        Cursor cursor = null;
+        try {
+            cursor = getDatabase().rawQuery(query, params);
+            TaskSnapshot.Builder tasks = new TaskSnapshot.Builder(cursor == null ? 0 : cursor.getCount());
+            if (cursor != null) {
+                TaskDetailsRowMapper rowMapper = TaskDetailsRowMapper.create(cursor, projection, houseLabel);
+                while (cursor.moveToNext()) {
+                    TaskDetails task = rowMapper.map(cursor);
+                    calculateDistance(task, lastLocation, operationalAreaCenter);
+                    tasks.add(task);
+                }
+            }
+            return tasks.build();
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
     }
 
-    private void calculateDistance(TaskDetails task, Location location, Location lastLocation, Location operationalAreaCenter) {
-        if (BCC.equals(task.getTaskCode())) {
+    private void calculateDistance(TaskDetails task, Location lastLocation, Location operationalAreaCenter) {
+        int taskCode = task.getTaskCodeOrdinal();
+        if (taskCode == TaskCode.BCC) {
             //set distance to -2 to always display on top of register
             task.setDistanceFromUser(-2);
-        } else if (CASE_CONFIRMATION.equals(task.getTaskCode()) && task.getTaskCount() == null) {
+            return;
+        } else if (taskCode == TaskCode.CASE_CONFIRMATION && task.getTaskCount() == null) {
             //set distance to -1 to always display on top of register and below BCC
             task.setDistanceFromUser(-1);
-        } else if (lastLocation != null) {
+            return;
+        }
+        Location location = task.getLocation() == null ? new Location((String) null) : task.getLocation();
+        if (lastLocation != null) {
             task.setDistanceFromUser(location.distanceTo(lastLocation));
         } else {
             task.setDistanceFromUser(location.distanceTo(operationalAreaCenter));
@@ -316,20 +730,15 @@ public class TaskRegisterFragmentInteractor extends BaseInteractor implements Ta
         if (tasks == null)
             return;
         appExecutors.diskIO().execute(() -> {
-            int structuresWithinBuffer = 0;
-            for (TaskDetails taskDetails : tasks) {
-                if (!BCC.equals(taskDetails.getTaskCode()) && !CASE_CONFIRMATION.equals(taskDetails.getTaskCode())) {
-                    taskDetails.setDistanceFromUser(taskDetails.getLocation().distanceTo(location));
-                    taskDetails.setDistanceFromCenter(false);
-                }
-                if (taskDetails.getDistanceFromUser() <= locationBuffer) {
-                    structuresWithinBuffer += 1;
-                }
+            TaskSpatialIndex index = spatialIndex;
+            if (index == null || !index.isIndexOf(tasks)) {
+                index = new TaskSpatialIndex(tasks, locationBuffer);
+                spatialIndex = index;
             }
-            Collections.sort(tasks);
-            int finalStructuresWithinBuffer = structuresWithinBuffer;
+            TaskSnapshot sortedTasks = index.orderByDistance(location);
+            int structuresWithinBuffer = index.countWithin(location, locationBuffer);
             appExecutors.mainThread().execute(() -> {
-                getPresenter().onTasksFound(tasks, finalStructuresWithinBuffer);
+                getPresenter().onTasksFound(sortedTasks, structuresWithinBuffer);
             });
         });
 
@@ -339,7 +748,7 @@ public class TaskRegisterFragmentInteractor extends BaseInteractor implements Ta
     public void getStructure(TaskDetails taskDetails) {
         appExecutors.diskIO().execute(() -> {
             org.smartregister.domain.Location structure;
-            if (BCC.equals(taskDetails.getTaskCode()))
+            if (taskDetails.getTaskCodeOrdinal() == TaskCode.BCC)
                 structure = locationRepository.getLocationById(taskDetails.getTaskEntity());
             else
                 structure = structureRepository.getLocationById(taskDetails.getStructureId());
@@ -402,10 +811,53 @@ public class TaskRegisterFragmentInteractor extends BaseInteractor implements Ta
     public void resetTaskInfo(Context context, TaskDetails taskDetails) {
         appExecutors.diskIO().execute(() -> {
             interactorUtils.resetTaskInfo(getDatabase(), taskDetails);
+            TaskingLibrary.getInstance().getTaskSnapshotStore().invalidate();
+            appExecutors.mainThread().execute(() -> {
+                getPresenter().onTaskInfoReset();
+            });
         });
+    }
 
-        appExecutors.mainThread().execute(() -> {
-            getPresenter().onTaskInfoReset();
-        });
+    /**
+     * Thrown when one of the register queries of a load fails, the whole load is then failed
+     */
+    private static class RegisterQueryException extends Exception {
+
+        private RegisterQueryException(Throwable cause) {
+            super(cause);
+        }
+    }
+
+    /**
+     * A task register query together with the parameters needed to map its rows
+     */
+    private class RegisterQuery implements Callable<TaskSnapshot> {
+
+        private final String name;
+        private final String query;
+        private final String[] params;
+        private final Location lastLocation;
+        private final Location operationalAreaCenter;
+        private final String houseLabel;
+        private final Projection projection;
+
+        private RegisterQuery(String name, String query, String[] params, Location lastLocation,
+                              Location operationalAreaCenter, String houseLabel, Projection projection) {
+            this.name = name;
+            this.query = query;
+            this.params = params;
+            this.lastLocation = lastLocation;
+            this.operationalAreaCenter = operationalAreaCenter;
+            this.houseLabel = houseLabel;
+            this.projection = projection;
+        }
+
+        @Override
+        public TaskSnapshot call() {
+            long start = System.currentTimeMillis();
+            TaskSnapshot tasks = queryTaskDetails(query, params, lastLocation, operationalAreaCenter, houseLabel, projection);
+            Timber.d("%s query returned %d tasks in %d ms", name, tasks.size(), System.currentTimeMillis() - start);
+            return tasks;
+        }
     }
 }
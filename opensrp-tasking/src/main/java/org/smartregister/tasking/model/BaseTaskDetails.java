@@ -2,6 +2,8 @@ package org.smartregister.tasking.model;
 
 import androidx.annotation.NonNull;
 
+import org.smartregister.tasking.util.TaskOrdinals;
+
 /**
  * Created by samuelgithengi on 4/11/19.
  */
@@ -11,6 +13,8 @@ public class BaseTaskDetails {
 
     private String taskCode;
 
+    private int taskCodeOrdinal = TaskOrdinals.UNKNOWN;
+
     private String taskEntity;
 
     private String businessStatus;
@@ -39,6 +43,14 @@ public class BaseTaskDetails {
 
     public void setTaskCode(String taskCode) {
         this.taskCode = taskCode;
+        this.taskCodeOrdinal = TaskOrdinals.getTaskCodeOrdinal(taskCode);
+    }
+
+    /**
+     * @return the ordinal of the task code in {@link TaskOrdinals} or {@link TaskOrdinals#UNKNOWN}, resolved when the code is set
+     */
+    public int getTaskCodeOrdinal() {
+        return taskCodeOrdinal;
     }
 
     public String getTaskEntity() {
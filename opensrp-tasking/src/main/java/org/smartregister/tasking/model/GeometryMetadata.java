@@ -0,0 +1,53 @@
+package org.smartregister.tasking.model;
+
+import android.location.Location;
+
+/**
+ * Precomputed center, bounding box and vertex count of a location geometry for a server version of the location
+ */
+public class GeometryMetadata {
+
+    private String locationId;
+
+    private long serverVersion;
+
+    private double[] bbox;
+
+    private int vertexCount;
+
+    public GeometryMetadata(String locationId, long serverVersion, double[] bbox, int vertexCount) {
+        this.locationId = locationId;
+        this.serverVersion = serverVersion;
+        this.bbox = bbox;
+        this.vertexCount = vertexCount;
+    }
+
+    public String getLocationId() {
+        return locationId;
+    }
+
+    public long getServerVersion() {
+        return serverVersion;
+    }
+
+    /**
+     * @return the bounding box as west, south, east and north
+     */
+    public double[] getBbox() {
+        return bbox;
+    }
+
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    /**
+     * @return the center of the bounding box
+     */
+    public Location getCenter() {
+        Location center = new Location((String) null);
+        center.setLongitude((bbox[2] + bbox[0]) / 2);
+        center.setLatitude((bbox[3] + bbox[1]) / 2);
+        return center;
+    }
+}
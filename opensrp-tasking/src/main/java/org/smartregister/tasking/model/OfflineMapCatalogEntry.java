@@ -0,0 +1,63 @@
+package org.smartregister.tasking.model;
+
+import java.util.Date;
+
+/**
+ * Offline region of a map in the offline map catalog
+ */
+public class OfflineMapCatalogEntry {
+
+    private String regionName;
+
+    private String mapName;
+
+    private OfflineMapModel.OfflineMapStatus status;
+
+    private Date dateCreated;
+
+    private long size;
+
+    private Date lastUsed;
+
+    public OfflineMapCatalogEntry(String regionName, String mapName, OfflineMapModel.OfflineMapStatus status, Date dateCreated, long size, Date lastUsed) {
+        this.regionName = regionName;
+        this.mapName = mapName;
+        this.status = status;
+        this.dateCreated = dateCreated;
+        this.size = size;
+        this.lastUsed = lastUsed;
+    }
+
+    public String getRegionName() {
+        return regionName;
+    }
+
+    /**
+     * @return the name of the map the region was downloaded for, the id of the operational area
+     */
+    public String getMapName() {
+        return mapName;
+    }
+
+    public OfflineMapModel.OfflineMapStatus getStatus() {
+        return status;
+    }
+
+    public Date getDateCreated() {
+        return dateCreated;
+    }
+
+    /**
+     * @return the size of the region in bytes, estimated until it is read from the region status
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return when the operational area of the map was last opened, the date the region was created if it was never opened
+     */
+    public Date getLastUsed() {
+        return lastUsed;
+    }
+}
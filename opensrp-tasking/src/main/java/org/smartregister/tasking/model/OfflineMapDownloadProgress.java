@@ -0,0 +1,47 @@
+package org.smartregister.tasking.model;
+
+/**
+ * Progress of an offline map download over all the regions the map is downloaded in.
+ * Sizes are estimated from the number of tiles of the regions and the average tile size.
+ */
+public class OfflineMapDownloadProgress {
+
+    public static final long UNKNOWN = -1;
+
+    private final String mapName;
+
+    private final double percentage;
+
+    private final long bytesPerSecond;
+
+    private final long remainingSeconds;
+
+    public OfflineMapDownloadProgress(String mapName, double percentage, long bytesPerSecond, long remainingSeconds) {
+        this.mapName = mapName;
+        this.percentage = percentage;
+        this.bytesPerSecond = bytesPerSecond;
+        this.remainingSeconds = remainingSeconds;
+    }
+
+    public String getMapName() {
+        return mapName;
+    }
+
+    public double getPercentage() {
+        return percentage;
+    }
+
+    /**
+     * @return the download rate or {@link #UNKNOWN} until progress has been reported twice
+     */
+    public long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    /**
+     * @return the estimated time left or {@link #UNKNOWN} while the download rate is unknown
+     */
+    public long getRemainingSeconds() {
+        return remainingSeconds;
+    }
+}
@@ -4,7 +4,9 @@ import com.mapbox.mapboxsdk.offline.OfflineRegion;
 
 import org.smartregister.domain.Location;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
 public class OfflineMapModel {
 
@@ -14,6 +16,10 @@ public class OfflineMapModel {
 
     private Date dateCreated;
 
+    private List<String> regionPartNames = new ArrayList<>();
+
+    private long size;
+
     public enum OfflineMapStatus {
         READY,
         DOWNLOAD_STARTED,
@@ -66,4 +72,26 @@ public class OfflineMapModel {
     public void setDateCreated(Date dateCreated) {
         this.dateCreated = dateCreated;
     }
+
+    /**
+     * @return the names of the other offline regions the map was downloaded in, when it was split into several regions
+     */
+    public List<String> getRegionPartNames() {
+        return regionPartNames;
+    }
+
+    public void setRegionPartNames(List<String> regionPartNames) {
+        this.regionPartNames = regionPartNames;
+    }
+
+    /**
+     * @return the size in bytes of the regions of the map recorded in the offline map catalog
+     */
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
 }
@@ -0,0 +1,36 @@
+package org.smartregister.tasking.model;
+
+import org.smartregister.tasking.util.OfflineMapHelper;
+
+/**
+ * Region of a map download in the offline map download queue
+ */
+public class OfflineMapQueueEntry {
+
+    private String mapName;
+
+    private OfflineMapHelper.DownloadRegion region;
+
+    private boolean completed;
+
+    public OfflineMapQueueEntry(String mapName, OfflineMapHelper.DownloadRegion region, boolean completed) {
+        this.mapName = mapName;
+        this.region = region;
+        this.completed = completed;
+    }
+
+    public String getMapName() {
+        return mapName;
+    }
+
+    public OfflineMapHelper.DownloadRegion getRegion() {
+        return region;
+    }
+
+    /**
+     * @return true if the downloader service reported the region downloaded
+     */
+    public boolean isCompleted() {
+        return completed;
+    }
+}
@@ -8,8 +8,6 @@ import org.apache.commons.lang3.StringUtils;
 import org.smartregister.tasking.util.Utils;
 
 import java.io.Serializable;
-import java.util.HashMap;
-import java.util.Map;
 
 import static org.smartregister.tasking.util.Constants.BusinessStatus.BEDNET_DISTRIBUTED;
 import static org.smartregister.tasking.util.Constants.BusinessStatus.BLOOD_SCREENING_COMPLETE;
@@ -76,6 +74,13 @@ public class TaskDetails extends BaseTaskDetails implements Comparable<TaskDetai
 
     private String aggregateBusinessStatus;
 
+    /**
+     * The snapshot columns of a task created from a {@link TaskSnapshot}, its distance is read from and written to them
+     */
+    private transient TaskSnapshot.Columns columns;
+
+    private transient int row;
+
     public TaskDetails(@NonNull String taskId) {
         super(taskId);
     }
@@ -105,11 +110,15 @@ public class TaskDetails extends BaseTaskDetails implements Comparable<TaskDetai
     }
 
     public float getDistanceFromUser() {
-        return distanceFromUser;
+        return columns == null ? distanceFromUser : columns.getDistance(row);
     }
 
     public void setDistanceFromUser(float distanceFromUser) {
-        this.distanceFromUser = distanceFromUser;
+        if (columns == null) {
+            this.distanceFromUser = distanceFromUser;
+        } else {
+            columns.setDistance(row, distanceFromUser);
+        }
     }
 
     public String getSprayStatus() {
@@ -129,11 +138,20 @@ public class TaskDetails extends BaseTaskDetails implements Comparable<TaskDetai
     }
 
     public boolean isDistanceFromCenter() {
-        return distanceFromCenter;
+        return columns == null ? distanceFromCenter : columns.isDistanceFromCenter(row);
     }
 
     public void setDistanceFromCenter(boolean distanceFromCenter) {
-        this.distanceFromCenter = distanceFromCenter;
+        if (columns == null) {
+            this.distanceFromCenter = distanceFromCenter;
+        } else {
+            columns.setDistanceFromCenter(row, distanceFromCenter);
+        }
+    }
+
+    void setColumns(TaskSnapshot.Columns columns, int row) {
+        this.columns = columns;
+        this.row = row;
     }
 
     public void setTaskCount(Integer taskCount) {
@@ -224,6 +242,10 @@ public class TaskDetails extends BaseTaskDetails implements Comparable<TaskDetai
         this.notEligible = notEligible;
     }
 
+    /**
+     * Sets the state of the grouped tasks from the concatenated task codes and business statuses.
+     * A task code is complete if any of the grouped tasks with the code is complete, as the order of the grouped tasks is not defined
+     */
     public void setGroupedTaskCodeStatus(String groupedTaskCodeStatusString) {
         setFamilyRegistered(false);
         setBednetDistributed(false);
@@ -233,16 +255,19 @@ public class TaskDetails extends BaseTaskDetails implements Comparable<TaskDetai
             return;
         }
         String[] groupedTaskCodeStatusArray = groupedTaskCodeStatusString.split(COMMA);
-        String MDA_DISPENSE_TASK_COUNT = "mda_dispense_task_count";
-
-        Map<String, Integer> mdaStatusMap = new HashMap<>();
-        mdaStatusMap.put(FULLY_RECEIVED, 0);
-        mdaStatusMap.put(NONE_RECEIVED, 0);
-        mdaStatusMap.put(NOT_ELIGIBLE, 0);
-        mdaStatusMap.put(MDA_DISPENSE_TASK_COUNT, 0);
 
+        boolean familyRegTaskExists = false;
+        boolean familyRegistered = false;
+        boolean bednetDistributed = false;
+        boolean bloodScreeningDone = false;
         boolean bloodScreeningExists = false;
         boolean caseConfirmed = false;
+        boolean mdaAdherenceExists = false;
+        boolean mdaAdhered = false;
+        int mdaDispenseTaskCount = 0;
+        int fullyReceivedCount = 0;
+        int noneReceivedCount = 0;
+        int notEligibleCount = 0;
         for (int i = 0; i < groupedTaskCodeStatusArray.length; i++) {
             String[] taskCodeStatusArray = groupedTaskCodeStatusArray[i].split(HYPHEN);
 
@@ -252,35 +277,36 @@ public class TaskDetails extends BaseTaskDetails implements Comparable<TaskDetai
 
             switch (taskCodeStatusArray[0]) {
                 case REGISTER_FAMILY:
-                    setFamilyRegTaskExists(true);
-                    this.familyRegistered = COMPLETE.equals(taskCodeStatusArray[1]);
+                    familyRegTaskExists = true;
+                    familyRegistered |= COMPLETE.equals(taskCodeStatusArray[1]);
                     break;
                 case BEDNET_DISTRIBUTION:
-                    this.bednetDistributed = COMPLETE.equals(taskCodeStatusArray[1]);
+                    bednetDistributed |= COMPLETE.equals(taskCodeStatusArray[1]);
                     break;
                 case BLOOD_SCREENING:
-                    if (!this.bloodScreeningDone) {
-                        this.bloodScreeningDone = COMPLETE.equals(taskCodeStatusArray[1]);
+                    if (!bloodScreeningDone) {
+                        bloodScreeningDone = COMPLETE.equals(taskCodeStatusArray[1]);
                     }
                     bloodScreeningExists = true;
                     break;
                 case CASE_CONFIRMATION:
-                    caseConfirmed = COMPLETE.equals(taskCodeStatusArray[1]);
+                    caseConfirmed |= COMPLETE.equals(taskCodeStatusArray[1]);
                     break;
                 case MDA_ADHERENCE:
-                    this.mdaAdhered = COMPLETE.equals(taskCodeStatusArray[1]);
+                    mdaAdherenceExists = true;
+                    mdaAdhered |= COMPLETE.equals(taskCodeStatusArray[1]);
                     break;
                 case MDA_DISPENSE:
-                    mdaStatusMap.put(MDA_DISPENSE_TASK_COUNT, mdaStatusMap.get(MDA_DISPENSE_TASK_COUNT) + 1);
+                    mdaDispenseTaskCount++;
                     switch (taskCodeStatusArray[1]) {
                         case FULLY_RECEIVED:
-                            mdaStatusMap.put(FULLY_RECEIVED, mdaStatusMap.get(FULLY_RECEIVED) + 1);
+                            fullyReceivedCount++;
                             break;
                         case NONE_RECEIVED:
-                            mdaStatusMap.put(NONE_RECEIVED, mdaStatusMap.get(NONE_RECEIVED) + 1);
+                            noneReceivedCount++;
                             break;
                         case NOT_ELIGIBLE:
-                            mdaStatusMap.put(NOT_ELIGIBLE, mdaStatusMap.get(NOT_ELIGIBLE) + 1);
+                            notEligibleCount++;
                             break;
                     }
                 default:
@@ -288,14 +314,36 @@ public class TaskDetails extends BaseTaskDetails implements Comparable<TaskDetai
             }
         }
 
-        if (!bloodScreeningExists && caseConfirmed && !isBloodScreeningDone()) {
-            setBloodScreeningDone(true);
-        }
+        setGroupedTaskStates(familyRegTaskExists, familyRegistered, bednetDistributed,
+                bloodScreeningDone || (!bloodScreeningExists && caseConfirmed), mdaAdherenceExists ? mdaAdhered : this.mdaAdhered,
+                mdaDispenseTaskCount, fullyReceivedCount, noneReceivedCount, notEligibleCount);
+    }
 
-        setFullyReceived(mdaStatusMap.get(FULLY_RECEIVED) == mdaStatusMap.get(MDA_DISPENSE_TASK_COUNT));
-        setNoneReceived(mdaStatusMap.get(NONE_RECEIVED) == mdaStatusMap.get(MDA_DISPENSE_TASK_COUNT));
-        setNotEligible(mdaStatusMap.get(NOT_ELIGIBLE) == mdaStatusMap.get(MDA_DISPENSE_TASK_COUNT));
-        setPartiallyReceived(!isFullyReceived() && (mdaStatusMap.get(FULLY_RECEIVED) > 0));
+    /**
+     * Sets the state of the tasks grouped under the structure and calculates the aggregate business status
+     *
+     * @param familyRegTaskExists  whether the structure has a register family task
+     * @param familyRegistered     whether the family has been registered
+     * @param bednetDistributed    whether bednets have been distributed
+     * @param bloodScreeningDone   whether blood screening is complete
+     * @param mdaAdhered           whether MDA adherence is complete
+     * @param mdaDispenseTaskCount the number of MDA dispense tasks
+     * @param fullyReceivedCount   the number of MDA dispense tasks fully received
+     * @param noneReceivedCount    the number of MDA dispense tasks none received
+     * @param notEligibleCount     the number of MDA dispense tasks not eligible
+     */
+    public void setGroupedTaskStates(boolean familyRegTaskExists, boolean familyRegistered, boolean bednetDistributed,
+                                     boolean bloodScreeningDone, boolean mdaAdhered, int mdaDispenseTaskCount,
+                                     int fullyReceivedCount, int noneReceivedCount, int notEligibleCount) {
+        setFamilyRegTaskExists(familyRegTaskExists);
+        setFamilyRegistered(familyRegistered);
+        setBednetDistributed(bednetDistributed);
+        setBloodScreeningDone(bloodScreeningDone);
+        setMdaAdhered(mdaAdhered);
+        setFullyReceived(fullyReceivedCount == mdaDispenseTaskCount);
+        setNoneReceived(noneReceivedCount == mdaDispenseTaskCount);
+        setNotEligible(notEligibleCount == mdaDispenseTaskCount);
+        setPartiallyReceived(!isFullyReceived() && fullyReceivedCount > 0);
 
         setAggregateBusinessStatus(calculateAggregateBusinessStatus());
     }
@@ -341,7 +389,7 @@ public class TaskDetails extends BaseTaskDetails implements Comparable<TaskDetai
 
     @Override
     public int compareTo(@NonNull TaskDetails other) {
-        return Double.compare(distanceFromUser, other.getDistanceFromUser());
+        return Double.compare(getDistanceFromUser(), other.getDistanceFromUser());
     }
 
     public void setReasonReference(String reasonReference) {
@@ -0,0 +1,82 @@
+package org.smartregister.tasking.model;
+
+import android.location.Location;
+
+import java.util.List;
+
+/**
+ * A window of task register rows read using keyset pagination.
+ * The keyset is the squared distance from the reference location followed by the task id.
+ */
+public class TaskRegisterPage {
+
+    private List<TaskDetails> tasks;
+
+    private Location referenceLocation;
+
+    private double lastSortKey;
+
+    private String lastTaskId;
+
+    private boolean hasMore;
+
+    private boolean firstPage;
+
+    private int totalTasks;
+
+    public List<TaskDetails> getTasks() {
+        return tasks;
+    }
+
+    public void setTasks(List<TaskDetails> tasks) {
+        this.tasks = tasks;
+    }
+
+    public Location getReferenceLocation() {
+        return referenceLocation;
+    }
+
+    public void setReferenceLocation(Location referenceLocation) {
+        this.referenceLocation = referenceLocation;
+    }
+
+    public double getLastSortKey() {
+        return lastSortKey;
+    }
+
+    public void setLastSortKey(double lastSortKey) {
+        this.lastSortKey = lastSortKey;
+    }
+
+    public String getLastTaskId() {
+        return lastTaskId;
+    }
+
+    public void setLastTaskId(String lastTaskId) {
+        this.lastTaskId = lastTaskId;
+    }
+
+    public boolean hasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+
+    public boolean isFirstPage() {
+        return firstPage;
+    }
+
+    public void setFirstPage(boolean firstPage) {
+        this.firstPage = firstPage;
+    }
+
+    public int getTotalTasks() {
+        return totalTasks;
+    }
+
+    public void setTotalTasks(int totalTasks) {
+        this.totalTasks = totalTasks;
+    }
+}
@@ -0,0 +1,612 @@
+package org.smartregister.tasking.model;
+
+import android.location.Location;
+
+import androidx.annotation.NonNull;
+
+import org.apache.commons.lang3.StringUtils;
+import org.smartregister.tasking.util.TaskOrdinals;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Column oriented snapshot of the register tasks.
+ * Coordinates, distances and counts are kept in primitive arrays and task codes and statuses are dictionary encoded,
+ * so the tasks of a plan are held in a few arrays instead of an object graph per task. Codes and statuses are sorted by
+ * the alphabetical rank of their dictionary ids and resolved to their {@link TaskOrdinals} when read, so plan specific
+ * values do not need to be registered.
+ * {@link TaskDetails} are only created for the rows read through the list interface, such as the rows bound to the register
+ * or the task opened, and only the most recently read ones are kept, see {@link #MATERIALIZED_TASKS_CACHE_SIZE}.
+ * Filtered and sorted views are lists of row positions sharing the same columns.
+ * The snapshot is read only except for the distance from the user, which the created tasks read from and write to the columns
+ * so a task that is no longer kept still shows the latest distance.
+ */
+public class TaskSnapshot extends AbstractList<TaskDetails> implements RandomAccess {
+
+    private static final int NO_VALUE = -1;
+
+    /**
+     * The number of tasks created from the columns that are kept for reuse, enough for the rows visible in the register
+     */
+    protected static final int MATERIALIZED_TASKS_CACHE_SIZE = 64;
+
+    private static final int DISTANCE_FROM_CENTER = 1;
+    private static final int FAMILY_REGISTERED = 1 << 1;
+    private static final int BEDNET_DISTRIBUTED = 1 << 2;
+    private static final int BLOOD_SCREENING_DONE = 1 << 3;
+    private static final int FAMILY_REG_TASK_EXISTS = 1 << 4;
+    private static final int MDA_ADHERED = 1 << 5;
+    private static final int FULLY_RECEIVED = 1 << 6;
+    private static final int PARTIALLY_RECEIVED = 1 << 7;
+    private static final int NONE_RECEIVED = 1 << 8;
+    private static final int NOT_ELIGIBLE = 1 << 9;
+
+    private final Columns columns;
+
+    private final int[] rows;
+
+    private TaskSnapshot(Columns columns, int[] rows) {
+        this.columns = columns;
+        this.rows = rows;
+    }
+
+    /**
+     * Returns the tasks as a snapshot. A list that is already a snapshot is returned as is,
+     * otherwise the tasks are copied to columns and the task objects of the list, which the caller already holds,
+     * are returned when rows are read
+     *
+     * @param tasks the tasks
+     * @return the snapshot of the tasks
+     */
+    public static TaskSnapshot of(@NonNull List<TaskDetails> tasks) {
+        if (tasks instanceof TaskSnapshot) {
+            return (TaskSnapshot) tasks;
+        }
+        Builder builder = new Builder(tasks.size());
+        for (TaskDetails task : tasks) {
+            builder.add(task, task);
+        }
+        return builder.build();
+    }
+
+    @Override
+    public TaskDetails get(int position) {
+        return columns.getTask(rows[position]);
+    }
+
+    @Override
+    public int size() {
+        return rows.length;
+    }
+
+    /**
+     * Copies the tasks to columns of their own without the task objects of this snapshot,
+     * so the distances of the copy can be updated without changing this snapshot
+     *
+     * @return the copy of the tasks
+     */
+    public TaskSnapshot copy() {
+        Builder builder = new Builder(rows.length);
+        for (int i = 0; i < rows.length; i++) {
+            builder.add(this, i, false);
+        }
+        return builder.build();
+    }
+
+    public String getTaskId(int position) {
+        return columns.taskIds[rows[position]];
+    }
+
+    public String getTaskCode(int position) {
+        return columns.decode(columns.taskCodes[rows[position]]);
+    }
+
+    /**
+     * @return the {@link TaskOrdinals.TaskCode} ordinal of the task code or {@link TaskOrdinals#UNKNOWN}
+     */
+    public int getTaskCodeOrdinal(int position) {
+        return TaskOrdinals.getTaskCodeOrdinal(getTaskCode(position));
+    }
+
+    public String getBusinessStatus(int position) {
+        return columns.decode(columns.businessStatuses[rows[position]]);
+    }
+
+    public String getTaskStatus(int position) {
+        return columns.decode(columns.taskStatuses[rows[position]]);
+    }
+
+    public String getAggregateBusinessStatus(int position) {
+        return columns.decode(columns.aggregateBusinessStatuses[rows[position]]);
+    }
+
+    /**
+     * @return the aggregate business status of grouped tasks or the business status of the task
+     */
+    public String getStatus(int position) {
+        return columns.decode(columns.getStatusId(rows[position]));
+    }
+
+    /**
+     * @return the {@link TaskOrdinals.BusinessStatus} ordinal of the aggregate business status or the business status
+     */
+    public int getStatusOrdinal(int position) {
+        return TaskOrdinals.getBusinessStatusOrdinal(getStatus(position));
+    }
+
+    public String getStructureId(int position) {
+        return columns.structureIds[rows[position]];
+    }
+
+    public String getStructureName(int position) {
+        return columns.structureNames[rows[position]];
+    }
+
+    public String getFamilyName(int position) {
+        return columns.familyNames[rows[position]];
+    }
+
+    public String getFamilyMemberNames(int position) {
+        return columns.familyMemberNames[rows[position]];
+    }
+
+    public String getHouseNumber(int position) {
+        return columns.houseNumbers[rows[position]];
+    }
+
+    public String getTaskDetails(int position) {
+        return columns.taskDetails[rows[position]];
+    }
+
+    public Integer getTaskCount(int position) {
+        int taskCount = columns.taskCounts[rows[position]];
+        return taskCount == NO_VALUE ? null : taskCount;
+    }
+
+    public Integer getCompleteTaskCount(int position) {
+        int completeTaskCount = columns.completeTaskCounts[rows[position]];
+        return completeTaskCount == NO_VALUE ? null : completeTaskCount;
+    }
+
+    public boolean hasLocation(int position) {
+        return !Double.isNaN(columns.latitudes[rows[position]]);
+    }
+
+    public double getLatitude(int position) {
+        return columns.latitudes[rows[position]];
+    }
+
+    public double getLongitude(int position) {
+        return columns.longitudes[rows[position]];
+    }
+
+    public float getDistanceFromUser(int position) {
+        return columns.distances[rows[position]];
+    }
+
+    public boolean isDistanceFromCenter(int position) {
+        return (columns.flags[rows[position]] & DISTANCE_FROM_CENTER) != 0;
+    }
+
+    /**
+     * Updates the distance of a task in the snapshot, and in its task object if the snapshot was created from task objects
+     *
+     * @param position           the position of the task
+     * @param distanceFromUser   the distance in metres
+     * @param distanceFromCenter whether the distance is from the operational area center
+     */
+    public void setDistanceFromUser(int position, float distanceFromUser, boolean distanceFromCenter) {
+        columns.setDistance(rows[position], distanceFromUser, distanceFromCenter);
+    }
+
+    /**
+     * Creates a view of some of the tasks sharing the columns of this snapshot
+     *
+     * @param positions the positions of the tasks in this snapshot
+     * @return the view of the tasks in the order of the positions
+     */
+    public TaskSnapshot select(int[] positions) {
+        int[] selectedRows = new int[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            selectedRows[i] = rows[positions[i]];
+        }
+        return new TaskSnapshot(columns, selectedRows);
+    }
+
+    /**
+     * @return a view of the tasks ordered by distance from the user, nearest first
+     */
+    public TaskSnapshot sortByDistance() {
+        return select(getDistanceOrder());
+    }
+
+    /**
+     * @return the positions of the tasks ordered by distance from the user, nearest first
+     */
+    public int[] getDistanceOrder() {
+        int[] keys = new int[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            int bits = Float.floatToIntBits(columns.distances[rows[i]]);
+            keys[i] = bits ^ ((bits >> 31) & 0x7fffffff); // orders negative floats below positive floats as ints
+        }
+        return sortPositions(keys);
+    }
+
+    /**
+     * @return a view of the tasks ordered alphabetically by the aggregate business status or the business status
+     */
+    public TaskSnapshot sortByStatus() {
+        int[] keys = new int[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            keys[i] = columns.getStatusId(rows[i]);
+        }
+        return countingSortBy(keys, columns.getDictionaryRanks());
+    }
+
+    /**
+     * @return a view of the tasks ordered alphabetically by task code
+     */
+    public TaskSnapshot sortByTaskCode() {
+        int[] keys = new int[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            keys[i] = columns.taskCodes[rows[i]];
+        }
+        return countingSortBy(keys, columns.getDictionaryRanks());
+    }
+
+    /**
+     * Stable counting sort of the positions by the alphabetical rank of their dictionary ids. Tasks without a value are ordered first
+     */
+    private TaskSnapshot countingSortBy(int[] ids, int[] ranks) {
+        int[] bucketStarts = new int[ranks.length + 2];
+        int[] buckets = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            int id = ids[i];
+            buckets[i] = id < 0 || id >= ranks.length ? 0 : ranks[id] + 1;
+            bucketStarts[buckets[i] + 1]++;
+        }
+        for (int i = 1; i < bucketStarts.length; i++) {
+            bucketStarts[i] += bucketStarts[i - 1];
+        }
+        int[] sortedRows = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            sortedRows[bucketStarts[buckets[i]]++] = rows[i];
+        }
+        return new TaskSnapshot(columns, sortedRows);
+    }
+
+    /**
+     * Sorts the positions by key without boxing. The position is packed below the key so equal keys keep their order
+     */
+    private static int[] sortPositions(int[] keys) {
+        long[] sortKeys = new long[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            sortKeys[i] = ((long) keys[i] << 32) | i;
+        }
+        Arrays.sort(sortKeys);
+        int[] positions = new int[keys.length];
+        for (int i = 0; i < sortKeys.length; i++) {
+            positions[i] = (int) sortKeys[i];
+        }
+        return positions;
+    }
+
+    /**
+     * Builds a snapshot one task at a time. The tasks added are copied and not retained
+     */
+    public static class Builder {
+
+        private final Columns columns;
+
+        private final Map<String, Integer> dictionaryIds = new HashMap<>();
+
+        private final List<String> dictionary = new ArrayList<>();
+
+        public Builder(int capacity) {
+            columns = new Columns(Math.max(capacity, 16));
+        }
+
+        public Builder add(@NonNull TaskDetails task) {
+            return add(task, null);
+        }
+
+        private Builder add(TaskDetails task, TaskDetails retainedTask) {
+            int row = columns.addRow();
+            columns.taskIds[row] = task.getTaskId();
+            columns.taskEntities[row] = task.getTaskEntity();
+            columns.structureIds[row] = task.getStructureId();
+            columns.structureNames[row] = task.getStructureName();
+            columns.familyNames[row] = task.getFamilyName();
+            columns.familyMemberNames[row] = task.getFamilyMemberNames();
+            columns.houseNumbers[row] = task.getHouseNumber();
+            columns.taskDetails[row] = task.getTaskDetails();
+            columns.reasonReferences[row] = task.getReasonReference();
+            columns.taskCodes[row] = encode(task.getTaskCode());
+            columns.businessStatuses[row] = encode(task.getBusinessStatus());
+            columns.taskStatuses[row] = encode(task.getTaskStatus());
+            columns.aggregateBusinessStatuses[row] = encode(task.getAggregateBusinessStatus());
+            columns.sprayStatuses[row] = encode(task.getSprayStatus());
+            Location location = task.getLocation();
+            columns.latitudes[row] = location == null ? Double.NaN : location.getLatitude();
+            columns.longitudes[row] = location == null ? Double.NaN : location.getLongitude();
+            columns.distances[row] = task.getDistanceFromUser();
+            columns.taskCounts[row] = task.getTaskCount() == null ? NO_VALUE : task.getTaskCount();
+            columns.completeTaskCounts[row] = task.getCompleteTaskCount() == null ? NO_VALUE : task.getCompleteTaskCount();
+            columns.flags[row] = getFlags(task);
+            columns.tasks[row] = retainedTask;
+            return this;
+        }
+
+        /**
+         * Copies a task of another snapshot, reusing the task object of the list the snapshot was created from
+         *
+         * @param snapshot the snapshot to copy from
+         * @param position the position of the task in the snapshot
+         */
+        public Builder add(@NonNull TaskSnapshot snapshot, int position) {
+            return add(snapshot, position, true);
+        }
+
+        private Builder add(TaskSnapshot snapshot, int position, boolean reuseTask) {
+            Columns source = snapshot.columns;
+            int sourceRow = snapshot.rows[position];
+            int row = columns.addRow();
+            columns.taskIds[row] = source.taskIds[sourceRow];
+            columns.taskEntities[row] = source.taskEntities[sourceRow];
+            columns.structureIds[row] = source.structureIds[sourceRow];
+            columns.structureNames[row] = source.structureNames[sourceRow];
+            columns.familyNames[row] = source.familyNames[sourceRow];
+            columns.familyMemberNames[row] = source.familyMemberNames[sourceRow];
+            columns.houseNumbers[row] = source.houseNumbers[sourceRow];
+            columns.taskDetails[row] = source.taskDetails[sourceRow];
+            columns.reasonReferences[row] = source.reasonReferences[sourceRow];
+            columns.taskCodes[row] = encode(source.decode(source.taskCodes[sourceRow]));
+            columns.businessStatuses[row] = encode(source.decode(source.businessStatuses[sourceRow]));
+            columns.taskStatuses[row] = encode(source.decode(source.taskStatuses[sourceRow]));
+            columns.aggregateBusinessStatuses[row] = encode(source.decode(source.aggregateBusinessStatuses[sourceRow]));
+            columns.sprayStatuses[row] = encode(source.decode(source.sprayStatuses[sourceRow]));
+            columns.latitudes[row] = source.latitudes[sourceRow];
+            columns.longitudes[row] = source.longitudes[sourceRow];
+            columns.distances[row] = source.distances[sourceRow];
+            columns.taskCounts[row] = source.taskCounts[sourceRow];
+            columns.completeTaskCounts[row] = source.completeTaskCounts[sourceRow];
+            columns.flags[row] = source.flags[sourceRow];
+            columns.tasks[row] = reuseTask ? source.tasks[sourceRow] : null;
+            return this;
+        }
+
+        public Builder addAll(@NonNull TaskSnapshot snapshot) {
+            for (int i = 0; i < snapshot.size(); i++) {
+                add(snapshot, i);
+            }
+            return this;
+        }
+
+        public int size() {
+            return columns.size;
+        }
+
+        public TaskSnapshot build() {
+            columns.trim(dictionary.toArray(new String[0]));
+            int[] rows = new int[columns.size];
+            for (int i = 0; i < rows.length; i++) {
+                rows[i] = i;
+            }
+            return new TaskSnapshot(columns, rows);
+        }
+
+        private int encode(String value) {
+            if (value == null) {
+                return NO_VALUE;
+            }
+            Integer id = dictionaryIds.get(value);
+            if (id == null) {
+                id = dictionary.size();
+                dictionary.add(value);
+                dictionaryIds.put(value, id);
+            }
+            return id;
+        }
+
+        private static short getFlags(TaskDetails task) {
+            int flags = 0;
+            flags |= task.isDistanceFromCenter() ? DISTANCE_FROM_CENTER : 0;
+            flags |= task.isFamilyRegistered() ? FAMILY_REGISTERED : 0;
+            flags |= task.isBednetDistributed() ? BEDNET_DISTRIBUTED : 0;
+            flags |= task.isBloodScreeningDone() ? BLOOD_SCREENING_DONE : 0;
+            flags |= task.isFamilyRegTaskExists() ? FAMILY_REG_TASK_EXISTS : 0;
+            flags |= task.isMdaAdhered() ? MDA_ADHERED : 0;
+            flags |= task.isFullyReceived() ? FULLY_RECEIVED : 0;
+            flags |= task.isPartiallyReceived() ? PARTIALLY_RECEIVED : 0;
+            flags |= task.isNoneReceived() ? NONE_RECEIVED : 0;
+            flags |= task.isNotEligible() ? NOT_ELIGIBLE : 0;
+            return (short) flags;
+        }
+    }
+
+    /**
+     * The columns of the tasks, indexed by row. Shared by a snapshot and all its views
+     */
+    static class Columns {
+
+        private int size;
+
+        private String[] dictionary;
+
+        private int[] dictionaryRanks;
+
+        private String[] taskIds;
+        private String[] taskEntities;
+        private String[] structureIds;
+        private String[] structureNames;
+        private String[] familyNames;
+        private String[] familyMemberNames;
+        private String[] houseNumbers;
+        private String[] taskDetails;
+        private String[] reasonReferences;
+
+        private int[] taskCodes;
+        private int[] businessStatuses;
+        private int[] taskStatuses;
+        private int[] aggregateBusinessStatuses;
+        private int[] sprayStatuses;
+
+        private double[] latitudes;
+        private double[] longitudes;
+        private float[] distances;
+        private int[] taskCounts;
+        private int[] completeTaskCounts;
+        private short[] flags;
+
+        /**
+         * The task objects of the list a snapshot was created from, null for rows added by the builder
+         */
+        private TaskDetails[] tasks;
+
+        private final Map<Integer, TaskDetails> materializedTasks = new LinkedHashMap<Integer, TaskDetails>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, TaskDetails> eldest) {
+                return size() > MATERIALIZED_TASKS_CACHE_SIZE;
+            }
+        };
+
+        private Columns(int capacity) {
+            resize(capacity);
+        }
+
+        private int addRow() {
+            if (size == taskIds.length) {
+                resize(size * 2);
+            }
+            return size++;
+        }
+
+        private void trim(String[] dictionary) {
+            this.dictionary = dictionary;
+            if (size < taskIds.length) {
+                resize(size);
+            }
+        }
+
+        private void resize(int capacity) {
+            taskIds = taskIds == null ? new String[capacity] : Arrays.copyOf(taskIds, capacity);
+            taskEntities = taskEntities == null ? new String[capacity] : Arrays.copyOf(taskEntities, capacity);
+            structureIds = structureIds == null ? new String[capacity] : Arrays.copyOf(structureIds, capacity);
+            structureNames = structureNames == null ? new String[capacity] : Arrays.copyOf(structureNames, capacity);
+            familyNames = familyNames == null ? new String[capacity] : Arrays.copyOf(familyNames, capacity);
+            familyMemberNames = familyMemberNames == null ? new String[capacity] : Arrays.copyOf(familyMemberNames, capacity);
+            houseNumbers = houseNumbers == null ? new String[capacity] : Arrays.copyOf(houseNumbers, capacity);
+            taskDetails = taskDetails == null ? new String[capacity] : Arrays.copyOf(taskDetails, capacity);
+            reasonReferences = reasonReferences == null ? new String[capacity] : Arrays.copyOf(reasonReferences, capacity);
+            taskCodes = taskCodes == null ? new int[capacity] : Arrays.copyOf(taskCodes, capacity);
+            businessStatuses = businessStatuses == null ? new int[capacity] : Arrays.copyOf(businessStatuses, capacity);
+            taskStatuses = taskStatuses == null ? new int[capacity] : Arrays.copyOf(taskStatuses, capacity);
+            aggregateBusinessStatuses = aggregateBusinessStatuses == null ? new int[capacity] : Arrays.copyOf(aggregateBusinessStatuses, capacity);
+            sprayStatuses = sprayStatuses == null ? new int[capacity] : Arrays.copyOf(sprayStatuses, capacity);
+            latitudes = latitudes == null ? new double[capacity] : Arrays.copyOf(latitudes, capacity);
+            longitudes = longitudes == null ? new double[capacity] : Arrays.copyOf(longitudes, capacity);
+            distances = distances == null ? new float[capacity] : Arrays.copyOf(distances, capacity);
+            taskCounts = taskCounts == null ? new int[capacity] : Arrays.copyOf(taskCounts, capacity);
+            completeTaskCounts = completeTaskCounts == null ? new int[capacity] : Arrays.copyOf(completeTaskCounts, capacity);
+            flags = flags == null ? new short[capacity] : Arrays.copyOf(flags, capacity);
+            tasks = tasks == null ? new TaskDetails[capacity] : Arrays.copyOf(tasks, capacity);
+        }
+
+        private String decode(int id) {
+            return id == NO_VALUE ? null : dictionary[id];
+        }
+
+        private int getStatusId(int row) {
+            int aggregateBusinessStatus = aggregateBusinessStatuses[row];
+            return StringUtils.isBlank(decode(aggregateBusinessStatus)) ? businessStatuses[row] : aggregateBusinessStatus;
+        }
+
+        /**
+         * @return the alphabetical rank of each dictionary value, computed once as the dictionary does not change after the build
+         */
+        private synchronized int[] getDictionaryRanks() {
+            if (dictionaryRanks == null) {
+                String[] sorted = dictionary.clone();
+                Arrays.sort(sorted);
+                dictionaryRanks = new int[dictionary.length];
+                for (int i = 0; i < dictionary.length; i++) {
+                    dictionaryRanks[i] = Arrays.binarySearch(sorted, dictionary[i]);
+                }
+            }
+            return dictionaryRanks;
+        }
+
+        private synchronized void setDistance(int row, float distanceFromUser, boolean distanceFromCenter) {
+            setDistance(row, distanceFromUser);
+            setDistanceFromCenter(row, distanceFromCenter);
+            if (tasks[row] != null) {
+                tasks[row].setDistanceFromUser(distanceFromUser);
+                tasks[row].setDistanceFromCenter(distanceFromCenter);
+            }
+        }
+
+        float getDistance(int row) {
+            return distances[row];
+        }
+
+        void setDistance(int row, float distanceFromUser) {
+            distances[row] = distanceFromUser;
+        }
+
+        boolean isDistanceFromCenter(int row) {
+            return (flags[row] & DISTANCE_FROM_CENTER) != 0;
+        }
+
+        synchronized void setDistanceFromCenter(int row, boolean distanceFromCenter) {
+            flags[row] = (short) (distanceFromCenter ? flags[row] | DISTANCE_FROM_CENTER : flags[row] & ~DISTANCE_FROM_CENTER);
+        }
+
+        private synchronized TaskDetails getTask(int row) {
+            TaskDetails task = tasks[row] != null ? tasks[row] : materializedTasks.get(row);
+            if (task == null) {
+                task = new TaskDetails(taskIds[row]);
+                task.setTaskEntity(taskEntities[row]);
+                task.setStructureId(structureIds[row]);
+                task.setStructureName(structureNames[row]);
+                task.setFamilyName(familyNames[row]);
+                task.setFamilyMemberNames(familyMemberNames[row]);
+                task.setHouseNumber(houseNumbers[row]);
+                task.setTaskDetails(taskDetails[row]);
+                task.setReasonReference(reasonReferences[row]);
+                task.setTaskCode(decode(taskCodes[row]));
+                task.setBusinessStatus(decode(businessStatuses[row]));
+                task.setTaskStatus(decode(taskStatuses[row]));
+                task.setAggregateBusinessStatus(decode(aggregateBusinessStatuses[row]));
+                task.setSprayStatus(decode(sprayStatuses[row]));
+                if (!Double.isNaN(latitudes[row])) {
+                    Location location = new Location((String) null);
+                    location.setLatitude(latitudes[row]);
+                    location.setLongitude(longitudes[row]);
+                    task.setLocation(location);
+                }
+                task.setTaskCount(taskCounts[row] == NO_VALUE ? null : taskCounts[row]);
+                task.setCompleteTaskCount(completeTaskCounts[row] == NO_VALUE ? null : completeTaskCounts[row]);
+                int rowFlags = flags[row];
+                task.setFamilyRegistered((rowFlags & FAMILY_REGISTERED) != 0);
+                task.setBednetDistributed((rowFlags & BEDNET_DISTRIBUTED) != 0);
+                task.setBloodScreeningDone((rowFlags & BLOOD_SCREENING_DONE) != 0);
+                task.setFamilyRegTaskExists((rowFlags & FAMILY_REG_TASK_EXISTS) != 0);
+                task.setMdaAdhered((rowFlags & MDA_ADHERED) != 0);
+                task.setFullyReceived((rowFlags & FULLY_RECEIVED) != 0);
+                task.setPartiallyReceived((rowFlags & PARTIALLY_RECEIVED) != 0);
+                task.setNoneReceived((rowFlags & NONE_RECEIVED) != 0);
+                task.setNotEligible((rowFlags & NOT_ELIGIBLE) != 0);
+                task.setColumns(this, row);
+                materializedTasks.put(row, task);
+            }
+            return task;
+        }
+    }
+}
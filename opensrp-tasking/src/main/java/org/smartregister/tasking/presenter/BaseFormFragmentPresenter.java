@@ -27,6 +27,7 @@ import org.smartregister.tasking.util.Constants.JsonForm;
 import org.smartregister.tasking.util.PasswordDialogUtils;
 import org.smartregister.tasking.util.PreferencesUtil;
 import org.smartregister.tasking.util.RevealJsonFormUtils;
+import org.smartregister.tasking.util.TaskOrdinals.TaskCode;
 import org.smartregister.tasking.util.Utils;
 import org.smartregister.util.DateTimeTypeConverter;
 import org.smartregister.util.JsonFormUtils;
@@ -37,13 +38,6 @@ import io.ona.kujaku.listeners.BaseLocationListener;
 import timber.log.Timber;
 
 import static org.smartregister.tasking.util.Constants.DateFormat.EVENT_DATE_FORMAT_Z;
-import static org.smartregister.tasking.util.Constants.Intervention.BEDNET_DISTRIBUTION;
-import static org.smartregister.tasking.util.Constants.Intervention.BLOOD_SCREENING;
-import static org.smartregister.tasking.util.Constants.Intervention.CASE_CONFIRMATION;
-import static org.smartregister.tasking.util.Constants.Intervention.IRS;
-import static org.smartregister.tasking.util.Constants.Intervention.LARVAL_DIPPING;
-import static org.smartregister.tasking.util.Constants.Intervention.MOSQUITO_COLLECTION;
-import static org.smartregister.tasking.util.Constants.Intervention.REGISTER_FAMILY;
 
 /**
  * Created by samuelgithengi on 4/18/19.
@@ -212,17 +206,22 @@ public class BaseFormFragmentPresenter extends BaseLocationListener implements B
     public void onStructureFound(Location structure, BaseTaskDetails details) {
         this.structure = structure;
         this.taskDetails = details;
-        if (IRS.equals(details.getTaskCode()) || MOSQUITO_COLLECTION.equals(details.getTaskCode()) ||
-                LARVAL_DIPPING.equals(details.getTaskCode()) || REGISTER_FAMILY.equals(details.getTaskCode()) ||
-                BEDNET_DISTRIBUTION.equals(details.getTaskCode()) || CASE_CONFIRMATION.equals(details.getTaskCode()) ||
-                BLOOD_SCREENING.equals(details.getTaskCode())) {
-            if (validateFarStructures()) {
-                validateUserLocation();
-            } else {
+        switch (details.getTaskCodeOrdinal()) {
+            case TaskCode.IRS:
+            case TaskCode.MOSQUITO_COLLECTION:
+            case TaskCode.LARVAL_DIPPING:
+            case TaskCode.REGISTER_FAMILY:
+            case TaskCode.BEDNET_DISTRIBUTION:
+            case TaskCode.CASE_CONFIRMATION:
+            case TaskCode.BLOOD_SCREENING:
+                if (validateFarStructures()) {
+                    validateUserLocation();
+                } else {
+                    onLocationValidated();
+                }
+                break;
+            default:
                 onLocationValidated();
-            }
-        } else {
-            onLocationValidated();
         }
     }
 
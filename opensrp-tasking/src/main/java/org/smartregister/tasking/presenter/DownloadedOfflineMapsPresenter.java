@@ -36,5 +36,25 @@ public class DownloadedOfflineMapsPresenter implements DownloadedOfflineMapsCont
     @Override
     public void onOAsWithOfflineDownloadsFetched(List<OfflineMapModel> downloadedOfflineMapModelList) {
         view.setDownloadedOfflineMapModelList(downloadedOfflineMapModelList);
+        fetchStorageUsage();
+    }
+
+    /**
+     * The regions of the map are removed from the catalog as the downloader service deletes them,
+     * see {@link org.smartregister.tasking.util.OfflineMapStorageManager}
+     */
+    @Override
+    public void onMapDeleted(String mapName) {
+        fetchStorageUsage();
+    }
+
+    @Override
+    public void fetchStorageUsage() {
+        interactor.fetchStorageUsage();
+    }
+
+    @Override
+    public void onStorageUsageFetched(long storageUsage, long storageBudget) {
+        view.setStorageUsage(storageUsage, storageBudget);
     }
 }
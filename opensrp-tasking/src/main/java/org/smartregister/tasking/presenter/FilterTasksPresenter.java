@@ -7,6 +7,8 @@ import android.widget.ToggleButton;
 import androidx.annotation.NonNull;
 import androidx.annotation.StringRes;
 
+import com.google.android.flexbox.FlexboxLayout;
+
 import org.apache.commons.lang3.StringUtils;
 import org.smartregister.tasking.R;
 import org.smartregister.tasking.TaskingLibrary;
@@ -17,6 +19,7 @@ import org.smartregister.tasking.util.Constants.BusinessStatus;
 import org.smartregister.tasking.util.Constants.Filter;
 import org.smartregister.tasking.util.Constants.Intervention;
 import org.smartregister.tasking.util.Constants.InterventionType;
+import org.smartregister.tasking.util.TaskFacetIndex;
 import org.smartregister.tasking.util.Utils;
 import org.smartregister.tasking.contract.FilterTasksContract;
 
@@ -39,6 +42,8 @@ public class FilterTasksPresenter implements FilterTasksContract.Presenter {
 
     private Map<String, Set<String>> checkedFilters = new HashMap<>();
 
+    private TaskFacetIndex facetIndex;
+
     public FilterTasksPresenter(FilterTasksContract.View view) {
         this.view = view;
         labelsMap = populateLabels();
@@ -107,6 +112,7 @@ public class FilterTasksPresenter implements FilterTasksContract.Presenter {
             }
         }
         view.onFiltedSelected(checkedFilters.size());
+        updateFilterOptionCounts();
     }
 
     @Override
@@ -133,6 +139,7 @@ public class FilterTasksPresenter implements FilterTasksContract.Presenter {
 
     @Override
     public void restoreCheckedFilters(TaskFilterParams taskFilterParams) {
+        facetIndex = TaskingLibrary.getInstance().getRegisterFacetIndex();
         if (taskFilterParams != null) {
             checkedFilters = taskFilterParams.getCheckedFilters();
             restoreSelections(checkedFilters.get(Constants.Filter.STATUS), view.getBusinessStatusLayout());
@@ -142,7 +149,27 @@ public class FilterTasksPresenter implements FilterTasksContract.Presenter {
                 int index = Arrays.asList(view.getBusinessStatusLayout().getResources().getStringArray(R.array.task_sort_options)).indexOf(taskFilterParams.getSortBy());
                 view.setSortBySelection(index == -1 ? 0 : index);
             }
+        }
+        updateFilterOptionCounts();
+    }
+
+    /**
+     * Displays the number of tasks each filter option would match given the options checked in the other categories
+     */
+    private void updateFilterOptionCounts() {
+        if (facetIndex == null) {
+            return;
+        }
+        updateFilterOptionCounts(view.getBusinessStatusLayout(), Filter.STATUS);
+        updateFilterOptionCounts(view.getTaskCodeLayout(), Filter.CODE);
+        updateFilterOptionCounts(view.getInterventionTypeLayout(), Filter.INTERVENTION_UNIT);
+    }
 
+    private void updateFilterOptionCounts(FlexboxLayout layout, String category) {
+        for (int i = 0; i < layout.getFlexItemCount(); i++) {
+            ToggleButton toggleButton = (ToggleButton) layout.getFlexItemAt(i);
+            String option = toggleButton.getTag().toString();
+            view.setFilterOptionCount(toggleButton, option, facetIndex.count(category, option, checkedFilters));
         }
     }
 
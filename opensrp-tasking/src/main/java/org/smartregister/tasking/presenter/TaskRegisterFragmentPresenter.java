@@ -8,7 +8,6 @@ import androidx.core.util.Pair;
 import com.google.common.annotations.VisibleForTesting;
 import com.mapbox.geojson.Feature;
 
-import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.json.JSONArray;
@@ -21,30 +20,37 @@ import org.smartregister.configurableviews.model.ViewConfiguration;
 import org.smartregister.domain.Location;
 import org.smartregister.domain.Task;
 import org.smartregister.tasking.R;
+import org.smartregister.tasking.TaskingLibrary;
 import org.smartregister.tasking.contract.TaskRegisterFragmentContract;
 import org.smartregister.tasking.interactor.TaskRegisterFragmentInteractor;
 import org.smartregister.tasking.model.BaseTaskDetails;
+import org.smartregister.tasking.model.GeometryMetadata;
 import org.smartregister.tasking.model.TaskDetails;
 import org.smartregister.tasking.model.TaskFilterParams;
+import org.smartregister.tasking.model.TaskRegisterPage;
+import org.smartregister.tasking.model.TaskSnapshot;
+import org.smartregister.tasking.repository.GeometryMetadataRepository;
 import org.smartregister.tasking.util.Constants;
 import org.smartregister.tasking.util.PreferencesUtil;
+import org.smartregister.tasking.util.TaskFacetIndex;
+import org.smartregister.tasking.util.TaskOrdinals.TaskCode;
+import org.smartregister.tasking.util.TaskSearchIndex;
+import org.smartregister.tasking.util.TaskSnapshotStore;
 import org.smartregister.tasking.util.Utils;
+import org.smartregister.util.AppExecutors;
 
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.regex.Pattern;
 
 import timber.log.Timber;
 
 import static org.smartregister.domain.Task.INACTIVE_TASK_STATUS;
-import static org.smartregister.tasking.util.Constants.Intervention.BEDNET_DISTRIBUTION;
-import static org.smartregister.tasking.util.Constants.Intervention.BLOOD_SCREENING;
-import static org.smartregister.tasking.util.Constants.Intervention.CASE_CONFIRMATION;
-import static org.smartregister.tasking.util.Constants.Intervention.REGISTER_FAMILY;
 
 
 /**
@@ -62,7 +68,7 @@ public class TaskRegisterFragmentPresenter extends BaseFormFragmentPresenter imp
 
     private TaskRegisterFragmentInteractor interactor;
 
-    private List<TaskDetails> tasks;
+    private volatile List<TaskDetails> tasks;
 
     private android.location.Location lastLocation;
 
@@ -74,15 +80,38 @@ public class TaskRegisterFragmentPresenter extends BaseFormFragmentPresenter imp
 
     private TaskFilterParams filterParams;
 
-    private boolean isTasksFiltered;
+    private volatile boolean isTasksFiltered;
 
-    private ArrayList<TaskDetails> filteredTasks;
+    private volatile List<TaskDetails> filteredTasks;
 
-
-    private int withinBuffer;
+    private volatile int withinBuffer;
 
     private boolean applyFilterOnTasksFound;
 
+    private TaskDetails resetTaskDetails;
+
+    private TaskRegisterPage taskPage;
+
+    private boolean loadingTaskPage;
+
+    private String pendingSearchPhrase;
+
+    private volatile TaskSearchIndex searchIndex;
+
+    private volatile TaskFacetIndex facetIndex;
+
+    private AppExecutors appExecutors;
+
+    private volatile int requestGeneration;
+
+    private TaskSnapshotStore snapshotStore;
+
+    private String snapshotOperationalAreaId;
+
+    private String snapshotPlanId;
+
+    private int snapshotVersion;
+
 
     public TaskRegisterFragmentPresenter(TaskRegisterFragmentContract.View view, String viewConfigurationIdentifier) {
         this(view, viewConfigurationIdentifier, null);
@@ -98,7 +127,8 @@ public class TaskRegisterFragmentPresenter extends BaseFormFragmentPresenter imp
         this.interactor = interactor;
         viewsHelper = ConfigurableViewsLibrary.getInstance().getConfigurableViewsHelper();
         prefsUtil = PreferencesUtil.getInstance();
-
+        appExecutors = TaskingLibrary.getInstance().getAppExecutors();
+        snapshotStore = TaskingLibrary.getInstance().getTaskSnapshotStore();
 
     }
 
@@ -126,16 +156,106 @@ public class TaskRegisterFragmentPresenter extends BaseFormFragmentPresenter imp
 
         if (!isTasksFiltered) {
             getView().showProgressView();
-            interactor.findTasks(getMainCondition(), lastLocation, getOperationalAreaCenter(), getView().getContext().getString(R.string.house));
+            findTasks();
+        }
+        recordOperationalAreaUsed();
+
+    }
+
+    /**
+     * Records that the offline map of the current operational area was used, least recently used maps are deleted first,
+     * and downloads the map of the operational area before the other queued maps
+     */
+    private void recordOperationalAreaUsed() {
+        Location operationalArea = Utils.getOperationalAreaLocation(prefsUtil.getCurrentOperationalArea());
+        if (operationalArea != null && getView().getContext() != null) {
+            TaskingLibrary.getInstance().getOfflineMapStorageManager(getView().getContext()).recordMapUsed(operationalArea.getId());
+            TaskingLibrary.getInstance().getOfflineMapDownloadScheduler(getView().getContext()).setPriorityMapName(operationalArea.getId());
+        }
+    }
+
+    /**
+     * Finds the register tasks, loading only the first page if the register is paged
+     */
+    private void findTasks() {
+        String houseLabel = getView().getContext().getString(R.string.house);
+        if (isPagedRegister()) {
+            loadingTaskPage = true;
+            getOperationalAreaCenter(metadata -> interactor.findTasksPage(getMainCondition(), lastLocation, getCenter(metadata),
+                    houseLabel, null, getTaskRegisterPageSize()));
+        } else {
+            loadAllTasks();
         }
+    }
 
+    private void loadAllTasks() {
+        taskPage = null;
+        TaskSnapshot snapshot = acquireSnapshot();
+        String houseLabel = getView().getContext().getString(R.string.house);
+        getOperationalAreaCenter(metadata -> {
+            if (snapshot != null) {
+                interactor.loadTasks(snapshot, lastLocation, getCenter(metadata));
+            } else {
+                interactor.findTasks(getMainCondition(), lastLocation, getCenter(metadata), houseLabel);
+            }
+        });
     }
 
-    private android.location.Location getOperationalAreaCenter() {
-        Location operationalAreaLocation = Utils.getOperationalAreaLocation(prefsUtil.getCurrentOperationalArea());
-        if (operationalAreaLocation == null)
+    /**
+     * Holds the stored snapshot of the current operational area and plan, releasing the snapshot previously held
+     *
+     * @return the snapshot loaded by the register or the map, null if the tasks have to be queried
+     */
+    private TaskSnapshot acquireSnapshot() {
+        Location operationalArea = Utils.getOperationalAreaLocation(prefsUtil.getCurrentOperationalArea());
+        String operationalAreaId = operationalArea == null ? null : operationalArea.getId();
+        String planId = prefsUtil.getCurrentPlanId();
+        snapshotVersion = snapshotStore.getVersion();
+        if (operationalAreaId == null || planId == null) {
+            releaseSnapshot();
             return null;
-        return mappingHelper.getCenter(gson.toJson(operationalAreaLocation.getGeometry()));
+        } else if (operationalAreaId.equals(snapshotOperationalAreaId) && planId.equals(snapshotPlanId)) {
+            return snapshotStore.get(operationalAreaId, planId);
+        }
+        releaseSnapshot();
+        snapshotOperationalAreaId = operationalAreaId;
+        snapshotPlanId = planId;
+        return snapshotStore.acquire(operationalAreaId, planId);
+    }
+
+    private void releaseSnapshot() {
+        if (snapshotOperationalAreaId != null) {
+            snapshotStore.release(snapshotOperationalAreaId, snapshotPlanId);
+            snapshotOperationalAreaId = null;
+            snapshotPlanId = null;
+        }
+    }
+
+    private int getTaskRegisterPageSize() {
+        return Math.max(1, TaskingLibrary.getInstance().getTaskingLibraryConfiguration().getTaskRegisterPageSize());
+    }
+
+    private boolean isPagedRegister() {
+        return TaskingLibrary.getInstance().getTaskingLibraryConfiguration().isPagedTaskRegisterEnabled() && !Utils.isFocusInvestigationOrMDA();
+    }
+
+    /**
+     * @return true if the register is paged and not all pages have been loaded
+     */
+    private boolean isPartiallyLoaded() {
+        return taskPage != null && taskPage.hasMore();
+    }
+
+    /**
+     * Gets the geometry metadata of the current operational area, reading it in the background when it is not in memory
+     */
+    private void getOperationalAreaCenter(GeometryMetadataRepository.OnGeometryMetadataListener listener) {
+        TaskingLibrary.getInstance().getGeometryMetadataRepository()
+                .getGeometryMetadata(Utils.getOperationalAreaLocation(prefsUtil.getCurrentOperationalArea()), appExecutors, listener);
+    }
+
+    private android.location.Location getCenter(GeometryMetadata geometryMetadata) {
+        return geometryMetadata == null ? null : geometryMetadata.getCenter();
     }
 
     @Override
@@ -174,6 +294,13 @@ public class TaskRegisterFragmentPresenter extends BaseFormFragmentPresenter imp
             recalculateDistance = false;
         } else {
             this.tasks = tasks;
+            if (tasks != null && snapshotOperationalAreaId != null) {
+                snapshotStore.put(snapshotOperationalAreaId, snapshotPlanId, TaskSnapshot.of(tasks), snapshotVersion);
+            }
+            searchIndex = null;
+            facetIndex = null;
+            taskPage = null;
+            loadingTaskPage = false;
             if (tasks == null) {
                 getView().displayNotification(R.string.fetching_structure_title,
                         R.string.fetch_location_and_structures_failed, prefsUtil.getCurrentOperationalArea());
@@ -191,10 +318,61 @@ public class TaskRegisterFragmentPresenter extends BaseFormFragmentPresenter imp
             getView().setTotalTasks(structuresWithinBuffer);
             getView().hideProgressDialog();
             getView().hideProgressView();
+            if (pendingSearchPhrase != null && tasks != null) {
+                String searchPhrase = pendingSearchPhrase;
+                pendingSearchPhrase = null;
+                searchTasks(searchPhrase);
+            }
         }
 
     }
 
+    @Override
+    public void onTasksPageFound(TaskRegisterPage page, int structuresWithinBuffer) {
+        loadingTaskPage = false;
+        if (page.isFirstPage()) {
+            taskPage = page;
+            searchIndex = null;
+            facetIndex = null;
+            tasks = new ArrayList<>(page.getTasks());
+            if (tasks.isEmpty()) {
+                getView().displayNotification(R.string.fetching_structure_title, R.string.no_structures_found);
+            }
+            getView().setTaskDetails(tasks);
+            getView().setTotalTaskCount(page.getTotalTasks());
+            getView().setTotalTasks(structuresWithinBuffer);
+            getView().hideProgressDialog();
+            getView().hideProgressView();
+        } else if (taskPage != null && taskPage.getReferenceLocation() == page.getReferenceLocation()) {
+            taskPage = page;
+            tasks.addAll(page.getTasks());
+            searchIndex = null;
+            facetIndex = null;
+            getView().addTaskDetails(page.getTasks());
+        }
+    }
+
+    /**
+     * Keeps the loaded pages when the next page could not be read, so scrolling to the end of the register requests it again
+     */
+    @Override
+    public void onTasksPageNotFound(TaskRegisterPage previousPage) {
+        loadingTaskPage = false;
+        getView().hideProgressView();
+    }
+
+    @Override
+    public void loadNextTaskPage() {
+        if (!isPartiallyLoaded() || loadingTaskPage || isTasksFiltered) {
+            return;
+        }
+        loadingTaskPage = true;
+        String houseLabel = getView().getContext().getString(R.string.house);
+        TaskRegisterPage previousPage = taskPage;
+        getOperationalAreaCenter(metadata -> interactor.findTasksPage(getMainCondition(), lastLocation, getCenter(metadata),
+                houseLabel, previousPage, getTaskRegisterPageSize()));
+    }
+
 
     @Override
     public void onLocationChanged(android.location.Location location) {
@@ -203,22 +381,53 @@ public class TaskRegisterFragmentPresenter extends BaseFormFragmentPresenter imp
                 recalculateDistance = true;
             } else if (lastLocation == null ||
                     location.distanceTo(lastLocation) >= Constants.REFRESH_MAP_MINIMUM_DISTANCE) {
-                interactor.calculateDistanceFromUser(tasks, location);
+                if (isPartiallyLoaded()) {// reload the first page nearest to the new location
+                    lastLocation = location;
+                    findTasks();
+                } else {
+                    interactor.calculateDistanceFromUser(tasks, location);
+                }
             }
             lastLocation = location;
         }
 
     }
 
+    /**
+     * Refreshes the register after tasks, structures or families have changed.
+     * Once tasks have been loaded only the rows linked to the changed ids are re-queried
+     *
+     * @param changedIds the ids of the changed tasks, structures or families
+     */
+    @Override
+    public void refreshTasks(Set<String> changedIds) {
+        if (isTasksFiltered && filterParams != null) {
+            applyFilterOnTasksFound = true;
+        }
+        getView().showProgressView();
+        if (tasks == null || isPartiallyLoaded()) {
+            findTasks();
+        } else {
+            snapshotVersion = snapshotStore.getVersion();
+            List<TaskDetails> currentTasks = tasks;
+            String houseLabel = getView().getContext().getString(R.string.house);
+            getOperationalAreaCenter(metadata -> interactor.refreshTasks(currentTasks, changedIds, getMainCondition(),
+                    lastLocation, getCenter(metadata), houseLabel));
+        }
+    }
+
     @Override
     public void onDestroy() {
+        releaseSnapshot();
+        TaskingLibrary.getInstance().setRegisterFacetIndex(null);
         getView().getLocationUtils().stopLocationClient();
     }
 
     @Override
     public void onDrawerClosed() {
         getView().showProgressDialog(R.string.fetching_structures_title, R.string.fetching_structures_message);
-        interactor.findTasks(getMainCondition(), lastLocation, getOperationalAreaCenter(), getView().getContext().getString(R.string.house));
+        findTasks();
+        recordOperationalAreaUsed();
         getView().setInventionType(getInterventionLabel());
     }
 
@@ -227,14 +436,15 @@ public class TaskRegisterFragmentPresenter extends BaseFormFragmentPresenter imp
         this.isActionClicked = isActionClicked;
         if (details != null) {
             setTaskDetails(details);
-            if (CASE_CONFIRMATION.equals(details.getTaskCode())) {
+            int taskCode = details.getTaskCodeOrdinal();
+            if (taskCode == TaskCode.CASE_CONFIRMATION) {
                 interactor.getIndexCaseDetails(details.getStructureId(),
                         Utils.getOperationalAreaLocation(prefsUtil.getCurrentOperationalArea()).getId(), details.getReasonReference());
             } else if (Task.TaskStatus.COMPLETED.name().equals(details.getTaskStatus())
                     &&
-                    (BLOOD_SCREENING.equals(details.getTaskCode()) ||
-                            BEDNET_DISTRIBUTION.equals(details.getTaskCode()) ||
-                            REGISTER_FAMILY.equals(details.getTaskCode())) ||
+                    (taskCode == TaskCode.BLOOD_SCREENING ||
+                            taskCode == TaskCode.BEDNET_DISTRIBUTION ||
+                            taskCode == TaskCode.REGISTER_FAMILY) ||
                     (details.getTaskCount() != null && details.getTaskCount() > 1)) { // structures with grouped tasks should display the family profile
                 setTaskDetails(details);
                 interactor.fetchFamilyDetails(details.getStructureId());
@@ -275,23 +485,53 @@ public class TaskRegisterFragmentPresenter extends BaseFormFragmentPresenter imp
     @Override
     public void searchTasks(String searchText) {
         Timber.d("searching task matching %s", searchText);
-        if (StringUtils.isBlank(searchText)) {
-            setTasks(getActiveTasks(), this.withinBuffer);
+        if (isPartiallyLoaded() && StringUtils.isNotBlank(searchText)) {// search needs all tasks of the paged register
+            pendingSearchPhrase = searchText;
+            getView().showProgressView();
+            loadAllTasks();
         } else {
-            List<TaskDetails> filteredTasks = new ArrayList<>();
-            int withinBuffer = 0;
-            for (TaskDetails task : getActiveTasks()) {
-                if (Utils.matchesSearchPhrase(task.getFamilyName(), searchText) ||
-                        Utils.matchesSearchPhrase(task.getStructureName(), searchText) ||
-                        Utils.matchesSearchPhrase(task.getHouseNumber(), searchText) ||
-                        Utils.matchesSearchPhrase(task.getFamilyMemberNames(), searchText)) {
-                    filteredTasks.add(task);
-                    if (task.getDistanceFromUser() > 0 && task.getDistanceFromUser() <= Utils.getLocationBuffer())
-                        withinBuffer++;
+            int generation = ++requestGeneration;
+            appExecutors.diskIO().execute(() -> {
+                if (generation != requestGeneration) {// a newer request was made before this search started
+                    return;
                 }
-            }
-            setTasks(filteredTasks, withinBuffer);
+                List<TaskDetails> currentTasks = tasks;
+                List<TaskDetails> activeTasks = getActiveTasks();
+                if (activeTasks == null) {
+                    return;
+                }
+                List<TaskDetails> matches;
+                int matchesWithinBuffer;
+                if (StringUtils.isBlank(searchText)) {
+                    matches = activeTasks;
+                    matchesWithinBuffer = withinBuffer;
+                } else {
+                    TaskSearchIndex index = searchIndex;
+                    if (index == null || !index.isIndexOf(activeTasks)) {
+                        index = new TaskSearchIndex(activeTasks);
+                        searchIndex = index;
+                    }
+                    matches = index.search(searchText);
+                    matchesWithinBuffer = countWithinBuffer(matches);
+                }
+                appExecutors.mainThread().execute(() -> {
+                    if (generation == requestGeneration && tasks == currentTasks) {
+                        setTasks(matches, matchesWithinBuffer);
+                    }
+                });
+            });
+        }
+    }
+
+    private int countWithinBuffer(List<TaskDetails> tasks) {
+        TaskSnapshot snapshot = TaskSnapshot.of(tasks);
+        float locationBuffer = Utils.getLocationBuffer();
+        int count = 0;
+        for (int i = 0; i < snapshot.size(); i++) {
+            if (snapshot.getDistanceFromUser(i) > 0 && snapshot.getDistanceFromUser(i) <= locationBuffer)
+                count++;
         }
+        return count;
     }
 
     private void setTasks(List<TaskDetails> filteredTasks, int withinBuffer) {
@@ -302,75 +542,110 @@ public class TaskRegisterFragmentPresenter extends BaseFormFragmentPresenter imp
     @Override
     public void filterTasks(TaskFilterParams filterParams) {
         this.filterParams = filterParams;
+        if (isPartiallyLoaded()) {// filtering needs all tasks of the paged register
+            applyFilterOnTasksFound = true;
+            getView().showProgressView();
+            loadAllTasks();
+            return;
+        }
         if (filterParams.getCheckedFilters() == null || filterParams.getCheckedFilters().isEmpty()) {
             applyEmptyFilter();
             return;
         }
-        filteredTasks = new ArrayList<>();
-        Set<String> filterStatus = filterParams.getCheckedFilters().get(Constants.Filter.STATUS);
-        Set<String> filterTaskCode = filterParams.getCheckedFilters().get(Constants.Filter.CODE);
-        Set<String> filterInterventionUnitTasks = Utils.getInterventionUnitCodes(filterParams.getCheckedFilters().get(Constants.Filter.INTERVENTION_UNIT));
         getView().setNumberOfFilters(filterParams.getCheckedFilters().size());
-        Pattern pattern = Pattern.compile("~");
-        withinBuffer = 0;
-        for (TaskDetails taskDetails : tasks) {
-            if (matchesTask(taskDetails, pattern, filterStatus, filterTaskCode, filterInterventionUnitTasks)) {
-                filteredTasks.add(taskDetails);
-                if (taskDetails.getDistanceFromUser() > 0 && taskDetails.getDistanceFromUser() <= Utils.getLocationBuffer())
-                    withinBuffer++;
+        Map<String, Set<String>> checkedFilters = filterParams.getCheckedFilters();
+        int sortType = getSortType(filterParams.getSortBy());
+        int generation = ++requestGeneration;
+        appExecutors.diskIO().execute(() -> {
+            List<TaskDetails> currentTasks = tasks;
+            if (generation != requestGeneration || currentTasks == null) {
+                return;
             }
-        }
-        if (StringUtils.isNotBlank(filterParams.getSortBy())) {
-            sortTasks(filteredTasks, filterParams.getSortBy());
-        }
-        setTasks(filteredTasks, withinBuffer);
-        getView().setSearchPhrase("");
-        getView().hideProgressDialog();
-        getView().hideProgressView();
-        isTasksFiltered = true;
+            List<TaskDetails> filterMatches = getFacetIndex(currentTasks).filter(checkedFilters);
+            int matchesWithinBuffer = countWithinBuffer(filterMatches);
+            List<TaskDetails> matches = sortTasks(filterMatches, sortType);
+            appExecutors.mainThread().execute(() -> {
+                if (generation == requestGeneration && tasks == currentTasks) {
+                    filteredTasks = matches;
+                    withinBuffer = matchesWithinBuffer;
+                    isTasksFiltered = true;
+                    setTasks(matches, matchesWithinBuffer);
+                    getView().setSearchPhrase("");
+                }
+                getView().hideProgressDialog();
+                getView().hideProgressView();
+            });
+        });
     }
 
     private void applyEmptyFilter() {
-        isTasksFiltered = false;
         getView().clearFilter();
+        int sortType = getSortType(filterParams.getSortBy());
+        int generation = ++requestGeneration;
+        isTasksFiltered = false;
         filteredTasks = null;
-        if (StringUtils.isNotBlank(filterParams.getSortBy())) {
-            sortTasks(tasks, filterParams.getSortBy());
-            getView().setTaskDetails(tasks);
+        if (sortType < 0) {
+            return;
         }
+        appExecutors.diskIO().execute(() -> {
+            List<TaskDetails> currentTasks = tasks;
+            if (generation != requestGeneration || currentTasks == null) {
+                return;
+            }
+            List<TaskDetails> sortedTasks = sortTasks(currentTasks, sortType);
+            appExecutors.mainThread().execute(() -> {
+                if (tasks == currentTasks) {
+                    tasks = sortedTasks;
+                    if (generation == requestGeneration) {
+                        getView().setTaskDetails(sortedTasks);
+                    }
+                }
+            });
+        });
     }
 
-    private boolean matchesTask(TaskDetails taskDetails, Pattern pattern, Set<String> filterStatus, Set<String> filterTaskCode, Set<String> filterInterventionUnitTasks) {
-        boolean matches = true;
-        if (filterStatus != null) {
-            matches = StringUtils.isBlank(taskDetails.getAggregateBusinessStatus()) ? filterStatus.contains(taskDetails.getBusinessStatus()) : filterStatus.contains(taskDetails.getAggregateBusinessStatus());
+    private TaskFacetIndex getFacetIndex(List<TaskDetails> tasks) {
+        TaskFacetIndex index = facetIndex;
+        if (index == null || !index.isIndexOf(tasks)) {
+            index = new TaskFacetIndex(tasks);
+            facetIndex = index;
         }
-        if (matches && filterTaskCode != null) {
-            matches = matchesTaskCodeFilterList(taskDetails.getTaskCode(), filterTaskCode, pattern);
-        }
-        if (matches && filterInterventionUnitTasks != null) {
-            matches = matchesTaskCodeFilterList(taskDetails.getTaskCode(), filterInterventionUnitTasks, pattern);
+        return index;
+    }
+
+    /**
+     * Resolves the sort option on the main thread since the options are read from resources
+     *
+     * @param sortBy the selected sort option
+     * @return the position of the sort option or -1 if no sort option is selected
+     */
+    private int getSortType(String sortBy) {
+        if (StringUtils.isBlank(sortBy)) {
+            return -1;
         }
-        return matches;
+        return Arrays.asList(getView().getContext().getResources().getStringArray(R.array.task_sort_options)).indexOf(sortBy);
     }
 
-    private void sortTasks(List<TaskDetails> filteredTasks, String sortBy) {
-        int sortType = Arrays.asList(getView().getContext().getResources().getStringArray(R.array.task_sort_options)).indexOf(sortBy);
+    /**
+     * Sorts the tasks on the snapshot columns without creating task objects
+     *
+     * @return a sorted view of the tasks or the tasks if the sort option is unknown
+     */
+    private List<TaskDetails> sortTasks(List<TaskDetails> tasks, int sortType) {
         if (sortType == 0) {// sort by distance default sort
-            Collections.sort(filteredTasks);
+            return TaskSnapshot.of(tasks).sortByDistance();
         } else if (sortType == 1) {// sort by business status
-            Collections.sort(filteredTasks, (task, task2) -> {
-                String status = StringUtils.isBlank(task.getAggregateBusinessStatus()) ? task.getBusinessStatus() : task.getAggregateBusinessStatus();
-                String status2 = StringUtils.isBlank(task2.getAggregateBusinessStatus()) ? task2.getBusinessStatus() : task2.getAggregateBusinessStatus();
-                return status.compareTo(status2);
-            });
+            return TaskSnapshot.of(tasks).sortByStatus();
         } else if (sortType == 2) {// sort by task type
-            Collections.sort(filteredTasks, (task, task2) -> task.getTaskCode().compareTo(task2.getTaskCode()));
+            return TaskSnapshot.of(tasks).sortByTaskCode();
         }
+        return tasks;
     }
 
     @Override
     public void onFilterTasksClicked() {
+        // keep the facet index in the process so the filter screen displays the number of tasks matching each filter option
+        TaskingLibrary.getInstance().setRegisterFacetIndex(tasks == null || isPartiallyLoaded() ? null : getFacetIndex(tasks));
         getView().openFilterActivity(filterParams);
     }
 
@@ -387,24 +662,27 @@ public class TaskRegisterFragmentPresenter extends BaseFormFragmentPresenter imp
 
     @Override
     public void resetTaskInfo(TaskDetails taskDetails) {
+        resetTaskDetails = taskDetails;
         interactor.resetTaskInfo(getView().getContext(), taskDetails);
     }
 
     @Override
     public void onTaskInfoReset() {
         // refresh task list
-        getView().showProgressView();
-        interactor.findTasks(getMainCondition(), lastLocation, getOperationalAreaCenter(), getView().getContext().getString(R.string.house));
-    }
-
-    private boolean matchesTaskCodeFilterList(String value, Set<String> filterList, Pattern pattern) {
-        String[] array = pattern.split(value);
-        return CollectionUtils.containsAny(Arrays.asList(array), filterList);
+        Set<String> changedIds = new HashSet<>();
+        if (resetTaskDetails != null) {
+            changedIds.add(resetTaskDetails.getTaskId());
+            if (resetTaskDetails.getStructureId() != null) {
+                changedIds.add(resetTaskDetails.getStructureId());
+            }
+            resetTaskDetails = null;
+        }
+        refreshTasks(changedIds);
     }
 
     @Override
     public void onLocationValidated() {
-        if (Constants.Intervention.REGISTER_FAMILY.equals(getTaskDetails().getTaskCode())) {
+        if (getTaskDetails().getTaskCodeOrdinal() == TaskCode.REGISTER_FAMILY) {
             getView().registerFamily(getTaskDetails());
         }
         super.onLocationValidated();
@@ -412,12 +690,13 @@ public class TaskRegisterFragmentPresenter extends BaseFormFragmentPresenter imp
 
     @Override
     public void onFormSaved(@NonNull String structureId, String taskID, @NonNull Task.TaskStatus taskStatus, @NonNull String businessStatus, String interventionType) {
+        snapshotStore.invalidate();
         getView().hideProgressDialog();
     }
 
     @Override
     public void onStructureAdded(Feature feature, JSONArray featureCoordinates, double zoomlevel) {
-        //not used
+        snapshotStore.invalidate();
     }
 
     @Override
@@ -8,6 +8,7 @@ import org.json.JSONArray;
 import org.smartregister.commonregistry.CommonPersonObjectClient;
 import org.smartregister.domain.Task;
 import org.smartregister.tasking.R;
+import org.smartregister.tasking.TaskingLibrary;
 import org.smartregister.tasking.contract.TaskRegisterContract;
 import org.smartregister.tasking.interactor.TaskRegisterInteractor;
 import org.smartregister.view.contract.BaseRegisterContract;
@@ -60,11 +61,13 @@ public class TaskRegisterPresenter implements TaskRegisterContract.Presenter, Ba
 
     @Override
     public void onFormSaved(@NonNull String structureId, String taskID, @NonNull Task.TaskStatus taskStatus, @NonNull String businessStatus, String interventionType) {
+        TaskingLibrary.getInstance().getTaskSnapshotStore().invalidate();
         view.hideProgressDialog();//register will refresh on resume
     }
 
     @Override
     public void onStructureAdded(Feature feature, JSONArray featureCoordinates, double zoomlevel) {
+        TaskingLibrary.getInstance().getTaskSnapshotStore().invalidate();
         view.hideProgressDialog();//register will refresh on resume
     }
 
@@ -0,0 +1,174 @@
+package org.smartregister.tasking.repository;
+
+import android.content.ContentValues;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.gson.Gson;
+
+import net.sqlcipher.Cursor;
+import net.sqlcipher.database.SQLiteDatabase;
+
+import org.smartregister.domain.Location;
+import org.smartregister.repository.BaseRepository;
+import org.smartregister.tasking.model.GeometryMetadata;
+import org.smartregister.util.AppExecutors;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import timber.log.Timber;
+
+/**
+ * Cache of the center, bounding box and vertex count of location geometries, kept in memory and in a side table.
+ * Metadata is computed once per server version of a location, when the location is synced or first displayed,
+ * so the geometry of an operational area does not have to be serialized and parsed every time its center is needed.
+ * Screens read it with {@link #getGeometryMetadata(Location, AppExecutors, OnGeometryMetadataListener)} so the side table
+ * is only read and written in the background.
+ */
+public class GeometryMetadataRepository extends BaseRepository {
+
+    protected static final String GEOMETRY_METADATA_TABLE = "geometry_metadata";
+
+    private static final String LOCATION_ID = "location_id";
+    private static final String SERVER_VERSION = "server_version";
+    private static final String MIN_LONGITUDE = "min_longitude";
+    private static final String MIN_LATITUDE = "min_latitude";
+    private static final String MAX_LONGITUDE = "max_longitude";
+    private static final String MAX_LATITUDE = "max_latitude";
+    private static final String VERTEX_COUNT = "vertex_count";
+
+    private static final String CREATE_GEOMETRY_METADATA_TABLE = "CREATE TABLE IF NOT EXISTS " + GEOMETRY_METADATA_TABLE + " (" +
+            LOCATION_ID + " VARCHAR NOT NULL PRIMARY KEY, " +
+            SERVER_VERSION + " INTEGER NOT NULL, " +
+            MIN_LONGITUDE + " REAL, " +
+            MIN_LATITUDE + " REAL, " +
+            MAX_LONGITUDE + " REAL, " +
+            MAX_LATITUDE + " REAL, " +
+            VERTEX_COUNT + " INTEGER)";
+
+    private final Map<String, GeometryMetadata> metadataCache = new ConcurrentHashMap<>();
+
+    private final RevealMappingHelper mappingHelper = new RevealMappingHelper();
+
+    private final Gson gson = new Gson();
+
+    private volatile boolean tableCreated;
+
+    public static void createTable(SQLiteDatabase database) {
+        database.execSQL(CREATE_GEOMETRY_METADATA_TABLE);
+    }
+
+    /**
+     * Gets the geometry metadata of a location, computing and saving it if the location has changed since it was computed
+     *
+     * @param location the location
+     * @return the geometry metadata or null if the location has no geometry
+     */
+    @Nullable
+    public GeometryMetadata getGeometryMetadata(@Nullable Location location) {
+        if (location == null || location.getId() == null || location.getGeometry() == null) {
+            return null;
+        }
+        GeometryMetadata metadata = metadataCache.get(location.getId());
+        if (metadata != null && metadata.getServerVersion() == location.getServerVersion()) {
+            return metadata;
+        }
+        metadata = readGeometryMetadata(location.getId());
+        if (metadata == null || metadata.getServerVersion() != location.getServerVersion()) {
+            metadata = computeGeometryMetadata(location);
+            saveGeometryMetadata(metadata);
+        }
+        metadataCache.put(location.getId(), metadata);
+        return metadata;
+    }
+
+    /**
+     * Gets the geometry metadata of a location without touching the database or the geometry on the calling thread,
+     * for callers on the main thread. Metadata in memory is passed to the listener right away, otherwise the side table
+     * is read on the disk executor, the metadata is computed only when no current row exists and the listener is called
+     * on the main thread
+     *
+     * @param location     the location
+     * @param appExecutors the executors the side table is read on and the listener is called on
+     * @param listener     the listener called with the geometry metadata, or null if the location has no geometry
+     */
+    public void getGeometryMetadata(@Nullable Location location, @NonNull AppExecutors appExecutors,
+                                    @NonNull OnGeometryMetadataListener listener) {
+        if (location == null || location.getId() == null || location.getGeometry() == null) {
+            listener.onGeometryMetadata(null);
+            return;
+        }
+        GeometryMetadata metadata = metadataCache.get(location.getId());
+        if (metadata != null && metadata.getServerVersion() == location.getServerVersion()) {
+            listener.onGeometryMetadata(metadata);
+            return;
+        }
+        appExecutors.diskIO().execute(() -> {
+            GeometryMetadata storedMetadata = getGeometryMetadata(location);
+            appExecutors.mainThread().execute(() -> listener.onGeometryMetadata(storedMetadata));
+        });
+    }
+
+    private GeometryMetadata computeGeometryMetadata(Location location) {
+        return mappingHelper.getGeometryMetadata(location.getId(), location.getServerVersion(), gson.toJson(location.getGeometry()));
+    }
+
+    @Nullable
+    private GeometryMetadata readGeometryMetadata(@NonNull String locationId) {
+        Cursor cursor = null;
+        try {
+            cursor = getDatabase().rawQuery(String.format("SELECT * FROM %s WHERE %s = ?", GEOMETRY_METADATA_TABLE, LOCATION_ID),
+                    new String[]{locationId});
+            if (cursor.moveToFirst()) {
+                double[] bbox = new double[]{cursor.getDouble(cursor.getColumnIndex(MIN_LONGITUDE)),
+                        cursor.getDouble(cursor.getColumnIndex(MIN_LATITUDE)),
+                        cursor.getDouble(cursor.getColumnIndex(MAX_LONGITUDE)),
+                        cursor.getDouble(cursor.getColumnIndex(MAX_LATITUDE))};
+                return new GeometryMetadata(locationId, cursor.getLong(cursor.getColumnIndex(SERVER_VERSION)), bbox,
+                        cursor.getInt(cursor.getColumnIndex(VERTEX_COUNT)));
+            }
+        } catch (Exception e) {
+            Timber.e(e);
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        return null;
+    }
+
+    private void saveGeometryMetadata(@NonNull GeometryMetadata metadata) {
+        ContentValues contentValues = new ContentValues();
+        contentValues.put(LOCATION_ID, metadata.getLocationId());
+        contentValues.put(SERVER_VERSION, metadata.getServerVersion());
+        contentValues.put(MIN_LONGITUDE, metadata.getBbox()[0]);
+        contentValues.put(MIN_LATITUDE, metadata.getBbox()[1]);
+        contentValues.put(MAX_LONGITUDE, metadata.getBbox()[2]);
+        contentValues.put(MAX_LATITUDE, metadata.getBbox()[3]);
+        contentValues.put(VERTEX_COUNT, metadata.getVertexCount());
+        try {
+            getDatabase().replace(GEOMETRY_METADATA_TABLE, null, contentValues);
+        } catch (Exception e) {
+            Timber.e(e);
+        }
+    }
+
+    /**
+     * @return the writable database, creating the side table the first time it is used
+     */
+    private SQLiteDatabase getDatabase() {
+        SQLiteDatabase database = getWritableDatabase();
+        if (!tableCreated) {
+            createTable(database);
+            tableCreated = true;
+        }
+        return database;
+    }
+
+    public interface OnGeometryMetadataListener {
+
+        void onGeometryMetadata(@Nullable GeometryMetadata metadata);
+    }
+}
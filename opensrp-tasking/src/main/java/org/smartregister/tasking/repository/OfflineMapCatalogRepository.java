@@ -0,0 +1,361 @@
+package org.smartregister.tasking.repository;
+
+import android.content.ContentValues;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import net.sqlcipher.Cursor;
+import net.sqlcipher.database.SQLiteDatabase;
+
+import org.smartregister.repository.BaseRepository;
+import org.smartregister.tasking.model.OfflineMapCatalogEntry;
+import org.smartregister.tasking.model.OfflineMapModel;
+import org.smartregister.tasking.util.OfflineMapHelper;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import io.ona.kujaku.data.realm.objects.MapBoxOfflineQueueTask;
+import timber.log.Timber;
+
+/**
+ * Catalog of the offline regions downloaded on the device, with the map each region belongs to, its status, date, size
+ * and when the operational area of the map was last opened.
+ * The catalog is updated when a region download starts, completes or is deleted and is kept in memory once loaded,
+ * so the offline map screens do not have to list the offline regions and scan the downloader queue to open.
+ */
+public class OfflineMapCatalogRepository extends BaseRepository {
+
+    protected static final String OFFLINE_MAP_CATALOG_TABLE = "offline_map_catalog";
+
+    private static final String REGION_NAME = "region_name";
+    private static final String MAP_NAME = "map_name";
+    private static final String STATUS = "status";
+    private static final String DATE_CREATED = "date_created";
+    private static final String SIZE = "size";
+    private static final String LAST_USED = "last_used";
+
+    private static final String CREATE_OFFLINE_MAP_CATALOG_TABLE = "CREATE TABLE IF NOT EXISTS " + OFFLINE_MAP_CATALOG_TABLE + " (" +
+            REGION_NAME + " VARCHAR NOT NULL PRIMARY KEY, " +
+            MAP_NAME + " VARCHAR NOT NULL, " +
+            STATUS + " VARCHAR NOT NULL, " +
+            DATE_CREATED + " INTEGER, " +
+            SIZE + " INTEGER)";
+
+    /**
+     * The last used date was added after the catalog table was released
+     */
+    private static final String ADD_LAST_USED_COLUMN = "ALTER TABLE " + OFFLINE_MAP_CATALOG_TABLE + " ADD COLUMN " + LAST_USED + " INTEGER";
+
+    private Map<String, OfflineMapCatalogEntry> entries;
+
+    private volatile boolean tableCreated;
+
+    /**
+     * Creates the catalog table, or adds the columns missing from a catalog table created by an earlier version
+     */
+    public static void createTable(SQLiteDatabase database) {
+        database.execSQL(CREATE_OFFLINE_MAP_CATALOG_TABLE);
+        Set<String> columns = new HashSet<>();
+        Cursor cursor = null;
+        try {
+            cursor = database.rawQuery("PRAGMA table_info(" + OFFLINE_MAP_CATALOG_TABLE + ")", null);
+            while (cursor.moveToNext()) {
+                columns.add(cursor.getString(cursor.getColumnIndex("name")));
+            }
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        if (!columns.contains(LAST_USED)) {
+            database.execSQL(ADD_LAST_USED_COLUMN);
+        }
+    }
+
+    /**
+     * @return the names of the maps whose regions have all been downloaded
+     */
+    @NonNull
+    public synchronized List<String> getDownloadedMapNames() {
+        List<String> mapNames = new ArrayList<>();
+        for (OfflineMapCatalogEntry entry : getEntries().values()) {
+            if (entry.getRegionName().equals(entry.getMapName()) && entry.getStatus() == OfflineMapModel.OfflineMapStatus.DOWNLOADED) {
+                mapNames.add(entry.getMapName());
+            }
+        }
+        return mapNames;
+    }
+
+    /**
+     * @return the catalog entries of the regions of a map
+     */
+    @NonNull
+    public synchronized List<OfflineMapCatalogEntry> getMapEntries(@NonNull String mapName) {
+        List<OfflineMapCatalogEntry> mapEntries = new ArrayList<>();
+        for (OfflineMapCatalogEntry entry : getEntries().values()) {
+            if (mapName.equals(entry.getMapName())) {
+                mapEntries.add(entry);
+            }
+        }
+        return mapEntries;
+    }
+
+    @Nullable
+    public synchronized OfflineMapCatalogEntry getEntry(@NonNull String regionName) {
+        return getEntries().get(regionName);
+    }
+
+    public synchronized void onDownloadStarted(@NonNull String regionName, long estimatedSize) {
+        Date now = new Date();
+        saveEntry(new OfflineMapCatalogEntry(regionName, OfflineMapHelper.getMapName(regionName),
+                OfflineMapModel.OfflineMapStatus.DOWNLOAD_STARTED, now, estimatedSize, now));
+    }
+
+    public synchronized void onDownloadCompleted(@NonNull String regionName, long size) {
+        OfflineMapCatalogEntry entry = getEntries().get(regionName);
+        Date dateCreated = entry == null ? new Date() : entry.getDateCreated();
+        saveEntry(new OfflineMapCatalogEntry(regionName, OfflineMapHelper.getMapName(regionName),
+                OfflineMapModel.OfflineMapStatus.DOWNLOADED, dateCreated, size, entry == null ? dateCreated : entry.getLastUsed()));
+    }
+
+    /**
+     * Sets the size of a region read from its offline region status
+     */
+    public synchronized void updateSize(@NonNull String regionName, long size) {
+        OfflineMapCatalogEntry entry = getEntries().get(regionName);
+        if (entry != null && entry.getSize() != size) {
+            saveEntry(new OfflineMapCatalogEntry(regionName, entry.getMapName(), entry.getStatus(), entry.getDateCreated(), size, entry.getLastUsed()));
+        }
+    }
+
+    /**
+     * Records that the operational area of a map was opened
+     */
+    public synchronized void setLastUsed(@NonNull String mapName, @NonNull Date lastUsed) {
+        for (OfflineMapCatalogEntry entry : getMapEntries(mapName)) {
+            saveEntry(new OfflineMapCatalogEntry(entry.getRegionName(), mapName, entry.getStatus(), entry.getDateCreated(), entry.getSize(), lastUsed));
+        }
+    }
+
+    /**
+     * @return the size in bytes of all the regions in the catalog
+     */
+    public synchronized long getStorageUsage() {
+        long size = 0;
+        for (OfflineMapCatalogEntry entry : getEntries().values()) {
+            size += entry.getSize();
+        }
+        return size;
+    }
+
+    /**
+     * Gets the downloaded maps to delete, least recently used first, for the regions in the catalog to fit in a storage budget
+     *
+     * @param budget        the storage budget in bytes
+     * @param retainedMaps  the maps that must not be deleted
+     * @return the names of the maps to delete
+     */
+    @NonNull
+    public synchronized List<String> getMapsToEvict(long budget, @NonNull Collection<String> retainedMaps) {
+        final Map<String, Long> mapSizes = new LinkedHashMap<>();
+        final Map<String, Long> mapLastUsed = new HashMap<>();
+        for (OfflineMapCatalogEntry entry : getEntries().values()) {
+            Long size = mapSizes.get(entry.getMapName());
+            mapSizes.put(entry.getMapName(), (size == null ? 0 : size) + entry.getSize());
+            long lastUsed = entry.getLastUsed() == null ? 0 : entry.getLastUsed().getTime();
+            Long mapLastUsedTime = mapLastUsed.get(entry.getMapName());
+            mapLastUsed.put(entry.getMapName(), mapLastUsedTime == null ? lastUsed : Math.max(lastUsed, mapLastUsedTime));
+        }
+
+        List<String> candidates = new ArrayList<>();
+        for (String mapName : getDownloadedMapNames()) {
+            if (!retainedMaps.contains(mapName)) {
+                candidates.add(mapName);
+            }
+        }
+        Collections.sort(candidates, new Comparator<String>() {
+            @Override
+            public int compare(String first, String second) {
+                return mapLastUsed.get(first).compareTo(mapLastUsed.get(second));
+            }
+        });
+
+        long usage = getStorageUsage();
+        List<String> mapsToEvict = new ArrayList<>();
+        for (String mapName : candidates) {
+            if (usage <= budget) {
+                break;
+            }
+            mapsToEvict.add(mapName);
+            usage -= mapSizes.get(mapName);
+        }
+        return mapsToEvict;
+    }
+
+    /**
+     * Removes a region from the catalog, once the offline region has been deleted
+     */
+    public synchronized void deleteRegion(@NonNull String regionName) {
+        getEntries().remove(regionName);
+        try {
+            getDatabase().delete(OFFLINE_MAP_CATALOG_TABLE, REGION_NAME + " = ?", new String[]{regionName});
+        } catch (Exception e) {
+            Timber.e(e);
+        }
+    }
+
+    /**
+     * Removes the regions of a map from the catalog
+     */
+    public synchronized void deleteMap(@NonNull String mapName) {
+        for (OfflineMapCatalogEntry entry : getMapEntries(mapName)) {
+            getEntries().remove(entry.getRegionName());
+        }
+        try {
+            getDatabase().delete(OFFLINE_MAP_CATALOG_TABLE, MAP_NAME + " = ?", new String[]{mapName});
+        } catch (Exception e) {
+            Timber.e(e);
+        }
+    }
+
+    /**
+     * @return the number of regions in the catalog
+     */
+    public synchronized int getRegionCount() {
+        return getEntries().size();
+    }
+
+    /**
+     * @param regionNames       the names of the offline regions on the device
+     * @param scheduledMapNames the maps being downloaded, whose regions are added by the scheduler
+     * @return the names of the offline regions that are not in the catalog
+     */
+    @NonNull
+    public synchronized Set<String> getMissingRegionNames(@NonNull Collection<String> regionNames, @NonNull Collection<String> scheduledMapNames) {
+        Set<String> missingRegionNames = new HashSet<>();
+        for (String regionName : regionNames) {
+            if (!getEntries().containsKey(regionName) && !scheduledMapNames.contains(OfflineMapHelper.getMapName(regionName))) {
+                missingRegionNames.add(regionName);
+            }
+        }
+        return missingRegionNames;
+    }
+
+    /**
+     * Adds the offline regions on the device that are missing from the catalog, such as regions downloaded before the
+     * catalog existed, dated from the downloader queue tasks that created them. Their size is unknown until it is read
+     * from their status, see {@link #updateSize(String, long)}
+     *
+     * @param regionNames       the names of the offline regions on the device
+     * @param offlineQueueTasks the completed download tasks by map name
+     * @param scheduledMapNames the maps being downloaded, whose regions are added by the scheduler
+     * @return the names of the regions added
+     */
+    @NonNull
+    public synchronized List<String> addMissingRegions(@NonNull Collection<String> regionNames, @NonNull Map<String, MapBoxOfflineQueueTask> offlineQueueTasks,
+                                                       @NonNull Collection<String> scheduledMapNames) {
+        List<String> addedRegionNames = new ArrayList<>();
+        for (String regionName : regionNames) {
+            if (getEntries().containsKey(regionName) || scheduledMapNames.contains(OfflineMapHelper.getMapName(regionName))) {
+                continue;
+            }
+            MapBoxOfflineQueueTask offlineQueueTask = offlineQueueTasks.get(regionName);
+            Date dateCreated = offlineQueueTask == null ? null : offlineQueueTask.getDateCreated();
+            saveEntry(new OfflineMapCatalogEntry(regionName, OfflineMapHelper.getMapName(regionName),
+                    OfflineMapModel.OfflineMapStatus.DOWNLOADED, dateCreated, 0, dateCreated));
+            addedRegionNames.add(regionName);
+        }
+        return addedRegionNames;
+    }
+
+    /**
+     * Removes the entries of the regions that are no longer on the device, such as regions deleted outside the app
+     *
+     * @param regionNames       the names of the offline regions on the device
+     * @param scheduledMapNames the maps being downloaded, whose regions may not have been created yet
+     * @return true if entries were removed
+     */
+    public synchronized boolean removeMissingRegions(@NonNull Collection<String> regionNames, @NonNull Collection<String> scheduledMapNames) {
+        List<String> missingRegionNames = new ArrayList<>();
+        for (OfflineMapCatalogEntry entry : getEntries().values()) {
+            if (!regionNames.contains(entry.getRegionName()) && !scheduledMapNames.contains(entry.getMapName())) {
+                missingRegionNames.add(entry.getRegionName());
+            }
+        }
+        for (String regionName : missingRegionNames) {
+            deleteRegion(regionName);
+        }
+        return !missingRegionNames.isEmpty();
+    }
+
+    private void saveEntry(OfflineMapCatalogEntry entry) {
+        getEntries().put(entry.getRegionName(), entry);
+        ContentValues contentValues = new ContentValues();
+        contentValues.put(REGION_NAME, entry.getRegionName());
+        contentValues.put(MAP_NAME, entry.getMapName());
+        contentValues.put(STATUS, entry.getStatus().name());
+        contentValues.put(DATE_CREATED, entry.getDateCreated() == null ? null : entry.getDateCreated().getTime());
+        contentValues.put(SIZE, entry.getSize());
+        contentValues.put(LAST_USED, entry.getLastUsed() == null ? null : entry.getLastUsed().getTime());
+        try {
+            getDatabase().replace(OFFLINE_MAP_CATALOG_TABLE, null, contentValues);
+        } catch (Exception e) {
+            Timber.e(e);
+        }
+    }
+
+    /**
+     * @return the catalog entries by region name, read from the catalog table the first time
+     */
+    private Map<String, OfflineMapCatalogEntry> getEntries() {
+        if (entries != null) {
+            return entries;
+        }
+        entries = new LinkedHashMap<>();
+        Cursor cursor = null;
+        try {
+            cursor = getDatabase().rawQuery("SELECT * FROM " + OFFLINE_MAP_CATALOG_TABLE, null);
+            while (cursor.moveToNext()) {
+                int dateIndex = cursor.getColumnIndex(DATE_CREATED);
+                int lastUsedIndex = cursor.getColumnIndex(LAST_USED);
+                OfflineMapCatalogEntry entry = new OfflineMapCatalogEntry(cursor.getString(cursor.getColumnIndex(REGION_NAME)),
+                        cursor.getString(cursor.getColumnIndex(MAP_NAME)),
+                        OfflineMapModel.OfflineMapStatus.valueOf(cursor.getString(cursor.getColumnIndex(STATUS))),
+                        cursor.isNull(dateIndex) ? null : new Date(cursor.getLong(dateIndex)),
+                        cursor.getLong(cursor.getColumnIndex(SIZE)),
+                        cursor.isNull(lastUsedIndex) ? null : new Date(cursor.getLong(lastUsedIndex)));
+                entries.put(entry.getRegionName(), entry);
+            }
+        } catch (Exception e) {
+            Timber.e(e);
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * @return the writable database, creating the catalog table the first time it is used
+     */
+    private SQLiteDatabase getDatabase() {
+        SQLiteDatabase database = getWritableDatabase();
+        if (!tableCreated) {
+            createTable(database);
+            tableCreated = true;
+        }
+        return database;
+    }
+}
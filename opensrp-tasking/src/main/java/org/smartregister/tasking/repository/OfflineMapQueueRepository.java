@@ -0,0 +1,151 @@
+package org.smartregister.tasking.repository;
+
+import android.content.ContentValues;
+
+import androidx.annotation.NonNull;
+
+import net.sqlcipher.Cursor;
+import net.sqlcipher.database.SQLiteDatabase;
+
+import org.smartregister.repository.BaseRepository;
+import org.smartregister.tasking.model.OfflineMapQueueEntry;
+import org.smartregister.tasking.util.OfflineMapHelper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.ona.kujaku.helpers.OfflineServiceHelper;
+import timber.log.Timber;
+
+/**
+ * Regions of the maps scheduled by the {@link org.smartregister.tasking.util.OfflineMapDownloadScheduler}, in the order
+ * they were queued, so map downloads including the regions held back by the scheduler are resumed when the app is restarted.
+ * The regions of a map are removed once the map is downloaded or its download is stopped.
+ */
+public class OfflineMapQueueRepository extends BaseRepository {
+
+    protected static final String OFFLINE_MAP_QUEUE_TABLE = "offline_map_queue";
+
+    private static final String REGION_NAME = "region_name";
+    private static final String MAP_NAME = "map_name";
+    private static final String NORTH = "north";
+    private static final String WEST = "west";
+    private static final String SOUTH = "south";
+    private static final String EAST = "east";
+    private static final String MIN_ZOOM = "min_zoom";
+    private static final String MAX_ZOOM = "max_zoom";
+    private static final String TILE_COUNT = "tile_count";
+    private static final String COMPLETED = "completed";
+
+    private static final String CREATE_OFFLINE_MAP_QUEUE_TABLE = "CREATE TABLE IF NOT EXISTS " + OFFLINE_MAP_QUEUE_TABLE + " (" +
+            REGION_NAME + " VARCHAR NOT NULL PRIMARY KEY, " +
+            MAP_NAME + " VARCHAR NOT NULL, " +
+            NORTH + " REAL NOT NULL, " +
+            WEST + " REAL NOT NULL, " +
+            SOUTH + " REAL NOT NULL, " +
+            EAST + " REAL NOT NULL, " +
+            MIN_ZOOM + " REAL NOT NULL, " +
+            MAX_ZOOM + " REAL NOT NULL, " +
+            TILE_COUNT + " INTEGER, " +
+            COMPLETED + " INTEGER NOT NULL DEFAULT 0)";
+
+    private volatile boolean tableCreated;
+
+    public static void createTable(SQLiteDatabase database) {
+        database.execSQL(CREATE_OFFLINE_MAP_QUEUE_TABLE);
+    }
+
+    /**
+     * Adds the regions of a map after the regions already queued, replacing the regions queued for the map before
+     */
+    public void addMap(@NonNull String mapName, @NonNull List<OfflineMapHelper.DownloadRegion> regions) {
+        SQLiteDatabase database = getDatabase();
+        database.beginTransaction();
+        try {
+            database.delete(OFFLINE_MAP_QUEUE_TABLE, MAP_NAME + " = ?", new String[]{mapName});
+            for (OfflineMapHelper.DownloadRegion region : regions) {
+                ContentValues contentValues = new ContentValues();
+                contentValues.put(REGION_NAME, region.getName());
+                contentValues.put(MAP_NAME, mapName);
+                contentValues.put(NORTH, region.getTopLeft().getLatitude());
+                contentValues.put(WEST, region.getTopLeft().getLongitude());
+                contentValues.put(SOUTH, region.getBottomRight().getLatitude());
+                contentValues.put(EAST, region.getBottomRight().getLongitude());
+                contentValues.put(MIN_ZOOM, region.getZoomRange().getMinZoom());
+                contentValues.put(MAX_ZOOM, region.getZoomRange().getMaxZoom());
+                contentValues.put(TILE_COUNT, region.getTileCount());
+                contentValues.put(COMPLETED, 0);
+                database.replace(OFFLINE_MAP_QUEUE_TABLE, null, contentValues);
+            }
+            database.setTransactionSuccessful();
+        } catch (Exception e) {
+            Timber.e(e);
+        } finally {
+            database.endTransaction();
+        }
+    }
+
+    public void setCompleted(@NonNull String regionName) {
+        ContentValues contentValues = new ContentValues();
+        contentValues.put(COMPLETED, 1);
+        try {
+            getDatabase().update(OFFLINE_MAP_QUEUE_TABLE, contentValues, REGION_NAME + " = ?", new String[]{regionName});
+        } catch (Exception e) {
+            Timber.e(e);
+        }
+    }
+
+    /**
+     * Removes the regions of a map from the queue
+     */
+    public void deleteMap(@NonNull String mapName) {
+        try {
+            getDatabase().delete(OFFLINE_MAP_QUEUE_TABLE, MAP_NAME + " = ?", new String[]{mapName});
+        } catch (Exception e) {
+            Timber.e(e);
+        }
+    }
+
+    /**
+     * @return the queued regions in the order they were queued
+     */
+    @NonNull
+    public List<OfflineMapQueueEntry> getQueuedRegions() {
+        List<OfflineMapQueueEntry> queuedRegions = new ArrayList<>();
+        Cursor cursor = null;
+        try {
+            cursor = getDatabase().rawQuery("SELECT * FROM " + OFFLINE_MAP_QUEUE_TABLE + " ORDER BY rowid", null);
+            while (cursor.moveToNext()) {
+                OfflineMapHelper.DownloadRegion region = new OfflineMapHelper.DownloadRegion(cursor.getString(cursor.getColumnIndex(REGION_NAME)),
+                        cursor.getDouble(cursor.getColumnIndex(NORTH)),
+                        cursor.getDouble(cursor.getColumnIndex(WEST)),
+                        cursor.getDouble(cursor.getColumnIndex(SOUTH)),
+                        cursor.getDouble(cursor.getColumnIndex(EAST)),
+                        new OfflineServiceHelper.ZoomRange(cursor.getDouble(cursor.getColumnIndex(MIN_ZOOM)),
+                                cursor.getDouble(cursor.getColumnIndex(MAX_ZOOM))),
+                        cursor.getLong(cursor.getColumnIndex(TILE_COUNT)));
+                queuedRegions.add(new OfflineMapQueueEntry(cursor.getString(cursor.getColumnIndex(MAP_NAME)), region,
+                        cursor.getInt(cursor.getColumnIndex(COMPLETED)) == 1));
+            }
+        } catch (Exception e) {
+            Timber.e(e);
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        return queuedRegions;
+    }
+
+    /**
+     * @return the writable database, creating the queue table the first time it is used
+     */
+    private SQLiteDatabase getDatabase() {
+        SQLiteDatabase database = getWritableDatabase();
+        if (!tableCreated) {
+            createTable(database);
+            tableCreated = true;
+        }
+        return database;
+    }
+}
@@ -3,13 +3,21 @@ package org.smartregister.tasking.repository;
 import android.location.Location;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.mapbox.geojson.CoordinateContainer;
 import com.mapbox.geojson.Feature;
 import com.mapbox.geojson.Geometry;
+import com.mapbox.geojson.Point;
 import com.mapbox.geojson.gson.GeometryGeoJson;
 import com.mapbox.turf.TurfMeasurement;
 
 import org.smartregister.repository.helper.MappingHelper;
+import org.smartregister.tasking.model.GeometryMetadata;
+
+import java.util.List;
 
 /**
  * Created by samuelgithengi on 3/19/19.
@@ -31,4 +39,78 @@ public class RevealMappingHelper implements MappingHelper {
         center.setLatitude((bbox[3] + bbox[1]) / 2);
         return center;
     }
+
+    /**
+     * Generates the center of the bounding box of a geometry directly from its coordinate arrays, without serializing it,
+     * so the centers of many structures can be computed in one pass
+     *
+     * @param geometry the geometry of the structure
+     * @return the center or null if the geometry has no coordinates
+     */
+    @Nullable
+    public Location getCenter(@Nullable org.smartregister.domain.Geometry geometry) {
+        if (geometry == null || geometry.getCoordinates() == null) {
+            return null;
+        }
+        double[] bbox = new double[]{Double.MAX_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE};
+        extendBbox(bbox, geometry.getCoordinates());
+        if (bbox[0] > bbox[2]) {
+            return null;
+        }
+        Location center = new Location((String) null);
+        center.setLongitude((bbox[2] + bbox[0]) / 2);
+        center.setLatitude((bbox[3] + bbox[1]) / 2);
+        return center;
+    }
+
+    private void extendBbox(double[] bbox, JsonArray coordinates) {
+        if (coordinates.size() >= 2 && coordinates.get(0).isJsonPrimitive()) {
+            double longitude = coordinates.get(0).getAsDouble();
+            double latitude = coordinates.get(1).getAsDouble();
+            bbox[0] = Math.min(bbox[0], longitude);
+            bbox[1] = Math.min(bbox[1], latitude);
+            bbox[2] = Math.max(bbox[2], longitude);
+            bbox[3] = Math.max(bbox[3], latitude);
+            return;
+        }
+        for (JsonElement child : coordinates) {
+            if (child.isJsonArray()) {
+                extendBbox(bbox, child.getAsJsonArray());
+            }
+        }
+    }
+
+    /**
+     * Computes the bounding box and the number of vertices of a location geometry in one parse of the geometry
+     *
+     * @param locationId    the id of the location
+     * @param serverVersion the server version of the location
+     * @param geometry      the geometry of the location
+     * @return the geometry metadata
+     */
+    public GeometryMetadata getGeometryMetadata(@NonNull String locationId, long serverVersion, @NonNull String geometry) {
+        Geometry parsedGeometry = GeometryGeoJson.fromJson(geometry);
+        int vertexCount;
+        if (parsedGeometry instanceof Point) {
+            vertexCount = 1;
+        } else if (parsedGeometry instanceof CoordinateContainer) {
+            vertexCount = countVertices(((CoordinateContainer<?>) parsedGeometry).coordinates());
+        } else {
+            vertexCount = 0;
+        }
+        return new GeometryMetadata(locationId, serverVersion, TurfMeasurement.bbox(parsedGeometry), vertexCount);
+    }
+
+    private int countVertices(Object coordinates) {
+        if (coordinates instanceof Point) {
+            return 1;
+        } else if (coordinates instanceof List) {
+            int vertexCount = 0;
+            for (Object child : (List<?>) coordinates) {
+                vertexCount += countVertices(child);
+            }
+            return vertexCount;
+        }
+        return 0;
+    }
 }
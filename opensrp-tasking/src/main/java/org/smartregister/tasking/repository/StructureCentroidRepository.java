@@ -0,0 +1,121 @@
+package org.smartregister.tasking.repository;
+
+import android.text.TextUtils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import net.sqlcipher.Cursor;
+import net.sqlcipher.database.SQLiteDatabase;
+import net.sqlcipher.database.SQLiteStatement;
+
+import org.smartregister.domain.Location;
+import org.smartregister.repository.BaseRepository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import timber.log.Timber;
+
+import static org.smartregister.domain.Task.INACTIVE_TASK_STATUS;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.ID;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.LATITUDE;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.LONGITUDE;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.PARENT_ID;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.PLAN_ID;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.STATUS;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.STRUCTURES_TABLE;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.STRUCTURE_ID;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.TASK_TABLE;
+
+/**
+ * Writes the precomputed centers of synced structures to the latitude and longitude columns of the structure table,
+ * so the register, distance calculations and offline map prefetch read a point for every structure including polygon structures
+ */
+public class StructureCentroidRepository extends BaseRepository {
+
+    /**
+     * Only fills the structures without a center, the structure repository stores the center of points and,
+     * when the app sets a mapping helper on it, of polygons when it saves a structure
+     */
+    private static final String UPDATE_CENTROID = String.format("UPDATE %1$s SET %2$s = ?, %3$s = ? WHERE %4$s = ? AND (%2$s IS NULL OR %3$s IS NULL)",
+            STRUCTURES_TABLE, LATITUDE, LONGITUDE, ID);
+
+    /**
+     * Structures of an operational area with an active task of a plan
+     */
+    private static final String TASKED_STRUCTURE_CENTERS = String.format("SELECT %1$s, %2$s FROM %3$s WHERE %4$s = ? " +
+                    "AND %1$s IS NOT NULL AND %2$s IS NOT NULL AND %5$s IN (SELECT %6$s FROM %7$s WHERE %8$s = ? AND %9$s NOT IN (%10$s))",
+            LONGITUDE, LATITUDE, STRUCTURES_TABLE, PARENT_ID, ID, STRUCTURE_ID, TASK_TABLE, PLAN_ID, STATUS,
+            TextUtils.join(",", Collections.nCopies(INACTIVE_TASK_STATUS.length, "?")));
+
+    private final RevealMappingHelper mappingHelper = new RevealMappingHelper();
+
+    /**
+     * Computes the centers of the structures from their coordinates and stores those missing in one transaction
+     *
+     * @param structures the synced structures
+     * @return the number of structures with a center computed, structures without an id or geometry are skipped
+     */
+    public int updateCentroids(@Nullable List<Location> structures) {
+        if (structures == null || structures.isEmpty()) {
+            return 0;
+        }
+        int updated = 0;
+        SQLiteDatabase database = getWritableDatabase();
+        SQLiteStatement statement = null;
+        database.beginTransaction();
+        try {
+            statement = database.compileStatement(UPDATE_CENTROID);
+            for (Location structure : structures) {
+                android.location.Location center = structure.getId() == null ? null : mappingHelper.getCenter(structure.getGeometry());
+                if (center != null) {
+                    statement.bindDouble(1, center.getLatitude());
+                    statement.bindDouble(2, center.getLongitude());
+                    statement.bindString(3, structure.getId());
+                    statement.execute();
+                    statement.clearBindings();
+                    updated++;
+                }
+            }
+            database.setTransactionSuccessful();
+        } catch (Exception e) {
+            Timber.e(e);
+            updated = 0;
+        } finally {
+            if (statement != null) {
+                statement.close();
+            }
+            database.endTransaction();
+        }
+        return updated;
+    }
+
+    /**
+     * @param parentId the id of the operational area
+     * @param planId   the id of the plan
+     * @return the centers of the structures of the operational area with an active task of the plan as {longitude, latitude}
+     */
+    @NonNull
+    public List<double[]> getStructureCenters(@NonNull String parentId, @NonNull String planId) {
+        List<double[]> centers = new ArrayList<>();
+        List<String> args = new ArrayList<>(Arrays.asList(parentId, planId));
+        args.addAll(Arrays.asList(INACTIVE_TASK_STATUS));
+        Cursor cursor = null;
+        try {
+            cursor = getReadableDatabase().rawQuery(TASKED_STRUCTURE_CENTERS, args.toArray(new String[0]));
+            while (cursor.moveToNext()) {
+                centers.add(new double[]{cursor.getDouble(0), cursor.getDouble(1)});
+            }
+        } catch (Exception e) {
+            Timber.e(e);
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        return centers;
+    }
+}
@@ -0,0 +1,212 @@
+package org.smartregister.tasking.repository;
+
+import android.text.TextUtils;
+
+import androidx.annotation.Nullable;
+
+import net.sqlcipher.database.SQLiteDatabase;
+
+import org.smartregister.domain.Location;
+import org.smartregister.domain.Task;
+import org.smartregister.repository.BaseRepository;
+import org.smartregister.repository.TaskRepository;
+import org.smartregister.tasking.TaskingLibrary;
+import org.smartregister.view.activity.DrishtiApplication;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import timber.log.Timber;
+
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.BASE_ENTITY_ID;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.FOR;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.ID;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.STRUCTURES_TABLE;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.STRUCTURE_ID;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.TASK_TABLE;
+import static org.smartregister.tasking.util.Constants.TABLE_NAME.FAMILY_MEMBER;
+
+/**
+ * Sets the structure id of the tasks of a synced page, looking up only the tasks, structures and family members of the page
+ * by their ids instead of updating every task without a structure id. The tasks are linked to their structures when the page
+ * is synced and to their family members once the events of the page are client processed, since client processing creates
+ * the family members. {@link #relinkAll()} relinks the whole task table and repairs the pages that failed to link
+ */
+public class TaskStructureLinkRepository extends BaseRepository {
+
+    /**
+     * SQLite limits the number of variables of a statement to 999
+     */
+    protected static final int MAX_IDS_PER_STATEMENT = 500;
+
+    private static final String CREATE_TASK_FOR_INDEX = String.format("CREATE INDEX IF NOT EXISTS %s_%s_index ON %s(%s, %s)",
+            TASK_TABLE, FOR, TASK_TABLE, FOR, STRUCTURE_ID);
+
+    /**
+     * Family members are looked up by structure when the tasks of their structures are linked
+     */
+    private static final String CREATE_FAMILY_MEMBER_STRUCTURE_INDEX = String.format("CREATE INDEX IF NOT EXISTS %s_%s_index ON %s(%s)",
+            FAMILY_MEMBER, STRUCTURE_ID, FAMILY_MEMBER, STRUCTURE_ID);
+
+    /**
+     * Tasks for the synced structures
+     */
+    private static final String LINK_TASKS_OF_STRUCTURES = "UPDATE %1$s SET %2$s = %1$s.%3$s WHERE %1$s.%3$s IN (%5$s) AND %2$s IS NULL";
+
+    /**
+     * Synced tasks for structures already on the device
+     */
+    private static final String LINK_TASKS_TO_STRUCTURES = "UPDATE %1$s SET %2$s = %1$s.%3$s WHERE %1$s.%4$s IN (%5$s) AND %2$s IS NULL " +
+            "AND EXISTS (SELECT 1 FROM %6$s WHERE %6$s.%4$s = %1$s.%3$s)";
+
+    /**
+     * Tasks for the family members the synced tasks are for
+     */
+    private static final String LINK_TASKS_TO_CLIENTS = "UPDATE %1$s SET %2$s = (SELECT %6$s.%2$s FROM %6$s WHERE %6$s.%7$s = %1$s.%3$s) " +
+            "WHERE %1$s.%3$s IN (%5$s) AND %2$s IS NULL " +
+            "AND EXISTS (SELECT 1 FROM %6$s WHERE %6$s.%7$s = %1$s.%3$s AND %6$s.%2$s IS NOT NULL)";
+
+    /**
+     * Tasks for the family members of the synced structures
+     */
+    private static final String LINK_TASKS_OF_STRUCTURE_CLIENTS = "UPDATE %1$s SET %2$s = (SELECT %6$s.%2$s FROM %6$s WHERE %6$s.%7$s = %1$s.%3$s) " +
+            "WHERE %1$s.%3$s IN (SELECT %6$s.%7$s FROM %6$s WHERE %6$s.%2$s IN (%5$s)) AND %2$s IS NULL";
+
+    private volatile boolean indexCreated;
+
+    /**
+     * Links the tasks of a synced page to their structures in one transaction
+     *
+     * @param syncedStructures the structures of the page
+     * @param synchedTasks     the tasks of the page
+     * @return false if the tasks could not be linked, they are then left for {@link #relinkAll()}
+     */
+    public boolean linkSyncedPage(@Nullable List<Location> syncedStructures, @Nullable List<Task> synchedTasks) {
+        Set<String> structureIds = getStructureIds(syncedStructures);
+        Set<String> taskIds = new LinkedHashSet<>();
+        if (synchedTasks != null) {
+            for (Task task : synchedTasks) {
+                taskIds.add(task.getIdentifier());
+            }
+        }
+        taskIds.remove(null);
+        if (structureIds.isEmpty() && taskIds.isEmpty()) {
+            return true;
+        }
+
+        SQLiteDatabase database = getDatabase();
+        database.beginTransaction();
+        try {
+            update(database, LINK_TASKS_OF_STRUCTURES, STRUCTURES_TABLE, structureIds);
+            update(database, LINK_TASKS_TO_STRUCTURES, STRUCTURES_TABLE, taskIds);
+            database.setTransactionSuccessful();
+            return true;
+        } catch (Exception e) {
+            Timber.e(e);
+            return false;
+        } finally {
+            database.endTransaction();
+        }
+    }
+
+    /**
+     * Links the tasks of a synced page to the family members they are for in one transaction. Runs after the events of the page
+     * are client processed so family members registered by those events are linked
+     *
+     * @param syncedStructures the structures of the page
+     * @param synchedTasks     the tasks of the page
+     * @return false if the tasks could not be linked, they are then left for {@link #relinkAll()}
+     */
+    public boolean linkClientTasks(@Nullable List<Location> syncedStructures, @Nullable List<Task> synchedTasks) {
+        Set<String> structureIds = getStructureIds(syncedStructures);
+        Set<String> entityIds = new LinkedHashSet<>();
+        if (synchedTasks != null) {
+            for (Task task : synchedTasks) {
+                entityIds.add(task.getForEntity());
+            }
+        }
+        entityIds.remove(null);
+        if (structureIds.isEmpty() && entityIds.isEmpty()) {
+            return true;
+        }
+
+        SQLiteDatabase database = getDatabase();
+        database.beginTransaction();
+        try {
+            updateClientTasks(database, LINK_TASKS_TO_CLIENTS, entityIds);
+            updateClientTasks(database, LINK_TASKS_OF_STRUCTURE_CLIENTS, structureIds);
+            database.setTransactionSuccessful();
+            return true;
+        } catch (Exception e) {
+            Timber.e(e);
+            return false;
+        } finally {
+            database.endTransaction();
+        }
+    }
+
+    /**
+     * Links every task without a structure id to its structure or family member. Scans the whole task table, run once
+     * a sync completes if a page failed to link or client process, or when the sync is requested with a relink.
+     * The stored task snapshots are invalidated as the structures of their tasks may have changed
+     */
+    public void relinkAll() {
+        TaskRepository taskRepository = DrishtiApplication.getInstance().getContext().getTaskRepository();
+        taskRepository.updateTaskStructureIdsFromExistingStructures();
+        taskRepository.updateTaskStructureIdsFromExistingClients(FAMILY_MEMBER);
+        TaskingLibrary.getInstance().getTaskSnapshotStore().invalidate();
+    }
+
+    private Set<String> getStructureIds(@Nullable List<Location> syncedStructures) {
+        Set<String> structureIds = new LinkedHashSet<>();
+        if (syncedStructures != null) {
+            for (Location structure : syncedStructures) {
+                structureIds.add(structure.getId());
+            }
+        }
+        structureIds.remove(null);
+        return structureIds;
+    }
+
+    /**
+     * Family members are only available when the app registers families, the structure links are kept if the lookup fails
+     */
+    private void updateClientTasks(SQLiteDatabase database, String query, Set<String> ids) {
+        try {
+            update(database, query, FAMILY_MEMBER, ids);
+        } catch (Exception e) {
+            Timber.w(e, "Could not link tasks to %s", FAMILY_MEMBER);
+        }
+    }
+
+    private void update(SQLiteDatabase database, String query, String joinTable, Set<String> ids) {
+        List<String> idList = new ArrayList<>(ids);
+        for (int start = 0; start < idList.size(); start += MAX_IDS_PER_STATEMENT) {
+            List<String> chunk = idList.subList(start, Math.min(start + MAX_IDS_PER_STATEMENT, idList.size()));
+            String placeholders = TextUtils.join(",", Collections.nCopies(chunk.size(), "?"));
+            database.execSQL(String.format(query, TASK_TABLE, STRUCTURE_ID, FOR, ID, placeholders, joinTable, BASE_ENTITY_ID),
+                    chunk.toArray());
+        }
+    }
+
+    /**
+     * @return the writable database, creating the indexes of the tasks by entity and of the family members by structure
+     * the first time it is used
+     */
+    private SQLiteDatabase getDatabase() {
+        SQLiteDatabase database = getWritableDatabase();
+        if (!indexCreated) {
+            database.execSQL(CREATE_TASK_FOR_INDEX);
+            try {
+                database.execSQL(CREATE_FAMILY_MEMBER_STRUCTURE_INDEX);
+            } catch (Exception e) {
+                Timber.w(e, "Could not index %s by structure", FAMILY_MEMBER);
+            }
+            indexCreated = true;
+        }
+        return database;
+    }
+}
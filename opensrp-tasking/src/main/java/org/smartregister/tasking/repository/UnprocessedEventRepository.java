@@ -0,0 +1,138 @@
+package org.smartregister.tasking.repository;
+
+import android.text.TextUtils;
+
+import androidx.annotation.NonNull;
+
+import net.sqlcipher.Cursor;
+
+import org.smartregister.domain.Event;
+import org.smartregister.domain.db.EventClient;
+import org.smartregister.repository.BaseRepository;
+import org.smartregister.repository.EventClientRepository;
+import org.smartregister.repository.EventClientRepository.event_column;
+import org.smartregister.view.activity.DrishtiApplication;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.smartregister.repository.EventClientRepository.Table.event;
+
+/**
+ * Reads the events of a set of entities with a sync status in chunks ordered by server version, so catch up syncs
+ * do not hold all the unprocessed events in memory. Each chunk continues after the server version and row id of the
+ * last event of the previous chunk, the events of an entity are therefore read in order
+ */
+public class UnprocessedEventRepository extends BaseRepository {
+
+    /**
+     * SQLite limits the number of variables of a statement to 999
+     */
+    public static final int MAX_BASE_ENTITY_IDS = 500;
+
+    private static final String ROW_ID = "rowid";
+
+    private static final String SERVER_VERSION = String.format("COALESCE(%s, 0)", event_column.serverVersion.name());
+
+    private static final String EVENTS_QUERY = String.format("SELECT %1$s, %2$s, %3$s FROM %4$s WHERE %5$s IN (%%1$s) AND %6$s = ? " +
+                    "AND (%2$s > %%2$d OR (%2$s = %%2$d AND %3$s > %%3$d)) ORDER BY %2$s, %3$s LIMIT %%4$d",
+            event_column.json.name(), SERVER_VERSION, ROW_ID, event.name(),
+            event_column.baseEntityId.name(), event_column.syncStatus.name());
+
+    /**
+     * Reads the first chunk of events
+     *
+     * @param baseEntityIds the entities, at most {@link #MAX_BASE_ENTITY_IDS}
+     * @param syncStatus    the sync status of the events
+     * @param chunkSize     the maximum number of events of a chunk, at least one event is read
+     * @throws android.database.SQLException if the events could not be read
+     */
+    @NonNull
+    public EventChunk getFirstChunk(@NonNull List<String> baseEntityIds, @NonNull String syncStatus, int chunkSize) {
+        return getChunk(baseEntityIds, syncStatus, -1, -1, chunkSize);
+    }
+
+    /**
+     * Reads the chunk of events after a chunk
+     */
+    @NonNull
+    public EventChunk getNextChunk(@NonNull EventChunk previous, int chunkSize) {
+        return getChunk(previous.baseEntityIds, previous.syncStatus, previous.lastServerVersion, previous.lastRowId, chunkSize);
+    }
+
+    private EventChunk getChunk(List<String> baseEntityIds, String syncStatus, long afterServerVersion, long afterRowId, int chunkSize) {
+        chunkSize = Math.max(1, chunkSize);
+        EventChunk chunk = new EventChunk(baseEntityIds, syncStatus, afterServerVersion, afterRowId);
+        if (baseEntityIds.isEmpty()) {
+            return chunk;
+        }
+        List<String> args = new ArrayList<>(baseEntityIds);
+        args.add(syncStatus);
+
+        EventClientRepository eventClientRepository = DrishtiApplication.getInstance().getContext().getEventClientRepository();
+        Cursor cursor = null;
+        try {
+            cursor = getReadableDatabase().rawQuery(String.format(EVENTS_QUERY,
+                    TextUtils.join(",", Collections.nCopies(baseEntityIds.size(), "?")), afterServerVersion, afterRowId, chunkSize),
+                    args.toArray(new String[0]));
+            while (cursor.moveToNext()) {
+                chunk.lastServerVersion = cursor.getLong(1);
+                chunk.lastRowId = cursor.getLong(2);
+                Event eventObject = eventClientRepository.convert(cursor.getString(0).replaceAll("'", ""), Event.class);
+                if (eventObject != null) {
+                    chunk.eventClients.add(new EventClient(eventObject, null));
+                }
+                chunk.size++;
+            }
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        chunk.complete = chunk.size < chunkSize;
+        return chunk;
+    }
+
+    public static class EventChunk {
+
+        private final List<String> baseEntityIds;
+
+        private final String syncStatus;
+
+        private final List<EventClient> eventClients = new ArrayList<>();
+
+        private long lastServerVersion;
+
+        private long lastRowId;
+
+        private int size;
+
+        private boolean complete;
+
+        private EventChunk(List<String> baseEntityIds, String syncStatus, long lastServerVersion, long lastRowId) {
+            this.baseEntityIds = baseEntityIds;
+            this.syncStatus = syncStatus;
+            this.lastServerVersion = lastServerVersion;
+            this.lastRowId = lastRowId;
+        }
+
+        public List<EventClient> getEventClients() {
+            return eventClients;
+        }
+
+        /**
+         * @return the number of events read, including events that could not be parsed
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * @return true if there are no events after this chunk
+         */
+        public boolean isComplete() {
+            return complete;
+        }
+    }
+}
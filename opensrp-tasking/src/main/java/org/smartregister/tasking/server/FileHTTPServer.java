@@ -2,50 +2,136 @@ package org.smartregister.tasking.server;
 
 import android.content.Context;
 
+import androidx.annotation.Nullable;
+
 import org.apache.commons.lang3.StringUtils;
 import org.smartregister.tasking.TaskingLibrary;
 import org.smartregister.util.Utils;
 
-import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.net.ServerSocket;
-import java.net.Socket;
+import java.io.RandomAccessFile;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import timber.log.Timber;
 
 /**
- * A minimal HTTP server that serves a mapbox style json file
+ * A minimal HTTP/1.1 server that serves a mapbox style json file and the tiles, sprites and glyphs of the map packages
+ * sideloaded in {@link org.smartregister.tasking.util.TaskingLibraryConfiguration#getOfflineMapPackagesDirectory()}.
+ * All connections are handled by a single selector thread and kept alive between requests, tiles are read from the
+ * packages on a tile reader thread so a slow read does not hold up the other connections.
+ * Response bodies are encoded once and reused for every request, clients that send the ETag of the body they have
+ * get a 304 response and clients that accept gzip get the body compressed once. Tiles stored gzipped are
+ * decompressed for clients that do not accept gzip.
  */
 public class FileHTTPServer {
     public static final int PORT = 9783;
 
     private static final String DEFAULT_STYLE_JSON_FILE = "map-download-style.json";
     private static final String DEFAULT_DG_ID_PLACEHOLDER = "DIGITAL_GLOBE_ID";
-    private String styleJson;
+    private static final int MAX_REQUEST_HEADER_BYTES = 8 * 1024;
+    private static final Charset HEADER_CHARSET = Charset.forName("ISO-8859-1");
+    private static final String TILES_PATH = "/tiles/";
+    private static final String SPRITES_PATH = "/sprites/";
+    private static final String GLYPHS_PATH = "/glyphs/";
+    private static final int MAX_CACHED_FILE_RESPONSES = 128;
+    private static final int TILE_READER_THREADS = 2;
+    private static final String GZIP = "gzip";
+    private static final long STOP_TIMEOUT_MILLIS = 1000;
+
+    private final Response styleResponse;
+
+    private final File packagesDirectory;
+
+    private final Map<String, MBTilesPackage> tilePackages = new HashMap<>();
+
+    private final Map<String, Response> fileResponses = new LinkedHashMap<String, Response>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Response> eldest) {
+            return size() > MAX_CACHED_FILE_RESPONSES;
+        }
+    };
+
+    private final ExecutorService tileReader = Executors.newFixedThreadPool(TILE_READER_THREADS);
+
+    /**
+     * Work handed back to the selector thread by the tile readers
+     */
+    private final Queue<Runnable> selectorTasks = new ConcurrentLinkedQueue<>();
 
     private final FileHTTPServer.ServerThread server;
-    private final ServerSocket socket;
+    private final ServerSocketChannel socket;
+    private final Selector selector;
+
+    private volatile boolean stopped;
+
+    private final AtomicBoolean closed = new AtomicBoolean();
 
     public FileHTTPServer(Context context, String styleJsonAssetPath, String digitalGlobeIdPlaceHolder) throws IOException {
-        socket = createBoundSocket(PORT);
+        socket = createBoundChannel(PORT);
         String dgIdPlaceHolder;
         if (socket == null) {
             throw new IOException("Could not find an available port");
         }
-        server = new ServerThread(socket);
+        selector = Selector.open();
+        socket.register(selector, SelectionKey.OP_ACCEPT);
+        server = new ServerThread();
 
         dgIdPlaceHolder = StringUtils.isNotBlank(digitalGlobeIdPlaceHolder) ? digitalGlobeIdPlaceHolder : DEFAULT_DG_ID_PLACEHOLDER;
-        styleJson = StringUtils.isNotBlank(styleJsonAssetPath) ? styleJsonAssetPath : DEFAULT_STYLE_JSON_FILE;
-
-        styleJson = Utils.readAssetContents(context, styleJsonAssetPath);
+        String styleJson = Utils.readAssetContents(context, StringUtils.isNotBlank(styleJsonAssetPath) ? styleJsonAssetPath : DEFAULT_STYLE_JSON_FILE);
 
         String digitalGlobeConnectId = TaskingLibrary.getInstance().getDigitalGlobeConnectId();
         if (digitalGlobeConnectId != null) {
             styleJson = styleJson.replace(dgIdPlaceHolder, digitalGlobeConnectId);
         }
+        styleResponse = new Response(styleJson.getBytes(), "text/plain");
+
+        packagesDirectory = TaskingLibrary.getInstance().getTaskingLibraryConfiguration().getOfflineMapPackagesDirectory();
+        openTilePackages();
+    }
+
+    private void openTilePackages() {
+        File[] files = packagesDirectory == null ? null : packagesDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.isFile() && file.getName().endsWith(".mbtiles")) {
+                try {
+                    MBTilesPackage tilePackage = new MBTilesPackage(file);
+                    tilePackages.put(tilePackage.getName(), tilePackage);
+                    Timber.i("Serving tiles of %s", tilePackage.getName());
+                } catch (Exception e) {
+                    Timber.e(e, "Unable to open map package %s", file.getName());
+                }
+            }
+        }
     }
 
     public void start() {
@@ -57,120 +143,517 @@ public class FileHTTPServer {
     }
 
     /**
-     * Permanently closes all sockets.
+     * Permanently closes all sockets. The selector thread is woken up and closes the connections it owns when it stops,
+     * the call waits a short while for it so the port is released when it returns
      */
     public void destroy() {
+        stopped = true;
+        tileReader.shutdownNow();
+        if (server.isAlive()) {
+            selector.wakeup();
+            try {
+                server.join(STOP_TIMEOUT_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        } else {
+            closeConnections();
+        }
+    }
+
+    /**
+     * Closes the connections, the selector and the tile packages once, from the selector thread when it stops
+     * or from {@link #destroy()} if the server was never started
+     */
+    private void closeConnections() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        for (SelectionKey key : selector.keys()) {
+            try {
+                key.channel().close();
+            } catch (IOException e) {
+                Timber.w(e);
+            }
+        }
         try {
-            socket.close();
+            selector.close();
         } catch (IOException e) {
             Timber.w(e);
         }
-        server.interrupt();
+        try {
+            tileReader.awaitTermination(STOP_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (MBTilesPackage tilePackage : tilePackages.values()) {
+            tilePackage.close();
+        }
     }
 
     /**
-     * Binds a ServerSocket to given port.
+     * Binds a non blocking ServerSocketChannel to given port.
      */
-    protected static ServerSocket createBoundSocket(int port) throws IOException {
+    protected static ServerSocketChannel createBoundChannel(int port) {
         try {
-            return new ServerSocket(port);
+            ServerSocketChannel channel = ServerSocketChannel.open();
+            channel.socket().setReuseAddress(true);
+            channel.socket().bind(new InetSocketAddress(port));
+            channel.configureBlocking(false);
+            return channel;
         } catch (IOException e) {
-            e.printStackTrace();
+            Timber.e(e);
         }
         Timber.e("Port %d not available", port);
         return null;
     }
 
-    class ServerThread extends Thread {
-        private final ServerSocket socket;
+    /**
+     * Returns the response for a request path. Paths that are not tiles, sprites or glyphs are served the style
+     *
+     * @param path the path of the request
+     * @return the response or null if there is nothing to serve at the path
+     */
+    @Nullable
+    protected Response getResponse(String path) {
+        try {
+            int query = path.indexOf('?');
+            path = URLDecoder.decode(query < 0 ? path : path.substring(0, query), "UTF-8");
+        } catch (Exception e) {
+            return null;
+        }
+        if (path.contains("..")) {
+            return null;
+        } else if (path.startsWith(TILES_PATH)) {
+            return getTileResponse(path.substring(TILES_PATH.length()));
+        } else if (path.startsWith(SPRITES_PATH) || path.startsWith(GLYPHS_PATH)) {
+            return packagesDirectory == null ? null : getFileResponse(new File(packagesDirectory, path.substring(1)));
+        }
+        return styleResponse;
+    }
 
-        ServerThread(ServerSocket socket) {
-            this.socket = socket;
+    /**
+     * @param tilePath the tile path as {package}/{z}/{x}/{y} with an optional extension
+     */
+    private Response getTileResponse(String tilePath) {
+        String[] parts = tilePath.split("/");
+        MBTilesPackage tilePackage = parts.length == 4 ? tilePackages.get(parts[0]) : null;
+        if (tilePackage == null) {
+            return null;
+        }
+        String y = parts[3].contains(".") ? parts[3].substring(0, parts[3].indexOf('.')) : parts[3];
+        try {
+            return tilePackage.getTile(Integer.parseInt(parts[1]), Integer.parseInt(parts[2]), Integer.parseInt(y));
+        } catch (NumberFormatException e) {
+            return null;
         }
+    }
+
+    /**
+     * Serves a sprite or glyph file memory mapped, keeping the most recently served files mapped
+     */
+    private Response getFileResponse(File file) {
+        if (!file.isFile()) {
+            fileResponses.remove(file.getPath());
+            return null;
+        }
+        String etag = String.format(Locale.US, "\"%x-%x\"", file.length(), file.lastModified());
+        Response response = fileResponses.get(file.getPath());
+        if (response != null && response.etag.equals(etag)) {
+            return response;
+        }
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+            ByteBuffer data = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, randomAccessFile.length());
+            boolean gzipped = data.remaining() > 2 && data.get(0) == (byte) 0x1f && data.get(1) == (byte) 0x8b;
+            response = new Response(data, getContentType(file.getName()), etag, gzipped ? GZIP : null);
+            fileResponses.put(file.getPath(), response);
+            return response;
+        } catch (IOException e) {
+            Timber.e(e, "Unable to read %s", file.getName());
+            return null;
+        }
+    }
+
+    private static String getContentType(String fileName) {
+        if (fileName.endsWith(".json")) {
+            return "application/json";
+        } else if (fileName.endsWith(".png")) {
+            return "image/png";
+        }
+        return "application/x-protobuf";
+    }
+
+    class ServerThread extends Thread {
 
         public void run() {
+            Timber.i("Ready for requests on port %d", socket.socket().getLocalPort());
+            while (!stopped && !isInterrupted() && selector.isOpen()) {
+                try {
+                    selector.select();
+                    Runnable task;
+                    while ((task = selectorTasks.poll()) != null) {
+                        task.run();
+                    }
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        handle(key);
+                    }
+                } catch (Exception e) {
+                    if (selector.isOpen()) {
+                        Timber.e(e, "Unable to select connections");
+                    }
+                }
+            }
+            closeConnections();
+            Timber.i("Server thread stopped");
+        }
+
+        private void handle(SelectionKey key) {
             try {
-                socket.setReuseAddress(true);
-                Timber.i("Ready for requests on port %d", socket.getLocalPort());
-                while (!isInterrupted()) {
-                    Socket connection = socket.accept();
-                    Timber.i("Accepted a client connection");
-                    new ResponseThread(connection).start();
+                if (!key.isValid()) {
+                    return;
+                } else if (key.isAcceptable()) {
+                    accept();
+                } else if (key.isReadable()) {
+                    read(key);
+                } else if (key.isWritable()) {
+                    write(key);
                 }
-                Timber.i("Server thread interrupted");
             } catch (IOException e) {
-                Timber.i("Server thread stopped: %s", e.getMessage());
+                Timber.d(e, "Closing connection");
+                close(key);
             }
         }
-    }
 
-    class ResponseThread extends Thread {
-        private final Socket connection;
+        private void accept() throws IOException {
+            SocketChannel channel = socket.accept();
+            if (channel != null) {
+                channel.configureBlocking(false);
+                channel.register(selector, SelectionKey.OP_READ, new Connection());
+            }
+        }
 
-        ResponseThread(Socket connection) {
-            this.connection = connection;
+        private void read(SelectionKey key) throws IOException {
+            Connection connection = (Connection) key.attachment();
+            if (((SocketChannel) key.channel()).read(connection.input) < 0) {
+                close(key);
+                return;
+            }
+            processRequests(key);
         }
 
-        public void run() {
-            try (Socket connection = this.connection) {
-                InputStreamReader reader = new InputStreamReader(connection.getInputStream());
-                String request = new BufferedReader(reader).readLine();
-                Timber.i("Received request: %s", request);
-                if (request == null) {
-                    return;
+        /**
+         * Responds to the complete requests of the input in order. A tile request is read on a tile reader thread
+         * and the requests after it wait until its response is queued
+         */
+        private void processRequests(SelectionKey key) throws IOException {
+            Connection connection = (Connection) key.attachment();
+            Request request;
+            while (!connection.closeAfterWrite && !connection.awaitingTile && (request = connection.nextRequest()) != null) {
+                if (!"GET".equals(request.method) && !"HEAD".equals(request.method)) {
+                    Timber.w("Ignoring request: %s %s", request.method, request.path);
+                    connection.queue(getHeaders("405 Method Not Allowed", null, 0, null, false), null, false);
+                } else if (request.path.startsWith(TILES_PATH)) {
+                    connection.awaitingTile = true;
+                    readTile(key, request);
+                } else {
+                    respond(connection, request, getResponse(request.path));
                 }
-                long start = System.currentTimeMillis();
-                FileHTTPServer.Response response = getResponse(request);
-                if (response == null) {
-                    Timber.i("%s: Style file not found", request);
+            }
+            if (!connection.awaitingTile && connection.output.isEmpty() && !connection.input.hasRemaining()) {
+                connection.queue(getHeaders("431 Request Header Fields Too Large", null, 0, null, false), null, false);
+            }
+            if (!connection.output.isEmpty()) {
+                write(key);
+            } else {
+                key.interestOps(connection.awaitingTile ? 0 : SelectionKey.OP_READ);
+            }
+        }
+
+        private void readTile(SelectionKey key, Request request) {
+            try {
+                tileReader.execute(() -> {
+                    Response response = getResponse(request.path);
+                    selectorTasks.add(() -> onTileRead(key, request, response));
+                    selector.wakeup();
+                });
+            } catch (RejectedExecutionException e) {
+                Timber.d(e, "Server stopped");
+                close(key);
+            }
+        }
+
+        private void onTileRead(SelectionKey key, Request request, Response response) {
+            if (!key.isValid()) {
+                return;
+            }
+            Connection connection = (Connection) key.attachment();
+            connection.awaitingTile = false;
+            respond(connection, request, response);
+            try {
+                processRequests(key);
+            } catch (IOException e) {
+                Timber.d(e, "Closing connection");
+                close(key);
+            }
+        }
+
+        private void write(SelectionKey key) throws IOException {
+            Connection connection = (Connection) key.attachment();
+            SocketChannel channel = (SocketChannel) key.channel();
+            while (!connection.output.isEmpty()) {
+                ByteBuffer buffer = connection.output.peek();
+                channel.write(buffer);
+                if (buffer.hasRemaining()) {
+                    key.interestOps(SelectionKey.OP_WRITE);
                     return;
                 }
-                sendResponse(connection, response);
-                long finish = System.currentTimeMillis();
-                Timber.i("%s: Served %d bytes in %d ms", request, response.data.length, finish - start);
+                connection.output.poll();
+            }
+            if (connection.closeAfterWrite) {
+                close(key);
+            } else {
+                key.interestOps(connection.awaitingTile ? 0 : SelectionKey.OP_READ);
+            }
+        }
+
+        private void close(SelectionKey key) {
+            key.cancel();
+            try {
+                key.channel().close();
             } catch (IOException e) {
-                Timber.e(e, "Unable to read request from socket");
+                Timber.w(e);
             }
         }
 
-        protected FileHTTPServer.Response getResponse(String request) {
-            if (request.startsWith("GET /")) {
-                return new FileHTTPServer.Response(styleJson.getBytes(),  "text/plain");
+        private void respond(Connection connection, Request request, Response response) {
+            boolean isHead = "HEAD".equals(request.method);
+            if (response == null) {
+                Timber.i("%s: File not found", request.path);
+                connection.queue(getHeaders("404 Not Found", null, 0, null, request.keepAlive), null, request.keepAlive);
+                return;
+            }
+            boolean compress = response.contentEncoding == null && request.acceptsGzip && response.isCompressible();
+            boolean decompress = GZIP.equals(response.contentEncoding) && !request.acceptsGzip;
+            String etag = response.getEtag(compress ? GZIP : decompress ? null : response.contentEncoding);
+            if (request.matchesEtag(etag)) {
+                connection.queue(getHeaders("304 Not Modified", null, -1, etag, request.keepAlive), null, request.keepAlive);
+            } else if (decompress) {
+                ByteBuffer data = response.getGunzippedData();
+                if (data == null) {
+                    connection.queue(getHeaders("500 Internal Server Error", null, 0, null, false), null, false);
+                    return;
+                }
+                connection.queue(getHeaders("200 OK", response.contentType, data.remaining(), etag, request.keepAlive),
+                        isHead ? null : data, request.keepAlive);
             } else {
-                Timber.w("Ignoring request: %s", request);
-                return null;
+                ByteBuffer data = compress ? response.getGzippedData() : null;
+                String contentEncoding = data == null ? response.contentEncoding : GZIP;
+                if (data == null) {
+                    data = response.data.duplicate();
+                    etag = response.getEtag(contentEncoding);
+                }
+                String headers = getHeaders("200 OK", response.contentType, data.remaining(), etag, request.keepAlive);
+                if (contentEncoding != null) {
+                    headers = headers.replace("\r\n\r\n", "\r\nContent-Encoding: " + contentEncoding + "\r\n\r\n");
+                }
+                connection.queue(headers, isHead ? null : data, request.keepAlive);
+                Timber.d("%s: Queued %d bytes", request.path, data.remaining());
             }
+        }
 
+        private String getHeaders(String status, String contentType, int contentLength, String etag, boolean keepAlive) {
+            StringBuilder headers = new StringBuilder("HTTP/1.1 ").append(status).append("\r\n");
+            if (contentType != null) {
+                headers.append("Content-Type: ").append(contentType).append("\r\n");
+            }
+            if (contentLength >= 0) {
+                headers.append(String.format(Locale.US, "Content-Length: %d\r\n", contentLength));
+            }
+            if (etag != null) {
+                headers.append("ETag: ").append(etag).append("\r\nVary: Accept-Encoding\r\n");
+            }
+            return headers.append("Connection: ").append(keepAlive ? "keep-alive" : "close").append("\r\n\r\n").toString();
         }
+    }
 
-        protected void sendResponse(Socket connection, FileHTTPServer.Response response) {
-            String headers = String.format(
-                    Locale.US,
-                    "HTTP/1.0 200\r\n" +
-                            "Content-Type: %s\r\n" +
-                            "Content-Length: %d\r\n" +
-                            "\r\n",
-                    response.contentType,
-                    response.data.length
-            );
+    /**
+     * The buffered input and queued output of a client connection
+     */
+    private static class Connection {
 
-            try (OutputStream output = connection.getOutputStream()) {
-                output.write(headers.getBytes());
-                output.write(response.data);
-                output.flush();
-            } catch (IOException e) {
-                Timber.e(e, "Unable to write response to socket");
+        private final ByteBuffer input = ByteBuffer.allocate(MAX_REQUEST_HEADER_BYTES);
+
+        private final ArrayDeque<ByteBuffer> output = new ArrayDeque<>();
+
+        private boolean closeAfterWrite;
+
+        private boolean awaitingTile;
+
+        /**
+         * @return the next complete request in the input, or null if the headers of the next request have not all been received
+         */
+        private Request nextRequest() {
+            byte[] bytes = input.array();
+            for (int i = 3; i < input.position(); i++) {
+                if (bytes[i] == '\n' && bytes[i - 1] == '\r' && bytes[i - 2] == '\n' && bytes[i - 3] == '\r') {
+                    Request request = Request.parse(new String(bytes, 0, i - 3, HEADER_CHARSET));
+                    input.flip();
+                    input.position(i + 1);
+                    input.compact();
+                    return request;
+                }
             }
+            return null;
+        }
+
+        private void queue(String headers, ByteBuffer body, boolean keepAlive) {
+            output.add(ByteBuffer.wrap(headers.getBytes(HEADER_CHARSET)));
+            if (body != null) {
+                output.add(body);
+            }
+            closeAfterWrite = !keepAlive;
+        }
+    }
+
+    private static class Request {
+
+        private String method;
+        private String path;
+        private boolean keepAlive;
+        private boolean acceptsGzip;
+        private String[] ifNoneMatch;
+
+        private static Request parse(String head) {
+            String[] lines = head.split("\r\n");
+            String[] requestLine = lines[0].split(" ");
+            Request request = new Request();
+            request.method = requestLine[0];
+            request.path = requestLine.length > 1 ? requestLine[1] : "/";
+            boolean http11 = requestLine.length > 2 && "HTTP/1.1".equals(requestLine[2]);
+            Map<String, String> headers = new HashMap<>();
+            for (int i = 1; i < lines.length; i++) {
+                int separator = lines[i].indexOf(':');
+                if (separator > 0) {
+                    headers.put(lines[i].substring(0, separator).trim().toLowerCase(Locale.US), lines[i].substring(separator + 1).trim());
+                }
+            }
+            String connection = headers.get("connection");
+            request.keepAlive = http11 ? !"close".equalsIgnoreCase(connection) : "keep-alive".equalsIgnoreCase(connection);
+            String acceptEncoding = headers.get("accept-encoding");
+            request.acceptsGzip = acceptEncoding != null && acceptEncoding.toLowerCase(Locale.US).contains("gzip");
+            String ifNoneMatch = headers.get("if-none-match");
+            request.ifNoneMatch = ifNoneMatch == null ? new String[0] : ifNoneMatch.split(",");
+            return request;
+        }
+
+        /**
+         * Compares the entity tags of If-None-Match with the weak comparison, ignoring the W/ prefix of weak tags
+         *
+         * @param etag the quoted entity tag of the response
+         * @return true if the client has the response
+         */
+        private boolean matchesEtag(String etag) {
+            for (String tag : ifNoneMatch) {
+                tag = tag.trim();
+                if (tag.startsWith("W/")) {
+                    tag = tag.substring(2);
+                }
+                if ("*".equals(tag) || tag.equals(etag)) {
+                    return true;
+                }
+            }
+            return false;
         }
     }
 
     public static class Response {
-        private byte[] data;
+        private ByteBuffer data;
         private String contentType;
+        private String etag;
+        private String contentEncoding;
+        private byte[] gzippedData;
+        private byte[] gunzippedData;
 
         public Response(byte[] data, String contentType) {
-            this.data = data;
+            this(ByteBuffer.wrap(data), contentType, getEtag(data), null);
+        }
+
+        /**
+         * @param data            the body, which is shared by all the requests served the response
+         * @param contentType     the content type of the body
+         * @param etag            the quoted entity tag of the body
+         * @param contentEncoding the encoding the body is already compressed with or null
+         */
+        public Response(ByteBuffer data, String contentType, String etag, @Nullable String contentEncoding) {
+            this.data = data.asReadOnlyBuffer();
             this.contentType = contentType;
+            this.etag = etag;
+            this.contentEncoding = contentEncoding;
+        }
+
+        /**
+         * @param contentEncoding the encoding the body is served with
+         * @return the entity tag of the body served with the encoding, gzipped bodies have their own tag
+         */
+        private String getEtag(@Nullable String contentEncoding) {
+            return GZIP.equals(contentEncoding) ? etag.substring(0, etag.length() - 1) + "-gz\"" : etag;
+        }
+
+        private static String getEtag(byte[] data) {
+            CRC32 crc = new CRC32();
+            crc.update(data);
+            return String.format(Locale.US, "\"%x-%x\"", crc.getValue(), data.length);
+        }
+
+        private boolean isCompressible() {
+            return contentType.startsWith("text/") || contentType.contains("json") || contentType.contains("protobuf");
+        }
+
+        /**
+         * @return the data compressed with gzip, compressed on first use, or null if it could not be compressed
+         */
+        private ByteBuffer getGzippedData() {
+            if (gzippedData == null) {
+                ByteBuffer source = data.duplicate();
+                byte[] bytes = new byte[source.remaining()];
+                source.get(bytes);
+                ByteArrayOutputStream output = new ByteArrayOutputStream(bytes.length / 2);
+                try (GZIPOutputStream gzip = new GZIPOutputStream(output)) {
+                    gzip.write(bytes);
+                } catch (IOException e) {
+                    Timber.e(e);
+                    return null;
+                }
+                gzippedData = output.toByteArray();
+            }
+            return ByteBuffer.wrap(gzippedData);
+        }
+
+        /**
+         * @return the data of a gzipped body decompressed, decompressed on first use, or null if it could not be decompressed
+         */
+        private ByteBuffer getGunzippedData() {
+            if (gunzippedData == null) {
+                ByteBuffer source = data.duplicate();
+                byte[] bytes = new byte[source.remaining()];
+                source.get(bytes);
+                ByteArrayOutputStream output = new ByteArrayOutputStream(bytes.length * 2);
+                byte[] buffer = new byte[8192];
+                try (GZIPInputStream gunzip = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+                    int read;
+                    while ((read = gunzip.read(buffer)) > 0) {
+                        output.write(buffer, 0, read);
+                    }
+                } catch (IOException e) {
+                    Timber.e(e);
+                    return null;
+                }
+                gunzippedData = output.toByteArray();
+            }
+            return ByteBuffer.wrap(gunzippedData);
         }
     }
 
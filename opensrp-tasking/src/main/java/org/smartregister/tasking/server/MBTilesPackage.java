@@ -0,0 +1,100 @@
+package org.smartregister.tasking.server;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.Closeable;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.Locale;
+
+import timber.log.Timber;
+
+/**
+ * Read only reader of the tiles of an MBTiles package sideloaded on the device.
+ * The package database is opened once and kept open while the map server is running
+ */
+public class MBTilesPackage implements Closeable {
+
+    private static final String TILE_QUERY = "SELECT tile_data FROM tiles WHERE zoom_level = ? AND tile_column = ? AND tile_row = ?";
+
+    private final String name;
+
+    private final SQLiteDatabase database;
+
+    private final String contentType;
+
+    private final long lastModified;
+
+    public MBTilesPackage(@NonNull File file) {
+        String fileName = file.getName();
+        name = fileName.contains(".") ? fileName.substring(0, fileName.lastIndexOf('.')) : fileName;
+        lastModified = file.lastModified();
+        database = SQLiteDatabase.openDatabase(file.getPath(), null,
+                SQLiteDatabase.OPEN_READONLY | SQLiteDatabase.NO_LOCALIZED_COLLATORS);
+        contentType = getContentType(readMetadata("format"));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Reads a tile in XYZ coordinates. MBTiles stores rows in TMS order so the row is flipped
+     *
+     * @return the tile or null if the package does not contain it
+     */
+    @Nullable
+    public synchronized FileHTTPServer.Response getTile(int zoom, int x, int y) {
+        if (zoom < 0 || zoom > 30) {
+            return null;
+        }
+        int tmsY = (1 << zoom) - 1 - y;
+        try (Cursor cursor = database.rawQuery(TILE_QUERY, new String[]{String.valueOf(zoom), String.valueOf(x), String.valueOf(tmsY)})) {
+            if (!cursor.moveToFirst()) {
+                return null;
+            }
+            byte[] data = cursor.getBlob(0);
+            String etag = String.format(Locale.US, "\"%s-%d-%d-%d-%x\"", name, zoom, x, y, lastModified);
+            return new FileHTTPServer.Response(ByteBuffer.wrap(data), contentType, etag, isGzipped(data) ? "gzip" : null);
+        } catch (Exception e) {
+            Timber.e(e, "Unable to read tile %d/%d/%d of %s", zoom, x, y, name);
+            return null;
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        database.close();
+    }
+
+    private String readMetadata(String key) {
+        try (Cursor cursor = database.rawQuery("SELECT value FROM metadata WHERE name = ?", new String[]{key})) {
+            return cursor.moveToFirst() ? cursor.getString(0) : null;
+        } catch (Exception e) {
+            Timber.w(e, "Unable to read %s of %s", key, name);
+            return null;
+        }
+    }
+
+    private static String getContentType(String format) {
+        if ("png".equals(format)) {
+            return "image/png";
+        } else if ("jpg".equals(format) || "jpeg".equals(format)) {
+            return "image/jpeg";
+        } else if ("webp".equals(format)) {
+            return "image/webp";
+        }
+        return "application/x-protobuf";
+    }
+
+    /**
+     * Vector tiles are usually stored gzipped and are served with their stored encoding
+     */
+    private static boolean isGzipped(byte[] data) {
+        return data.length > 2 && data[0] == (byte) 0x1f && data[1] == (byte) 0x8b;
+    }
+}
@@ -2,10 +2,14 @@ package org.smartregister.tasking.sync;
 
 import android.app.IntentService;
 import android.content.Intent;
+import android.os.SystemClock;
 
 import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 import androidx.localbroadcastmanager.content.LocalBroadcastManager;
 
+import net.sqlcipher.database.SQLiteDatabase;
+
 import org.smartregister.domain.FetchStatus;
 import org.smartregister.domain.Location;
 import org.smartregister.domain.Task;
@@ -13,13 +17,13 @@ import org.smartregister.domain.db.EventClient;
 import org.smartregister.job.SyncServiceJob;
 import org.smartregister.receiver.SyncStatusBroadcastReceiver;
 import org.smartregister.repository.BaseRepository;
-import org.smartregister.repository.EventClientRepository;
-import org.smartregister.repository.TaskRepository;
 import org.smartregister.sync.helper.LocationServiceHelper;
 import org.smartregister.sync.helper.PlanIntentServiceHelper;
 import org.smartregister.sync.helper.TaskServiceHelper;
 import org.smartregister.tasking.TaskingLibrary;
 import org.smartregister.tasking.job.RevealSyncSettingsServiceJob;
+import org.smartregister.tasking.repository.TaskStructureLinkRepository;
+import org.smartregister.tasking.repository.UnprocessedEventRepository;
 import org.smartregister.tasking.util.PreferencesUtil;
 import org.smartregister.tasking.util.Utils;
 import org.smartregister.util.NetworkUtils;
@@ -30,11 +34,22 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import timber.log.Timber;
 
 import static org.smartregister.tasking.util.Constants.Action.STRUCTURE_TASK_SYNCED;
-import static org.smartregister.tasking.util.Constants.TABLE_NAME.FAMILY_MEMBER;
+import static org.smartregister.tasking.util.Constants.Action.STRUCTURE_TASK_SYNC_PROGRESS;
+import static org.smartregister.tasking.util.Constants.IntentKey.PROCESSED_EVENT_COUNT;
+import static org.smartregister.tasking.util.Constants.IntentKey.RELINK_TASK_STRUCTURES;
+import static org.smartregister.tasking.util.Constants.IntentKey.SYNCED_ENTITY_IDS;
+import static org.smartregister.tasking.util.Constants.IntentKey.SYNCED_STRUCTURE_COUNT;
+import static org.smartregister.tasking.util.Constants.IntentKey.SYNCED_TASK_COUNT;
+import static org.smartregister.tasking.util.Constants.IntentKey.SYNC_COMPLETE;
+import static org.smartregister.tasking.util.Constants.IntentKey.SYNC_PAGE;
 
 public class LocationTaskIntentService extends IntentService {
 
@@ -42,6 +57,25 @@ public class LocationTaskIntentService extends IntentService {
 
     private SyncUtils syncUtils;
 
+    /**
+     * Set when the linking or client processing of a synced page fails, so the tasks are relinked once the sync completes
+     * and the failed events have been retried
+     */
+    private volatile boolean relinkRequired;
+
+    private volatile int syncedPages;
+
+    private volatile int syncedStructureCount;
+
+    private volatile int syncedTaskCount;
+
+    private volatile int processedEventCount;
+
+    /**
+     * Entities whose unprocessed events could not be read or client processed, retried once the sync completes
+     */
+    private final Set<String> failedEntityIds = new HashSet<>();
+
     public LocationTaskIntentService() {
         super(TAG);
     }
@@ -61,6 +95,14 @@ public class LocationTaskIntentService extends IntentService {
 
         doSync();
 
+        retryFailedEvents();
+
+        if (relinkRequired || (intent != null && intent.getBooleanExtra(RELINK_TASK_STRUCTURES, false))) {
+            TaskingLibrary.getInstance().getTaskStructureLinkRepository().relinkAll();
+            // reload the register, the relinked tasks are not known
+            LocalBroadcastManager.getInstance(getApplicationContext()).sendBroadcast(new Intent(STRUCTURE_TASK_SYNCED));
+        }
+
         (TaskingLibrary.getInstance().getAppExecutors()).mainThread().execute(new Runnable() {
             @Override
             public void run() {
@@ -83,8 +125,12 @@ public class LocationTaskIntentService extends IntentService {
     }
 
 
+    /**
+     * Syncs the structures, plans and tasks page by page until the server returns no more changes.
+     * The linking and client processing of a page runs while the next page is fetched, so at most
+     * two pages are held in memory
+     */
     private void doSync() {
-        sendSyncStatusBroadcastMessage(FetchStatus.fetchStarted);
         LocationServiceHelper locationServiceHelper = new LocationServiceHelper(
                 DrishtiApplication.getInstance().getContext().getLocationRepository(),
                 DrishtiApplication.getInstance().getContext().getLocationTagRepository(),
@@ -92,71 +138,178 @@ public class LocationTaskIntentService extends IntentService {
         TaskServiceHelper taskServiceHelper = TaskServiceHelper.getInstance();
         PlanIntentServiceHelper planServiceHelper = PlanIntentServiceHelper.getInstance();
 
+        ExecutorService processingExecutor = Executors.newSingleThreadExecutor();
+        Future<?> processing = null;
+        syncedPages = 0;
+        syncedStructureCount = 0;
+        syncedTaskCount = 0;
+        processedEventCount = 0;
+        relinkRequired = false;
+        synchronized (failedEntityIds) {
+            failedEntityIds.clear();
+        }
+        try {
+            while (true) {
+                final List<Location> syncedStructures = locationServiceHelper.fetchLocationsStructures();
+                int centroids = TaskingLibrary.getInstance().getStructureCentroidRepository().updateCentroids(syncedStructures);
+                Timber.d("Updated the centers of %d synced structures", centroids);
+                cacheOperationalAreaGeometry();
+                planServiceHelper.syncPlans();
+                final List<Task> synchedTasks = taskServiceHelper.syncTasks();
+
+                if (!waitForProcessing(processing)) {
+                    break;
+                }
+                if (org.smartregister.util.Utils.isEmptyCollection(syncedStructures)
+                        && org.smartregister.util.Utils.isEmptyCollection(synchedTasks)) {
+                    break;
+                }
 
-        List<Location> syncedStructures = locationServiceHelper.fetchLocationsStructures();
+                syncedPages++;
+                syncedStructureCount += syncedStructures == null ? 0 : syncedStructures.size();
+                syncedTaskCount += synchedTasks == null ? 0 : synchedTasks.size();
+                Timber.d("Synced page %d, %d structures and %d tasks so far", syncedPages, syncedStructureCount, syncedTaskCount);
+                sendSyncProgressBroadcast(false);
+
+                processing = processingExecutor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        processSyncedPage(syncedStructures, synchedTasks);
+                        sendSyncedPageBroadcast(syncedStructures, synchedTasks);
+                    }
+                });
+            }
+        } finally {
+            processingExecutor.shutdown();
+        }
+        sendSyncProgressBroadcast(true);
 
-        sendSyncStatusBroadcastMessage(FetchStatus.fetchStarted);
-        planServiceHelper.syncPlans();
+        (TaskingLibrary.getInstance().getAppExecutors()).mainThread().execute(new Runnable() {
+            @Override
+            public void run() {
+                SyncServiceJob.scheduleJobImmediately(SyncServiceJob.TAG);
+            }
+        });
 
-        sendSyncStatusBroadcastMessage(FetchStatus.fetchStarted);
-        List<Task> synchedTasks = taskServiceHelper.syncTasks();
+    }
 
-        TaskRepository taskRepository = DrishtiApplication.getInstance().getContext().getTaskRepository();
-        taskRepository.updateTaskStructureIdFromStructure(syncedStructures);
-        taskRepository.updateTaskStructureIdsFromExistingStructures();
-        taskRepository.updateTaskStructureIdsFromExistingClients(FAMILY_MEMBER);
+    /**
+     * Waits for the previous page to be linked and client processed. A failed page is repaired by the relink
+     * that runs once the sync completes
+     *
+     * @return false if the service thread was interrupted while waiting
+     */
+    private boolean waitForProcessing(Future<?> processing) {
+        if (processing == null) {
+            return true;
+        }
+        try {
+            processing.get();
+        } catch (ExecutionException e) {
+            Timber.e(e.getCause(), "Error processing synced structures and tasks");
+            relinkRequired = true;
+        } catch (InterruptedException e) {
+            Timber.e(e);
+            relinkRequired = true;
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return true;
+    }
 
-        if (hasChangesInCurrentOperationalArea(syncedStructures, synchedTasks)) {
-            Intent intent = new Intent(STRUCTURE_TASK_SYNCED);
-            LocalBroadcastManager.getInstance(getApplicationContext()).sendBroadcast(intent);
+    /**
+     * Links the tasks of a synced page to their structures, client processes their events then links the tasks
+     * to the family members registered by the events
+     *
+     * @param syncedStructures the structures of the page
+     * @param synchedTasks     the tasks of the page
+     */
+    @VisibleForTesting
+    protected void processSyncedPage(List<Location> syncedStructures, List<Task> synchedTasks) {
+        TaskStructureLinkRepository linkRepository = TaskingLibrary.getInstance().getTaskStructureLinkRepository();
+        if (!linkRepository.linkSyncedPage(syncedStructures, synchedTasks)) {
+            relinkRequired = true;
         }
 
         clientProcessEvents(extractStructureIds(syncedStructures, synchedTasks));
 
-        if (!org.smartregister.util.Utils.isEmptyCollection(syncedStructures)
-                || !org.smartregister.util.Utils.isEmptyCollection(synchedTasks)) {
-            doSync();
+        if (!linkRepository.linkClientTasks(syncedStructures, synchedTasks)) {
+            relinkRequired = true;
         }
 
-        (TaskingLibrary.getInstance().getAppExecutors()).mainThread().execute(new Runnable() {
-            @Override
-            public void run() {
-                SyncServiceJob.scheduleJobImmediately(SyncServiceJob.TAG);
-            }
-        });
+        TaskingLibrary.getInstance().getTaskSnapshotStore().invalidate();
+    }
+
+    /**
+     * Notifies the register of the changes of a synced page in the operational area opened in the app
+     */
+    private void sendSyncedPageBroadcast(List<Location> syncedStructures, List<Task> synchedTasks) {
+        ArrayList<String> changedEntityIds = getChangesInCurrentOperationalArea(syncedStructures, synchedTasks);
+        if (!changedEntityIds.isEmpty()) {
+            Intent intent = new Intent(STRUCTURE_TASK_SYNCED);
+            intent.putStringArrayListExtra(SYNCED_ENTITY_IDS, changedEntityIds);
+            LocalBroadcastManager.getInstance(getApplicationContext()).sendBroadcast(intent);
+        }
+    }
+
+    /**
+     * Reports the number of pages, structures and tasks synced and the number of events client processed so far.
+     * Sent by the service thread after each page is fetched and by the processing thread after each event chunk
+     *
+     * @param complete true if the sync has completed
+     */
+    private void sendSyncProgressBroadcast(boolean complete) {
+        Intent intent = new Intent(STRUCTURE_TASK_SYNC_PROGRESS);
+        intent.putExtra(SYNC_PAGE, syncedPages);
+        intent.putExtra(SYNCED_STRUCTURE_COUNT, syncedStructureCount);
+        intent.putExtra(SYNCED_TASK_COUNT, syncedTaskCount);
+        intent.putExtra(PROCESSED_EVENT_COUNT, processedEventCount);
+        intent.putExtra(SYNC_COMPLETE, complete);
+        LocalBroadcastManager.getInstance(getApplicationContext()).sendBroadcast(intent);
+    }
 
+    /**
+     * Re-reads the current operational area after the locations have been synced and precomputes
+     * its geometry metadata if the operational area has a new server version
+     */
+    private void cacheOperationalAreaGeometry() {
+        Utils.invalidateOperationalAreaLocations();
+        TaskingLibrary.getInstance().getGeometryMetadataRepository()
+                .getGeometryMetadata(Utils.getOperationalAreaLocation(PreferencesUtil.getInstance().getCurrentOperationalArea()));
     }
 
     /**
-     * Checks if there a synched structure or task on the currently opened operational area
+     * Gets the ids of synched structures and tasks on the currently opened operational area
      *
      * @param syncedStructures the list of synced structures
      * @param synchedTasks     the list of synced tasks
-     * @return true if there is a synched structure or task on the currently opened operational area; otherwise returns false
+     * @return the ids of synched structures, tasks and task entities on the currently opened operational area;
+     * empty if there are no changes on the currently opened operational area
      */
-    private boolean hasChangesInCurrentOperationalArea(List<Location> syncedStructures, List<Task> synchedTasks) {
+    private ArrayList<String> getChangesInCurrentOperationalArea(List<Location> syncedStructures, List<Task> synchedTasks) {
+        Set<String> changedEntityIds = new HashSet<>();
         Location operationalAreaLocation = Utils.getOperationalAreaLocation(PreferencesUtil.getInstance().getCurrentOperationalArea());
-        String operationalAreaLocationId;
         if (operationalAreaLocation == null) {
-            return false;
-        } else {
-            operationalAreaLocationId = operationalAreaLocation.getId();
+            return new ArrayList<>();
         }
+        String operationalAreaLocationId = operationalAreaLocation.getId();
         if (syncedStructures != null) {
             for (Location structure : syncedStructures) {
                 if (operationalAreaLocationId.equals(structure.getProperties().getParentId())) {
-                    return true;
+                    changedEntityIds.add(structure.getId());
                 }
             }
         }
         if (synchedTasks != null) {
             for (Task task : synchedTasks) {
                 if (operationalAreaLocationId.equals(task.getGroupIdentifier())) {
-                    return true;
+                    changedEntityIds.add(task.getIdentifier());
+                    changedEntityIds.add(task.getForEntity());
                 }
             }
         }
-        return false;
+        changedEntityIds.remove(null);
+        return new ArrayList<>(changedEntityIds);
     }
 
     /**
@@ -182,23 +335,80 @@ public class LocationTaskIntentService extends IntentService {
     }
 
     /**
-     * Clients Processes events of a set of structure baseEntityIds that have the task status TYPE_Task_Unprocessed
+     * Client processes again the events of the entities whose events failed to be read or processed during the sync.
+     * Entities that fail again are left for the next sync of their structures
+     */
+    private void retryFailedEvents() {
+        Set<String> entityIds;
+        synchronized (failedEntityIds) {
+            if (failedEntityIds.isEmpty()) {
+                return;
+            }
+            entityIds = new HashSet<>(failedEntityIds);
+            failedEntityIds.clear();
+        }
+        Timber.i("Retrying the client processing of the events of %d entities", entityIds.size());
+        clientProcessEvents(entityIds);
+        TaskingLibrary.getInstance().getTaskSnapshotStore().invalidate();
+    }
+
+    /**
+     * Clients Processes events of a set of structure baseEntityIds that have the task status TYPE_Task_Unprocessed.
+     * The events are read in chunks ordered by server version and each chunk is processed in its own transaction.
+     * If a chunk fails, the remaining events of its entities are skipped and the entities are retried once the sync completes
      *
      * @param syncedStructuresIds the set of structure baseEntityIds to client process
      */
     private void clientProcessEvents(Set<String> syncedStructuresIds) {
         if (org.smartregister.util.Utils.isEmptyCollection(syncedStructuresIds))
             return;
-        EventClientRepository ecRepository = DrishtiApplication.getInstance().getContext().getEventClientRepository();
-        List<EventClient> eventClients = ecRepository.getEventsByBaseEntityIdsAndSyncStatus(BaseRepository.TYPE_Task_Unprocessed, new ArrayList<>(syncedStructuresIds));
-        if (!eventClients.isEmpty()) {
-
+        UnprocessedEventRepository eventRepository = TaskingLibrary.getInstance().getUnprocessedEventRepository();
+        int chunkSize = Math.max(1, TaskingLibrary.getInstance().getTaskingLibraryConfiguration().getSyncedEventProcessingChunkSize());
+        List<String> baseEntityIds = new ArrayList<>(syncedStructuresIds);
+        int chunks = 0;
+        for (int start = 0; start < baseEntityIds.size(); start += UnprocessedEventRepository.MAX_BASE_ENTITY_IDS) {
+            List<String> chunkEntityIds = baseEntityIds.subList(start, Math.min(start + UnprocessedEventRepository.MAX_BASE_ENTITY_IDS, baseEntityIds.size()));
             try {
-                DrishtiApplication.getInstance().getClientProcessor().getInstance(getApplicationContext()).processClient(eventClients);
-            } catch (Exception ex) {
-                Timber.e(ex);
+                UnprocessedEventRepository.EventChunk chunk = eventRepository.getFirstChunk(chunkEntityIds, BaseRepository.TYPE_Task_Unprocessed, chunkSize);
+                while (true) {
+                    if (!chunk.getEventClients().isEmpty()) {
+                        long startTime = SystemClock.elapsedRealtime();
+                        processEventChunk(chunk.getEventClients());
+                        chunks++;
+                        processedEventCount += chunk.getEventClients().size();
+                        Timber.d("Client processed chunk %d of %d events in %d ms, %d events processed",
+                                chunks, chunk.getEventClients().size(), SystemClock.elapsedRealtime() - startTime, processedEventCount);
+                        sendSyncProgressBroadcast(false);
+                    }
+                    if (chunk.isComplete()) {
+                        break;
+                    }
+                    chunk = eventRepository.getNextChunk(chunk, chunkSize);
+                }
+            } catch (Exception e) {
+                Timber.e(e, "Error client processing the events of %d entities", chunkEntityIds.size());
+                synchronized (failedEntityIds) {
+                    failedEntityIds.addAll(chunkEntityIds);
+                }
+                relinkRequired = true;
             }
         }
     }
 
+    /**
+     * Client processes a chunk of events in one transaction, the transaction is rolled back if processing fails
+     *
+     * @throws Exception if the events could not be processed
+     */
+    private void processEventChunk(List<EventClient> eventClients) throws Exception {
+        SQLiteDatabase database = TaskingLibrary.getInstance().getRepository().getWritableDatabase();
+        database.beginTransaction();
+        try {
+            DrishtiApplication.getInstance().getClientProcessor().getInstance(getApplicationContext()).processClient(eventClients);
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+    }
+
 }
@@ -279,6 +279,12 @@ public interface Constants {
         String NAME_PROPERTY = "name";
         double DOWNLOAD_MAX_ZOOM = 21.0;
         double DOWNLOAD_MIN_ZOOM = 13.5;
+        int MAX_DOWNLOAD_REGIONS = 8;
+        String OFFLINE_REGION_PART_SEPARATOR = "_part_";
+        long AVERAGE_TILE_SIZE = 20 * 1024;
+        double PREFETCH_AREA_MAX_ZOOM = 18.0;
+        double PREFETCH_BUFFER_METERS = 100;
+        int MAX_PREFETCH_REGIONS = 64;
     }
 
     interface JsonForm {
@@ -464,6 +470,7 @@ public interface Constants {
 
     interface Action {
         String STRUCTURE_TASK_SYNCED = "reveal.STRUCTURE_TASK_SYNCED";
+        String STRUCTURE_TASK_SYNC_PROGRESS = "reveal.STRUCTURE_TASK_SYNC_PROGRESS";
     }
 
     interface ECClientConfig {
@@ -494,6 +501,12 @@ public interface Constants {
 
         String LAST_USER_LOCATION = "last_location";
 
+        int MAX_INCREMENTAL_REFRESH_STRUCTURES = 400;
+
+        int PAGE_SIZE = 50;
+
+        int PAGE_PREFETCH_DISTANCE = 10;
+
     }
 
     interface DatabaseKeys {
@@ -552,6 +565,28 @@ public interface Constants {
 
         String GROUPED_STRUCTURE_TASK_CODE_AND_STATUS = "grouped_structure_task_code_and_status";
 
+        String REGISTER_FAMILY_TASK_COUNT = "register_family_task_count";
+
+        String FAMILY_REGISTERED_COUNT = "family_registered_count";
+
+        String BEDNET_DISTRIBUTED_COUNT = "bednet_distributed_count";
+
+        String BLOOD_SCREENING_TASK_COUNT = "blood_screening_task_count";
+
+        String BLOOD_SCREENING_COMPLETE_COUNT = "blood_screening_complete_count";
+
+        String CASE_CONFIRMED_COUNT = "case_confirmed_count";
+
+        String MDA_ADHERED_COUNT = "mda_adhered_count";
+
+        String MDA_DISPENSE_TASK_COUNT = "mda_dispense_task_count";
+
+        String FULLY_RECEIVED_COUNT = "fully_received_count";
+
+        String NONE_RECEIVED_COUNT = "none_received_count";
+
+        String NOT_ELIGIBLE_COUNT = "not_eligible_count";
+
         String GROUPED_TASKS = "grouped_tasks";
 
         String LAST_UPDATED_DATE = "last_updated_date";
@@ -682,6 +717,13 @@ public interface Constants {
         String TO_RESCHEDULE = "to_reschedule";
         String IS_REMOTE_LOGIN = "is_remote_login";
         String GO_TO_DUE_PAGE = "go_to_due_page";
+        String SYNCED_ENTITY_IDS = "synced_entity_ids";
+        String SYNC_PAGE = "sync_page";
+        String SYNCED_STRUCTURE_COUNT = "synced_structure_count";
+        String SYNCED_TASK_COUNT = "synced_task_count";
+        String SYNC_COMPLETE = "sync_complete";
+        String PROCESSED_EVENT_COUNT = "processed_event_count";
+        String RELINK_TASK_STRUCTURES = "relink_task_structures";
     }
 
     interface DbKey {
@@ -0,0 +1,473 @@
+package org.smartregister.tasking.util;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.os.Bundle;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.localbroadcastmanager.content.LocalBroadcastManager;
+
+import org.smartregister.tasking.R;
+import org.smartregister.tasking.TaskingLibrary;
+import org.smartregister.tasking.model.OfflineMapDownloadProgress;
+import org.smartregister.tasking.model.OfflineMapQueueEntry;
+import org.smartregister.tasking.repository.OfflineMapCatalogRepository;
+import org.smartregister.tasking.repository.OfflineMapQueueRepository;
+import org.smartregister.tasking.server.FileHTTPServer;
+import org.smartregister.util.NetworkUtils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.ona.kujaku.helpers.OfflineServiceHelper;
+import io.ona.kujaku.services.MapboxOfflineDownloaderService;
+import io.ona.kujaku.utils.Constants;
+import timber.log.Timber;
+
+/**
+ * Schedules the regions of offline map downloads on the offline downloader service queue.
+ * At most {@link TaskingLibraryConfiguration#getOfflineMapParallelDownloads()} regions are handed to the service at a time,
+ * the rest wait here so regions of the operational area selected in the app are handed over first.
+ * Regions that fail while the device is offline are handed over again when connectivity comes back,
+ * and the download rate and time left of each map are estimated from the progress reported by the service.
+ * Started and completed regions are recorded in the {@link OfflineMapCatalogRepository}
+ * and the storage budget is enforced by the {@link OfflineMapStorageManager} when a map completes.
+ * The regions of scheduled maps are saved in the {@link OfflineMapQueueRepository} and {@link #restore()} schedules
+ * them again after the app is restarted.
+ */
+public class OfflineMapDownloadScheduler {
+
+    private static final int MAX_RETRIES = 3;
+
+    private static final double RATE_SMOOTHING = 0.3;
+
+    private final Context context;
+
+    private final List<QueuedRegion> pending = new ArrayList<>();
+
+    private final Map<String, QueuedRegion> active = new LinkedHashMap<>();
+
+    private final List<QueuedRegion> interrupted = new ArrayList<>();
+
+    private final Map<String, List<QueuedRegion>> maps = new LinkedHashMap<>();
+
+    private String priorityMapName;
+
+    private boolean receiversRegistered;
+
+    private boolean restored;
+
+    private final BroadcastReceiver statusReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            Bundle bundle = intent.getExtras();
+            if (bundle != null && bundle.containsKey(Constants.PARCELABLE_KEY_MAP_UNIQUE_NAME)) {
+                onDownloadStatus(bundle.getString(Constants.PARCELABLE_KEY_MAP_UNIQUE_NAME),
+                        (MapboxOfflineDownloaderService.SERVICE_ACTION) bundle.get(MapboxOfflineDownloaderService.KEY_RESULTS_PARENT_ACTION),
+                        bundle.getString(MapboxOfflineDownloaderService.KEY_RESULT_STATUS),
+                        bundle.getString(MapboxOfflineDownloaderService.KEY_RESULT_MESSAGE));
+            }
+        }
+    };
+
+    private final BroadcastReceiver connectivityReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            onConnectivityChanged(NetworkUtils.isNetworkAvailable());
+        }
+    };
+
+    public OfflineMapDownloadScheduler(@NonNull Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    /**
+     * Queues the regions of a map after the maps already queued, or before them if it is the priority map.
+     * A map that is already scheduled is not queued again
+     */
+    public synchronized void enqueue(@NonNull String mapName, @NonNull List<OfflineMapHelper.DownloadRegion> regions) {
+        if (regions.isEmpty() || maps.containsKey(mapName)) {
+            return;
+        }
+        long averageTileSize = TaskingLibrary.getInstance().getTaskingLibraryConfiguration().getOfflineMapAverageTileSize();
+        List<QueuedRegion> mapRegions = new ArrayList<>();
+        for (OfflineMapHelper.DownloadRegion region : regions) {
+            QueuedRegion queuedRegion = new QueuedRegion(mapName, region, region.getTileCount() * averageTileSize);
+            mapRegions.add(queuedRegion);
+            pending.add(queuedRegion);
+        }
+        maps.put(mapName, mapRegions);
+        saveQueuedMap(mapName, regions);
+        registerReceivers();
+        dispatch();
+    }
+
+    /**
+     * Schedules the maps whose download had not completed when the app was stopped, reading the queue in the background.
+     * The regions that were being downloaded are handed to the downloader service again, the tiles it already
+     * downloaded are reused from the offline database
+     */
+    public void restore() {
+        TaskingLibrary.getInstance().getAppExecutors().diskIO().execute(new Runnable() {
+            @Override
+            public void run() {
+                restore(getQueueRepository().getQueuedRegions());
+            }
+        });
+    }
+
+    @VisibleForTesting
+    protected synchronized void restore(@NonNull List<OfflineMapQueueEntry> queuedRegions) {
+        if (restored) {
+            return;
+        }
+        restored = true;
+        long averageTileSize = TaskingLibrary.getInstance().getTaskingLibraryConfiguration().getOfflineMapAverageTileSize();
+        Map<String, List<QueuedRegion>> restoredMaps = new LinkedHashMap<>();
+        for (OfflineMapQueueEntry entry : queuedRegions) {
+            if (maps.containsKey(entry.getMapName())) {
+                continue;
+            }
+            QueuedRegion region = new QueuedRegion(entry.getMapName(), entry.getRegion(), entry.getRegion().getTileCount() * averageTileSize);
+            if (entry.isCompleted()) {
+                region.percentage = 100d;
+            } else {
+                pending.add(region);
+            }
+            List<QueuedRegion> mapRegions = restoredMaps.get(entry.getMapName());
+            if (mapRegions == null) {
+                mapRegions = new ArrayList<>();
+                restoredMaps.put(entry.getMapName(), mapRegions);
+            }
+            mapRegions.add(region);
+        }
+        maps.putAll(restoredMaps);
+        for (String mapName : restoredMaps.keySet()) {
+            if (isMapComplete(mapName)) {
+                onMapCompleted(mapName);
+            }
+        }
+        if (!pending.isEmpty()) {
+            Timber.i("Restored %d offline map regions of %d maps", pending.size(), restoredMaps.size());
+            registerReceivers();
+            dispatch();
+        }
+    }
+
+    /**
+     * Hands the regions of a map to the downloader service before the regions of other queued maps.
+     * Defaults to the operational area selected in the app
+     *
+     * @param mapName the map name
+     */
+    public synchronized void setPriorityMapName(@Nullable String mapName) {
+        priorityMapName = mapName;
+    }
+
+    public synchronized boolean isScheduled(@NonNull String mapName) {
+        return maps.containsKey(mapName);
+    }
+
+    @NonNull
+    public synchronized List<String> getScheduledMapNames() {
+        return new ArrayList<>(maps.keySet());
+    }
+
+    /**
+     * @return the progress of a scheduled map download or null if the map is not being downloaded
+     */
+    @Nullable
+    public synchronized OfflineMapDownloadProgress getProgress(@NonNull String mapName) {
+        List<QueuedRegion> mapRegions = maps.get(mapName);
+        if (mapRegions == null) {
+            return null;
+        }
+        long totalBytes = 0;
+        double completedBytes = 0;
+        long bytesPerSecond = 0;
+        boolean rateKnown = false;
+        for (QueuedRegion region : mapRegions) {
+            totalBytes += region.estimatedBytes;
+            completedBytes += region.estimatedBytes * region.percentage / 100d;
+            if (active.containsKey(region.getName()) && region.bytesPerSecond > 0) {
+                bytesPerSecond += region.bytesPerSecond;
+                rateKnown = true;
+            }
+        }
+        double percentage = totalBytes == 0 ? 0 : completedBytes * 100d / totalBytes;
+        if (!rateKnown) {
+            return new OfflineMapDownloadProgress(mapName, percentage, OfflineMapDownloadProgress.UNKNOWN, OfflineMapDownloadProgress.UNKNOWN);
+        }
+        return new OfflineMapDownloadProgress(mapName, percentage, bytesPerSecond,
+                Math.round((totalBytes - completedBytes) / bytesPerSecond));
+    }
+
+    @VisibleForTesting
+    protected synchronized void onDownloadStatus(@Nullable String regionName, @Nullable MapboxOfflineDownloaderService.SERVICE_ACTION action,
+                                                 @Nullable String resultStatus, @Nullable String message) {
+        QueuedRegion region = regionName == null ? null : active.get(regionName);
+        if (region == null) {
+            return;
+        }
+        if (action == MapboxOfflineDownloaderService.SERVICE_ACTION.STOP_CURRENT_DOWNLOAD) {
+            removeMap(region.mapName);
+        } else if (MapboxOfflineDownloaderService.SERVICE_ACTION_RESULT.FAILED.name().equals(resultStatus)) {
+            onDownloadFailed(region, message);
+        } else if (action == MapboxOfflineDownloaderService.SERVICE_ACTION.DOWNLOAD_MAP && message != null) {
+            try {
+                onDownloadProgress(region, Double.parseDouble(message));
+            } catch (NumberFormatException e) {
+                Timber.d("Offline map %s: %s", regionName, message);
+            }
+        }
+        dispatch();
+    }
+
+    /**
+     * Hands the regions that were interrupted while the device was offline back to the downloader service
+     */
+    @VisibleForTesting
+    protected synchronized void onConnectivityChanged(boolean connected) {
+        if (!connected || interrupted.isEmpty()) {
+            return;
+        }
+        Timber.i("Resuming %d interrupted offline map regions", interrupted.size());
+        pending.addAll(0, interrupted);
+        interrupted.clear();
+        dispatch();
+    }
+
+    private void onDownloadProgress(QueuedRegion region, double percentage) {
+        long now = getElapsedTime();
+        if (region.progressTime > 0 && now > region.progressTime && percentage > region.percentage) {
+            double bytes = (percentage - region.percentage) / 100d * region.estimatedBytes;
+            double rate = bytes * 1000d / (now - region.progressTime);
+            region.bytesPerSecond = region.bytesPerSecond <= 0 ? (long) rate
+                    : (long) (RATE_SMOOTHING * rate + (1 - RATE_SMOOTHING) * region.bytesPerSecond);
+        }
+        region.percentage = Math.max(region.percentage, percentage);
+        region.progressTime = now;
+
+        if (percentage >= 100d) {
+            active.remove(region.getName());
+            updateCatalog(region, true);
+            if (isMapComplete(region.mapName)) {
+                onMapCompleted(region.mapName);
+            }
+        }
+    }
+
+    private void onMapCompleted(String mapName) {
+        maps.remove(mapName);
+        deleteQueuedMap(mapName);
+        onMapDownloaded(mapName);
+    }
+
+    private void onDownloadFailed(QueuedRegion region, String message) {
+        active.remove(region.getName());
+        region.progressTime = 0;
+        region.bytesPerSecond = 0;
+        if (!NetworkUtils.isNetworkAvailable()) {
+            Timber.w("Offline map region %s interrupted: %s", region.getName(), message);
+            interrupted.add(region);
+        } else if (region.retries++ < MAX_RETRIES) {
+            Timber.w("Retrying offline map region %s: %s", region.getName(), message);
+            pending.add(0, region);
+        } else {
+            Timber.e("Offline map region %s failed: %s", region.getName(), message);
+            removeMap(region.mapName);
+        }
+    }
+
+    private void removeMap(String mapName) {
+        List<QueuedRegion> mapRegions = maps.remove(mapName);
+        if (mapRegions != null) {
+            deleteQueuedMap(mapName);
+            pending.removeAll(mapRegions);
+            interrupted.removeAll(mapRegions);
+            for (QueuedRegion region : mapRegions) {
+                active.remove(region.getName());
+            }
+        }
+    }
+
+    private boolean isMapComplete(String mapName) {
+        for (QueuedRegion region : maps.get(mapName)) {
+            if (region.percentage < 100d) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void dispatch() {
+        int parallelDownloads = Math.max(1, TaskingLibrary.getInstance().getTaskingLibraryConfiguration().getOfflineMapParallelDownloads());
+        QueuedRegion next;
+        while (active.size() < parallelDownloads && (next = pollNext()) != null) {
+            active.put(next.getName(), next);
+            updateCatalog(next, false);
+            requestDownload(next.region);
+        }
+        if (active.isEmpty() && pending.isEmpty() && interrupted.isEmpty()) {
+            unregisterReceivers();
+        }
+    }
+
+    /**
+     * @return the first pending region of the priority map, or else the first pending region, that can be downloaded now
+     */
+    @Nullable
+    private QueuedRegion pollNext() {
+        String priority = priorityMapName != null ? priorityMapName : PreferencesUtil.getInstance().getCurrentOperationalAreaId();
+        QueuedRegion next = null;
+        for (QueuedRegion region : pending) {
+            if (isDispatchable(region) && (next == null || (region.mapName.equals(priority) && !next.mapName.equals(priority)))) {
+                next = region;
+            }
+        }
+        pending.remove(next);
+        return next;
+    }
+
+    /**
+     * The region named after the map reports the map as downloaded, so it is only downloaded after the other parts of the map
+     */
+    private boolean isDispatchable(QueuedRegion region) {
+        if (!region.getName().equals(region.mapName)) {
+            return true;
+        }
+        for (QueuedRegion mapRegion : maps.get(region.mapName)) {
+            if (mapRegion != region && mapRegion.percentage < 100d) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void updateCatalog(final QueuedRegion region, final boolean completed) {
+        TaskingLibrary.getInstance().getAppExecutors().diskIO().execute(new Runnable() {
+            @Override
+            public void run() {
+                OfflineMapCatalogRepository catalogRepository = TaskingLibrary.getInstance().getOfflineMapCatalogRepository();
+                if (completed) {
+                    catalogRepository.onDownloadCompleted(region.getName(), region.estimatedBytes);
+                    getQueueRepository().setCompleted(region.getName());
+                } else {
+                    catalogRepository.onDownloadStarted(region.getName(), region.estimatedBytes);
+                }
+            }
+        });
+    }
+
+    private void saveQueuedMap(final String mapName, final List<OfflineMapHelper.DownloadRegion> regions) {
+        TaskingLibrary.getInstance().getAppExecutors().diskIO().execute(new Runnable() {
+            @Override
+            public void run() {
+                getQueueRepository().addMap(mapName, regions);
+            }
+        });
+    }
+
+    private void deleteQueuedMap(final String mapName) {
+        TaskingLibrary.getInstance().getAppExecutors().diskIO().execute(new Runnable() {
+            @Override
+            public void run() {
+                getQueueRepository().deleteMap(mapName);
+            }
+        });
+    }
+
+    @VisibleForTesting
+    protected OfflineMapQueueRepository getQueueRepository() {
+        return TaskingLibrary.getInstance().getOfflineMapQueueRepository();
+    }
+
+    /**
+     * Called once all the regions of a map are downloaded, accounts for the storage used by the map
+     */
+    @VisibleForTesting
+    protected void onMapDownloaded(final String mapName) {
+        TaskingLibrary.getInstance().getAppExecutors().mainThread().execute(new Runnable() {
+            @Override
+            public void run() {
+                TaskingLibrary.getInstance().getOfflineMapStorageManager(context).onMapDownloaded(mapName);
+            }
+        });
+    }
+
+    @VisibleForTesting
+    protected void requestDownload(OfflineMapHelper.DownloadRegion region) {
+        OfflineServiceHelper.requestOfflineMapDownload(context
+                , region.getName()
+                , context.getString(R.string.localhost_url, FileHTTPServer.PORT)
+                , TaskingLibrary.getInstance().getMapboxAccessToken()
+                , region.getTopLeft()
+                , region.getTopRight()
+                , region.getBottomRight()
+                , region.getBottomLeft()
+                , region.getZoomRange()
+        );
+    }
+
+    @VisibleForTesting
+    protected long getElapsedTime() {
+        return SystemClock.elapsedRealtime();
+    }
+
+    private void registerReceivers() {
+        if (receiversRegistered) {
+            return;
+        }
+        LocalBroadcastManager.getInstance(context).registerReceiver(statusReceiver,
+                new IntentFilter(Constants.INTENT_ACTION_MAP_DOWNLOAD_SERVICE_STATUS_UPDATES));
+        context.registerReceiver(connectivityReceiver, new IntentFilter(ConnectivityManager.CONNECTIVITY_ACTION));
+        receiversRegistered = true;
+    }
+
+    private void unregisterReceivers() {
+        if (!receiversRegistered) {
+            return;
+        }
+        LocalBroadcastManager.getInstance(context).unregisterReceiver(statusReceiver);
+        context.unregisterReceiver(connectivityReceiver);
+        receiversRegistered = false;
+    }
+
+    /**
+     * Region of a map waiting for or being downloaded
+     */
+    private static class QueuedRegion {
+
+        private final String mapName;
+
+        private final OfflineMapHelper.DownloadRegion region;
+
+        private final long estimatedBytes;
+
+        private double percentage;
+
+        private long progressTime;
+
+        private long bytesPerSecond;
+
+        private int retries;
+
+        private QueuedRegion(String mapName, OfflineMapHelper.DownloadRegion region, long estimatedBytes) {
+            this.mapName = mapName;
+            this.region = region;
+            this.estimatedBytes = estimatedBytes;
+        }
+
+        private String getName() {
+            return region.getName();
+        }
+    }
+}
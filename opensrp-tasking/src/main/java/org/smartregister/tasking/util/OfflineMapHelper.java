@@ -3,34 +3,47 @@ package org.smartregister.tasking.util;
 import android.content.Context;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.core.util.Pair;
 
 import com.mapbox.geojson.Feature;
+import com.mapbox.geojson.Geometry;
 import com.mapbox.mapboxsdk.geometry.LatLng;
 import com.mapbox.mapboxsdk.offline.OfflineRegion;
 import com.mapbox.turf.TurfMeasurement;
 
 import org.json.JSONException;
 import org.json.JSONObject;
-import org.smartregister.tasking.R;
 import org.smartregister.tasking.TaskingLibrary;
+import org.smartregister.tasking.model.TaskSnapshot;
 import org.smartregister.tasking.server.FileHTTPServer;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import io.ona.kujaku.data.realm.RealmDatabase;
 import io.ona.kujaku.data.realm.objects.MapBoxOfflineQueueTask;
 import io.ona.kujaku.downloaders.MapBoxOfflineResourcesDownloader;
 import io.ona.kujaku.helpers.OfflineServiceHelper;
+import io.realm.Realm;
+import io.realm.RealmQuery;
 import timber.log.Timber;
 
 import static io.ona.kujaku.data.MapBoxDownloadTask.MAP_NAME;
 import static org.smartregister.tasking.util.Constants.Map.DOWNLOAD_MAX_ZOOM;
 import static org.smartregister.tasking.util.Constants.Map.DOWNLOAD_MIN_ZOOM;
+import static org.smartregister.tasking.util.Constants.Map.MAX_DOWNLOAD_REGIONS;
+import static org.smartregister.tasking.util.Constants.Map.MAX_PREFETCH_REGIONS;
+import static org.smartregister.tasking.util.Constants.Map.OFFLINE_REGION_PART_SEPARATOR;
+import static org.smartregister.tasking.util.Constants.Map.PREFETCH_AREA_MAX_ZOOM;
+import static org.smartregister.tasking.util.Constants.Map.PREFETCH_BUFFER_METERS;
 
 /**
  * Created by Richard Kareko on 1/30/20.
@@ -50,7 +63,9 @@ public class OfflineMapHelper {
                 JSONObject jsonObject = new JSONObject(new String(metadataBytes));
                 if (jsonObject.has(MapBoxOfflineResourcesDownloader.METADATA_JSON_FIELD_REGION_NAME)) {
                     String regionName = jsonObject.getString(MapBoxOfflineResourcesDownloader.METADATA_JSON_FIELD_REGION_NAME);
-                    offlineRegionNames.add(regionName);
+                    if (regionName.equals(getMapName(regionName))) {
+                        offlineRegionNames.add(regionName);
+                    }
                     modelMap.put(regionName, offlineRegions[position]);
                 }
 
@@ -87,60 +102,386 @@ public class OfflineMapHelper {
         return offlineQueueTaskMap;
     }
 
+    /**
+     * Queries the downloader queue for the completed download tasks of some regions only, instead of reading every task
+     *
+     * @param mapNames the region names
+     * @return copies of the completed download tasks by region name
+     */
+    @NonNull
+    public static Map<String, MapBoxOfflineQueueTask> getCompletedDownloadTasks(@NonNull Set<String> mapNames) {
+        Map<String, MapBoxOfflineQueueTask> offlineQueueTaskMap = new HashMap<>();
+        if (mapNames.isEmpty()) {
+            return offlineQueueTaskMap;
+        }
+        Realm realm = Realm.getDefaultInstance();
+        try {
+            RealmQuery<MapBoxOfflineQueueTask> query = realm.where(MapBoxOfflineQueueTask.class)
+                    .equalTo("taskType", MapBoxOfflineQueueTask.TASK_TYPE_DOWNLOAD)
+                    .equalTo("taskStatus", MapBoxOfflineQueueTask.TASK_STATUS_DONE)
+                    .beginGroup();
+            boolean first = true;
+            for (String mapName : mapNames) {
+                if (!first) {
+                    query.or();
+                }
+                query.contains("task", mapName);
+                first = false;
+            }
+            for (MapBoxOfflineQueueTask offlineQueueTask : query.endGroup().findAll()) {
+                try {
+                    String mapName = offlineQueueTask.getTask().get(MAP_NAME).toString();
+                    if (mapNames.contains(mapName)) {
+                        offlineQueueTaskMap.put(mapName, realm.copyFromRealm(offlineQueueTask));
+                    }
+                } catch (JSONException e) {
+                    Timber.e(e);
+                }
+            }
+        } finally {
+            realm.close();
+        }
+        return offlineQueueTaskMap;
+    }
+
     public static void downloadMap(final Feature operationalAreaFeature, final String mapName, final Context context) {
         Runnable runnable = new Runnable() {
             public void run() {
-                double[] bbox = TurfMeasurement.bbox(operationalAreaFeature.geometry());
-
-                double minX = bbox[0];
-                double minY = bbox[1];
-                double maxX = bbox[2];
-                double maxY = bbox[3];
-
-                double topLeftLat = maxY;
-                double topLeftLng = minX;
-                double bottomRightLat = minY;
-                double bottomRightLng = maxX;
-                double topRightLat = maxY;
-                double topRightLng = maxX;
-                double bottomLeftLat = minY;
-                double bottomLeftLng = minX;
-
-                String mapboxStyle = context.getString(R.string.localhost_url, FileHTTPServer.PORT);
-
-                LatLng topLeftBound = new LatLng(topLeftLat, topLeftLng);
-                LatLng topRightBound = new LatLng(topRightLat, topRightLng);
-                LatLng bottomRightBound = new LatLng(bottomRightLat, bottomRightLng);
-                LatLng bottomLeftBound = new LatLng(bottomLeftLat, bottomLeftLng);
-
-                double maxZoom = DOWNLOAD_MAX_ZOOM;
-                double minZoom = DOWNLOAD_MIN_ZOOM;
-
-                OfflineServiceHelper.ZoomRange zoomRange = new OfflineServiceHelper.ZoomRange(minZoom, maxZoom);
-
-                OfflineServiceHelper.requestOfflineMapDownload(context
-                        , mapName
-                        , mapboxStyle
-                        , TaskingLibrary.getInstance().getMapboxAccessToken()
-                        , topLeftBound
-                        , topRightBound
-                        , bottomRightBound
-                        , bottomLeftBound
-                        , zoomRange
-                );
+                List<DownloadRegion> regions;
+                List<double[]> structures = TaskingLibrary.getInstance().getTaskingLibraryConfiguration().isOfflineMapStructurePrefetchEnabled()
+                        ? getStructureLocations(mapName) : null;
+                if (structures == null || structures.isEmpty()) {
+                    regions = getDownloadRegions(operationalAreaFeature.geometry(), mapName);
+                } else {
+                    regions = getPrefetchRegions(operationalAreaFeature.geometry(), structures, mapName);
+                }
+
+                TaskingLibrary.getInstance().getOfflineMapDownloadScheduler(context).enqueue(mapName, regions);
             }
         };
 
         TaskingLibrary.getInstance().getAppExecutors().diskIO().execute(runnable);
     }
 
+    /**
+     * Splits the download of an operational area into the rectangular regions downloaded by the offline service.
+     * The tiles intersecting the operational area are merged into at most {@link Constants.Map#MAX_DOWNLOAD_REGIONS}
+     * rectangles at the zoom level that downloads the fewest tiles, falling back to the bounding box when that is smaller.
+     * The last region is named after the map so the map is only reported downloaded once the queued parts before it are done.
+     *
+     * @param geometry the geometry of the operational area
+     * @param mapName  the unique name of the map
+     * @return the regions to download
+     */
+    @NonNull
+    public static List<DownloadRegion> getDownloadRegions(Geometry geometry, String mapName) {
+        OfflineServiceHelper.ZoomRange zoomRange = new OfflineServiceHelper.ZoomRange(DOWNLOAD_MIN_ZOOM, DOWNLOAD_MAX_ZOOM);
+        List<DownloadRegion> regions = new ArrayList<>();
+        TileCover tileCover = TileCover.compute(geometry, DOWNLOAD_MIN_ZOOM, DOWNLOAD_MAX_ZOOM);
+        long downloadTileCount = addCoverRegions(tileCover, geometry, zoomRange, MAX_DOWNLOAD_REGIONS, regions);
+        nameRegions(regions, mapName);
+
+        if (tileCover != null) {
+            long averageTileSize = TaskingLibrary.getInstance().getTaskingLibraryConfiguration().getOfflineMapAverageTileSize();
+            Timber.i("Map %s covers %d tiles, about %d KB, downloaded as %d tiles in %d regions instead of %d bounding box tiles",
+                    mapName, tileCover.getTileCount(), tileCover.getEstimatedBytes(averageTileSize) / 1024,
+                    downloadTileCount, regions.size(), tileCover.getBoundingBoxTileCount());
+        }
+        return regions;
+    }
+
+    /**
+     * Splits the download of an operational area for the structure prefetch mode. The operational area is downloaded up to
+     * {@link Constants.Map#PREFETCH_AREA_MAX_ZOOM} and the higher zoom levels only within
+     * {@link Constants.Map#PREFETCH_BUFFER_METERS} of the structures, so clusters of structures get one block of tiles each.
+     * The structure blocks are capped at {@link Constants.Map#MAX_PREFETCH_REGIONS} so distant clusters are not merged
+     * into rectangles full of high zoom tiles between them.
+     *
+     * @param geometry   the geometry of the operational area
+     * @param structures the locations of the structures to visit as {longitude, latitude}
+     * @param mapName    the unique name of the map
+     * @return the regions to download
+     */
+    @NonNull
+    public static List<DownloadRegion> getPrefetchRegions(Geometry geometry, List<double[]> structures, String mapName) {
+        List<DownloadRegion> regions = new ArrayList<>();
+        TileCover areaCover = TileCover.compute(geometry, DOWNLOAD_MIN_ZOOM, PREFETCH_AREA_MAX_ZOOM);
+        long downloadTileCount = addCoverRegions(areaCover, geometry,
+                new OfflineServiceHelper.ZoomRange(DOWNLOAD_MIN_ZOOM, PREFETCH_AREA_MAX_ZOOM), MAX_DOWNLOAD_REGIONS, regions);
+
+        TileCover structuresCover = TileCover.computeAroundPoints(structures, PREFETCH_BUFFER_METERS,
+                PREFETCH_AREA_MAX_ZOOM + 1, DOWNLOAD_MAX_ZOOM);
+        if (structuresCover != null) {
+            downloadTileCount += addCoverRegions(structuresCover, null,
+                    new OfflineServiceHelper.ZoomRange(PREFETCH_AREA_MAX_ZOOM + 1, DOWNLOAD_MAX_ZOOM), MAX_PREFETCH_REGIONS, regions);
+        }
+        nameRegions(regions, mapName);
+
+        long averageTileSize = TaskingLibrary.getInstance().getTaskingLibraryConfiguration().getOfflineMapAverageTileSize();
+        Timber.i("Map %s prefetches %d tiles, about %d KB, around %d structures in %d regions",
+                mapName, downloadTileCount, downloadTileCount * averageTileSize / 1024, structures == null ? 0 : structures.size(), regions.size());
+        return regions;
+    }
+
+    /**
+     * Gets the locations of the structures to prefetch high zoom tiles for, from the tasks of the register when it is
+     * showing the operational area and otherwise from the structures of the operational area with an active task of the plan
+     *
+     * @param operationalAreaId the id of the operational area
+     * @return the structure locations as {longitude, latitude}
+     */
+    @NonNull
+    public static List<double[]> getStructureLocations(String operationalAreaId) {
+        String planId = PreferencesUtil.getInstance().getCurrentPlanId();
+        if (planId == null) {
+            return new ArrayList<>();
+        }
+        TaskSnapshot snapshot = TaskingLibrary.getInstance().getTaskSnapshotStore().get(operationalAreaId, planId);
+        if (snapshot == null) {
+            return TaskingLibrary.getInstance().getStructureCentroidRepository().getStructureCenters(operationalAreaId, planId);
+        }
+        List<double[]> locations = new ArrayList<>();
+        for (int position = 0; position < snapshot.size(); position++) {
+            if (snapshot.hasLocation(position)) {
+                locations.add(new double[]{snapshot.getLongitude(position), snapshot.getLatitude(position)});
+            }
+        }
+        return locations;
+    }
+
+    /**
+     * Adds the rectangles downloading a tile cover, or the bounding box of the geometry if the cover could not be computed
+     * or the bounding box downloads fewer tiles. At most maxRegions rectangles are added
+     *
+     * @return the number of tiles the added regions download
+     */
+    private static long addCoverRegions(@Nullable TileCover tileCover, @Nullable Geometry geometry,
+                                        OfflineServiceHelper.ZoomRange zoomRange, int maxRegions, List<DownloadRegion> regions) {
+        if (tileCover == null) {
+            if (geometry != null) {
+                double[] bbox = TurfMeasurement.bbox(geometry);
+                regions.add(new DownloadRegion(null, bbox[3], bbox[0], bbox[1], bbox[2], zoomRange, 0));
+            }
+            return 0;
+        }
+
+        int splitZoom = -1;
+        List<int[]> splitRectangles = null;
+        long downloadTileCount = Long.MAX_VALUE;
+        for (int zoom = tileCover.getMinZoom(); zoom <= tileCover.getMaxZoom(); zoom++) {
+            List<int[]> rectangles = tileCover.getRectangles(zoom);
+            if (rectangles.size() > maxRegions) {
+                break;
+            }
+            long tileCount = getTileCount(tileCover, rectangles, zoom);
+            if (tileCount < downloadTileCount) {
+                downloadTileCount = tileCount;
+                splitZoom = zoom;
+                splitRectangles = rectangles;
+            }
+        }
+
+        if (splitRectangles == null) {
+            // too many rectangles at every zoom level, merge the rectangles of the lowest zoom level
+            splitZoom = tileCover.getMinZoom();
+            splitRectangles = mergeRectangles(tileCover, tileCover.getRectangles(splitZoom), splitZoom, maxRegions);
+            downloadTileCount = getTileCount(tileCover, splitRectangles, splitZoom);
+        }
+
+        if (geometry != null && tileCover.getBoundingBoxTileCount() <= downloadTileCount) {
+            double[] bbox = TurfMeasurement.bbox(geometry);
+            regions.add(new DownloadRegion(null, bbox[3], bbox[0], bbox[1], bbox[2], zoomRange, tileCover.getBoundingBoxTileCount()));
+            return tileCover.getBoundingBoxTileCount();
+        }
+
+        for (int[] rectangle : splitRectangles) {
+            regions.add(new DownloadRegion(null,
+                    TileCover.tileToLatitude(rectangle[1], splitZoom),
+                    TileCover.tileToLongitude(rectangle[0], splitZoom),
+                    TileCover.tileToLatitude(rectangle[3] + 1, splitZoom),
+                    TileCover.tileToLongitude(rectangle[2] + 1, splitZoom),
+                    zoomRange, getTileCount(tileCover, rectangle, splitZoom)));
+        }
+        return downloadTileCount;
+    }
+
+    /**
+     * Merges rectangles of tiles into at most maxRegions rectangles. The rectangles are
+     * ordered along a Z-order curve so rectangles next to each other in the list are close on the map, then the
+     * neighbouring pair whose bounding rectangle adds the fewest tiles is merged until few enough rectangles are left
+     *
+     * @return the merged rectangles, which may overlap
+     */
+    @NonNull
+    protected static List<int[]> mergeRectangles(TileCover tileCover, List<int[]> rectangles, int zoom, int maxRegions) {
+        List<int[]> merged = new ArrayList<>(rectangles);
+        Collections.sort(merged, new Comparator<int[]>() {
+            @Override
+            public int compare(int[] first, int[] second) {
+                long firstOrder = getZOrder(first);
+                long secondOrder = getZOrder(second);
+                return firstOrder < secondOrder ? -1 : (firstOrder == secondOrder ? 0 : 1);
+            }
+        });
+        while (merged.size() > maxRegions) {
+            int mergePosition = 0;
+            long fewestAddedTiles = Long.MAX_VALUE;
+            for (int position = 0; position < merged.size() - 1; position++) {
+                int[] first = merged.get(position);
+                int[] second = merged.get(position + 1);
+                long addedTiles = getTileCount(tileCover, getBoundingRectangle(first, second), zoom)
+                        - getTileCount(tileCover, first, zoom) - getTileCount(tileCover, second, zoom);
+                if (addedTiles < fewestAddedTiles) {
+                    fewestAddedTiles = addedTiles;
+                    mergePosition = position;
+                }
+            }
+            merged.set(mergePosition, getBoundingRectangle(merged.get(mergePosition), merged.remove(mergePosition + 1)));
+        }
+        return merged;
+    }
+
+    private static int[] getBoundingRectangle(int[] first, int[] second) {
+        return new int[]{Math.min(first[0], second[0]), Math.min(first[1], second[1]),
+                Math.max(first[2], second[2]), Math.max(first[3], second[3])};
+    }
+
+    /**
+     * @return the position of the center of a rectangle on a Z-order curve, interleaving the bits of its tile coordinates
+     */
+    private static long getZOrder(int[] rectangle) {
+        int x = (rectangle[0] + rectangle[2]) >>> 1;
+        int y = (rectangle[1] + rectangle[3]) >>> 1;
+        long order = 0;
+        for (int bit = 0; bit < 31; bit++) {
+            order |= ((long) ((x >> bit) & 1) << (2 * bit)) | ((long) ((y >> bit) & 1) << (2 * bit + 1));
+        }
+        return order;
+    }
+
+    /**
+     * @return the number of tiles downloaded for rectangles of tiles at the zoom levels of a tile cover
+     */
+    private static long getTileCount(TileCover tileCover, List<int[]> rectangles, int rectangleZoom) {
+        long tileCount = 0;
+        for (int[] rectangle : rectangles) {
+            tileCount += getTileCount(tileCover, rectangle, rectangleZoom);
+        }
+        return tileCount;
+    }
+
+    /**
+     * @return the number of tiles downloaded for a rectangle of tiles at the zoom levels of a tile cover
+     */
+    private static long getTileCount(TileCover tileCover, int[] rectangle, int rectangleZoom) {
+        long tileCount = 0;
+        for (int zoom = tileCover.getMinZoom(); zoom <= tileCover.getMaxZoom(); zoom++) {
+            tileCount += TileCover.getRectangleTileCount(rectangle, rectangleZoom, zoom);
+        }
+        return tileCount;
+    }
+
+    /**
+     * Names the regions of a map, the last region is named after the map and the others are numbered parts of it
+     */
+    private static void nameRegions(List<DownloadRegion> regions, String mapName) {
+        for (int i = 0; i < regions.size(); i++) {
+            regions.get(i).name = i == regions.size() - 1 ? mapName : mapName + OFFLINE_REGION_PART_SEPARATOR + (i + 1);
+        }
+    }
+
+    /**
+     * @return the name of the map an offline region was downloaded for
+     */
+    public static String getMapName(@NonNull String regionName) {
+        int separator = regionName.indexOf(OFFLINE_REGION_PART_SEPARATOR);
+        return separator < 0 ? regionName : regionName.substring(0, separator);
+    }
+
+    /**
+     * @return the names of the offline regions downloaded as parts of a map, other than the region named after the map
+     */
+    @NonNull
+    public static List<String> getRegionPartNames(@NonNull String mapName, @NonNull Collection<String> regionNames) {
+        List<String> regionPartNames = new ArrayList<>();
+        for (String regionName : regionNames) {
+            if (!mapName.equals(regionName) && mapName.equals(getMapName(regionName))) {
+                regionPartNames.add(regionName);
+            }
+        }
+        return regionPartNames;
+    }
+
     public static void initializeFileHTTPServer(Context context, String digitalGlobeIdPlaceholder, String mapStyleAssetPath) {
         try {
             FileHTTPServer httpServer = new FileHTTPServer(context, mapStyleAssetPath, digitalGlobeIdPlaceholder);
             httpServer.start();
+            // the regions are downloaded through the server, resume the downloads queued before the app was restarted
+            TaskingLibrary.getInstance().getOfflineMapDownloadScheduler(context);
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * Rectangular region of an offline map download
+     */
+    public static class DownloadRegion {
+
+        private String name;
+
+        private final LatLng topLeft;
+
+        private final LatLng topRight;
+
+        private final LatLng bottomRight;
+
+        private final LatLng bottomLeft;
+
+        private final OfflineServiceHelper.ZoomRange zoomRange;
+
+        private final long tileCount;
+
+        public DownloadRegion(String name, double north, double west, double south, double east,
+                              OfflineServiceHelper.ZoomRange zoomRange, long tileCount) {
+            this.name = name;
+            this.topLeft = new LatLng(north, west);
+            this.topRight = new LatLng(north, east);
+            this.bottomRight = new LatLng(south, east);
+            this.bottomLeft = new LatLng(south, west);
+            this.zoomRange = zoomRange;
+            this.tileCount = tileCount;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public LatLng getTopLeft() {
+            return topLeft;
+        }
+
+        public LatLng getTopRight() {
+            return topRight;
+        }
+
+        public LatLng getBottomRight() {
+            return bottomRight;
+        }
+
+        public LatLng getBottomLeft() {
+            return bottomLeft;
+        }
+
+        public OfflineServiceHelper.ZoomRange getZoomRange() {
+            return zoomRange;
+        }
+
+        /**
+         * @return the estimated number of tiles the region downloads
+         */
+        public long getTileCount() {
+            return tileCount;
+        }
+    }
 }
@@ -0,0 +1,338 @@
+package org.smartregister.tasking.util;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Bundle;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.localbroadcastmanager.content.LocalBroadcastManager;
+
+import com.mapbox.mapboxsdk.offline.OfflineManager;
+import com.mapbox.mapboxsdk.offline.OfflineRegion;
+import com.mapbox.mapboxsdk.offline.OfflineRegionStatus;
+
+import org.smartregister.tasking.TaskingLibrary;
+import org.smartregister.tasking.model.OfflineMapCatalogEntry;
+import org.smartregister.tasking.repository.OfflineMapCatalogRepository;
+import org.smartregister.util.AppExecutors;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import io.ona.kujaku.data.realm.objects.MapBoxOfflineQueueTask;
+
+import io.ona.kujaku.helpers.OfflineServiceHelper;
+import io.ona.kujaku.services.MapboxOfflineDownloaderService;
+import io.ona.kujaku.utils.Constants;
+import timber.log.Timber;
+
+/**
+ * Accounts for the storage used by the offline regions in the {@link OfflineMapCatalogRepository} and deletes the least
+ * recently used maps when the offline maps use more than the storage budget of the app,
+ * see {@link TaskingLibraryConfiguration#getOfflineMapStorageBudget()}.
+ * The sizes of the regions are read from their offline region status and a map is used whenever its operational area is opened.
+ * {@link #reconcileCatalog(Runnable)} brings the catalog in line with the offline regions on the device.
+ * Regions are removed from the catalog once the downloader service reports them deleted.
+ */
+public class OfflineMapStorageManager {
+
+    private final Context context;
+
+    private final AppExecutors appExecutors;
+
+    /**
+     * Regions whose deletion was requested by maps being evicted
+     */
+    private final Map<String, Set<String>> deletingMaps = new HashMap<>();
+
+    private volatile boolean catalogReconciled;
+
+    private final BroadcastReceiver deleteReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            Bundle bundle = intent.getExtras();
+            if (bundle != null && bundle.get(MapboxOfflineDownloaderService.KEY_RESULTS_PARENT_ACTION) == MapboxOfflineDownloaderService.SERVICE_ACTION.DELETE_MAP
+                    && bundle.getString(Constants.PARCELABLE_KEY_MAP_UNIQUE_NAME) != null) {
+                onRegionDeleted(bundle.getString(Constants.PARCELABLE_KEY_MAP_UNIQUE_NAME),
+                        !MapboxOfflineDownloaderService.SERVICE_ACTION_RESULT.FAILED.name().equals(bundle.getString(MapboxOfflineDownloaderService.KEY_RESULT_STATUS)));
+            }
+        }
+    };
+
+    public OfflineMapStorageManager(@NonNull Context context) {
+        this.context = context.getApplicationContext();
+        this.appExecutors = TaskingLibrary.getInstance().getAppExecutors();
+        LocalBroadcastManager.getInstance(this.context).registerReceiver(deleteReceiver,
+                new IntentFilter(Constants.INTENT_ACTION_MAP_DOWNLOAD_SERVICE_STATUS_UPDATES));
+    }
+
+    /**
+     * Records that the operational area of a map was opened in the register or the map
+     *
+     * @param mapName the map name, the id of the operational area
+     */
+    public void recordMapUsed(@Nullable final String mapName) {
+        if (mapName == null) {
+            return;
+        }
+        final Date lastUsed = new Date();
+        appExecutors.diskIO().execute(new Runnable() {
+            @Override
+            public void run() {
+                getCatalogRepository().setLastUsed(mapName, lastUsed);
+            }
+        });
+    }
+
+    /**
+     * Updates the sizes of the regions of a downloaded map then deletes the least recently used maps above the storage budget
+     *
+     * @param mapName the map that was downloaded
+     */
+    public void onMapDownloaded(@NonNull final String mapName) {
+        refreshRegionSizes(mapName, new Runnable() {
+            @Override
+            public void run() {
+                enforceStorageBudget(mapName);
+            }
+        });
+    }
+
+    /**
+     * Lists the offline regions on the device and updates the catalog in the background, adding the regions missing from it
+     * with the size read from their status and removing the entries of regions that are gone. Maps being downloaded are left
+     * to the {@link OfflineMapDownloadScheduler}. Once the catalog has been reconciled in this process, the region metadata
+     * is only read again if the number of offline regions no longer matches the catalog
+     *
+     * @param onChanged called on the main thread if the catalog changed
+     */
+    public void reconcileCatalog(@Nullable final Runnable onChanged) {
+        final OfflineMapDownloadScheduler scheduler = TaskingLibrary.getInstance().getOfflineMapDownloadScheduler(context);
+        OfflineManager.getInstance(context).listOfflineRegions(new OfflineManager.ListOfflineRegionsCallback() {
+            @Override
+            public void onList(final OfflineRegion[] offlineRegions) {
+                appExecutors.diskIO().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        OfflineMapCatalogRepository catalogRepository = getCatalogRepository();
+                        int regionCount = offlineRegions == null ? 0 : offlineRegions.length;
+                        if (catalogReconciled && regionCount == catalogRepository.getRegionCount()) {
+                            return;
+                        }
+                        final Map<String, OfflineRegion> regionMap = regionCount == 0
+                                ? new HashMap<String, OfflineRegion>() : OfflineMapHelper.getOfflineRegionInfo(offlineRegions).second;
+                        List<String> scheduledMapNames = scheduler.getScheduledMapNames();
+                        boolean removed = catalogRepository.removeMissingRegions(regionMap.keySet(), scheduledMapNames);
+                        Set<String> missingRegionNames = catalogRepository.getMissingRegionNames(regionMap.keySet(), scheduledMapNames);
+                        final List<String> addedRegionNames = missingRegionNames.isEmpty() ? new ArrayList<String>()
+                                : catalogRepository.addMissingRegions(missingRegionNames, getOfflineQueueTasks(missingRegionNames), scheduledMapNames);
+                        catalogReconciled = true;
+                        if (addedRegionNames.isEmpty()) {
+                            if (removed) {
+                                onRefreshed(onChanged);
+                            }
+                            return;
+                        }
+                        Timber.i("Added %d offline regions to the catalog", addedRegionNames.size());
+                        appExecutors.mainThread().execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                List<OfflineRegion> regions = new ArrayList<>();
+                                for (String regionName : addedRegionNames) {
+                                    regions.add(regionMap.get(regionName));
+                                }
+                                readRegionSizes(regions, addedRegionNames, new long[regions.size()], 0, onChanged);
+                            }
+                        });
+                    }
+                });
+            }
+
+            @Override
+            public void onError(String error) {
+                Timber.e("Error listing offline regions: %s", error);
+            }
+        });
+    }
+
+    /**
+     * @param regionNames the regions missing from the catalog
+     * @return the completed download tasks of the regions by region name
+     */
+    @VisibleForTesting
+    protected Map<String, MapBoxOfflineQueueTask> getOfflineQueueTasks(@NonNull Set<String> regionNames) {
+        TaskingLibrary.getInstance().getRealmDatabase(context);
+        return OfflineMapHelper.getCompletedDownloadTasks(regionNames);
+    }
+
+    /**
+     * Reads the sizes of the offline regions from their status into the catalog
+     *
+     * @param mapName     the map whose regions are read, all regions are read if null
+     * @param onRefreshed called on the main thread once the sizes are saved
+     */
+    public void refreshRegionSizes(@Nullable final String mapName, @Nullable final Runnable onRefreshed) {
+        OfflineManager.getInstance(context).listOfflineRegions(new OfflineManager.ListOfflineRegionsCallback() {
+            @Override
+            public void onList(OfflineRegion[] offlineRegions) {
+                List<OfflineRegion> regions = new ArrayList<>();
+                List<String> regionNames = new ArrayList<>();
+                if (offlineRegions != null && offlineRegions.length > 0) {
+                    for (Map.Entry<String, OfflineRegion> region : OfflineMapHelper.getOfflineRegionInfo(offlineRegions).second.entrySet()) {
+                        if (mapName == null || mapName.equals(OfflineMapHelper.getMapName(region.getKey()))) {
+                            regionNames.add(region.getKey());
+                            regions.add(region.getValue());
+                        }
+                    }
+                }
+                readRegionSizes(regions, regionNames, new long[regions.size()], 0, onRefreshed);
+            }
+
+            @Override
+            public void onError(String error) {
+                Timber.e("Error listing offline regions: %s", error);
+                onRefreshed(onRefreshed);
+            }
+        });
+    }
+
+    /**
+     * Reads the status of the regions one after the other, offline region status callbacks come on the main thread
+     */
+    private void readRegionSizes(final List<OfflineRegion> regions, final List<String> regionNames, final long[] sizes,
+                                 final int index, final Runnable onRefreshed) {
+        if (index >= regions.size()) {
+            appExecutors.diskIO().execute(new Runnable() {
+                @Override
+                public void run() {
+                    OfflineMapCatalogRepository catalogRepository = getCatalogRepository();
+                    for (int i = 0; i < regionNames.size(); i++) {
+                        if (sizes[i] > 0) {
+                            catalogRepository.updateSize(regionNames.get(i), sizes[i]);
+                        }
+                    }
+                    onRefreshed(onRefreshed);
+                }
+            });
+            return;
+        }
+        regions.get(index).getStatus(new OfflineRegion.OfflineRegionStatusCallback() {
+            @Override
+            public void onStatus(OfflineRegionStatus status) {
+                sizes[index] = status.getCompletedResourceSize();
+                readRegionSizes(regions, regionNames, sizes, index + 1, onRefreshed);
+            }
+
+            @Override
+            public void onError(String error) {
+                Timber.e("Error reading status of offline region %s: %s", regionNames.get(index), error);
+                readRegionSizes(regions, regionNames, sizes, index + 1, onRefreshed);
+            }
+        });
+    }
+
+    private void onRefreshed(final Runnable onRefreshed) {
+        if (onRefreshed != null) {
+            appExecutors.mainThread().execute(onRefreshed);
+        }
+    }
+
+    /**
+     * Deletes the least recently used maps until the offline maps fit in the storage budget.
+     * The map of the operational area selected in the app, the map just downloaded and maps still downloading are kept
+     *
+     * @param retainedMapName a map that must not be deleted
+     */
+    public void enforceStorageBudget(@Nullable final String retainedMapName) {
+        final long budget = TaskingLibrary.getInstance().getTaskingLibraryConfiguration().getOfflineMapStorageBudget();
+        if (budget <= 0) {
+            return;
+        }
+        appExecutors.diskIO().execute(new Runnable() {
+            @Override
+            public void run() {
+                OfflineMapCatalogRepository catalogRepository = getCatalogRepository();
+                List<String> retainedMaps = new ArrayList<>();
+                retainedMaps.add(retainedMapName);
+                retainedMaps.add(PreferencesUtil.getInstance().getCurrentOperationalAreaId());
+                OfflineMapDownloadScheduler scheduler = TaskingLibrary.getInstance().getOfflineMapDownloadScheduler(context);
+                for (String mapName : catalogRepository.getDownloadedMapNames()) {
+                    if (scheduler.isScheduled(mapName)) {
+                        retainedMaps.add(mapName);
+                    }
+                }
+                // maps being deleted stay in the catalog until the deletion completes, count their storage as freed
+                long deletingSize = 0;
+                synchronized (deletingMaps) {
+                    for (String mapName : deletingMaps.keySet()) {
+                        retainedMaps.add(mapName);
+                        for (OfflineMapCatalogEntry entry : catalogRepository.getMapEntries(mapName)) {
+                            deletingSize += entry.getSize();
+                        }
+                    }
+                }
+                for (String mapName : catalogRepository.getMapsToEvict(budget + deletingSize, retainedMaps)) {
+                    Timber.i("Deleting least recently used offline map %s, offline maps use %d bytes of %d",
+                            mapName, catalogRepository.getStorageUsage() - deletingSize, budget);
+                    List<String> regionNames = OfflineMapHelper.getRegionPartNames(mapName, getRegionNames(catalogRepository, mapName));
+                    regionNames.add(mapName);
+                    synchronized (deletingMaps) {
+                        deletingMaps.put(mapName, new HashSet<>(regionNames));
+                    }
+                    deleteRegions(regionNames);
+                }
+            }
+        });
+    }
+
+    /**
+     * Removes a region from the catalog once the downloader service has deleted it. A map whose deletion failed is no longer
+     * counted as freed, so it is evicted again the next time the storage budget is enforced
+     */
+    @VisibleForTesting
+    protected void onRegionDeleted(@NonNull final String regionName, final boolean deleted) {
+        synchronized (deletingMaps) {
+            Set<String> regionNames = deletingMaps.get(OfflineMapHelper.getMapName(regionName));
+            if (regionNames != null && (!deleted || (regionNames.remove(regionName) && regionNames.isEmpty()))) {
+                deletingMaps.remove(OfflineMapHelper.getMapName(regionName));
+            }
+        }
+        if (!deleted) {
+            return;
+        }
+        appExecutors.diskIO().execute(new Runnable() {
+            @Override
+            public void run() {
+                getCatalogRepository().deleteRegion(regionName);
+            }
+        });
+    }
+
+    private List<String> getRegionNames(OfflineMapCatalogRepository catalogRepository, String mapName) {
+        List<String> regionNames = new ArrayList<>();
+        for (OfflineMapCatalogEntry entry : catalogRepository.getMapEntries(mapName)) {
+            regionNames.add(entry.getRegionName());
+        }
+        return regionNames;
+    }
+
+    @VisibleForTesting
+    protected void deleteRegions(List<String> regionNames) {
+        for (String regionName : regionNames) {
+            OfflineServiceHelper.deleteOfflineMap(context, regionName, TaskingLibrary.getInstance().getMapboxAccessToken());
+        }
+    }
+
+    private OfflineMapCatalogRepository getCatalogRepository() {
+        return TaskingLibrary.getInstance().getOfflineMapCatalogRepository();
+    }
+}
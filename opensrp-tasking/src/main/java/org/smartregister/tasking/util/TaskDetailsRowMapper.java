@@ -0,0 +1,281 @@
+package org.smartregister.tasking.util;
+
+import android.location.Location;
+
+import androidx.annotation.NonNull;
+
+import net.sqlcipher.Cursor;
+
+import org.apache.commons.lang3.StringUtils;
+import org.smartregister.tasking.model.TaskDetails;
+import org.smartregister.tasking.util.Constants.Properties;
+import org.smartregister.tasking.util.TaskOrdinals.TaskCode;
+
+import static org.smartregister.tasking.util.Constants.BusinessStatus.NOT_SPRAYED;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.BEDNET_DISTRIBUTED_COUNT;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.BLOOD_SCREENING_COMPLETE_COUNT;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.BLOOD_SCREENING_TASK_COUNT;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.BUSINESS_STATUS;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.CASE_CONFIRMED_COUNT;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.CODE;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.COMPLETED_TASK_COUNT;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.FAMILY_NAME;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.FAMILY_REGISTERED_COUNT;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.FIRST_NAME;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.FOR;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.FULLY_RECEIVED_COUNT;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.GROUPED_STRUCTURE_TASK_CODE_AND_STATUS;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.HOUSE_NUMBER;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.ID;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.LATITUDE;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.LONGITUDE;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.MDA_ADHERED_COUNT;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.MDA_DISPENSE_TASK_COUNT;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.NAME;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.NONE_RECEIVED_COUNT;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.NOT_ELIGIBLE_COUNT;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.NOT_SRAYED_OTHER_REASON;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.NOT_SRAYED_REASON;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.OTHER;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.REFERENCE_REASON;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.REGISTER_FAMILY_TASK_COUNT;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.SPRAY_STATUS;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.STATUS;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.STRUCTURE_ID;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.STRUCTURE_NAME;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.TASK_COUNT;
+
+/**
+ * Maps task register cursor rows to {@link TaskDetails}.
+ * Column indices are resolved once when the mapper is created for a query so reading a row does no column lookups.
+ */
+public abstract class TaskDetailsRowMapper {
+
+    public enum Projection {
+        STRUCTURE_TASKS,
+        GROUPED_STRUCTURE_TASKS,
+        OPERATIONAL_AREA_TASKS
+    }
+
+    private final int idIndex;
+    private final int codeIndex;
+    private final int forIndex;
+    private final int businessStatusIndex;
+    private final int statusIndex;
+    private final int structureIdIndex;
+    private final int referenceReasonIndex;
+
+    protected TaskDetailsRowMapper(@NonNull Cursor cursor) {
+        idIndex = cursor.getColumnIndex(ID);
+        codeIndex = cursor.getColumnIndex(CODE);
+        forIndex = cursor.getColumnIndex(FOR);
+        businessStatusIndex = cursor.getColumnIndex(BUSINESS_STATUS);
+        statusIndex = cursor.getColumnIndex(STATUS);
+        structureIdIndex = cursor.getColumnIndex(STRUCTURE_ID);
+        referenceReasonIndex = cursor.getColumnIndex(REFERENCE_REASON);
+    }
+
+    /**
+     * Creates a mapper for the rows of a cursor returned by a task register query
+     *
+     * @param cursor     the cursor whose rows will be mapped
+     * @param projection the projection of the query that returned the cursor
+     * @param houseLabel the label appended to family names
+     * @return the row mapper for the projection
+     */
+    public static TaskDetailsRowMapper create(@NonNull Cursor cursor, @NonNull Projection projection, String houseLabel) {
+        switch (projection) {
+            case GROUPED_STRUCTURE_TASKS:
+                return new GroupedStructureTaskRowMapper(cursor, houseLabel);
+            case STRUCTURE_TASKS:
+                return new StructureTaskRowMapper(cursor, houseLabel);
+            default:
+                return new OperationalAreaTaskRowMapper(cursor);
+        }
+    }
+
+    /**
+     * Reads the task on the current cursor row. Distances are not calculated
+     *
+     * @param cursor the cursor positioned on the row to read
+     * @return the task details of the row
+     */
+    public TaskDetails map(@NonNull Cursor cursor) {
+        TaskDetails task = new TaskDetails(getString(cursor, idIndex));
+        task.setTaskCode(getString(cursor, codeIndex));
+        task.setTaskEntity(getString(cursor, forIndex));
+        task.setBusinessStatus(getString(cursor, businessStatusIndex));
+        task.setTaskStatus(getString(cursor, statusIndex));
+        readProjectionColumns(cursor, task);
+        task.setStructureId(getString(cursor, structureIdIndex));
+        return task;
+    }
+
+    protected abstract void readProjectionColumns(Cursor cursor, TaskDetails task);
+
+    protected void readReferenceReason(Cursor cursor, TaskDetails task) {
+        task.setReasonReference(getString(cursor, referenceReasonIndex));
+    }
+
+    protected static String getString(Cursor cursor, int index) {
+        return index < 0 ? null : cursor.getString(index);
+    }
+
+    protected static int getInt(Cursor cursor, int index) {
+        return index < 0 ? 0 : cursor.getInt(index);
+    }
+
+    protected static double getDouble(Cursor cursor, int index) {
+        return index < 0 ? 0 : cursor.getDouble(index);
+    }
+
+    /**
+     * Maps BCC and case confirmation tasks. These are not linked to a structure so no location is read
+     */
+    private static class OperationalAreaTaskRowMapper extends TaskDetailsRowMapper {
+
+        private OperationalAreaTaskRowMapper(Cursor cursor) {
+            super(cursor);
+        }
+
+        @Override
+        protected void readProjectionColumns(Cursor cursor, TaskDetails task) {
+            if (task.getTaskCodeOrdinal() == TaskCode.CASE_CONFIRMATION) {
+                readReferenceReason(cursor, task);
+            }
+        }
+    }
+
+    /**
+     * Maps tasks joined to their structure, family and spray details
+     */
+    private static class StructureTaskRowMapper extends TaskDetailsRowMapper {
+
+        private final String houseSuffix;
+        private final int latitudeIndex;
+        private final int longitudeIndex;
+        private final int nameIndex;
+        private final int structureNameIndex;
+        private final int firstNameIndex;
+        private final int familyNameIndex;
+        private final int sprayStatusIndex;
+        private final int notSprayedReasonIndex;
+        private final int notSprayedOtherReasonIndex;
+
+        private StructureTaskRowMapper(Cursor cursor, String houseLabel) {
+            super(cursor);
+            houseSuffix = " " + houseLabel;
+            latitudeIndex = cursor.getColumnIndex(LATITUDE);
+            longitudeIndex = cursor.getColumnIndex(LONGITUDE);
+            nameIndex = cursor.getColumnIndex(NAME);
+            structureNameIndex = cursor.getColumnIndex(STRUCTURE_NAME);
+            firstNameIndex = cursor.getColumnIndex(FIRST_NAME);
+            familyNameIndex = cursor.getColumnIndex(FAMILY_NAME);
+            sprayStatusIndex = cursor.getColumnIndex(SPRAY_STATUS);
+            notSprayedReasonIndex = cursor.getColumnIndex(NOT_SRAYED_REASON);
+            notSprayedOtherReasonIndex = cursor.getColumnIndex(NOT_SRAYED_OTHER_REASON);
+        }
+
+        @Override
+        protected void readProjectionColumns(Cursor cursor, TaskDetails task) {
+            switch (task.getTaskCodeOrdinal()) {
+                case TaskCode.CASE_CONFIRMATION:
+                    readReferenceReason(cursor, task);
+                    return;
+                case TaskCode.BCC:
+                    return;
+                default:
+                    break;
+            }
+            Location location = new Location((String) null);
+            location.setLatitude(getDouble(cursor, latitudeIndex));
+            location.setLongitude(getDouble(cursor, longitudeIndex));
+            task.setLocation(location);
+
+            String structureName = getString(cursor, nameIndex);
+            task.setStructureName(StringUtils.isBlank(structureName) ? getString(cursor, structureNameIndex) : structureName);
+
+            String familyName = getString(cursor, firstNameIndex);
+            if (familyName == null) {
+                familyName = getString(cursor, familyNameIndex);
+            }
+            task.setFamilyName(familyName == null ? null : familyName + houseSuffix);
+
+            task.setSprayStatus(getString(cursor, sprayStatusIndex));
+
+            if (NOT_SPRAYED.equals(task.getBusinessStatus())) {
+                String reason = getString(cursor, notSprayedReasonIndex);
+                if (OTHER.equals(reason)) {
+                    reason = getString(cursor, notSprayedOtherReasonIndex);
+                }
+                task.setTaskDetails(reason);
+            }
+        }
+    }
+
+    /**
+     * Maps structure tasks grouped per structure with their task counts and family member names
+     */
+    private static class GroupedStructureTaskRowMapper extends StructureTaskRowMapper {
+
+        private final int taskCountIndex;
+        private final int completedTaskCountIndex;
+        private final int groupedTaskCodeStatusIndex;
+        private final int houseNumberIndex;
+        private final int familyMemberNamesIndex;
+        private final int registerFamilyTaskCountIndex;
+        private final int familyRegisteredCountIndex;
+        private final int bednetDistributedCountIndex;
+        private final int bloodScreeningTaskCountIndex;
+        private final int bloodScreeningCompleteCountIndex;
+        private final int caseConfirmedCountIndex;
+        private final int mdaAdheredCountIndex;
+        private final int mdaDispenseTaskCountIndex;
+        private final int fullyReceivedCountIndex;
+        private final int noneReceivedCountIndex;
+        private final int notEligibleCountIndex;
+
+        private GroupedStructureTaskRowMapper(Cursor cursor, String houseLabel) {
+            super(cursor, houseLabel);
+            taskCountIndex = cursor.getColumnIndex(TASK_COUNT);
+            completedTaskCountIndex = cursor.getColumnIndex(COMPLETED_TASK_COUNT);
+            groupedTaskCodeStatusIndex = cursor.getColumnIndex(GROUPED_STRUCTURE_TASK_CODE_AND_STATUS);
+            houseNumberIndex = cursor.getColumnIndex(HOUSE_NUMBER);
+            familyMemberNamesIndex = cursor.getColumnIndex(Properties.FAMILY_MEMBER_NAMES);
+            registerFamilyTaskCountIndex = cursor.getColumnIndex(REGISTER_FAMILY_TASK_COUNT);
+            familyRegisteredCountIndex = cursor.getColumnIndex(FAMILY_REGISTERED_COUNT);
+            bednetDistributedCountIndex = cursor.getColumnIndex(BEDNET_DISTRIBUTED_COUNT);
+            bloodScreeningTaskCountIndex = cursor.getColumnIndex(BLOOD_SCREENING_TASK_COUNT);
+            bloodScreeningCompleteCountIndex = cursor.getColumnIndex(BLOOD_SCREENING_COMPLETE_COUNT);
+            caseConfirmedCountIndex = cursor.getColumnIndex(CASE_CONFIRMED_COUNT);
+            mdaAdheredCountIndex = cursor.getColumnIndex(MDA_ADHERED_COUNT);
+            mdaDispenseTaskCountIndex = cursor.getColumnIndex(MDA_DISPENSE_TASK_COUNT);
+            fullyReceivedCountIndex = cursor.getColumnIndex(FULLY_RECEIVED_COUNT);
+            noneReceivedCountIndex = cursor.getColumnIndex(NONE_RECEIVED_COUNT);
+            notEligibleCountIndex = cursor.getColumnIndex(NOT_ELIGIBLE_COUNT);
+        }
+
+        @Override
+        protected void readProjectionColumns(Cursor cursor, TaskDetails task) {
+            task.setTaskCount(getInt(cursor, taskCountIndex));
+            task.setCompleteTaskCount(getInt(cursor, completedTaskCountIndex));
+            if (registerFamilyTaskCountIndex < 0) {
+                task.setGroupedTaskCodeStatus(getString(cursor, groupedTaskCodeStatusIndex));
+            } else {// the query selects the grouped task states as aggregate columns
+                task.setGroupedTaskStates(getInt(cursor, registerFamilyTaskCountIndex) > 0,
+                        getInt(cursor, familyRegisteredCountIndex) > 0,
+                        getInt(cursor, bednetDistributedCountIndex) > 0,
+                        getInt(cursor, bloodScreeningCompleteCountIndex) > 0
+                                || (getInt(cursor, bloodScreeningTaskCountIndex) == 0 && getInt(cursor, caseConfirmedCountIndex) > 0),
+                        getInt(cursor, mdaAdheredCountIndex) > 0,
+                        getInt(cursor, mdaDispenseTaskCountIndex),
+                        getInt(cursor, fullyReceivedCountIndex),
+                        getInt(cursor, noneReceivedCountIndex),
+                        getInt(cursor, notEligibleCountIndex));
+            }
+            task.setHouseNumber(getString(cursor, houseNumberIndex));
+            task.setFamilyMemberNames(getString(cursor, familyMemberNamesIndex));
+            super.readProjectionColumns(cursor, task);
+        }
+    }
+}
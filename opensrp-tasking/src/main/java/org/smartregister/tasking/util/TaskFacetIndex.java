@@ -0,0 +1,140 @@
+package org.smartregister.tasking.util;
+
+import androidx.annotation.NonNull;
+
+import org.apache.commons.lang3.StringUtils;
+import org.smartregister.tasking.model.TaskDetails;
+import org.smartregister.tasking.model.TaskSnapshot;
+import org.smartregister.tasking.util.Constants.Filter;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Bitset index of the register tasks by business status and task code used to filter tasks and count the tasks of each filter option.
+ * Each task is assigned the bit of its position in the indexed list and each option keeps the bits of the tasks it matches.
+ * The register keeps the index in {@link org.smartregister.tasking.TaskingLibrary} while the filter screen displays the option counts.
+ */
+public class TaskFacetIndex {
+
+    private final int size;
+
+    private final Map<String, BitSet> statusBits = new HashMap<>();
+
+    private final Map<String, BitSet> codeBits = new HashMap<>();
+
+    private final List<TaskDetails> tasks;
+
+    private final TaskSnapshot snapshot;
+
+    /**
+     * Builds the index over the tasks
+     *
+     * @param tasks the register tasks in the order filtered tasks should be returned
+     */
+    public TaskFacetIndex(@NonNull List<TaskDetails> tasks) {
+        this.tasks = tasks;
+        snapshot = TaskSnapshot.of(tasks);
+        size = snapshot.size();
+        for (int i = 0; i < size; i++) {
+            String status = snapshot.getStatus(i);
+            if (status != null) {
+                getBits(statusBits, status).set(i);
+            }
+            String[] codes = StringUtils.split(snapshot.getTaskCode(i), '~');
+            if (codes != null) {
+                for (String code : codes) {
+                    getBits(codeBits, code).set(i);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param tasks the tasks list to check
+     * @return true if this index was built from the given tasks list
+     */
+    public boolean isIndexOf(List<TaskDetails> tasks) {
+        return this.tasks == tasks;
+    }
+
+    /**
+     * Finds the tasks matching all the filter categories. A task matches a category if it matches any of the checked options
+     *
+     * @param checkedFilters the checked options of each filter category
+     * @return the matching tasks in the order of the indexed list
+     */
+    public List<TaskDetails> filter(Map<String, Set<String>> checkedFilters) {
+        BitSet matches = match(checkedFilters, null);
+        int[] positions = new int[matches.cardinality()];
+        int position = 0;
+        for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+            positions[position++] = i;
+        }
+        return snapshot.select(positions);
+    }
+
+    /**
+     * Counts the tasks that match a filter option together with the checked options of the other filter categories
+     *
+     * @param category       the filter category of the option
+     * @param option         the filter option
+     * @param checkedFilters the checked options of each filter category
+     * @return the number of tasks that the option would match
+     */
+    public int count(String category, String option, Map<String, Set<String>> checkedFilters) {
+        BitSet matches = match(checkedFilters, category);
+        matches.and(getOptionBits(category, Collections.singleton(option)));
+        return matches.cardinality();
+    }
+
+    private BitSet match(Map<String, Set<String>> checkedFilters, String excludedCategory) {
+        BitSet matches = new BitSet(size);
+        matches.set(0, size);
+        if (checkedFilters == null) {
+            return matches;
+        }
+        for (Map.Entry<String, Set<String>> filter : checkedFilters.entrySet()) {
+            if (filter.getValue() != null && !filter.getKey().equals(excludedCategory)) {
+                matches.and(getOptionBits(filter.getKey(), filter.getValue()));
+            }
+        }
+        return matches;
+    }
+
+    private BitSet getOptionBits(String category, Set<String> options) {
+        BitSet bits = new BitSet(size);
+        if (Filter.STATUS.equals(category)) {
+            or(bits, statusBits, options);
+        } else if (Filter.CODE.equals(category)) {
+            or(bits, codeBits, options);
+        } else if (Filter.INTERVENTION_UNIT.equals(category)) {
+            or(bits, codeBits, Utils.getInterventionUnitCodes(options));
+        } else {
+            bits.set(0, size);
+        }
+        return bits;
+    }
+
+    private static void or(BitSet bits, Map<String, BitSet> optionBits, Set<String> options) {
+        for (String option : options) {
+            BitSet matches = optionBits.get(option);
+            if (matches != null) {
+                bits.or(matches);
+            }
+        }
+    }
+
+    private static BitSet getBits(Map<String, BitSet> optionBits, String option) {
+        BitSet bits = optionBits.get(option);
+        if (bits == null) {
+            bits = new BitSet();
+            optionBits.put(option, bits);
+        }
+        return bits;
+    }
+}
@@ -0,0 +1,177 @@
+package org.smartregister.tasking.util;
+
+import androidx.annotation.NonNull;
+
+import org.smartregister.tasking.util.Constants.Intervention;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registry of the integer ordinals of task codes and business statuses.
+ * Tasks are dispatched with switch statements on the ordinals instead of comparing strings.
+ * The interventions and business statuses in {@link Constants} have the fixed ordinals below, which the registries
+ * are built from, plan specific values are assigned the next ordinals when registered through
+ * {@link TaskingLibraryConfiguration#getAdditionalTaskCodes()} and {@link TaskingLibraryConfiguration#getAdditionalBusinessStatuses()}.
+ * Ordinals are looked up when they are read, so tasks created before the library is initialised or deserialized are resolved
+ * against the current registry.
+ */
+public class TaskOrdinals {
+
+    public static final int UNKNOWN = -1;
+
+    public interface TaskCode {
+        int IRS = 0;
+        int MOSQUITO_COLLECTION = 1;
+        int LARVAL_DIPPING = 2;
+        int BCC = 3;
+        int BEDNET_DISTRIBUTION = 4;
+        int BLOOD_SCREENING = 5;
+        int CASE_CONFIRMATION = 6;
+        int REGISTER_FAMILY = 7;
+        int PAOT = 8;
+        int MDA_DISPENSE = 9;
+        int MDA_ADHERENCE = 10;
+        int IRS_VERIFICATION = 11;
+    }
+
+    public interface BusinessStatus {
+        int NOT_VISITED = 0;
+        int NOT_SPRAYED = 1;
+        int SPRAYED = 2;
+        int NOT_SPRAYABLE = 3;
+        int COMPLETE = 4;
+        int INCOMPLETE = 5;
+        int NOT_ELIGIBLE = 6;
+        int IN_PROGRESS = 7;
+        int FULLY_RECEIVED = 8;
+        int NONE_RECEIVED = 9;
+        int ADHERENCE_VISIT_DONE = 10;
+        int PARTIALLY_RECEIVED = 11;
+        int FAMILY_REGISTERED = 12;
+        int BEDNET_DISTRIBUTED = 13;
+        int BLOOD_SCREENING_COMPLETE = 14;
+        int PARTIALLY_SPRAYED = 15;
+    }
+
+    private static final Registry TASK_CODES = new Registry()
+            .add(TaskCode.IRS, Intervention.IRS)
+            .add(TaskCode.MOSQUITO_COLLECTION, Intervention.MOSQUITO_COLLECTION)
+            .add(TaskCode.LARVAL_DIPPING, Intervention.LARVAL_DIPPING)
+            .add(TaskCode.BCC, Intervention.BCC)
+            .add(TaskCode.BEDNET_DISTRIBUTION, Intervention.BEDNET_DISTRIBUTION)
+            .add(TaskCode.BLOOD_SCREENING, Intervention.BLOOD_SCREENING)
+            .add(TaskCode.CASE_CONFIRMATION, Intervention.CASE_CONFIRMATION)
+            .add(TaskCode.REGISTER_FAMILY, Intervention.REGISTER_FAMILY)
+            .add(TaskCode.PAOT, Intervention.PAOT)
+            .add(TaskCode.MDA_DISPENSE, Intervention.MDA_DISPENSE)
+            .add(TaskCode.MDA_ADHERENCE, Intervention.MDA_ADHERENCE)
+            .add(TaskCode.IRS_VERIFICATION, Intervention.IRS_VERIFICATION);
+
+    private static final Registry BUSINESS_STATUSES = new Registry()
+            .add(BusinessStatus.NOT_VISITED, Constants.BusinessStatus.NOT_VISITED)
+            .add(BusinessStatus.NOT_SPRAYED, Constants.BusinessStatus.NOT_SPRAYED)
+            .add(BusinessStatus.SPRAYED, Constants.BusinessStatus.SPRAYED)
+            .add(BusinessStatus.NOT_SPRAYABLE, Constants.BusinessStatus.NOT_SPRAYABLE)
+            .add(BusinessStatus.COMPLETE, Constants.BusinessStatus.COMPLETE)
+            .add(BusinessStatus.INCOMPLETE, Constants.BusinessStatus.INCOMPLETE)
+            .add(BusinessStatus.NOT_ELIGIBLE, Constants.BusinessStatus.NOT_ELIGIBLE)
+            .add(BusinessStatus.IN_PROGRESS, Constants.BusinessStatus.IN_PROGRESS)
+            .add(BusinessStatus.FULLY_RECEIVED, Constants.BusinessStatus.FULLY_RECEIVED)
+            .add(BusinessStatus.NONE_RECEIVED, Constants.BusinessStatus.NONE_RECEIVED)
+            .add(BusinessStatus.ADHERENCE_VISIT_DONE, Constants.BusinessStatus.ADHERENCE_VISIT_DONE)
+            .add(BusinessStatus.PARTIALLY_RECEIVED, Constants.BusinessStatus.PARTIALLY_RECEIVED)
+            .add(BusinessStatus.FAMILY_REGISTERED, Constants.BusinessStatus.FAMILY_REGISTERED)
+            .add(BusinessStatus.BEDNET_DISTRIBUTED, Constants.BusinessStatus.BEDNET_DISTRIBUTED)
+            .add(BusinessStatus.BLOOD_SCREENING_COMPLETE, Constants.BusinessStatus.BLOOD_SCREENING_COMPLETE)
+            .add(BusinessStatus.PARTIALLY_SPRAYED, Constants.BusinessStatus.PARTIALLY_SPRAYED);
+
+    /**
+     * Registers the plan specific task codes and business statuses of the configuration
+     *
+     * @param configuration the tasking library configuration
+     */
+    public static void register(@NonNull TaskingLibraryConfiguration configuration) {
+        registerAll(TASK_CODES, configuration.getAdditionalTaskCodes());
+        registerAll(BUSINESS_STATUSES, configuration.getAdditionalBusinessStatuses());
+    }
+
+    private static void registerAll(Registry registry, List<String> values) {
+        if (values != null) {
+            for (String value : values) {
+                registry.register(value);
+            }
+        }
+    }
+
+    /**
+     * @return the ordinal of the task code or {@link #UNKNOWN} if the code has not been registered
+     */
+    public static int getTaskCodeOrdinal(String taskCode) {
+        return TASK_CODES.getOrdinal(taskCode);
+    }
+
+    public static String getTaskCode(int ordinal) {
+        return TASK_CODES.getValue(ordinal);
+    }
+
+    /**
+     * @return the ordinal of the business status or {@link #UNKNOWN} if the status has not been registered
+     */
+    public static int getBusinessStatusOrdinal(String businessStatus) {
+        return BUSINESS_STATUSES.getOrdinal(businessStatus);
+    }
+
+    public static String getBusinessStatus(int ordinal) {
+        return BUSINESS_STATUSES.getValue(ordinal);
+    }
+
+    /**
+     * Values and their ordinals. Registration copies the lookup tables so they can be read without locking
+     */
+    private static class Registry {
+
+        private volatile Map<String, Integer> ordinals = new HashMap<>();
+
+        private volatile String[] values = new String[0];
+
+        /**
+         * Adds a value with a fixed ordinal, which must be the next ordinal of the registry
+         */
+        private Registry add(int ordinal, String value) {
+            if (register(value) != ordinal) {
+                throw new IllegalStateException(String.format("%s must have the ordinal %d", value, ordinal));
+            }
+            return this;
+        }
+
+        private int getOrdinal(String value) {
+            Integer ordinal = value == null ? null : ordinals.get(value);
+            return ordinal == null ? UNKNOWN : ordinal;
+        }
+
+        private String getValue(int ordinal) {
+            String[] currentValues = values;
+            return ordinal < 0 || ordinal >= currentValues.length ? null : currentValues[ordinal];
+        }
+
+        private synchronized int register(String value) {
+            if (value == null) {
+                return UNKNOWN;
+            }
+            Integer ordinal = ordinals.get(value);
+            if (ordinal == null) {
+                ordinal = values.length;
+                Map<String, Integer> newOrdinals = new HashMap<>(ordinals);
+                newOrdinals.put(value, ordinal);
+                String[] newValues = Arrays.copyOf(values, ordinal + 1);
+                newValues[ordinal] = value;
+                ordinals = newOrdinals;
+                values = newValues;
+            }
+            return ordinal;
+        }
+    }
+}
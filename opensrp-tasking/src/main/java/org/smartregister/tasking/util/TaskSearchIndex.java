@@ -0,0 +1,193 @@
+package org.smartregister.tasking.util;
+
+import androidx.annotation.NonNull;
+
+import org.smartregister.tasking.model.TaskDetails;
+import org.smartregister.tasking.model.TaskSnapshot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Word prefix index over the searchable fields of the register tasks.
+ * The family name, structure name, house number and family member names are split into lower case tokens
+ * and a task matches a search phrase if every word of the phrase is the start of one of its tokens.
+ * A phrase that extends the previous phrase only checks the tasks matched by the previous phrase.
+ */
+public class TaskSearchIndex {
+
+    private final List<TaskDetails> tasks;
+
+    private final TaskSnapshot snapshot;
+
+    private final String[][] taskTokens;
+
+    private final String[] tokens;
+
+    private final int[][] postings;
+
+    private String lastPhrase;
+
+    private BitSet lastResult;
+
+    /**
+     * Builds the index over the tasks
+     *
+     * @param tasks the register tasks in the order search results should be returned
+     */
+    public TaskSearchIndex(@NonNull List<TaskDetails> tasks) {
+        this.tasks = tasks;
+        snapshot = TaskSnapshot.of(tasks);
+        taskTokens = new String[snapshot.size()][];
+        Map<String, List<Integer>> tokenPostings = new HashMap<>();
+        for (int i = 0; i < snapshot.size(); i++) {
+            List<String> fieldTokens = new ArrayList<>();
+            tokenize(snapshot.getFamilyName(i), fieldTokens);
+            tokenize(snapshot.getStructureName(i), fieldTokens);
+            tokenize(snapshot.getHouseNumber(i), fieldTokens);
+            tokenize(snapshot.getFamilyMemberNames(i), fieldTokens);
+            taskTokens[i] = fieldTokens.toArray(new String[0]);
+            for (String token : fieldTokens) {
+                List<Integer> posting = tokenPostings.get(token);
+                if (posting == null) {
+                    posting = new ArrayList<>();
+                    tokenPostings.put(token, posting);
+                }
+                if (posting.isEmpty() || posting.get(posting.size() - 1) != i) {
+                    posting.add(i);
+                }
+            }
+        }
+        tokens = tokenPostings.keySet().toArray(new String[0]);
+        Arrays.sort(tokens);
+        postings = new int[tokens.length][];
+        for (int t = 0; t < tokens.length; t++) {
+            List<Integer> posting = tokenPostings.get(tokens[t]);
+            postings[t] = new int[posting.size()];
+            for (int p = 0; p < posting.size(); p++) {
+                postings[t][p] = posting.get(p);
+            }
+        }
+    }
+
+    /**
+     * @param tasks the tasks list to check
+     * @return true if this index was built from the given tasks list
+     */
+    public boolean isIndexOf(List<TaskDetails> tasks) {
+        return this.tasks == tasks;
+    }
+
+    /**
+     * Finds the tasks matching the search phrase
+     *
+     * @param searchPhrase the phrase typed by the user
+     * @return the matching tasks in the order of the indexed list
+     */
+    public List<TaskDetails> search(String searchPhrase) {
+        List<String> phraseTokens = new ArrayList<>();
+        tokenize(searchPhrase, phraseTokens);
+        String phrase = joinTokens(phraseTokens);
+        BitSet result;
+        if (phraseTokens.isEmpty()) {
+            result = new BitSet();
+        } else if (lastResult != null && !lastPhrase.isEmpty() && phrase.startsWith(lastPhrase)) {
+            result = narrow(lastResult, phraseTokens);
+        } else {
+            result = lookup(phraseTokens);
+        }
+        lastPhrase = phrase;
+        lastResult = result;
+
+        int[] matches = new int[result.cardinality()];
+        int match = 0;
+        for (int i = result.nextSetBit(0); i >= 0; i = result.nextSetBit(i + 1)) {
+            matches[match++] = i;
+        }
+        return snapshot.select(matches);
+    }
+
+    private BitSet lookup(List<String> phraseTokens) {
+        BitSet result = null;
+        for (String phraseToken : phraseTokens) {
+            BitSet tokenMatches = new BitSet(snapshot.size());
+            int t = Arrays.binarySearch(tokens, phraseToken);
+            for (t = t < 0 ? -t - 1 : t; t < tokens.length && tokens[t].startsWith(phraseToken); t++) {
+                for (int i : postings[t]) {
+                    tokenMatches.set(i);
+                }
+            }
+            if (result == null) {
+                result = tokenMatches;
+            } else {
+                result.and(tokenMatches);
+            }
+            if (result.isEmpty()) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    private BitSet narrow(BitSet candidates, List<String> phraseTokens) {
+        BitSet result = new BitSet(snapshot.size());
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            if (matchesAll(taskTokens[i], phraseTokens)) {
+                result.set(i);
+            }
+        }
+        return result;
+    }
+
+    private static boolean matchesAll(String[] tokens, List<String> phraseTokens) {
+        for (String phraseToken : phraseTokens) {
+            boolean matches = false;
+            for (String token : tokens) {
+                if (token.startsWith(phraseToken)) {
+                    matches = true;
+                    break;
+                }
+            }
+            if (!matches) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String joinTokens(List<String> tokens) {
+        StringBuilder builder = new StringBuilder();
+        for (String token : tokens) {
+            if (builder.length() > 0) {
+                builder.append(' ');
+            }
+            builder.append(token);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Splits the value into lower case tokens of letters and digits
+     */
+    private static void tokenize(String value, List<String> tokens) {
+        if (value == null) {
+            return;
+        }
+        String lowerCaseValue = value.toLowerCase(Locale.ENGLISH);
+        int start = -1;
+        for (int i = 0; i <= lowerCaseValue.length(); i++) {
+            boolean tokenCharacter = i < lowerCaseValue.length() && Character.isLetterOrDigit(lowerCaseValue.charAt(i));
+            if (tokenCharacter && start < 0) {
+                start = i;
+            } else if (!tokenCharacter && start >= 0) {
+                tokens.add(lowerCaseValue.substring(start, i));
+                start = -1;
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package org.smartregister.tasking.util;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.smartregister.tasking.model.TaskSnapshot;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import timber.log.Timber;
+
+/**
+ * Process wide store of the task snapshots loaded for an operational area and plan, shared by the task register and the map
+ * so switching between them does not re-read the structures and tasks from the database.
+ * Screens acquire the snapshot of the operational area and plan they display and release it when destroyed,
+ * snapshots are dropped once no screen holds them. All snapshots are invalidated when structures or tasks are synced
+ * or saved locally by a form or a task reset, a snapshot loaded before the invalidation is not stored.
+ * Apps that save tasks outside the library forms should call {@link #invalidate()} once the save completes.
+ */
+public class TaskSnapshotStore {
+
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    private int version;
+
+    /**
+     * Registers a holder of the snapshot of the operational area and plan
+     *
+     * @return the stored snapshot or null if it has not been loaded
+     */
+    @Nullable
+    public synchronized TaskSnapshot acquire(@NonNull String operationalAreaId, @NonNull String planId) {
+        String key = getKey(operationalAreaId, planId);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            entry = new Entry();
+            entries.put(key, entry);
+        }
+        entry.references++;
+        return entry.snapshot;
+    }
+
+    /**
+     * Releases a holder of the snapshot of the operational area and plan, dropping the snapshot if it was the last holder
+     */
+    public synchronized void release(@NonNull String operationalAreaId, @NonNull String planId) {
+        String key = getKey(operationalAreaId, planId);
+        Entry entry = entries.get(key);
+        if (entry != null && --entry.references <= 0) {
+            entries.remove(key);
+        }
+    }
+
+    /**
+     * @return the stored snapshot of the operational area and plan or null if it has not been loaded or was invalidated
+     */
+    @Nullable
+    public synchronized TaskSnapshot get(@NonNull String operationalAreaId, @NonNull String planId) {
+        Entry entry = entries.get(getKey(operationalAreaId, planId));
+        return entry == null ? null : entry.snapshot;
+    }
+
+    /**
+     * Stores the snapshot of an operational area and plan that is held by a screen
+     *
+     * @param snapshot the loaded tasks
+     * @param version  the version of the store when the tasks started loading
+     */
+    public synchronized void put(@NonNull String operationalAreaId, @NonNull String planId, @NonNull TaskSnapshot snapshot, int version) {
+        Entry entry = entries.get(getKey(operationalAreaId, planId));
+        if (entry == null) {
+            Timber.d("Snapshot of %s not held, not storing", operationalAreaId);
+        } else if (version == this.version) {
+            entry.snapshot = snapshot;
+        }
+    }
+
+    /**
+     * @return the version of the store, incremented when the snapshots are invalidated
+     */
+    public synchronized int getVersion() {
+        return version;
+    }
+
+    /**
+     * Drops all the stored snapshots, keeping their holders. Called when structures or tasks have been synced or saved
+     */
+    public synchronized void invalidate() {
+        version++;
+        for (Entry entry : entries.values()) {
+            entry.snapshot = null;
+        }
+    }
+
+    private static String getKey(String operationalAreaId, String planId) {
+        return operationalAreaId + "|" + planId;
+    }
+
+    private static class Entry {
+
+        private TaskSnapshot snapshot;
+
+        private int references;
+    }
+}
@@ -0,0 +1,297 @@
+package org.smartregister.tasking.util;
+
+import android.location.Location;
+
+import androidx.annotation.NonNull;
+
+import org.smartregister.tasking.model.TaskDetails;
+import org.smartregister.tasking.model.TaskSnapshot;
+import org.smartregister.tasking.util.TaskOrdinals.TaskCode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Uniform grid over the locations of the register tasks.
+ * Points are projected to metres around the reference latitude of the tasks, which is accurate enough within an operational area.
+ * Answers nearest and within radius queries by visiting only the grid cells around the user.
+ */
+public class TaskSpatialIndex {
+
+    public static final double METRES_PER_DEGREE = 111195.08;
+
+    private final List<TaskDetails> tasks;
+
+    private final TaskSnapshot snapshot;
+
+    private final int[] indexedPositions;
+
+    private final Map<Long, List<Integer>> cells = new HashMap<>();
+
+    private final double cellSize;
+
+    private final double longitudeScale;
+
+    private final double[] x;
+
+    private final double[] y;
+
+    private int[] order;
+
+    private TaskSnapshot ordered;
+
+    private double orderedX;
+
+    private double orderedY;
+
+    private int minColumn = Integer.MAX_VALUE;
+    private int maxColumn = Integer.MIN_VALUE;
+    private int minRow = Integer.MAX_VALUE;
+    private int maxRow = Integer.MIN_VALUE;
+
+    /**
+     * Builds the index over the tasks that have a location. BCC and case confirmation tasks are not indexed
+     *
+     * @param tasks    the register tasks
+     * @param cellSize the size of a grid cell in metres, the location buffer is a good choice
+     */
+    public TaskSpatialIndex(@NonNull List<TaskDetails> tasks, float cellSize) {
+        this.tasks = tasks;
+        this.cellSize = Math.max(cellSize, 1);
+        snapshot = TaskSnapshot.of(tasks);
+        int[] positions = new int[snapshot.size()];
+        int indexed = 0;
+        double latitudeSum = 0;
+        for (int position = 0; position < snapshot.size(); position++) {
+            if (isIndexable(position)) {
+                positions[indexed++] = position;
+                latitudeSum += snapshot.getLatitude(position);
+            }
+        }
+        indexedPositions = Arrays.copyOf(positions, indexed);
+        longitudeScale = indexed == 0 ? 1 : Math.cos(Math.toRadians(latitudeSum / indexed));
+        x = new double[indexed];
+        y = new double[indexed];
+        for (int i = 0; i < indexed; i++) {
+            x[i] = projectX(snapshot.getLongitude(indexedPositions[i]));
+            y[i] = projectY(snapshot.getLatitude(indexedPositions[i]));
+            int column = toCell(x[i]);
+            int row = toCell(y[i]);
+            minColumn = Math.min(minColumn, column);
+            maxColumn = Math.max(maxColumn, column);
+            minRow = Math.min(minRow, row);
+            maxRow = Math.max(maxRow, row);
+            List<Integer> cell = cells.get(cellKey(column, row));
+            if (cell == null) {
+                cell = new ArrayList<>();
+                cells.put(cellKey(column, row), cell);
+            }
+            cell.add(i);
+        }
+    }
+
+    /**
+     * @param tasks the tasks list to check
+     * @return true if this index was built from the given tasks list
+     */
+    public boolean isIndexOf(List<TaskDetails> tasks) {
+        return this.tasks == tasks || (ordered != null && ordered == tasks);
+    }
+
+    /**
+     * Updates the distances from the user and orders all the tasks nearest first. Moving by a distance changes the distance
+     * of every task by at most that much, so while the user is within the cell size from where the tasks were last sorted
+     * the previous order is nearly sorted and is re-sorted by insertion, which only moves the tasks that changed places.
+     * The tasks are sorted from scratch once the user moves further
+     *
+     * @param location the user location
+     * @return a view of the tasks nearest first, this index is also an index of the view
+     */
+    public TaskSnapshot orderByDistance(@NonNull Location location) {
+        updateDistances(location);
+        double userX = projectX(location.getLongitude());
+        double userY = projectY(location.getLatitude());
+        double dx = userX - orderedX;
+        double dy = userY - orderedY;
+        if (order == null || dx * dx + dy * dy > cellSize * cellSize) {
+            order = snapshot.getDistanceOrder();
+            orderedX = userX;
+            orderedY = userY;
+        } else {
+            order = insertionSort(order);
+        }
+        ordered = snapshot.select(order);
+        return ordered;
+    }
+
+    /**
+     * Stable insertion sort of the positions by distance from the user, linear on a nearly sorted order
+     */
+    private int[] insertionSort(int[] positions) {
+        int[] sorted = positions.clone();
+        float[] distances = new float[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            distances[i] = snapshot.getDistanceFromUser(sorted[i]);
+        }
+        for (int i = 1; i < sorted.length; i++) {
+            int position = sorted[i];
+            float distance = distances[i];
+            int j = i - 1;
+            while (j >= 0 && Float.compare(distances[j], distance) > 0) {
+                sorted[j + 1] = sorted[j];
+                distances[j + 1] = distances[j];
+                j--;
+            }
+            sorted[j + 1] = position;
+            distances[j + 1] = distance;
+        }
+        return sorted;
+    }
+
+    /**
+     * Counts the indexed tasks whose distance from the location is not more than the radius
+     *
+     * @param location the user location
+     * @param radius   the radius in metres
+     * @return the number of tasks within the radius
+     */
+    public int countWithin(@NonNull Location location, float radius) {
+        double userX = projectX(location.getLongitude());
+        double userY = projectY(location.getLatitude());
+        int rings = (int) Math.ceil(radius / cellSize);
+        int column = toCell(userX);
+        int row = toCell(userY);
+        double radiusSquared = (double) radius * radius;
+        int count = 0;
+        for (int c = Math.max(column - rings, minColumn); c <= Math.min(column + rings, maxColumn); c++) {
+            for (int r = Math.max(row - rings, minRow); r <= Math.min(row + rings, maxRow); r++) {
+                List<Integer> cell = cells.get(cellKey(c, r));
+                if (cell == null) {
+                    continue;
+                }
+                for (int i : cell) {
+                    if (distanceSquared(i, userX, userY) <= radiusSquared) {
+                        count++;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Finds the indexed tasks nearest to the location, searching grid rings outwards until no closer task can exist
+     *
+     * @param location the user location
+     * @param k        the number of tasks to return
+     * @return up to k tasks ordered nearest first
+     */
+    public List<TaskDetails> nearest(@NonNull Location location, int k) {
+        int[] positions = nearestPositions(projectX(location.getLongitude()), projectY(location.getLatitude()), k);
+        List<TaskDetails> result = new ArrayList<>(positions.length);
+        for (int position : positions) {
+            result.add(snapshot.get(position));
+        }
+        return result;
+    }
+
+    /**
+     * @return the positions of up to k nearest indexed tasks, nearest first
+     */
+    private int[] nearestPositions(double userX, double userY, int k) {
+        if (k <= 0 || indexedPositions.length == 0) {
+            return new int[0];
+        }
+        int column = toCell(userX);
+        int row = toCell(userY);
+        int maxRing = Math.max(Math.max(Math.abs(column - minColumn), Math.abs(maxColumn - column)),
+                Math.max(Math.abs(row - minRow), Math.abs(maxRow - row)));
+        PriorityQueue<double[]> nearest = new PriorityQueue<>(k, (a, b) -> Double.compare(b[0], a[0]));
+        for (int ring = 0; ring <= maxRing; ring++) {
+            for (int c = column - ring; c <= column + ring; c++) {
+                for (int r = row - ring; r <= row + ring; r++) {
+                    if (Math.abs(c - column) != ring && Math.abs(r - row) != ring) {
+                        continue; // only visit the cells on the edge of the ring
+                    }
+                    List<Integer> cell = cells.get(cellKey(c, r));
+                    if (cell == null) {
+                        continue;
+                    }
+                    for (int i : cell) {
+                        double distance = distanceSquared(i, userX, userY);
+                        if (nearest.size() < k) {
+                            nearest.add(new double[]{distance, i});
+                        } else if (distance < nearest.peek()[0]) {
+                            nearest.poll();
+                            nearest.add(new double[]{distance, i});
+                        }
+                    }
+                }
+            }
+            double searched = ring * cellSize;
+            if (nearest.size() == k && nearest.peek()[0] <= searched * searched) {
+                break;
+            }
+        }
+        int[] positions = new int[nearest.size()];
+        for (int i = positions.length - 1; i >= 0; i--) {
+            positions[i] = indexedPositions[(int) nearest.poll()[1]];
+        }
+        return positions;
+    }
+
+    /**
+     * Updates the distance from the user of all indexed tasks using the projected coordinates
+     *
+     * @param location the user location
+     */
+    public void updateDistances(@NonNull Location location) {
+        updateDistances(location, false);
+    }
+
+    /**
+     * Updates the distance of all indexed tasks from the location using the projected coordinates
+     *
+     * @param location           the user location or the operational area center
+     * @param distanceFromCenter whether the location is the operational area center
+     */
+    public void updateDistances(@NonNull Location location, boolean distanceFromCenter) {
+        double userX = projectX(location.getLongitude());
+        double userY = projectY(location.getLatitude());
+        for (int i = 0; i < indexedPositions.length; i++) {
+            snapshot.setDistanceFromUser(indexedPositions[i], (float) Math.sqrt(distanceSquared(i, userX, userY)), distanceFromCenter);
+        }
+    }
+
+    private boolean isIndexable(int position) {
+        int taskCode = snapshot.getTaskCodeOrdinal(position);
+        return snapshot.hasLocation(position) && taskCode != TaskCode.BCC
+                && taskCode != TaskCode.CASE_CONFIRMATION;
+    }
+
+    private double distanceSquared(int i, double userX, double userY) {
+        double dx = x[i] - userX;
+        double dy = y[i] - userY;
+        return dx * dx + dy * dy;
+    }
+
+    private double projectX(double longitude) {
+        return longitude * METRES_PER_DEGREE * longitudeScale;
+    }
+
+    private double projectY(double latitude) {
+        return latitude * METRES_PER_DEGREE;
+    }
+
+    private int toCell(double coordinate) {
+        return (int) Math.floor(coordinate / cellSize);
+    }
+
+    private static long cellKey(int column, int row) {
+        return ((long) column << 32) | (row & 0xffffffffL);
+    }
+}
@@ -28,6 +28,8 @@ import org.smartregister.tasking.model.TaskFilterParams;
 import org.smartregister.tasking.viewholder.TaskRegisterViewHolder;
 import org.smartregister.util.AppExecutors;
 
+import java.io.File;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -97,8 +99,27 @@ public abstract class TaskingLibraryConfiguration {
 
     public abstract String nonRegisteredStructureTasksSelect(String mainCondition);
 
+    /**
+     * The query of registered structure tasks grouped by structure used by focus investigation and MDA plans.
+     * The register joins the result by structure id to the grouped task states counted with
+     * {@link Utils#getGroupedStructureTaskAggregateColumns(String)}
+     */
     public abstract String groupedRegisteredStructureTasksSelect(String mainCondition);
 
+    /**
+     * The rows of the registered structure tasks before they are grouped, with the joins and filter of
+     * {@link #groupedRegisteredStructureTasksSelect(String)}, selecting at least the task structure id, code and business status.
+     * The grouped task states are counted over these rows so they count the same tasks as the grouped query.
+     * Apps whose grouped query joins other tables should override it with the same joins
+     */
+    public String groupedRegisteredStructureTaskRowsSelect(String mainCondition) {
+        return String.format("SELECT %1$s.%2$s, %1$s.%3$s, %1$s.%4$s FROM %1$s JOIN %5$s ON %1$s.%2$s = %5$s.%6$s " +
+                        "JOIN %7$s ON %5$s.%6$s = %7$s.%2$s COLLATE NOCASE JOIN %8$s ON %7$s.%9$s = %8$s.relational_id COLLATE NOCASE WHERE %10$s",
+                Constants.DatabaseKeys.TASK_TABLE, Constants.DatabaseKeys.STRUCTURE_ID, Constants.DatabaseKeys.CODE,
+                Constants.DatabaseKeys.BUSINESS_STATUS, Constants.DatabaseKeys.STRUCTURES_TABLE, Constants.DatabaseKeys.ID,
+                Constants.TABLE_NAME.FAMILY, Constants.TABLE_NAME.FAMILY_MEMBER, Constants.DatabaseKeys.BASE_ENTITY_ID, mainCondition);
+    }
+
     public abstract String[] taskRegisterMainColumns(String tableName);
 
     public abstract String familyRegisterTableName();
@@ -131,6 +152,11 @@ public abstract class TaskingLibraryConfiguration {
 
     public abstract void showNotFoundPopup(Activity activity, String opensrpId);
 
+    /**
+     * Opens the map of the current operational area. The map can read the tasks loaded by the register from
+     * {@link org.smartregister.tasking.TaskingLibrary#getTaskSnapshotStore()} instead of querying them again,
+     * acquiring the snapshot of the operational area and plan while it is displayed
+     */
     public abstract void startMapActivity(Activity activity, String searchViewText, TaskFilterParams taskFilterParams);
 
     public abstract void onTaskRegisterBindViewHolder(@NonNull Context context, @NonNull TaskRegisterViewHolder viewHolder, @NonNull View.OnClickListener registerActionHandler, @NonNull TaskDetails taskDetails, int position);
@@ -143,4 +169,102 @@ public abstract class TaskingLibraryConfiguration {
     public abstract void showTasksCompleteActionView(TextView actionView);
 
     public abstract Map<String, Object> getServerConfigs();
+
+    /**
+     * Whether the task register queries are run concurrently instead of one after the other.
+     * Query timings are logged in both modes so the faster one can be picked per deployment
+     *
+     * @return true to run the task register queries concurrently
+     */
+    public boolean isParallelTaskRegisterQueriesEnabled() {
+        return false;
+    }
+
+    /**
+     * Whether the task register loads structure tasks in pages as the user scrolls instead of loading the whole operational area.
+     * Paging is only applied to plans whose structure tasks are not grouped
+     *
+     * @return true to page the task register
+     */
+    public boolean isPagedTaskRegisterEnabled() {
+        return false;
+    }
+
+    /**
+     * Number of structure tasks read per task register page
+     */
+    public int getTaskRegisterPageSize() {
+        return Constants.TaskRegister.PAGE_SIZE;
+    }
+
+    /**
+     * Task codes used by the plans of the app that are not defined in {@link Constants.Intervention}.
+     * They are registered in {@link TaskOrdinals} when the library is initialised
+     *
+     * @return the plan specific task codes
+     */
+    public List<String> getAdditionalTaskCodes() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Business statuses used by the plans of the app that are not defined in {@link Constants.BusinessStatus}.
+     * They are registered in {@link TaskOrdinals} when the library is initialised
+     *
+     * @return the plan specific business statuses
+     */
+    public List<String> getAdditionalBusinessStatuses() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Directory of the map packages sideloaded on the device, served by the local map server.
+     * MBTiles files in the directory are served at /tiles/{package}/{z}/{x}/{y}, sprites from its sprites folder at
+     * /sprites/{file} and glyph ranges from its glyphs folder at /glyphs/{fontstack}/{range}.pbf
+     *
+     * @return the packages directory or null if no packages are sideloaded
+     */
+    @Nullable
+    public File getOfflineMapPackagesDirectory() {
+        return null;
+    }
+
+    /**
+     * Average size in bytes of the tiles of the offline map style, used to estimate the size of offline map downloads
+     */
+    public long getOfflineMapAverageTileSize() {
+        return Constants.Map.AVERAGE_TILE_SIZE;
+    }
+
+    /**
+     * Whether offline map downloads cover the whole operational area only at low zoom levels and prefetch the high zoom
+     * levels around the structures of the register, see {@link OfflineMapHelper#getPrefetchRegions}
+     */
+    public boolean isOfflineMapStructurePrefetchEnabled() {
+        return false;
+    }
+
+    /**
+     * Number of offline map regions handed to the offline downloader service at a time,
+     * see {@link OfflineMapDownloadScheduler}
+     */
+    public int getOfflineMapParallelDownloads() {
+        return 2;
+    }
+
+    /**
+     * Storage in bytes the offline maps may use before the least recently used maps are deleted when a download
+     * completes, see {@link OfflineMapStorageManager}. Maps are never deleted when the budget is 0
+     */
+    public long getOfflineMapStorageBudget() {
+        return 0;
+    }
+
+    /**
+     * Number of unprocessed task events read and client processed in one transaction after a sync page,
+     * see {@link org.smartregister.tasking.repository.UnprocessedEventRepository}
+     */
+    public int getSyncedEventProcessingChunkSize() {
+        return 100;
+    }
 }
@@ -0,0 +1,387 @@
+package org.smartregister.tasking.util;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.mapbox.geojson.Geometry;
+import com.mapbox.geojson.MultiPolygon;
+import com.mapbox.geojson.Point;
+import com.mapbox.geojson.Polygon;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Set of web mercator tiles intersecting a polygon at each zoom level of an offline map download.
+ * Tiles of a zoom level are kept as runs of columns per tile row, so large covers at high zoom levels are not enumerated.
+ * A tile is in the cover if an edge of the polygon passes through it or the middle of its row is inside the polygon.
+ */
+public class TileCover {
+
+    private static final double MAX_LATITUDE = 85.0511;
+
+    private static final double METERS_PER_DEGREE = 111320d;
+
+    private final int minZoom;
+
+    private final int maxZoom;
+
+    private final ZoomCover[] zoomCovers;
+
+    private TileCover(int minZoom, int maxZoom, ZoomCover[] zoomCovers) {
+        this.minZoom = minZoom;
+        this.maxZoom = maxZoom;
+        this.zoomCovers = zoomCovers;
+    }
+
+    /**
+     * Computes the tiles covering a polygon or multipolygon from the floor of the min zoom to the ceiling of the max zoom
+     *
+     * @return the tile cover or null if the geometry has no polygon rings
+     */
+    @Nullable
+    public static TileCover compute(@Nullable Geometry geometry, double minZoom, double maxZoom) {
+        List<double[][]> rings = getProjectedRings(geometry);
+        if (rings.isEmpty()) {
+            return null;
+        }
+        int fromZoom = (int) Math.floor(minZoom);
+        int toZoom = (int) Math.ceil(maxZoom);
+        ZoomCover[] zoomCovers = new ZoomCover[toZoom - fromZoom + 1];
+        for (int zoom = fromZoom; zoom <= toZoom; zoom++) {
+            zoomCovers[zoom - fromZoom] = computeZoomCover(rings, zoom);
+        }
+        return new TileCover(fromZoom, toZoom, zoomCovers);
+    }
+
+    /**
+     * Computes the tiles within a buffer around points, so points closer than the buffer share the tiles between them
+     * and points grouped in a cluster are covered by one block of tiles
+     *
+     * @param points       the points as {longitude, latitude}
+     * @param bufferMeters the distance around each point to cover
+     * @return the tile cover or null if there are no points
+     */
+    @Nullable
+    public static TileCover computeAroundPoints(@Nullable List<double[]> points, double bufferMeters, double minZoom, double maxZoom) {
+        if (points == null || points.isEmpty()) {
+            return null;
+        }
+        List<double[]> boxes = new ArrayList<>(points.size());
+        for (double[] point : points) {
+            double latitudeBuffer = bufferMeters / METERS_PER_DEGREE;
+            double longitudeBuffer = latitudeBuffer / Math.max(0.01, Math.cos(Math.toRadians(point[1])));
+            double[] topLeft = project(point[0] - longitudeBuffer, point[1] + latitudeBuffer);
+            double[] bottomRight = project(point[0] + longitudeBuffer, point[1] - latitudeBuffer);
+            boxes.add(new double[]{topLeft[0], topLeft[1], bottomRight[0], bottomRight[1]});
+        }
+        int fromZoom = (int) Math.floor(minZoom);
+        int toZoom = (int) Math.ceil(maxZoom);
+        ZoomCover[] zoomCovers = new ZoomCover[toZoom - fromZoom + 1];
+        for (int zoom = fromZoom; zoom <= toZoom; zoom++) {
+            zoomCovers[zoom - fromZoom] = computeBoxesZoomCover(boxes, zoom);
+        }
+        return new TileCover(fromZoom, toZoom, zoomCovers);
+    }
+
+    public int getMinZoom() {
+        return minZoom;
+    }
+
+    public int getMaxZoom() {
+        return maxZoom;
+    }
+
+    /**
+     * @return the number of tiles covering the polygon at a zoom level
+     */
+    public long getTileCount(int zoom) {
+        return zoom < minZoom || zoom > maxZoom ? 0 : zoomCovers[zoom - minZoom].tileCount;
+    }
+
+    /**
+     * @return the number of tiles covering the polygon at all zoom levels
+     */
+    public long getTileCount() {
+        long tileCount = 0;
+        for (ZoomCover zoomCover : zoomCovers) {
+            tileCount += zoomCover.tileCount;
+        }
+        return tileCount;
+    }
+
+    /**
+     * @return the number of tiles of the bounding box of the polygon at all zoom levels
+     */
+    public long getBoundingBoxTileCount() {
+        long tileCount = 0;
+        for (ZoomCover zoomCover : zoomCovers) {
+            tileCount += zoomCover.getBoundingBoxTileCount();
+        }
+        return tileCount;
+    }
+
+    /**
+     * @param averageTileSize the average size of a tile in bytes
+     * @return the estimated size of the covering tiles in bytes
+     */
+    public long getEstimatedBytes(long averageTileSize) {
+        return getTileCount() * averageTileSize;
+    }
+
+    /**
+     * Merges the tiles of a zoom level into rectangles. A rectangle grows downwards while the next tile row has a run
+     * of exactly the same columns, so the rectangles cover the same tiles as the cover at that zoom
+     *
+     * @return rectangles as {minX, minY, maxX, maxY} in tile coordinates, both inclusive
+     */
+    @NonNull
+    public List<int[]> getRectangles(int zoom) {
+        List<int[]> rectangles = new ArrayList<>();
+        if (zoom < minZoom || zoom > maxZoom) {
+            return rectangles;
+        }
+        ZoomCover zoomCover = zoomCovers[zoom - minZoom];
+        List<int[]> open = new ArrayList<>();
+        for (int row = 0; row < zoomCover.rows.size(); row++) {
+            int y = zoomCover.minRow + row;
+            List<int[]> stillOpen = new ArrayList<>();
+            for (int[] run : zoomCover.rows.get(row)) {
+                int[] rectangle = null;
+                for (int[] candidate : open) {
+                    if (candidate[0] == run[0] && candidate[2] == run[1] && candidate[3] == y - 1) {
+                        rectangle = candidate;
+                        break;
+                    }
+                }
+                if (rectangle == null) {
+                    rectangle = new int[]{run[0], y, run[1], y};
+                    rectangles.add(rectangle);
+                } else {
+                    rectangle[3] = y;
+                }
+                stillOpen.add(rectangle);
+            }
+            open = stillOpen;
+        }
+        return rectangles;
+    }
+
+    /**
+     * @param rectangle     a rectangle of tiles as returned by {@link #getRectangles(int)}
+     * @param rectangleZoom the zoom level of the rectangle tiles
+     * @return the number of tiles covering the rectangle at another zoom level
+     */
+    public static long getRectangleTileCount(int[] rectangle, int rectangleZoom, int zoom) {
+        if (zoom >= rectangleZoom) {
+            long scale = 1L << (zoom - rectangleZoom);
+            return (rectangle[2] - rectangle[0] + 1) * scale * (rectangle[3] - rectangle[1] + 1) * scale;
+        }
+        int shift = rectangleZoom - zoom;
+        return (long) ((rectangle[2] >> shift) - (rectangle[0] >> shift) + 1) * ((rectangle[3] >> shift) - (rectangle[1] >> shift) + 1);
+    }
+
+    public static double tileToLongitude(int x, int zoom) {
+        return x / (double) (1L << zoom) * 360d - 180d;
+    }
+
+    public static double tileToLatitude(int y, int zoom) {
+        double n = Math.PI * (1 - 2 * y / (double) (1L << zoom));
+        return Math.toDegrees(Math.atan(Math.sinh(n)));
+    }
+
+    /**
+     * Projects the rings of the polygons to web mercator coordinates in [0, 1], with y growing southwards like tile rows
+     */
+    private static List<double[][]> getProjectedRings(@Nullable Geometry geometry) {
+        List<List<Point>> rings = new ArrayList<>();
+        if (geometry instanceof Polygon) {
+            rings.addAll(((Polygon) geometry).coordinates());
+        } else if (geometry instanceof MultiPolygon) {
+            for (List<List<Point>> polygon : ((MultiPolygon) geometry).coordinates()) {
+                rings.addAll(polygon);
+            }
+        }
+        List<double[][]> projectedRings = new ArrayList<>();
+        for (List<Point> ring : rings) {
+            if (ring.size() < 3) {
+                continue;
+            }
+            double[][] projected = new double[ring.size()][];
+            for (int i = 0; i < ring.size(); i++) {
+                projected[i] = project(ring.get(i).longitude(), ring.get(i).latitude());
+            }
+            projectedRings.add(projected);
+        }
+        return projectedRings;
+    }
+
+    private static double[] project(double longitude, double latitude) {
+        double sin = Math.sin(Math.toRadians(Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, latitude))));
+        return new double[]{(longitude + 180d) / 360d, 0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI)};
+    }
+
+    private static ZoomCover computeBoxesZoomCover(List<double[]> boxes, int zoom) {
+        int tiles = 1 << zoom;
+        int minRow = Integer.MAX_VALUE;
+        int maxRow = Integer.MIN_VALUE;
+        for (double[] box : boxes) {
+            minRow = Math.min(minRow, clamp((int) Math.floor(box[1] * tiles), tiles));
+            maxRow = Math.max(maxRow, clamp((int) Math.floor(box[3] * tiles), tiles));
+        }
+        List<List<int[]>> runs = new ArrayList<>();
+        for (int row = minRow; row <= maxRow; row++) {
+            runs.add(new ArrayList<int[]>());
+        }
+        for (double[] box : boxes) {
+            int[] run = getRun(box[0] * tiles, box[2] * tiles, tiles);
+            int fromRow = clamp((int) Math.floor(box[1] * tiles), tiles);
+            int toRow = clamp((int) Math.floor(box[3] * tiles), tiles);
+            for (int row = fromRow; row <= toRow; row++) {
+                runs.get(row - minRow).add(run);
+            }
+        }
+        ZoomCover zoomCover = new ZoomCover(minRow);
+        for (List<int[]> rowRuns : runs) {
+            zoomCover.addRow(mergeRuns(rowRuns));
+        }
+        return zoomCover;
+    }
+
+    private static ZoomCover computeZoomCover(List<double[][]> rings, int zoom) {
+        int tiles = 1 << zoom;
+        double minY = Double.MAX_VALUE;
+        double maxY = -Double.MAX_VALUE;
+        for (double[][] ring : rings) {
+            for (double[] point : ring) {
+                minY = Math.min(minY, point[1] * tiles);
+                maxY = Math.max(maxY, point[1] * tiles);
+            }
+        }
+        int minRow = clamp((int) Math.floor(minY), tiles);
+        int maxRow = clamp((int) Math.floor(maxY), tiles);
+        List<List<int[]>> runs = new ArrayList<>();
+        List<List<Double>> crossings = new ArrayList<>();
+        for (int row = minRow; row <= maxRow; row++) {
+            runs.add(new ArrayList<int[]>());
+            crossings.add(new ArrayList<Double>());
+        }
+
+        for (double[][] ring : rings) {
+            for (int i = 0; i < ring.length; i++) {
+                double[] from = ring[i];
+                double[] to = ring[(i + 1) % ring.length];
+                addEdge(from[0] * tiles, from[1] * tiles, to[0] * tiles, to[1] * tiles, minRow, maxRow, tiles, runs, crossings);
+            }
+        }
+
+        ZoomCover zoomCover = new ZoomCover(minRow);
+        for (int row = 0; row < runs.size(); row++) {
+            List<int[]> rowRuns = runs.get(row);
+            List<Double> rowCrossings = crossings.get(row);
+            Collections.sort(rowCrossings);
+            for (int i = 0; i + 1 < rowCrossings.size(); i += 2) {
+                rowRuns.add(getRun(rowCrossings.get(i), rowCrossings.get(i + 1), tiles));
+            }
+            zoomCover.addRow(mergeRuns(rowRuns));
+        }
+        return zoomCover;
+    }
+
+    /**
+     * Adds the tiles an edge passes through to the runs of the rows it spans,
+     * and the points where it crosses the middle of those rows to the crossings used to fill the interior
+     */
+    private static void addEdge(double x1, double y1, double x2, double y2, int minRow, int maxRow, int tiles,
+                                List<List<int[]>> runs, List<List<Double>> crossings) {
+        int fromRow = clamp((int) Math.floor(Math.min(y1, y2)), tiles);
+        int toRow = clamp((int) Math.floor(Math.max(y1, y2)), tiles);
+        for (int row = Math.max(fromRow, minRow); row <= Math.min(toRow, maxRow); row++) {
+            double startX;
+            double endX;
+            if (y1 == y2) {
+                startX = x1;
+                endX = x2;
+            } else {
+                double top = Math.max(row, Math.min(y1, y2));
+                double bottom = Math.min(row + 1, Math.max(y1, y2));
+                if (bottom <= top) {
+                    continue;
+                }
+                startX = x1 + (top - y1) * (x2 - x1) / (y2 - y1);
+                endX = x1 + (bottom - y1) * (x2 - x1) / (y2 - y1);
+                double middle = row + 0.5;
+                if ((y1 <= middle) != (y2 <= middle)) {
+                    crossings.get(row - minRow).add(x1 + (middle - y1) * (x2 - x1) / (y2 - y1));
+                }
+            }
+            runs.get(row - minRow).add(getRun(Math.min(startX, endX), Math.max(startX, endX), tiles));
+        }
+    }
+
+    private static int[] getRun(double startX, double endX, int tiles) {
+        int start = clamp((int) Math.floor(startX), tiles);
+        int end = clamp(Math.max(start, (int) Math.ceil(endX) - 1), tiles);
+        return new int[]{start, end};
+    }
+
+    private static List<int[]> mergeRuns(List<int[]> runs) {
+        Collections.sort(runs, new Comparator<int[]>() {
+            @Override
+            public int compare(int[] first, int[] second) {
+                return first[0] - second[0];
+            }
+        });
+        List<int[]> merged = new ArrayList<>();
+        int[] current = null;
+        for (int[] run : runs) {
+            if (current != null && run[0] <= current[1] + 1) {
+                current[1] = Math.max(current[1], run[1]);
+            } else {
+                current = Arrays.copyOf(run, 2);
+                merged.add(current);
+            }
+        }
+        return merged;
+    }
+
+    private static int clamp(int tile, int tiles) {
+        return Math.max(0, Math.min(tiles - 1, tile));
+    }
+
+    /**
+     * Runs of covered columns of the tile rows of one zoom level
+     */
+    private static class ZoomCover {
+
+        private final int minRow;
+
+        private final List<List<int[]>> rows = new ArrayList<>();
+
+        private long tileCount;
+
+        private int minX = Integer.MAX_VALUE;
+
+        private int maxX = Integer.MIN_VALUE;
+
+        private ZoomCover(int minRow) {
+            this.minRow = minRow;
+        }
+
+        private void addRow(List<int[]> runs) {
+            rows.add(runs);
+            for (int[] run : runs) {
+                tileCount += run[1] - run[0] + 1;
+                minX = Math.min(minX, run[0]);
+                maxX = Math.max(maxX, run[1]);
+            }
+        }
+
+        private long getBoundingBoxTileCount() {
+            return tileCount == 0 ? 0 : (long) (maxX - minX + 1) * rows.size();
+        }
+    }
+}
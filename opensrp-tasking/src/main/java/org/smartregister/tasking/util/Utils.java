@@ -54,6 +54,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.regex.Pattern;
 
 import timber.log.Timber;
 
@@ -74,7 +75,7 @@ public class Utils {
     public static final String DEFAULT_LOCATION_LEVEL = Tags.HEALTH_CENTER;
     public static final String REVEAL_PROJECT = "reveal";
 
-    private static Cache<Location> cache = new Cache<>();
+    private static volatile Cache<Location> cache = new Cache<>();
 
     static {
         ALLOWED_LEVELS = new ArrayList<>();
@@ -127,6 +128,13 @@ public class Utils {
     }
 
 
+    /**
+     * Clears the operational area locations cached by name so they are read again after the locations have been synced
+     */
+    public static void invalidateOperationalAreaLocations() {
+        cache = new Cache<>();
+    }
+
     public static Location getOperationalAreaLocation(String operationalArea) {
         return cache.get(operationalArea, new CacheableData<Location>() {
             @Override
@@ -357,9 +365,41 @@ public class Utils {
         if (StringUtils.isBlank(toSearch))
             return false;
         String wordsSpaceAndCommaRegex = "[\\w\\h,]*";
-        return toSearch.toLowerCase().matches(wordsSpaceAndCommaRegex + searchPhrase.toLowerCase() + wordsSpaceAndCommaRegex);
+        return toSearch.toLowerCase().matches(wordsSpaceAndCommaRegex + Pattern.quote(searchPhrase.toLowerCase()) + wordsSpaceAndCommaRegex);
+    }
+
+
+    /**
+     * Builds the aggregate columns of the grouped registered structure tasks query.
+     * Selecting these columns lets the register read the state of the grouped tasks as numbers instead of parsing
+     * the {@link Constants.DatabaseKeys#GROUPED_STRUCTURE_TASK_CODE_AND_STATUS} column.
+     * A task code is complete if any of the grouped tasks with the code is complete
+     *
+     * @param tableName the task table or its alias in the query
+     * @return the aggregate columns to add to the select clause of a query grouped by structure
+     */
+    public static String getGroupedStructureTaskAggregateColumns(String tableName) {
+        return StringUtils.join(new String[]{
+                countTasks(tableName, Constants.Intervention.REGISTER_FAMILY, null, Constants.DatabaseKeys.REGISTER_FAMILY_TASK_COUNT),
+                countTasks(tableName, Constants.Intervention.REGISTER_FAMILY, Constants.BusinessStatus.COMPLETE, Constants.DatabaseKeys.FAMILY_REGISTERED_COUNT),
+                countTasks(tableName, Constants.Intervention.BEDNET_DISTRIBUTION, Constants.BusinessStatus.COMPLETE, Constants.DatabaseKeys.BEDNET_DISTRIBUTED_COUNT),
+                countTasks(tableName, Constants.Intervention.BLOOD_SCREENING, null, Constants.DatabaseKeys.BLOOD_SCREENING_TASK_COUNT),
+                countTasks(tableName, Constants.Intervention.BLOOD_SCREENING, Constants.BusinessStatus.COMPLETE, Constants.DatabaseKeys.BLOOD_SCREENING_COMPLETE_COUNT),
+                countTasks(tableName, Constants.Intervention.CASE_CONFIRMATION, Constants.BusinessStatus.COMPLETE, Constants.DatabaseKeys.CASE_CONFIRMED_COUNT),
+                countTasks(tableName, Constants.Intervention.MDA_ADHERENCE, Constants.BusinessStatus.COMPLETE, Constants.DatabaseKeys.MDA_ADHERED_COUNT),
+                countTasks(tableName, Constants.Intervention.MDA_DISPENSE, null, Constants.DatabaseKeys.MDA_DISPENSE_TASK_COUNT),
+                countTasks(tableName, Constants.Intervention.MDA_DISPENSE, Constants.BusinessStatus.FULLY_RECEIVED, Constants.DatabaseKeys.FULLY_RECEIVED_COUNT),
+                countTasks(tableName, Constants.Intervention.MDA_DISPENSE, Constants.BusinessStatus.NONE_RECEIVED, Constants.DatabaseKeys.NONE_RECEIVED_COUNT),
+                countTasks(tableName, Constants.Intervention.MDA_DISPENSE, Constants.BusinessStatus.NOT_ELIGIBLE, Constants.DatabaseKeys.NOT_ELIGIBLE_COUNT)}, ", ");
     }
 
+    private static String countTasks(String tableName, String code, String businessStatus, String alias) {
+        String condition = String.format("%s.%s = '%s'", tableName, Constants.DatabaseKeys.CODE, code);
+        if (businessStatus != null) {
+            condition += String.format(" AND %s.%s = '%s'", tableName, Constants.DatabaseKeys.BUSINESS_STATUS, businessStatus);
+        }
+        return String.format("SUM(CASE WHEN %s THEN 1 ELSE 0 END) AS %s", condition, alias);
+    }
 
     public static Set<String> getInterventionUnitCodes(Set<String> filterList) {
         if (filterList == null) {
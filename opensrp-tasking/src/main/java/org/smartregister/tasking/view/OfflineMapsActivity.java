@@ -11,26 +11,23 @@ import androidx.core.util.Pair;
 import androidx.viewpager.widget.ViewPager;
 
 import com.google.android.material.tabs.TabLayout;
-import com.mapbox.mapboxsdk.offline.OfflineManager;
 import com.mapbox.mapboxsdk.offline.OfflineRegion;
 
 import org.smartregister.tasking.R;
+import org.smartregister.tasking.TaskingLibrary;
 import org.smartregister.tasking.adapter.ViewPagerAdapter;
 import org.smartregister.tasking.contract.OfflineMapDownloadCallback;
 import org.smartregister.tasking.fragment.AvailableOfflineMapsFragment;
 import org.smartregister.tasking.fragment.DownloadedOfflineMapsFragment;
 import org.smartregister.tasking.model.OfflineMapModel;
-import org.smartregister.tasking.util.OfflineMapHelper;
+import org.smartregister.util.AppExecutors;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import timber.log.Timber;
-
 public abstract class OfflineMapsActivity extends AppCompatActivity implements OfflineMapDownloadCallback {
 
-    private static final String TAG = OfflineMapsActivity.class.getName();
-
     private ViewPagerAdapter adapter;
 
     private ViewPager viewPager;
@@ -39,8 +36,6 @@ public abstract class OfflineMapsActivity extends AppCompatActivity implements O
 
     private DownloadedOfflineMapsFragment downloadedOfflineMapsFragment;
 
-    private OfflineManager offlineManager;
-
     public static  final int AVAILABLE_OFFLINE_MAPS_FRAGMENT_INDEX = 0;
     public static  final int DOWNLOADED_OFFLINE_MAPS_FRAGMENT_INDEX = 1;
 
@@ -54,8 +49,6 @@ public abstract class OfflineMapsActivity extends AppCompatActivity implements O
 
         setupViews();
 
-        offlineManager = initOfflineManager();
-
         getOfflineDownloadedRegions(false);
     }
 
@@ -95,10 +88,6 @@ public abstract class OfflineMapsActivity extends AppCompatActivity implements O
         return viewPager;
     }
 
-    public OfflineManager initOfflineManager() {
-        return OfflineManager.getInstance(this);
-    }
-
     @Override
     public void onMapDownloaded(OfflineMapModel offlineMapModel) {
         getOfflineDownloadedRegions(true);
@@ -110,21 +99,40 @@ public abstract class OfflineMapsActivity extends AppCompatActivity implements O
         availableOfflineMapsFragment.updateOperationalAreasToDownload(offlineMapModel);
     }
 
-    public void getOfflineDownloadedRegions(boolean refreshDownloadedListOnly) {
-
-        offlineManager.listOfflineRegions(new OfflineManager.ListOfflineRegionsCallback() {
-            @Override
-            public void onList(final OfflineRegion[] offlineRegions) {
-                Pair<List<String>, Map<String, OfflineRegion>> offlineRegionInfo = null;
-                if (offlineRegions != null && offlineRegions.length > 0) {
-                    offlineRegionInfo = OfflineMapHelper.getOfflineRegionInfo(offlineRegions);
+    /**
+     * Shows the downloaded maps from the offline map catalog. When the screen opens the catalog is then reconciled with
+     * the offline regions on the device in the background and the lists are refreshed if it changed
+     */
+    public void getOfflineDownloadedRegions(final boolean refreshDownloadedListOnly) {
+        getCatalogedRegions(refreshDownloadedListOnly);
+        if (!refreshDownloadedListOnly) {
+            TaskingLibrary.getInstance().getOfflineMapStorageManager(this).reconcileCatalog(new Runnable() {
+                @Override
+                public void run() {
+                    if (!isFinishing()) {
+                        getCatalogedRegions(false);
+                    }
                 }
-                setOfflineDownloadedMapNames(offlineRegionInfo, refreshDownloadedListOnly);
-            }
+            });
+        }
+    }
 
+    /**
+     * Reads the downloaded maps from the offline map catalog instead of listing the offline regions
+     */
+    protected void getCatalogedRegions(final boolean refreshDownloadedListOnly) {
+        final AppExecutors appExecutors = TaskingLibrary.getInstance().getAppExecutors();
+        appExecutors.diskIO().execute(new Runnable() {
             @Override
-            public void onError(String error) {
-                Timber.e(TAG, "ERROR :: "  + error);
+            public void run() {
+                final List<String> mapNames = TaskingLibrary.getInstance().getOfflineMapCatalogRepository().getDownloadedMapNames();
+                appExecutors.mainThread().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        setOfflineDownloadedMapNames(new Pair<List<String>, Map<String, OfflineRegion>>(mapNames,
+                                new HashMap<String, OfflineRegion>()), refreshDownloadedListOnly);
+                    }
+                });
             }
         });
     }
@@ -46,6 +46,10 @@ public class BaseOfflineMapViewHolder extends RecyclerView.ViewHolder {
         offlineMapCheckBox.setChecked(check);
     }
 
+    public void setDownloadingLabel(String downloadingLabel) {
+        tvDownloadingLabel.setText(downloadingLabel);
+    }
+
     public void displayDownloadingLabel(boolean displayDownloadingLabel) {
         if (displayDownloadingLabel) {
             tvDownloadingLabel.setVisibility(View.VISIBLE);
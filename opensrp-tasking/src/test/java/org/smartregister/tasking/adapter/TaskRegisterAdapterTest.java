@@ -0,0 +1,98 @@
+package org.smartregister.tasking.adapter;
+
+import android.content.Context;
+import android.view.View;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowLooper;
+import org.smartregister.tasking.BaseUnitTest;
+import org.smartregister.tasking.model.TaskDetails;
+import org.smartregister.tasking.util.TestingUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class TaskRegisterAdapterTest extends BaseUnitTest {
+
+    @Rule
+    public MockitoRule rule = MockitoJUnit.rule();
+
+    @Mock
+    private View.OnClickListener onClickListener;
+
+    private TaskRegisterAdapter adapter;
+
+    private Context context = RuntimeEnvironment.application;
+
+    private List<TaskDetails> tasks;
+
+    @Before
+    public void setUp() {
+        adapter = new TaskRegisterAdapter(context, onClickListener);
+        tasks = new ArrayList<>();
+        tasks.add(TestingUtils.getTaskDetails());
+        tasks.add(TestingUtils.getTaskDetails());
+    }
+
+    @Test
+    public void testSetTaskDetailsDisplaysTasks() {
+        adapter.setTaskDetails(tasks);
+        assertEquals(2, adapter.getItemCount());
+        assertEquals(2, adapter.getTaskCount());
+    }
+
+    @Test
+    public void testSetTaskDetailsUpdatesOnlyChangedRows() throws InterruptedException {
+        adapter.setTaskDetails(tasks);
+        RecyclerView.AdapterDataObserver observer = mock(RecyclerView.AdapterDataObserver.class);
+        adapter.registerAdapterDataObserver(observer);
+
+        tasks.get(1).setDistanceFromUser(40f);
+        adapter.setTaskDetails(tasks);
+        awaitUpdate(observer);
+
+        verify(observer).onItemRangeChanged(1, 1, null);
+        verify(observer, never()).onItemRangeChanged(0, 1, null);
+        verify(observer, never()).onChanged();
+    }
+
+    @Test
+    public void testAddTaskDetailsAppendsRows() throws InterruptedException {
+        adapter.setTaskDetails(tasks);
+        adapter.setTotalTaskCount(120);
+        RecyclerView.AdapterDataObserver observer = mock(RecyclerView.AdapterDataObserver.class);
+        adapter.registerAdapterDataObserver(observer);
+
+        adapter.addTaskDetails(Collections.singletonList(TestingUtils.getTaskDetails()));
+        awaitUpdate(observer);
+        assertEquals(3, adapter.getItemCount());
+
+        verify(observer).onItemRangeInserted(2, 1);
+        verify(observer, never()).onItemRangeRemoved(anyInt(), anyInt());
+        assertEquals(120, adapter.getTaskCount());
+    }
+
+    private void awaitUpdate(RecyclerView.AdapterDataObserver observer) throws InterruptedException {
+        long end = System.currentTimeMillis() + ASYNC_TIMEOUT;
+        while (mockingDetails(observer).getInvocations().isEmpty() && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+            ShadowLooper.runUiThreadTasks();
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package org.smartregister.tasking.fragment;
 
 import android.app.ProgressDialog;
+import android.content.BroadcastReceiver;
 import android.content.Intent;
 import android.location.Location;
 import android.view.View;
@@ -479,4 +480,23 @@ public class TaskRegisterFragmentTest extends BaseUnitTest {
         assertFalse(alertDialog.isShowing());
     }
 
+    @Test
+    public void testSyncProgressIsShownUntilTheSyncCompletes() {
+        Intent intent = new Intent(Constants.Action.STRUCTURE_TASK_SYNC_PROGRESS);
+        intent.putExtra(Constants.IntentKey.SYNC_PAGE, 2);
+        intent.putExtra(Constants.IntentKey.SYNCED_STRUCTURE_COUNT, 150);
+        intent.putExtra(Constants.IntentKey.SYNCED_TASK_COUNT, 200);
+        intent.putExtra(Constants.IntentKey.PROCESSED_EVENT_COUNT, 50);
+        BroadcastReceiver syncProgressReceiver = Whitebox.getInternalState(fragment, "syncProgressReceiver");
+        syncProgressReceiver.onReceive(activity, intent);
+
+        TextView syncProgress = fragment.getView().findViewById(R.id.sync_progress_text);
+        assertEquals(View.VISIBLE, syncProgress.getVisibility());
+        assertEquals(activity.getString(R.string.sync_progress, 2, 150, 200, 50), syncProgress.getText());
+
+        intent.putExtra(Constants.IntentKey.SYNC_COMPLETE, true);
+        syncProgressReceiver.onReceive(activity, intent);
+        assertEquals(View.GONE, syncProgress.getVisibility());
+    }
+
 }
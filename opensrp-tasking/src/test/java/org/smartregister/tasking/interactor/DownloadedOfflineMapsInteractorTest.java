@@ -28,7 +28,6 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import io.ona.kujaku.data.realm.RealmDatabase;
 import io.ona.kujaku.data.realm.objects.MapBoxOfflineQueueTask;
 
 import static org.junit.Assert.assertEquals;
@@ -59,9 +58,6 @@ public class DownloadedOfflineMapsInteractorTest extends BaseUnitTest {
     @Mock
     private LocationRepository locationRepository;
 
-    @Mock
-    private RealmDatabase realmDatabase;
-
     @Captor
     private ArgumentCaptor<List<OfflineMapModel>> offlineMapModelListArgumentCaptor;
 
@@ -75,7 +71,6 @@ public class DownloadedOfflineMapsInteractorTest extends BaseUnitTest {
     public void setUp() {
         interactor = new DownloadedOfflineMapsInteractor(presenter, context);
         Whitebox.setInternalState(interactor, "locationRepository", locationRepository);
-        Whitebox.setInternalState(interactor, "realmDatabase", realmDatabase);
         locationId = "location_1";
     }
 
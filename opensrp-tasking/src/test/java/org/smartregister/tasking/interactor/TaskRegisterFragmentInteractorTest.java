@@ -1,5 +1,6 @@
 package org.smartregister.tasking.interactor;
 
+import android.database.SQLException;
 import android.location.Location;
 
 import androidx.core.util.Pair;
@@ -27,6 +28,8 @@ import org.smartregister.tasking.BaseUnitTest;
 import org.smartregister.tasking.TaskingLibrary;
 import org.smartregister.tasking.contract.TaskRegisterFragmentContract;
 import org.smartregister.tasking.model.TaskDetails;
+import org.smartregister.tasking.model.TaskRegisterPage;
+import org.smartregister.tasking.model.TaskSnapshot;
 import org.smartregister.tasking.util.Constants;
 import org.smartregister.tasking.util.Constants.BusinessStatus;
 import org.smartregister.tasking.util.Constants.Intervention;
@@ -34,13 +37,22 @@ import org.smartregister.tasking.util.InteractorUtils;
 import org.smartregister.tasking.util.PreferencesUtil;
 import org.smartregister.tasking.util.TaskingLibraryConfiguration;
 import org.smartregister.tasking.util.TestingUtils;
+import org.smartregister.tasking.util.Utils;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
+import java.util.Random;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
@@ -110,6 +122,7 @@ public class TaskRegisterFragmentInteractorTest extends BaseUnitTest {
     private String mainSelectQuery;
     private String nonRegisteredStructureTasksQuery;
     private String groupedRegisteredStructureTasksSelectQuery;
+    private String groupedTaskStatesQuery;
     private String bccSelectQuery;
     private String indexSelectQuery;
     private TaskingLibraryConfiguration taskingLibraryConfiguration;
@@ -125,6 +138,12 @@ public class TaskRegisterFragmentInteractorTest extends BaseUnitTest {
         mainSelectQuery = "Select task._id as _id , task._id , task.code , task.for , task.business_status , task.status , task.reason_reference , structure.latitude , structure.longitude , structure.name , sprayed_structures.structure_name , sprayed_structures.family_head_name , sprayed_structures.spray_status , sprayed_structures.not_sprayed_reason , sprayed_structures.not_sprayed_other_reason , structure._id AS structure_id , ec_family.first_name , ec_family.house_number FROM task  JOIN structure ON task.for = structure._id   LEFT JOIN sprayed_structures ON task.for = sprayed_structures.base_entity_id   LEFT JOIN ec_family ON structure._id = ec_family.structure_id  WHERE task.group_id = ? AND task.plan_id = ? AND status NOT IN (?,?) ";
         nonRegisteredStructureTasksQuery = "Select task._id as _id , task._id , task.code , task.for , task.business_status , task.status , task.reason_reference , structure.latitude , structure.longitude , structure.name , sprayed_structures.structure_name , sprayed_structures.family_head_name , sprayed_structures.spray_status , sprayed_structures.not_sprayed_reason , sprayed_structures.not_sprayed_other_reason , structure._id AS structure_id , ec_family.first_name , ec_family.house_number FROM task  JOIN structure ON task.for = structure._id   LEFT JOIN sprayed_structures ON task.for = sprayed_structures.base_entity_id   LEFT JOIN ec_family ON structure._id = ec_family.structure_id  WHERE task.group_id = ? AND task.plan_id = ? AND status NOT IN (?,?)   AND ec_family.structure_id IS NULL  AND task.code != 'Bednet Distribution'";
         groupedRegisteredStructureTasksSelectQuery = " SELECT grouped_tasks.* , SUM(CASE WHEN status='COMPLETED' THEN 1 ELSE 0 END ) AS completed_task_count , COUNT(_id ) AS task_count, GROUP_CONCAT(code || \"-\" || business_status ) AS grouped_structure_task_code_and_status , GROUP_CONCAT(family_member_names) as family_member_names  FROM ( Select task._id as _id , task._id , task.code , task.for , task.business_status , task.status , task.reason_reference , structure.latitude , structure.longitude , structure.name , sprayed_structures.structure_name , sprayed_structures.family_head_name , sprayed_structures.spray_status , sprayed_structures.not_sprayed_reason , sprayed_structures.not_sprayed_other_reason , structure._id AS structure_id , ec_family.first_name , ec_family.house_number , ec_family_member.first_name||' '||ec_family_member.last_name as family_member_names  FROM task  JOIN structure ON task.structure_id = structure._id   JOIN ec_family ON structure._id = ec_family.structure_id  COLLATE NOCASE  JOIN ec_family_member ON ec_family.base_entity_id = ec_family_member.relational_id  COLLATE NOCASE  LEFT JOIN sprayed_structures ON task.for = sprayed_structures.base_entity_id  WHERE task.group_id = ? AND task.plan_id = ? AND status NOT IN (?,?)  ) AS grouped_tasks GROUP BY structure_id ";
+        groupedTaskStatesQuery = "SELECT registered_structure_tasks.*, grouped_task_states.* FROM (" + groupedRegisteredStructureTasksSelectQuery + ") registered_structure_tasks " +
+                "LEFT JOIN (SELECT grouped_task_rows.structure_id AS grouped_structure_id, " + Utils.getGroupedStructureTaskAggregateColumns("grouped_task_rows") +
+                " FROM (SELECT task.structure_id, task.code, task.business_status FROM task JOIN structure ON task.structure_id = structure._id " +
+                "JOIN ec_family ON structure._id = ec_family.structure_id COLLATE NOCASE JOIN ec_family_member ON ec_family.base_entity_id = ec_family_member.relational_id COLLATE NOCASE " +
+                "WHERE task.group_id = ? AND task.plan_id = ? AND status NOT IN (?,?)) grouped_task_rows GROUP BY grouped_task_rows.structure_id) grouped_task_states " +
+                "ON grouped_task_states.grouped_structure_id = registered_structure_tasks.structure_id";
         bccSelectQuery = "SELECT * FROM task WHERE for = ? AND plan_id = ? AND code ='BCC' AND status NOT IN (?,?)";
         indexSelectQuery = "SELECT * FROM task WHERE group_id = ? AND plan_id = ? AND status NOT IN (?,?) AND code = ? ";
 
@@ -132,6 +151,38 @@ public class TaskRegisterFragmentInteractorTest extends BaseUnitTest {
         ReflectionHelpers.setField(TaskingLibrary.getInstance(), "taskingLibraryConfiguration", taskingLibraryConfiguration);
     }
 
+    @Test
+    public void testGroupedTaskStatesCountTheRowsOfTheGroupedQuery() {
+        android.database.sqlite.SQLiteDatabase sqliteDatabase = android.database.sqlite.SQLiteDatabase.create(null);
+        sqliteDatabase.execSQL("CREATE TABLE task (_id VARCHAR PRIMARY KEY, structure_id VARCHAR, for VARCHAR, plan_id VARCHAR, code VARCHAR, business_status VARCHAR)");
+        sqliteDatabase.execSQL("CREATE TABLE ec_family_member (base_entity_id VARCHAR PRIMARY KEY, structure_id VARCHAR)");
+        sqliteDatabase.execSQL("INSERT INTO ec_family_member VALUES ('person_1', 'structure_1')");
+        sqliteDatabase.execSQL("INSERT INTO task VALUES ('task_1', 'structure_1', 'person_1', 'plan_1', ?, ?)", new Object[]{Intervention.BLOOD_SCREENING, BusinessStatus.COMPLETE});
+        // a task of a client that is not a registered family member, left out by the grouped query but not by the task table
+        sqliteDatabase.execSQL("INSERT INTO task VALUES ('task_2', 'structure_1', 'person_2', 'plan_1', ?, ?)", new Object[]{Intervention.BLOOD_SCREENING, BusinessStatus.NOT_VISITED});
+        String mainCondition = "task.plan_id = ?";
+        String rowsSelect = "SELECT task.* FROM task JOIN ec_family_member ON ec_family_member.base_entity_id = task.for WHERE " + mainCondition;
+        doReturn("SELECT task._id AS _id, task.structure_id AS structure_id FROM task JOIN ec_family_member ON ec_family_member.base_entity_id = task.for WHERE "
+                + mainCondition + " GROUP BY task.structure_id").when(taskingLibraryConfiguration).groupedRegisteredStructureTasksSelect(mainCondition);
+        doReturn(rowsSelect).when(taskingLibraryConfiguration).groupedRegisteredStructureTaskRowsSelect(mainCondition);
+
+        android.database.Cursor cursor = sqliteDatabase.rawQuery(interactor.groupedRegisteredStructureTaskStatesSelect(mainCondition),
+                new String[]{"plan_1", "plan_1"});
+        assertTrue(cursor.moveToFirst());
+        int taskCount = cursor.getInt(cursor.getColumnIndex(Constants.DatabaseKeys.BLOOD_SCREENING_TASK_COUNT));
+        int completeCount = cursor.getInt(cursor.getColumnIndex(Constants.DatabaseKeys.BLOOD_SCREENING_COMPLETE_COUNT));
+        cursor.close();
+        android.database.Cursor allTasks = sqliteDatabase.rawQuery("SELECT COUNT(*) FROM task WHERE " + mainCondition, new String[]{"plan_1"});
+        allTasks.moveToFirst();
+        int taskTableCount = allTasks.getInt(0);
+        allTasks.close();
+        sqliteDatabase.close();
+
+        assertEquals(2, taskTableCount);
+        assertEquals(1, taskCount);
+        assertEquals(1, completeCount);
+    }
+
     @Test
     public void testFindTasksWithNullParams() {
         interactor.findTasks(null, null, null, "House");
@@ -270,6 +321,23 @@ public class TaskRegisterFragmentInteractorTest extends BaseUnitTest {
 
     }
 
+    @Test
+    public void testLoadTasksKeepsDistancesOfStoredSnapshot() {
+        Location userLocation = new Location("Test");
+        userLocation.setLatitude(-14.152197);
+        userLocation.setLongitude(32.643570);
+        TaskDetails task = TestingUtils.getTaskDetails();
+        task.setDistanceFromUser(250f);
+        TaskSnapshot snapshot = new TaskSnapshot.Builder(1).add(task).build();
+
+        interactor.loadTasks(snapshot, userLocation, null);
+
+        verify(presenter, timeout(ASYNC_TIMEOUT)).onTasksFound(taskListCaptor.capture(), structuresCaptor.capture());
+        assertNotEquals(250f, taskListCaptor.getValue().get(0).getDistanceFromUser(), 0);
+        assertEquals(250f, snapshot.getDistanceFromUser(0), 0);
+        assertEquals(250f, snapshot.get(0).getDistanceFromUser(), 0);
+    }
+
     @Test
     public void testFindTasksWithTaskGrouping() {
         PreferencesUtil.getInstance().setCurrentPlan("FI_2019_TV01_Focus");
@@ -281,7 +349,7 @@ public class TaskRegisterFragmentInteractorTest extends BaseUnitTest {
         String memberTask = UUID.randomUUID().toString();
         String bccTask = UUID.randomUUID().toString();
         String indexTask = UUID.randomUUID().toString();
-        when(database.rawQuery(groupedRegisteredStructureTasksSelectQuery, new String[]{groupId, planId, CANCELLED.name(), ARCHIVED.name()})).thenReturn(createCursor(memberTask, Intervention.BEDNET_DISTRIBUTION));
+        when(database.rawQuery(groupedTaskStatesQuery, new String[]{groupId, planId, CANCELLED.name(), ARCHIVED.name(), groupId, planId, CANCELLED.name(), ARCHIVED.name()})).thenReturn(createCursor(memberTask, Intervention.BEDNET_DISTRIBUTION));
         when(database.rawQuery(nonRegisteredStructureTasksQuery, new String[]{groupId, planId, CANCELLED.name(), ARCHIVED.name()})).thenReturn(createCursor(UUID.randomUUID().toString(), Intervention.LARVAL_DIPPING));
         when(database.rawQuery(bccSelectQuery, new String[]{groupId, planId, CANCELLED.name(), ARCHIVED.name()})).thenReturn(createCursor(bccTask, Intervention.BCC));
         when(database.rawQuery(indexSelectQuery, new String[]{groupId, planId, CANCELLED.name(), ARCHIVED.name(), Intervention.CASE_CONFIRMATION})).thenReturn(createCursor(indexTask, Intervention.CASE_CONFIRMATION));
@@ -295,7 +363,7 @@ public class TaskRegisterFragmentInteractorTest extends BaseUnitTest {
         interactor.findTasks(pair, userLocation, null, "House");
 
         // Perform the verifications and assertions
-        verify(database, timeout(ASYNC_TIMEOUT)).rawQuery(groupedRegisteredStructureTasksSelectQuery, new String[]{groupId, planId, CANCELLED.name(), ARCHIVED.name()});
+        verify(database, timeout(ASYNC_TIMEOUT)).rawQuery(groupedTaskStatesQuery, new String[]{groupId, planId, CANCELLED.name(), ARCHIVED.name(), groupId, planId, CANCELLED.name(), ARCHIVED.name()});
         verify(database, timeout(ASYNC_TIMEOUT)).rawQuery(nonRegisteredStructureTasksQuery, new String[]{groupId, planId, CANCELLED.name(), ARCHIVED.name()});
         verify(database, timeout(ASYNC_TIMEOUT)).rawQuery(bccSelectQuery, new String[]{groupId, planId, CANCELLED.name(), ARCHIVED.name()});
         verify(database, timeout(ASYNC_TIMEOUT)).rawQuery(indexSelectQuery, new String[]{groupId, planId, CANCELLED.name(), ARCHIVED.name(), Intervention.CASE_CONFIRMATION});
@@ -331,6 +399,213 @@ public class TaskRegisterFragmentInteractorTest extends BaseUnitTest {
         assertEquals(0, structuresCaptor.getValue().intValue());
     }
 
+    @Test
+    public void testFindTasksWithParallelQueries() {
+        PreferencesUtil.getInstance().setCurrentPlan("FI_2019_TV01_Focus");
+        PreferencesUtil.getInstance().setInterventionTypeForPlan("FI_2019_TV01_Focus", FI);
+        Pair<String, String[]> pair = new Pair<>("task.group_id = ? AND task.plan_id = ? AND status NOT IN (?,?)", new String[]{groupId, planId, CANCELLED.name(), ARCHIVED.name()});
+        Location userLocation = new Location("Test");
+        userLocation.setLatitude(-14.987197);
+        userLocation.setLongitude(32.076570);
+        String memberTask = UUID.randomUUID().toString();
+        String bccTask = UUID.randomUUID().toString();
+        String indexTask = UUID.randomUUID().toString();
+        when(database.rawQuery(groupedTaskStatesQuery, new String[]{groupId, planId, CANCELLED.name(), ARCHIVED.name(), groupId, planId, CANCELLED.name(), ARCHIVED.name()})).thenReturn(createCursor(memberTask, Intervention.BEDNET_DISTRIBUTION));
+        when(database.rawQuery(nonRegisteredStructureTasksQuery, new String[]{groupId, planId, CANCELLED.name(), ARCHIVED.name()})).thenReturn(createCursor(UUID.randomUUID().toString(), Intervention.LARVAL_DIPPING));
+        when(database.rawQuery(bccSelectQuery, new String[]{groupId, planId, CANCELLED.name(), ARCHIVED.name()})).thenReturn(createCursor(bccTask, Intervention.BCC));
+        when(database.rawQuery(indexSelectQuery, new String[]{groupId, planId, CANCELLED.name(), ARCHIVED.name(), Intervention.CASE_CONFIRMATION})).thenReturn(createCursor(indexTask, Intervention.CASE_CONFIRMATION));
+        doReturn(groupedRegisteredStructureTasksSelectQuery).when(taskingLibraryConfiguration).groupedRegisteredStructureTasksSelect(pair.first);
+        doReturn(nonRegisteredStructureTasksQuery).when(taskingLibraryConfiguration).nonRegisteredStructureTasksSelect(pair.first);
+        doReturn(true).when(taskingLibraryConfiguration).isFocusInvestigation();
+        doReturn(true).when(taskingLibraryConfiguration).isParallelTaskRegisterQueriesEnabled();
+
+        interactor.findTasks(pair, userLocation, null, "House");
+
+        verify(presenter, timeout(ASYNC_TIMEOUT)).onTasksFound(taskListCaptor.capture(), structuresCaptor.capture());
+        verifyNoMoreInteractions(presenter);
+        List<TaskDetails> tasks = taskListCaptor.getValue();
+        assertEquals(4, tasks.size());
+        assertEquals(bccTask, tasks.get(0).getTaskId());
+        assertEquals(indexTask, tasks.get(1).getTaskId());
+        assertEquals(memberTask, tasks.get(2).getTaskId());
+        assertEquals(0, structuresCaptor.getValue().intValue());
+    }
+
+    @Test
+    public void testFindTasksWithParallelQueriesFailsWholeLoadWhenAQueryFails() {
+        PreferencesUtil.getInstance().setCurrentPlan("FI_2019_TV01_Focus");
+        PreferencesUtil.getInstance().setInterventionTypeForPlan("FI_2019_TV01_Focus", FI);
+        Pair<String, String[]> pair = new Pair<>("task.group_id = ? AND task.plan_id = ? AND status NOT IN (?,?)", new String[]{groupId, planId, CANCELLED.name(), ARCHIVED.name()});
+        when(database.rawQuery(groupedTaskStatesQuery, new String[]{groupId, planId, CANCELLED.name(), ARCHIVED.name(), groupId, planId, CANCELLED.name(), ARCHIVED.name()})).thenReturn(createCursor(UUID.randomUUID().toString(), Intervention.BEDNET_DISTRIBUTION));
+        when(database.rawQuery(nonRegisteredStructureTasksQuery, new String[]{groupId, planId, CANCELLED.name(), ARCHIVED.name()})).thenReturn(createCursor(UUID.randomUUID().toString(), Intervention.LARVAL_DIPPING));
+        when(database.rawQuery(bccSelectQuery, new String[]{groupId, planId, CANCELLED.name(), ARCHIVED.name()})).thenThrow(new IllegalStateException("database is locked"));
+        when(database.rawQuery(indexSelectQuery, new String[]{groupId, planId, CANCELLED.name(), ARCHIVED.name(), Intervention.CASE_CONFIRMATION})).thenReturn(createCursor(UUID.randomUUID().toString(), Intervention.CASE_CONFIRMATION));
+        doReturn(groupedRegisteredStructureTasksSelectQuery).when(taskingLibraryConfiguration).groupedRegisteredStructureTasksSelect(pair.first);
+        doReturn(nonRegisteredStructureTasksQuery).when(taskingLibraryConfiguration).nonRegisteredStructureTasksSelect(pair.first);
+        doReturn(true).when(taskingLibraryConfiguration).isFocusInvestigation();
+        doReturn(true).when(taskingLibraryConfiguration).isParallelTaskRegisterQueriesEnabled();
+
+        Location userLocation = new Location("Test");
+        userLocation.setLatitude(-14.987197);
+        userLocation.setLongitude(32.076570);
+
+        interactor.findTasks(pair, userLocation, null, "House");
+
+        verify(presenter, timeout(ASYNC_TIMEOUT)).onTasksFound(null, 0);
+        verifyNoMoreInteractions(presenter);
+    }
+
+    @Test
+    public void testFindTasksWithParallelQueriesFallsBackToSequentialWhenThePoolRejectsQueries() {
+        ExecutorService queryExecutor = ReflectionHelpers.getStaticField(TaskRegisterFragmentInteractor.class, "queryExecutor");
+        ExecutorService shutdownExecutor = Executors.newSingleThreadExecutor();
+        shutdownExecutor.shutdown();
+        ReflectionHelpers.setStaticField(TaskRegisterFragmentInteractor.class, "queryExecutor", shutdownExecutor);
+        Pair<String, String[]> pair = new Pair<>("task.group_id = ? AND task.plan_id = ? AND status NOT IN (?,?)", new String[]{groupId, planId, CANCELLED.name(), ARCHIVED.name()});
+        String bccTask = UUID.randomUUID().toString();
+        when(database.rawQuery(anyString(), any())).thenAnswer(invocation -> createEmptyCursor());
+        when(database.rawQuery(bccSelectQuery, new String[]{groupId, planId, CANCELLED.name(), ARCHIVED.name()})).thenReturn(createCursor(bccTask, Intervention.BCC));
+        doReturn(mainSelectQuery).when(taskingLibraryConfiguration).mainSelect(pair.first);
+        doReturn(true).when(taskingLibraryConfiguration).isParallelTaskRegisterQueriesEnabled();
+
+        try {
+            interactor.findTasks(pair, null, null, "House");
+
+            verify(presenter, timeout(ASYNC_TIMEOUT)).onTasksFound(taskListCaptor.capture(), structuresCaptor.capture());
+            assertEquals(1, taskListCaptor.getValue().size());
+            assertEquals(bccTask, taskListCaptor.getValue().get(0).getTaskId());
+        } finally {
+            ReflectionHelpers.setStaticField(TaskRegisterFragmentInteractor.class, "queryExecutor", queryExecutor);
+        }
+    }
+
+    /**
+     * Times the register load with sequential and with parallel queries on a generated operational area.
+     * The database is mocked so the timings cover mapping the rows and calculating their distances
+     */
+    @Test
+    public void testFindTasksSequentialAndParallelQueryTimings() {
+        PreferencesUtil.getInstance().setCurrentPlan("FI_2019_TV01_Focus");
+        PreferencesUtil.getInstance().setInterventionTypeForPlan("FI_2019_TV01_Focus", FI);
+        Pair<String, String[]> pair = new Pair<>("task.group_id = ? AND task.plan_id = ? AND status NOT IN (?,?)", new String[]{groupId, planId, CANCELLED.name(), ARCHIVED.name()});
+        int structureTasks = 5000;
+        when(database.rawQuery(anyString(), any())).thenAnswer(invocation -> createEmptyCursor());
+        when(database.rawQuery(groupedTaskStatesQuery, new String[]{groupId, planId, CANCELLED.name(), ARCHIVED.name(), groupId, planId, CANCELLED.name(), ARCHIVED.name()}))
+                .thenAnswer(invocation -> createGeneratedCursor(structureTasks, Intervention.BEDNET_DISTRIBUTION));
+        when(database.rawQuery(nonRegisteredStructureTasksQuery, new String[]{groupId, planId, CANCELLED.name(), ARCHIVED.name()}))
+                .thenAnswer(invocation -> createGeneratedCursor(structureTasks, Intervention.LARVAL_DIPPING));
+        doReturn(groupedRegisteredStructureTasksSelectQuery).when(taskingLibraryConfiguration).groupedRegisteredStructureTasksSelect(pair.first);
+        doReturn(nonRegisteredStructureTasksQuery).when(taskingLibraryConfiguration).nonRegisteredStructureTasksSelect(pair.first);
+        doReturn(true).when(taskingLibraryConfiguration).isFocusInvestigation();
+        Location userLocation = new Location("Test");
+        userLocation.setLatitude(-14.987197);
+        userLocation.setLongitude(32.076570);
+
+        long[] timings = new long[2];
+        for (int mode = 0; mode < timings.length; mode++) {
+            Mockito.reset(presenter);
+            doReturn(mode == 1).when(taskingLibraryConfiguration).isParallelTaskRegisterQueriesEnabled();
+            long start = System.nanoTime();
+            interactor.findTasks(pair, userLocation, null, "House");
+            verify(presenter, timeout(ASYNC_TIMEOUT * 10)).onTasksFound(taskListCaptor.capture(), structuresCaptor.capture());
+            timings[mode] = (System.nanoTime() - start) / 1000000;
+            assertEquals(2 * structureTasks, taskListCaptor.getValue().size());
+        }
+        System.out.println(String.format(Locale.ENGLISH, "register load of %d tasks, sequential: %d ms, parallel: %d ms",
+                2 * structureTasks, timings[0], timings[1]));
+    }
+
+    @Test
+    public void testFindTasksPageReportsNextPageThatCouldNotBeRead() {
+        Pair<String, String[]> pair = new Pair<>("task.group_id = ? AND task.plan_id = ? AND status NOT IN (?,?)", new String[]{groupId, planId, CANCELLED.name(), ARCHIVED.name()});
+        TaskRegisterPage previousPage = new TaskRegisterPage();
+        previousPage.setReferenceLocation(new Location("Test"));
+        previousPage.setHasMore(true);
+        previousPage.setLastTaskId("task_1");
+        when(database.rawQuery(anyString(), any())).thenThrow(new SQLException("database is locked"));
+        doReturn(mainSelectQuery).when(taskingLibraryConfiguration).mainSelect(pair.first);
+        doReturn(new String[]{"task._id as _id", "task._id", "task.code", "structure.latitude", "structure._id AS structure_id"})
+                .when(taskingLibraryConfiguration).taskRegisterMainColumns("task");
+
+        interactor.findTasksPage(pair, null, null, "House", previousPage, 20);
+
+        verify(presenter, timeout(ASYNC_TIMEOUT)).onTasksPageNotFound(previousPage);
+        verify(presenter, never()).onTasksPageFound(any(), anyInt());
+    }
+
+    @Test
+    public void testFindTasksPageReadsFirstPageThroughStoredSortKeys() {
+        Pair<String, String[]> pair = new Pair<>("task.group_id = ? AND task.plan_id = ? AND status NOT IN (?,?)", new String[]{groupId, planId, CANCELLED.name(), ARCHIVED.name()});
+        Location center = new Location("Test");
+        center.setLatitude(-14.152197);
+        center.setLongitude(32.643570);
+        when(database.rawQuery(anyString(), any())).thenAnswer(invocation -> createEmptyCursor());
+        doReturn(mainSelectQuery).when(taskingLibraryConfiguration).mainSelect(pair.first);
+        doReturn(new String[]{"task._id as _id", "task._id", "task.code", "structure.latitude", "structure._id AS structure_id"})
+                .when(taskingLibraryConfiguration).taskRegisterMainColumns("task");
+
+        interactor.findTasksPage(pair, null, center, "House", null, 20);
+
+        verify(presenter, timeout(ASYNC_TIMEOUT)).onTasksPageFound(any(), eq(0));
+        ArgumentCaptor<String> statementCaptor = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Object[]> argsCaptor = ArgumentCaptor.forClass(Object[].class);
+        verify(database).execSQL(statementCaptor.capture(), argsCaptor.capture());
+        assertEquals("INSERT OR REPLACE INTO task_register_sort_key SELECT _id, CASE WHEN latitude IS NULL OR longitude IS NULL THEN 1.0e9 " +
+                "ELSE (latitude - ?) * (latitude - ?) + (longitude - ?) * (longitude - ?) * ? END FROM (" + mainSelectQuery + ")", statementCaptor.getValue());
+        assertEquals(9, argsCaptor.getValue().length);
+        assertEquals(groupId, argsCaptor.getValue()[5]);
+        verify(database).rawQuery("SELECT m._id, m.code, m.latitude, m.structure_id, k.register_sort_key FROM task_register_sort_key k " +
+                        "JOIN (" + mainSelectQuery + ") m ON m._id = k.task_id ORDER BY k.register_sort_key, k.task_id LIMIT 20",
+                new String[]{groupId, planId, CANCELLED.name(), ARCHIVED.name()});
+    }
+
+    @Test
+    public void testRefreshTasksReplacesOnlyChangedStructureTasks() {
+        PreferencesUtil.getInstance().setCurrentPlan("FI_2019_TV01_IRS");
+        Pair<String, String[]> pair = new Pair<>("task.group_id = ? AND task.plan_id = ? AND status NOT IN (?,?)", new String[]{groupId, planId, CANCELLED.name(), ARCHIVED.name()});
+        Location center = new Location("Test");
+        center.setLatitude(-14.152197);
+        center.setLongitude(32.643570);
+        TaskDetails unchangedTask = TestingUtils.getTaskDetails();
+        unchangedTask.setStructureId("structure_1");
+        TaskDetails changedTask = TestingUtils.getTaskDetails();
+        changedTask.setTaskId("task_id_2");
+        changedTask.setStructureId("structure_2");
+        List<TaskDetails> currentTasks = new ArrayList<>();
+        currentTasks.add(unchangedTask);
+        currentTasks.add(changedTask);
+        String updatedTaskId = UUID.randomUUID().toString();
+        String changedCondition = pair.first + " AND (task.structure_id IN (?) OR task.for IN (?))";
+        String[] changedParams = new String[]{groupId, planId, CANCELLED.name(), ARCHIVED.name(), "structure_2", "structure_2"};
+        when(database.rawQuery(mainSelectQuery, changedParams)).thenReturn(createCursor(updatedTaskId, Intervention.IRS));
+        doReturn(mainSelectQuery).when(taskingLibraryConfiguration).mainSelect(changedCondition);
+
+        interactor.refreshTasks(currentTasks, Collections.singleton("structure_2"), pair, null, center, "House");
+
+        verify(database, timeout(ASYNC_TIMEOUT)).rawQuery("SELECT DISTINCT structure_id FROM task WHERE _id IN (?) OR for IN (?)", new String[]{"structure_2", "structure_2"});
+        verify(database, timeout(ASYNC_TIMEOUT)).rawQuery(mainSelectQuery, changedParams);
+        verify(presenter, timeout(ASYNC_TIMEOUT)).onTasksFound(taskListCaptor.capture(), structuresCaptor.capture());
+        verify(taskingLibraryConfiguration, never()).mainSelect(pair.first);
+        List<TaskDetails> tasks = taskListCaptor.getValue();
+        assertEquals(2, tasks.size());
+        assertEquals(unchangedTask, tasks.get(0));
+        assertEquals(updatedTaskId, tasks.get(1).getTaskId());
+        assertEquals(2, structuresCaptor.getValue().intValue());
+    }
+
+    @Test
+    public void testRefreshTasksWithoutCurrentTasksFindsAllTasks() {
+        PreferencesUtil.getInstance().setCurrentPlan("FI_2019_TV01_IRS");
+        Pair<String, String[]> pair = new Pair<>("task.group_id = ? AND task.plan_id = ? AND status NOT IN (?,?)", new String[]{groupId, planId, CANCELLED.name(), ARCHIVED.name()});
+        doReturn(mainSelectQuery).when(taskingLibraryConfiguration).mainSelect(pair.first);
+
+        interactor.refreshTasks(null, Collections.singleton("structure_2"), pair, null, new Location("Test"), "House");
+
+        verify(database, timeout(ASYNC_TIMEOUT)).rawQuery(mainSelectQuery, new String[]{groupId, planId, CANCELLED.name(), ARCHIVED.name()});
+        verify(presenter, timeout(ASYNC_TIMEOUT)).onTasksFound(taskListCaptor.capture(), structuresCaptor.capture());
+        assertEquals(0, taskListCaptor.getValue().size());
+    }
+
     @Test
     public void testGetStructure() {
         TaskDetails taskDetails = TestingUtils.getTaskDetails();
@@ -423,6 +698,19 @@ public class TaskRegisterFragmentInteractorTest extends BaseUnitTest {
         return cursor;
     }
 
+    private MatrixCursor createGeneratedCursor(int rows, String intervention) {
+        MatrixCursor cursor = createEmptyCursor();
+        Random random = new Random(rows);
+        for (int i = 0; i < rows; i++) {
+            String structureId = intervention + "_structure_" + i;
+            cursor.addRow(new Object[]{intervention + "_task_" + i, intervention, structureId, BusinessStatus.NOT_VISITED,
+                    Task.TaskStatus.READY, -14.98 + random.nextDouble() * 0.05, 32.07 + random.nextDouble() * 0.05,
+                    "Structure " + i, "Family " + i, null, null, null, structureId, null, 1, 0,
+                    intervention + "-" + BusinessStatus.NOT_VISITED, null, i, null});
+        }
+        return cursor;
+    }
+
     private MatrixCursor createEmptyCursor() {
         return new MatrixCursor(new String[]{
                 ID,
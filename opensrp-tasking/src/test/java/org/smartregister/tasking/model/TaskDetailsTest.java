@@ -2,7 +2,11 @@ package org.smartregister.tasking.model;
 
 import org.junit.Test;
 import org.smartregister.tasking.BaseUnitTest;
+import org.smartregister.tasking.util.Constants.Intervention;
+import org.smartregister.tasking.util.TaskOrdinals;
+import org.smartregister.tasking.util.TaskOrdinals.TaskCode;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -24,6 +28,16 @@ public class TaskDetailsTest extends BaseUnitTest {
         assertTrue(taskDetails.isBloodScreeningDone());
     }
 
+    @Test
+    public void testSetGroupedTaskCodeStatusIsCompleteIfAnyTaskOfTheCodeIsComplete() {
+        TaskDetails taskDetails = new TaskDetails("task1");
+
+        taskDetails.setGroupedTaskCodeStatus("RACD Register Family-Complete,RACD Register Family-In Progress,Bednet Distribution-In Progress");
+
+        assertTrue(taskDetails.isFamilyRegistered());
+        assertFalse(taskDetails.isBednetDistributed());
+    }
+
     @Test
     public void testSetGroupedTaskCodeStatusForFamilyRegistration() {
 
@@ -140,4 +154,16 @@ public class TaskDetailsTest extends BaseUnitTest {
 
     }
 
+
+    @Test
+    public void testSetTaskCodeResolvesTheTaskCodeOrdinal() {
+        TaskDetails taskDetails = new TaskDetails("task1");
+        assertEquals(TaskOrdinals.UNKNOWN, taskDetails.getTaskCodeOrdinal());
+
+        taskDetails.setTaskCode(Intervention.BCC);
+        assertEquals(TaskCode.BCC, taskDetails.getTaskCodeOrdinal());
+
+        taskDetails.setTaskCode("Unregistered Code");
+        assertEquals(TaskOrdinals.UNKNOWN, taskDetails.getTaskCodeOrdinal());
+    }
 }
@@ -0,0 +1,159 @@
+package org.smartregister.tasking.model;
+
+import android.location.Location;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.smartregister.tasking.BaseUnitTest;
+import org.smartregister.tasking.util.Constants.BusinessStatus;
+import org.smartregister.tasking.util.Constants.Intervention;
+import org.smartregister.tasking.util.TaskOrdinals;
+import org.smartregister.tasking.util.TestingUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TaskSnapshotTest extends BaseUnitTest {
+
+    private List<TaskDetails> tasks;
+
+    @Before
+    public void setUp() {
+        tasks = new ArrayList<>();
+        tasks.add(createTask("task_1", Intervention.IRS, BusinessStatus.SPRAYED, 30f));
+        tasks.add(createTask("task_2", Intervention.BCC, BusinessStatus.NOT_VISITED, -2f));
+        tasks.add(createTask("task_3", Intervention.MOSQUITO_COLLECTION, BusinessStatus.COMPLETE, 12.5f));
+    }
+
+    @Test
+    public void testBuilderCreatesTasksWhenRead() {
+        TaskDetails task = tasks.get(0);
+        task.setTaskCount(3);
+        task.setFamilyRegistered(true);
+        TaskSnapshot snapshot = new TaskSnapshot.Builder(1).add(task).build();
+
+        TaskDetails readTask = snapshot.get(0);
+
+        assertEquals("task_1", readTask.getTaskId());
+        assertEquals(Intervention.IRS, readTask.getTaskCode());
+        assertEquals(BusinessStatus.SPRAYED, readTask.getBusinessStatus());
+        assertEquals("Kenny House", readTask.getStructureName());
+        assertEquals(-14.15, readTask.getLocation().getLatitude(), 0);
+        assertEquals(32.64, readTask.getLocation().getLongitude(), 0);
+        assertEquals(3, readTask.getTaskCount().intValue());
+        assertNull(readTask.getCompleteTaskCount());
+        assertTrue(readTask.isFamilyRegistered());
+        assertSame(readTask, snapshot.get(0));
+    }
+
+    @Test
+    public void testBuilderKeepsOnlyRecentlyReadTasks() {
+        TaskSnapshot.Builder builder = new TaskSnapshot.Builder(TaskSnapshot.MATERIALIZED_TASKS_CACHE_SIZE + 1);
+        for (int i = 0; i <= TaskSnapshot.MATERIALIZED_TASKS_CACHE_SIZE; i++) {
+            builder.add(createTask("task_" + i, Intervention.IRS, BusinessStatus.SPRAYED, i));
+        }
+        TaskSnapshot snapshot = builder.build();
+
+        TaskDetails firstTask = snapshot.get(0);
+        for (int i = 1; i < snapshot.size(); i++) {
+            snapshot.get(i);
+        }
+
+        assertNotSame(firstTask, snapshot.get(0));
+        assertEquals("task_0", snapshot.get(0).getTaskId());
+        assertSame(snapshot.get(snapshot.size() - 1), snapshot.get(snapshot.size() - 1));
+    }
+
+    @Test
+    public void testTaskNoLongerKeptReadsTheLatestDistance() {
+        TaskSnapshot.Builder builder = new TaskSnapshot.Builder(TaskSnapshot.MATERIALIZED_TASKS_CACHE_SIZE + 1);
+        for (int i = 0; i <= TaskSnapshot.MATERIALIZED_TASKS_CACHE_SIZE; i++) {
+            builder.add(createTask("task_" + i, Intervention.IRS, BusinessStatus.SPRAYED, i));
+        }
+        TaskSnapshot snapshot = builder.build();
+        TaskDetails firstTask = snapshot.get(0);
+        for (int i = 1; i < snapshot.size(); i++) {
+            snapshot.get(i);
+        }
+
+        snapshot.setDistanceFromUser(0, 42, true);
+        assertEquals(42, firstTask.getDistanceFromUser(), 0);
+        assertTrue(firstTask.isDistanceFromCenter());
+
+        firstTask.setDistanceFromUser(7);
+        assertEquals(7, snapshot.getDistanceFromUser(0), 0);
+        assertEquals(7, snapshot.get(0).getDistanceFromUser(), 0);
+    }
+
+    @Test
+    public void testOfReusesTaskObjects() {
+        TaskSnapshot snapshot = TaskSnapshot.of(tasks);
+
+        assertSame(snapshot, TaskSnapshot.of(snapshot));
+        assertSame(tasks.get(2), snapshot.get(2));
+        assertEquals(tasks, snapshot);
+    }
+
+    @Test
+    public void testSortByDistance() {
+        TaskSnapshot sortedTasks = TaskSnapshot.of(tasks).sortByDistance();
+
+        assertEquals(Arrays.asList(tasks.get(1), tasks.get(2), tasks.get(0)), sortedTasks);
+    }
+
+    @Test
+    public void testSortByStatusAndTaskCode() {
+        TaskSnapshot snapshot = TaskSnapshot.of(tasks);
+
+        assertEquals(Arrays.asList(tasks.get(2), tasks.get(1), tasks.get(0)), snapshot.sortByStatus());
+        assertEquals(Arrays.asList(tasks.get(1), tasks.get(0), tasks.get(2)), snapshot.sortByTaskCode());
+    }
+
+    @Test
+    public void testSortByStatusDoesNotRegisterPlanSpecificStatuses() {
+        tasks.get(0).setBusinessStatus("Awaiting Larvicide");
+        TaskSnapshot snapshot = new TaskSnapshot.Builder(3).add(tasks.get(0)).add(tasks.get(1)).add(tasks.get(2)).build();
+
+        TaskSnapshot sortedTasks = snapshot.sortByStatus();
+
+        assertEquals("task_1", sortedTasks.getTaskId(0));
+        assertEquals("task_3", sortedTasks.getTaskId(1));
+        assertEquals("task_2", sortedTasks.getTaskId(2));
+        assertEquals(TaskOrdinals.UNKNOWN, TaskOrdinals.getBusinessStatusOrdinal("Awaiting Larvicide"));
+        assertEquals(TaskOrdinals.UNKNOWN, snapshot.getStatusOrdinal(0));
+        assertEquals(TaskOrdinals.TaskCode.IRS, snapshot.getTaskCodeOrdinal(0));
+    }
+
+    @Test
+    public void testSelectSharesColumnsWithSnapshot() {
+        TaskSnapshot snapshot = new TaskSnapshot.Builder(3).add(tasks.get(0)).add(tasks.get(1)).add(tasks.get(2)).build();
+        TaskSnapshot view = snapshot.select(new int[]{2, 0});
+
+        view.setDistanceFromUser(1, 5f, true);
+
+        assertEquals("task_3", view.getTaskId(0));
+        assertEquals(5f, snapshot.getDistanceFromUser(0), 0);
+        assertTrue(snapshot.get(0).isDistanceFromCenter());
+        assertSame(snapshot.get(0), view.get(1));
+    }
+
+    private TaskDetails createTask(String taskId, String code, String businessStatus, float distance) {
+        TaskDetails task = TestingUtils.getTaskDetails();
+        task.setTaskId(taskId);
+        task.setTaskCode(code);
+        task.setBusinessStatus(businessStatus);
+        task.setDistanceFromUser(distance);
+        Location location = new Location("Test");
+        location.setLatitude(-14.15);
+        location.setLongitude(32.64);
+        task.setLocation(location);
+        return task;
+    }
+}
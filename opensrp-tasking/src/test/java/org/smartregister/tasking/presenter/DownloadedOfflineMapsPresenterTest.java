@@ -78,4 +78,20 @@ public class DownloadedOfflineMapsPresenterTest extends BaseUnitTest {
 
     }
 
+    @Test
+    public void testOnMapDeleted() {
+
+        presenter.onMapDeleted("test");
+        verify(interactor).fetchStorageUsage();
+
+    }
+
+    @Test
+    public void testOnStorageUsageFetched() {
+
+        presenter.onStorageUsageFetched(1024, 2048);
+        verify(view).setStorageUsage(1024, 2048);
+
+    }
+
 }
@@ -31,6 +31,7 @@ import org.smartregister.tasking.interactor.BaseFormFragmentInteractor;
 import org.smartregister.tasking.interactor.TaskRegisterFragmentInteractor;
 import org.smartregister.tasking.model.TaskDetails;
 import org.smartregister.tasking.model.TaskFilterParams;
+import org.smartregister.tasking.model.TaskRegisterPage;
 import org.smartregister.tasking.util.Constants;
 import org.smartregister.tasking.util.Constants.BusinessStatus;
 import org.smartregister.tasking.util.Constants.Filter;
@@ -38,11 +39,13 @@ import org.smartregister.tasking.util.Constants.Intervention;
 import org.smartregister.tasking.util.Constants.InterventionType;
 import org.smartregister.tasking.util.Constants.TaskRegister;
 import org.smartregister.tasking.util.LocationUtils;
+import org.smartregister.tasking.util.OfflineMapDownloadScheduler;
 import org.smartregister.tasking.util.PreferencesUtil;
 import org.smartregister.tasking.util.RevealJsonFormUtils;
 import org.smartregister.tasking.util.TaskingLibraryConfiguration;
 import org.smartregister.tasking.util.TestingUtils;
 import org.smartregister.tasking.util.Utils;
+import org.smartregister.util.AppExecutors;
 import org.smartregister.util.Cache;
 
 import java.util.ArrayList;
@@ -53,6 +56,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -187,7 +191,7 @@ public class TaskRegisterFragmentPresenterTest extends BaseUnitTest {
         presenter.initializeQueries(mainCondition);
         verify(view).initializeAdapter(eq(visibleColumns));
         verify(view).showProgressView();
-        verify(interactor).findTasks(mainConditionCaptor.capture(), myLocationCaptor.capture(), operationalAreaCenterCaptor.capture(), labelCaptor.capture());
+        verify(interactor, timeout(ASYNC_TIMEOUT)).findTasks(mainConditionCaptor.capture(), myLocationCaptor.capture(), operationalAreaCenterCaptor.capture(), labelCaptor.capture());
         assertEquals(mainCondition, mainConditionCaptor.getValue().first);
         assertEquals(operationalArea.getId(), mainConditionCaptor.getValue().second[0]);
         assertEquals(campaignId, mainConditionCaptor.getValue().second[1]);
@@ -278,7 +282,7 @@ public class TaskRegisterFragmentPresenterTest extends BaseUnitTest {
     public void testOnLocationChangedSubsequentTimeShouldCalculateDistance() throws Exception {
         presenter.onLocationChanged(location);
         when(preferencesUtil.getCurrentOperationalArea()).thenReturn("MTI_84");
-        Location updateLocation = Whitebox.invokeMethod(presenter, "getOperationalAreaCenter");
+        Location updateLocation = TaskingLibrary.getInstance().getGeometryMetadataRepository().getGeometryMetadata(operationalArea).getCenter();
         presenter.onLocationChanged(updateLocation);
         assertEquals(updateLocation, Whitebox.getInternalState(presenter, "lastLocation"));
         verify(interactor).calculateDistanceFromUser(null, updateLocation);
@@ -290,6 +294,20 @@ public class TaskRegisterFragmentPresenterTest extends BaseUnitTest {
         verify(locationUtils).stopLocationClient();
     }
 
+    @Test
+    public void testOnDrawerClosedPrioritizesTheMapOfTheOperationalArea() {
+        OfflineMapDownloadScheduler scheduler = mock(OfflineMapDownloadScheduler.class);
+        ReflectionHelpers.setField(TaskingLibrary.getInstance(), "offlineMapDownloadScheduler", scheduler);
+        when(preferencesUtil.getCurrentOperationalArea()).thenReturn("MTI_84");
+        try {
+            presenter.onDrawerClosed();
+
+            verify(scheduler).setPriorityMapName(operationalArea.getId());
+        } finally {
+            ReflectionHelpers.setField(TaskingLibrary.getInstance(), "offlineMapDownloadScheduler", null);
+        }
+    }
+
     @Test
     public void testOnDrawerClosed() {
         String campaignId = "IRS_2019_season1";
@@ -299,7 +317,7 @@ public class TaskRegisterFragmentPresenterTest extends BaseUnitTest {
         presenter.onLocationChanged(location);
         presenter.onDrawerClosed();
         verify(view).showProgressDialog(R.string.fetching_structures_title, R.string.fetching_structures_message);
-        verify(interactor).findTasks(mainConditionCaptor.capture(), myLocationCaptor.capture(), operationalAreaCenterCaptor.capture(), labelCaptor.capture());
+        verify(interactor, timeout(ASYNC_TIMEOUT)).findTasks(mainConditionCaptor.capture(), myLocationCaptor.capture(), operationalAreaCenterCaptor.capture(), labelCaptor.capture());
         assertEquals("task.group_id = ? AND task.plan_id = ? AND task.status NOT IN (?,?)", mainConditionCaptor.getValue().first);
         assertEquals(operationalArea.getId(), mainConditionCaptor.getValue().second[0]);
         assertEquals(campaignId, mainConditionCaptor.getValue().second[1]);
@@ -384,11 +402,13 @@ public class TaskRegisterFragmentPresenterTest extends BaseUnitTest {
 
     @Test
     public void testOnFormSaved() {
+        int snapshotVersion = TaskingLibrary.getInstance().getTaskSnapshotStore().getVersion();
         presenter.onFormSaved(null, null, null, null, null);
         verify(view).getContext();
         verify(view).hideProgressDialog();
         verifyNoMoreInteractions(view);
         verifyNoMoreInteractions(interactor);
+        assertEquals(snapshotVersion + 1, TaskingLibrary.getInstance().getTaskSnapshotStore().getVersion());
 
     }
 
@@ -531,8 +551,8 @@ public class TaskRegisterFragmentPresenterTest extends BaseUnitTest {
     public void testSearchTasks() {
         initFilterSearchTasks();
         presenter.searchTasks("Kenny");
-        verify(view).setTaskDetails(taskList);
-        verify(view).setTotalTasks(1);
+        verify(view, timeout(ASYNC_TIMEOUT)).setTaskDetails(taskList);
+        verify(view, timeout(ASYNC_TIMEOUT)).setTotalTasks(1);
     }
 
 
@@ -540,8 +560,8 @@ public class TaskRegisterFragmentPresenterTest extends BaseUnitTest {
     public void testSearchTaskFamilyMembers() {
         initFilterSearchTasks();
         presenter.searchTasks("Jane Doe");
-        verify(view).setTaskDetails(taskDetailsArgumentCaptor.capture());
-        verify(view).setTotalTasks(1);
+        verify(view, timeout(ASYNC_TIMEOUT)).setTaskDetails(taskDetailsArgumentCaptor.capture());
+        verify(view, timeout(ASYNC_TIMEOUT)).setTotalTasks(1);
         assertEquals(1, taskDetailsArgumentCaptor.getValue().size());
         assertEquals(task2.getTaskId(), taskDetailsArgumentCaptor.getValue().get(0).getTaskId());
 
@@ -552,8 +572,8 @@ public class TaskRegisterFragmentPresenterTest extends BaseUnitTest {
     public void testSearchTasksByStructure() {
         initFilterSearchTasks();
         presenter.searchTasks("Kenny House");
-        verify(view).setTaskDetails(taskDetailsArgumentCaptor.capture());
-        verify(view).setTotalTasks(0);
+        verify(view, timeout(ASYNC_TIMEOUT)).setTaskDetails(taskDetailsArgumentCaptor.capture());
+        verify(view, timeout(ASYNC_TIMEOUT)).setTotalTasks(0);
         assertEquals(1, taskDetailsArgumentCaptor.getValue().size());
         assertEquals(task1.getTaskId(), taskDetailsArgumentCaptor.getValue().get(0).getTaskId());
 
@@ -563,8 +583,8 @@ public class TaskRegisterFragmentPresenterTest extends BaseUnitTest {
     public void testSearchTasksByNonExistentPhrase() {
         initFilterSearchTasks();
         presenter.searchTasks("Pluto");
-        verify(view).setTaskDetails(taskDetailsArgumentCaptor.capture());
-        verify(view).setTotalTasks(0);
+        verify(view, timeout(ASYNC_TIMEOUT)).setTaskDetails(taskDetailsArgumentCaptor.capture());
+        verify(view, timeout(ASYNC_TIMEOUT)).setTotalTasks(0);
         assertEquals(0, taskDetailsArgumentCaptor.getValue().size());
     }
 
@@ -572,7 +592,7 @@ public class TaskRegisterFragmentPresenterTest extends BaseUnitTest {
     public void testSearchTasksByEmptyPhraseResetsPreviousTasks() {
         initFilterSearchTasks();
         presenter.searchTasks("");
-        verify(view).setTaskDetails(taskList);
+        verify(view, timeout(ASYNC_TIMEOUT)).setTaskDetails(taskList);
     }
 
     @Test
@@ -581,7 +601,7 @@ public class TaskRegisterFragmentPresenterTest extends BaseUnitTest {
         TaskFilterParams params = TestingUtils.getFilterParams();
         params.getCheckedFilters().clear();
         presenter.filterTasks(params);
-        verify(view).setTaskDetails(taskDetailsArgumentCaptor.capture());
+        verify(view, timeout(ASYNC_TIMEOUT)).setTaskDetails(taskDetailsArgumentCaptor.capture());
         assertEquals(task1, taskDetailsArgumentCaptor.getValue().get(1));
         assertEquals(task2, taskDetailsArgumentCaptor.getValue().get(0));
     }
@@ -593,7 +613,7 @@ public class TaskRegisterFragmentPresenterTest extends BaseUnitTest {
         params.setSortBy("Type");
         params.getCheckedFilters().clear();
         presenter.filterTasks(params);
-        verify(view).setTaskDetails(taskDetailsArgumentCaptor.capture());
+        verify(view, timeout(ASYNC_TIMEOUT)).setTaskDetails(taskDetailsArgumentCaptor.capture());
         assertEquals(task1, taskDetailsArgumentCaptor.getValue().get(1));
         assertEquals(task2, taskDetailsArgumentCaptor.getValue().get(0));
     }
@@ -612,7 +632,7 @@ public class TaskRegisterFragmentPresenterTest extends BaseUnitTest {
 
 
         presenter.filterTasks(params);
-        verify(view).setTaskDetails(taskDetailsArgumentCaptor.capture());
+        verify(view, timeout(ASYNC_TIMEOUT)).setTaskDetails(taskDetailsArgumentCaptor.capture());
         assertEquals(task1, taskDetailsArgumentCaptor.getValue().get(2));
         assertEquals(task2, taskDetailsArgumentCaptor.getValue().get(1));
         assertEquals(task3, taskDetailsArgumentCaptor.getValue().get(0));
@@ -624,15 +644,15 @@ public class TaskRegisterFragmentPresenterTest extends BaseUnitTest {
         TaskFilterParams params = new TaskFilterParams("", new HashMap<>());
         params.getCheckedFilters().put(Filter.STATUS, Collections.singleton(BusinessStatus.BLOOD_SCREENING_COMPLETE));
         presenter.filterTasks(params);
-        verify(view).setTaskDetails(taskDetailsArgumentCaptor.capture());
-        verify(view).setTotalTasks(1);
+        verify(view, timeout(ASYNC_TIMEOUT)).setTaskDetails(taskDetailsArgumentCaptor.capture());
+        verify(view, timeout(ASYNC_TIMEOUT)).setTotalTasks(1);
         assertEquals(task2, taskDetailsArgumentCaptor.getValue().get(0));
 
 
         params.getCheckedFilters().put(Filter.STATUS, Collections.singleton(BusinessStatus.FULLY_RECEIVED));
         presenter.filterTasks(params);
-        verify(view).setTaskDetails(new ArrayList<>());
-        verify(view).setTotalTasks(0);
+        verify(view, timeout(ASYNC_TIMEOUT)).setTaskDetails(new ArrayList<>());
+        verify(view, timeout(ASYNC_TIMEOUT)).setTotalTasks(0);
 
     }
 
@@ -643,16 +663,16 @@ public class TaskRegisterFragmentPresenterTest extends BaseUnitTest {
         TaskFilterParams params = new TaskFilterParams("", new HashMap<>());
         params.getCheckedFilters().put(Filter.CODE, Collections.singleton(Intervention.IRS));
         presenter.filterTasks(params);
-        verify(view).setTaskDetails(taskDetailsArgumentCaptor.capture());
-        verify(view).setTotalTasks(0);
+        verify(view, timeout(ASYNC_TIMEOUT)).setTaskDetails(taskDetailsArgumentCaptor.capture());
+        verify(view, timeout(ASYNC_TIMEOUT)).setTotalTasks(0);
         assertEquals(task1, taskDetailsArgumentCaptor.getValue().get(0));
         verify(view).setNumberOfFilters(1);
 
 
         params.getCheckedFilters().put(Filter.CODE, Collections.singleton(BusinessStatus.FULLY_RECEIVED));
         presenter.filterTasks(params);
-        verify(view).setTaskDetails(new ArrayList<>());
-        verify(view, times(2)).setTotalTasks(0);
+        verify(view, timeout(ASYNC_TIMEOUT)).setTaskDetails(new ArrayList<>());
+        verify(view, timeout(ASYNC_TIMEOUT).times(2)).setTotalTasks(0);
 
 
     }
@@ -663,8 +683,8 @@ public class TaskRegisterFragmentPresenterTest extends BaseUnitTest {
         TaskFilterParams params = new TaskFilterParams("", new HashMap<>());
         params.getCheckedFilters().put(Filter.INTERVENTION_UNIT, Collections.singleton(InterventionType.STRUCTURE));
         presenter.filterTasks(params);
-        verify(view).setTaskDetails(taskDetailsArgumentCaptor.capture());
-        verify(view).setTotalTasks(0);
+        verify(view, timeout(ASYNC_TIMEOUT)).setTaskDetails(taskDetailsArgumentCaptor.capture());
+        verify(view, timeout(ASYNC_TIMEOUT)).setTotalTasks(0);
         assertEquals(task1, taskDetailsArgumentCaptor.getValue().get(0));
         assertEquals(1, taskDetailsArgumentCaptor.getValue().size());
         verify(view).setNumberOfFilters(1);
@@ -677,8 +697,8 @@ public class TaskRegisterFragmentPresenterTest extends BaseUnitTest {
         TaskFilterParams params = new TaskFilterParams("", new HashMap<>());
         params.getCheckedFilters().put(Filter.INTERVENTION_UNIT, Collections.singleton(InterventionType.PERSON));
         presenter.filterTasks(params);
-        verify(view).setTaskDetails(taskDetailsArgumentCaptor.capture());
-        verify(view).setTotalTasks(1);
+        verify(view, timeout(ASYNC_TIMEOUT)).setTaskDetails(taskDetailsArgumentCaptor.capture());
+        verify(view, timeout(ASYNC_TIMEOUT)).setTotalTasks(1);
         assertEquals(1, taskDetailsArgumentCaptor.getValue().size());
         assertEquals(task2, taskDetailsArgumentCaptor.getValue().get(0));
         verify(view).setNumberOfFilters(1);
@@ -691,8 +711,8 @@ public class TaskRegisterFragmentPresenterTest extends BaseUnitTest {
         TaskFilterParams params = new TaskFilterParams("", new HashMap<>());
         params.getCheckedFilters().put(Filter.INTERVENTION_UNIT, Collections.singleton(InterventionType.OPERATIONAL_AREA));
         presenter.filterTasks(params);
-        verify(view).setTaskDetails(new ArrayList<>());
-        verify(view).setTotalTasks(0);
+        verify(view, timeout(ASYNC_TIMEOUT)).setTaskDetails(new ArrayList<>());
+        verify(view, timeout(ASYNC_TIMEOUT)).setTotalTasks(0);
         verify(view).setNumberOfFilters(1);
 
     }
@@ -706,16 +726,16 @@ public class TaskRegisterFragmentPresenterTest extends BaseUnitTest {
         params.getCheckedFilters().put(Filter.CODE, Collections.singleton(Intervention.BLOOD_SCREENING));
         params.getCheckedFilters().put(Filter.INTERVENTION_UNIT, Collections.singleton(InterventionType.PERSON));
         presenter.filterTasks(params);
-        verify(view).setTaskDetails(taskDetailsArgumentCaptor.capture());
-        verify(view).setTotalTasks(1);
+        verify(view, timeout(ASYNC_TIMEOUT)).setTaskDetails(taskDetailsArgumentCaptor.capture());
+        verify(view, timeout(ASYNC_TIMEOUT)).setTotalTasks(1);
         assertEquals(1, taskDetailsArgumentCaptor.getValue().size());
         assertEquals(task2, taskDetailsArgumentCaptor.getValue().get(0));
         verify(view).setNumberOfFilters(3);
 
         params.getCheckedFilters().put(Filter.INTERVENTION_UNIT, Collections.singleton(InterventionType.STRUCTURE));
         presenter.filterTasks(params);
-        verify(view).setTaskDetails(new ArrayList<>());
-        verify(view).setTotalTasks(0);
+        verify(view, timeout(ASYNC_TIMEOUT)).setTaskDetails(new ArrayList<>());
+        verify(view, timeout(ASYNC_TIMEOUT)).setTotalTasks(0);
 
     }
 
@@ -747,6 +767,37 @@ public class TaskRegisterFragmentPresenterTest extends BaseUnitTest {
         verify(view).startMapActivity(params);
     }
 
+    @Test
+    public void testRefreshTasksWithoutLoadedTasksFindsTasks() {
+        presenter.refreshTasks(Collections.singleton("structure_1"));
+        verify(view).showProgressView();
+        verify(interactor).findTasks(any(), any(), any(), any());
+        verify(interactor, never()).refreshTasks(any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    public void testRefreshTasksPatchesLoadedTasks() {
+        List<TaskDetails> detailsList = new ArrayList<>();
+        detailsList.add(TestingUtils.getTaskDetails());
+        Set<String> changedIds = Collections.singleton("structure_1");
+        presenter.onTasksFound(detailsList, 1);
+        presenter.refreshTasks(changedIds);
+        verify(interactor).refreshTasks(eq(detailsList), eq(changedIds), any(), any(), any(), any());
+        verify(interactor, never()).findTasks(any(), any(), any(), any());
+    }
+
+    @Test
+    public void testOnTaskInfoResetRefreshesResetTask() {
+        List<TaskDetails> detailsList = new ArrayList<>();
+        TaskDetails taskDetails = TestingUtils.getTaskDetails();
+        taskDetails.setStructureId("structure_1");
+        detailsList.add(taskDetails);
+        presenter.onTasksFound(detailsList, 1);
+        presenter.resetTaskInfo(taskDetails);
+        presenter.onTaskInfoReset();
+        verify(interactor).refreshTasks(eq(detailsList), eq(new HashSet<>(Arrays.asList(taskDetails.getTaskId(), "structure_1"))), any(), any(), any(), any());
+    }
+
     @Test
     public void testResetTaskInfo() {
         TaskDetails taskDetails = TestingUtils.getTaskDetails();
@@ -761,4 +812,129 @@ public class TaskRegisterFragmentPresenterTest extends BaseUnitTest {
     }
 
 
+
+    @Test
+    public void testInitializeQueriesFindsFirstPageWhenPaged() {
+        doReturn(true).when(taskingLibraryConfiguration).isPagedTaskRegisterEnabled();
+        Whitebox.setInternalState(presenter, "visibleColumns", visibleColumns);
+        presenter.initializeQueries("task.group_id = ? AND task.plan_id = ? AND task.status NOT IN (?,?)");
+        verify(interactor).findTasksPage(any(), any(), any(), any(), eq(null), eq(TaskRegister.PAGE_SIZE));
+        verify(interactor, never()).findTasks(any(), any(), any(), any());
+    }
+
+    @Test
+    public void testOnTasksPageFoundAppendsNextPage() {
+        doReturn(true).when(taskingLibraryConfiguration).isPagedTaskRegisterEnabled();
+        TaskRegisterPage firstPage = new TaskRegisterPage();
+        firstPage.setFirstPage(true);
+        firstPage.setHasMore(true);
+        firstPage.setTotalTasks(120);
+        firstPage.setReferenceLocation(location);
+        firstPage.setTasks(Collections.singletonList(TestingUtils.getTaskDetails()));
+        presenter.onTasksPageFound(firstPage, 4);
+        verify(view).setTaskDetails(firstPage.getTasks());
+        verify(view).setTotalTaskCount(120);
+        verify(view).setTotalTasks(4);
+
+        presenter.loadNextTaskPage();
+        verify(interactor).findTasksPage(any(), any(), any(), any(), eq(firstPage), eq(TaskRegister.PAGE_SIZE));
+
+        TaskRegisterPage nextPage = new TaskRegisterPage();
+        nextPage.setReferenceLocation(location);
+        nextPage.setTasks(Collections.singletonList(TestingUtils.getTaskDetails()));
+        presenter.onTasksPageFound(nextPage, 0);
+        verify(view).addTaskDetails(nextPage.getTasks());
+        assertEquals(2, ((List<TaskDetails>) Whitebox.getInternalState(presenter, "tasks")).size());
+
+        presenter.loadNextTaskPage();
+        verify(interactor, times(1)).findTasksPage(any(), any(), any(), any(), eq(nextPage), anyInt());
+    }
+
+    @Test
+    public void testOnTasksPageNotFoundRequestsThePageAgain() {
+        doReturn(true).when(taskingLibraryConfiguration).isPagedTaskRegisterEnabled();
+        TaskRegisterPage firstPage = new TaskRegisterPage();
+        firstPage.setFirstPage(true);
+        firstPage.setHasMore(true);
+        firstPage.setReferenceLocation(location);
+        firstPage.setTasks(Collections.singletonList(TestingUtils.getTaskDetails()));
+        presenter.onTasksPageFound(firstPage, 0);
+
+        presenter.loadNextTaskPage();
+        presenter.onTasksPageNotFound(firstPage);
+        presenter.loadNextTaskPage();
+
+        verify(interactor, times(2)).findTasksPage(any(), any(), any(), any(), eq(firstPage), eq(TaskRegister.PAGE_SIZE));
+        assertEquals(1, ((List<TaskDetails>) Whitebox.getInternalState(presenter, "tasks")).size());
+        verify(view, never()).addTaskDetails(any());
+    }
+
+    @Test
+    public void testSearchTasksLoadsAllTasksWhenPartiallyLoaded() {
+        TaskRegisterPage firstPage = new TaskRegisterPage();
+        firstPage.setFirstPage(true);
+        firstPage.setHasMore(true);
+        firstPage.setTasks(Collections.singletonList(TestingUtils.getTaskDetails()));
+        presenter.onTasksPageFound(firstPage, 0);
+
+        presenter.searchTasks("Doe");
+        verify(interactor).findTasks(any(), any(), any(), any());
+        assertEquals("Doe", Whitebox.getInternalState(presenter, "pendingSearchPhrase"));
+    }
+
+    @Test
+    public void testOnFilterTasksClickedKeepsFacetIndexOutOfFilterParams() {
+        initFilterSearchTasks();
+        presenter.onFilterTasksClicked();
+        verify(view).openFilterActivity(null);
+        assertEquals(1, TaskingLibrary.getInstance().getRegisterFacetIndex().count(Filter.CODE, Intervention.IRS, null));
+
+        presenter.onDestroy();
+        assertNull(TaskingLibrary.getInstance().getRegisterFacetIndex());
+    }
+
+    @Test
+    public void testFilterTasksDiscardsStaleFilter() throws InterruptedException {
+        initFilterSearchTasks();
+        AppExecutors appExecutors = Whitebox.getInternalState(presenter, "appExecutors");
+        CountDownLatch latch = new CountDownLatch(1);
+        appExecutors.diskIO().execute(() -> {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        TaskFilterParams params = new TaskFilterParams("", new HashMap<>());
+        params.getCheckedFilters().put(Filter.STATUS, Collections.singleton(BusinessStatus.BLOOD_SCREENING_COMPLETE));
+        presenter.filterTasks(params);
+        presenter.filterTasks(new TaskFilterParams("", new HashMap<>()));
+        latch.countDown();
+
+        Thread.sleep(100);
+        assertFalse(Whitebox.getInternalState(presenter, "isTasksFiltered"));
+        assertNull(Whitebox.getInternalState(presenter, "filteredTasks"));
+        verify(view, never()).setTaskDetails(any());
+    }
+
+    @Test
+    public void testSearchTasksDiscardsStaleSearch() throws InterruptedException {
+        initFilterSearchTasks();
+        AppExecutors appExecutors = Whitebox.getInternalState(presenter, "appExecutors");
+        CountDownLatch latch = new CountDownLatch(1);
+        appExecutors.diskIO().execute(() -> {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        presenter.searchTasks("Jane");
+        presenter.searchTasks("Kenny House");
+        latch.countDown();
+
+        verify(view, timeout(ASYNC_TIMEOUT)).setTaskDetails(Collections.singletonList(task1));
+        Thread.sleep(100);
+        verify(view, never()).setTaskDetails(Collections.singletonList(task2));
+    }
 }
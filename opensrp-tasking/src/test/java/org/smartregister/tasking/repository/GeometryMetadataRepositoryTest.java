@@ -0,0 +1,101 @@
+package org.smartregister.tasking.repository;
+
+import com.google.gson.Gson;
+
+import net.sqlcipher.MatrixCursor;
+import net.sqlcipher.database.SQLiteDatabase;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.smartregister.domain.Geometry;
+import org.smartregister.domain.Location;
+import org.smartregister.tasking.BaseUnitTest;
+import org.smartregister.tasking.model.GeometryMetadata;
+import org.smartregister.util.AppExecutors;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+public class GeometryMetadataRepositoryTest extends BaseUnitTest {
+
+    @Rule
+    public MockitoRule rule = MockitoJUnit.rule();
+
+    @Mock
+    private SQLiteDatabase database;
+
+    private GeometryMetadataRepository metadataRepository;
+
+    private Location operationalArea;
+
+    @Before
+    public void setUp() {
+        metadataRepository = Mockito.spy(new GeometryMetadataRepository());
+        doReturn(database).when(metadataRepository).getWritableDatabase();
+        when(database.rawQuery(anyString(), any(String[].class))).thenReturn(new MatrixCursor(new String[]{}));
+        operationalArea = new Location();
+        operationalArea.setId("oa_1");
+        operationalArea.setServerVersion(12);
+        operationalArea.setGeometry(new Gson().fromJson("{\"type\":\"Polygon\",\"coordinates\":" +
+                "[[[32.59,-14.17],[32.61,-14.17],[32.61,-14.15],[32.59,-14.15],[32.59,-14.17]]]}", Geometry.class));
+    }
+
+    @Test
+    public void testGetGeometryMetadataWithExecutorsComputesAndSavesOnTheDiskExecutor() {
+        List<Runnable> diskTasks = new ArrayList<>();
+        List<Runnable> mainThreadTasks = new ArrayList<>();
+        AppExecutors appExecutors = new AppExecutors(diskTasks::add, Runnable::run, mainThreadTasks::add);
+        List<GeometryMetadata> results = new ArrayList<>();
+
+        metadataRepository.getGeometryMetadata(operationalArea, appExecutors, results::add);
+
+        verifyNoMoreInteractions(database);
+        assertEquals(1, diskTasks.size());
+        assertTrue(results.isEmpty());
+
+        diskTasks.get(0).run();
+        verify(database).replace(eq(GeometryMetadataRepository.GEOMETRY_METADATA_TABLE), any(), any());
+        assertTrue(results.isEmpty());
+
+        mainThreadTasks.get(0).run();
+        assertEquals(-14.16, results.get(0).getCenter().getLatitude(), 0.00001);
+
+        metadataRepository.getGeometryMetadata(operationalArea, appExecutors, results::add);
+        assertEquals(1, diskTasks.size());
+        assertSame(results.get(0), results.get(1));
+    }
+
+    @Test
+    public void testGetGeometryMetadataWithExecutorsReadsTheStoredRow() {
+        MatrixCursor cursor = new MatrixCursor(new String[]{"location_id", "server_version", "min_longitude",
+                "min_latitude", "max_longitude", "max_latitude", "vertex_count"});
+        cursor.addRow(new Object[]{"oa_1", 12, 30.0, -12.0, 31.0, -11.0, 5});
+        when(database.rawQuery(anyString(), any(String[].class))).thenReturn(cursor);
+        Executor direct = Runnable::run;
+        List<GeometryMetadata> results = new ArrayList<>();
+
+        metadataRepository.getGeometryMetadata(operationalArea, new AppExecutors(direct, direct, direct), results::add);
+
+        assertEquals(-11.5, results.get(0).getCenter().getLatitude(), 0.00001);
+        assertEquals(5, results.get(0).getVertexCount());
+        verify(database, never()).replace(anyString(), any(), any());
+    }
+}
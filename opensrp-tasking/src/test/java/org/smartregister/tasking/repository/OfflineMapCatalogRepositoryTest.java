@@ -0,0 +1,184 @@
+package org.smartregister.tasking.repository;
+
+import net.sqlcipher.MatrixCursor;
+import net.sqlcipher.database.SQLiteDatabase;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.mockito.stubbing.Answer;
+import org.smartregister.tasking.BaseUnitTest;
+import org.smartregister.tasking.model.OfflineMapCatalogEntry;
+import org.smartregister.tasking.model.OfflineMapModel;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import io.ona.kujaku.data.realm.objects.MapBoxOfflineQueueTask;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class OfflineMapCatalogRepositoryTest extends BaseUnitTest {
+
+    @Rule
+    public MockitoRule rule = MockitoJUnit.rule();
+
+    @Mock
+    private SQLiteDatabase database;
+
+    private OfflineMapCatalogRepository catalogRepository;
+
+    @Before
+    public void setUp() {
+        catalogRepository = Mockito.spy(new OfflineMapCatalogRepository());
+        doReturn(database).when(catalogRepository).getWritableDatabase();
+        when(database.rawQuery(anyString(), (String[]) isNull())).thenAnswer(new Answer<MatrixCursor>() {
+            @Override
+            public MatrixCursor answer(InvocationOnMock invocation) {
+                return new MatrixCursor(new String[]{"name"});
+            }
+        });
+    }
+
+    private void addMap(String mapName, long size, long lastUsed) {
+        catalogRepository.onDownloadStarted(mapName + "_part_1", size / 2);
+        catalogRepository.onDownloadCompleted(mapName + "_part_1", size / 2);
+        catalogRepository.onDownloadStarted(mapName, size / 2);
+        catalogRepository.onDownloadCompleted(mapName, size / 2);
+        catalogRepository.setLastUsed(mapName, new Date(lastUsed));
+    }
+
+    @Test
+    public void testGetStorageUsage() {
+        addMap("oa_1", 100, 1000);
+        addMap("oa_2", 200, 2000);
+
+        assertEquals(300, catalogRepository.getStorageUsage());
+        assertEquals(Arrays.asList("oa_1", "oa_2"), catalogRepository.getDownloadedMapNames());
+        verify(database, Mockito.atLeastOnce()).replace(eq(OfflineMapCatalogRepository.OFFLINE_MAP_CATALOG_TABLE), any(), any());
+    }
+
+    @Test
+    public void testGetMapsToEvictReturnsLeastRecentlyUsedMaps() {
+        addMap("oa_1", 100, 3000);
+        addMap("oa_2", 200, 1000);
+        addMap("oa_3", 300, 2000);
+
+        assertEquals(Collections.singletonList("oa_2"), catalogRepository.getMapsToEvict(450, Collections.<String>emptyList()));
+        assertEquals(Arrays.asList("oa_2", "oa_3"), catalogRepository.getMapsToEvict(200, Collections.<String>emptyList()));
+        assertEquals(Arrays.asList("oa_3", "oa_1"), catalogRepository.getMapsToEvict(200, Collections.singletonList("oa_2")));
+        assertTrue(catalogRepository.getMapsToEvict(600, Collections.<String>emptyList()).isEmpty());
+    }
+
+    @Test
+    public void testDeleteMapRemovesAllRegions() {
+        addMap("oa_1", 100, 1000);
+
+        catalogRepository.deleteMap("oa_1");
+
+        assertEquals(0, catalogRepository.getStorageUsage());
+        assertTrue(catalogRepository.getMapEntries("oa_1").isEmpty());
+        verify(database).delete(OfflineMapCatalogRepository.OFFLINE_MAP_CATALOG_TABLE, "map_name = ?", new String[]{"oa_1"});
+    }
+
+    @Test
+    public void testAddMissingRegionsAddsRegionsDownloadedBeforeTheCatalog() {
+        addMap("oa_1", 100, 1000);
+        Date dateCreated = new Date(5000);
+        MapBoxOfflineQueueTask offlineQueueTask = new MapBoxOfflineQueueTask();
+        offlineQueueTask.setDateCreated(dateCreated);
+        Map<String, MapBoxOfflineQueueTask> offlineQueueTasks = new HashMap<>();
+        offlineQueueTasks.put("oa_2", offlineQueueTask);
+
+        List<String> addedRegionNames = catalogRepository.addMissingRegions(Arrays.asList("oa_1", "oa_1_part_1", "oa_2_part_1", "oa_2", "oa_3"),
+                offlineQueueTasks, Collections.singletonList("oa_3"));
+
+        assertEquals(Arrays.asList("oa_2_part_1", "oa_2"), addedRegionNames);
+        OfflineMapCatalogEntry entry = catalogRepository.getEntry("oa_2");
+        assertEquals(OfflineMapModel.OfflineMapStatus.DOWNLOADED, entry.getStatus());
+        assertEquals(dateCreated, entry.getDateCreated());
+        assertEquals(0, entry.getSize());
+        assertNull(catalogRepository.getEntry("oa_3"));
+        assertEquals(Arrays.asList("oa_1", "oa_2"), catalogRepository.getDownloadedMapNames());
+
+        catalogRepository.updateSize("oa_2", 300);
+        assertEquals(400, catalogRepository.getStorageUsage());
+    }
+
+    @Test
+    public void testGetMissingRegionNamesSkipsCatalogedAndScheduledRegions() {
+        addMap("oa_1", 100, 1000);
+
+        Set<String> missingRegionNames = catalogRepository.getMissingRegionNames(Arrays.asList("oa_1", "oa_1_part_1", "oa_2", "oa_3"),
+                Collections.singletonList("oa_3"));
+
+        assertEquals(Collections.singleton("oa_2"), missingRegionNames);
+        assertEquals(2, catalogRepository.getRegionCount());
+    }
+
+    @Test
+    public void testRemoveMissingRegionsKeepsScheduledMaps() {
+        addMap("oa_1", 100, 1000);
+        addMap("oa_2", 200, 2000);
+        catalogRepository.onDownloadStarted("oa_3_part_1", 50);
+
+        assertTrue(catalogRepository.removeMissingRegions(Arrays.asList("oa_1", "oa_1_part_1"), Collections.singletonList("oa_3")));
+
+        assertEquals(Collections.singletonList("oa_1"), catalogRepository.getDownloadedMapNames());
+        assertTrue(catalogRepository.getMapEntries("oa_2").isEmpty());
+        assertEquals(1, catalogRepository.getMapEntries("oa_3").size());
+        verify(database).delete(OfflineMapCatalogRepository.OFFLINE_MAP_CATALOG_TABLE, "region_name = ?", new String[]{"oa_2"});
+        assertFalse(catalogRepository.removeMissingRegions(Arrays.asList("oa_1", "oa_1_part_1"), Collections.singletonList("oa_3")));
+    }
+
+    @Test
+    public void testCreateTableAddsLastUsedColumnToEarlierTables() {
+        OfflineMapCatalogRepository.createTable(database);
+
+        verify(database).execSQL("ALTER TABLE offline_map_catalog ADD COLUMN last_used INTEGER");
+    }
+
+    @Test
+    public void testCreateTableKeepsCurrentTables() {
+        MatrixCursor cursor = new MatrixCursor(new String[]{"name"});
+        cursor.addRow(new Object[]{"region_name"});
+        cursor.addRow(new Object[]{"last_used"});
+        when(database.rawQuery("PRAGMA table_info(offline_map_catalog)", null)).thenReturn(cursor);
+
+        OfflineMapCatalogRepository.createTable(database);
+
+        verify(database, never()).execSQL("ALTER TABLE offline_map_catalog ADD COLUMN last_used INTEGER");
+    }
+
+    @Test
+    public void testDeleteRegion() {
+        addMap("oa_1", 100, 1000);
+
+        catalogRepository.deleteRegion("oa_1_part_1");
+
+        assertEquals(50, catalogRepository.getStorageUsage());
+        assertEquals(1, catalogRepository.getMapEntries("oa_1").size());
+        verify(database).delete(OfflineMapCatalogRepository.OFFLINE_MAP_CATALOG_TABLE, "region_name = ?", new String[]{"oa_1_part_1"});
+    }
+}
@@ -0,0 +1,81 @@
+package org.smartregister.tasking.repository;
+
+import net.sqlcipher.MatrixCursor;
+import net.sqlcipher.database.SQLiteDatabase;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.smartregister.tasking.BaseUnitTest;
+import org.smartregister.tasking.model.OfflineMapQueueEntry;
+import org.smartregister.tasking.util.OfflineMapHelper;
+
+import java.util.Arrays;
+import java.util.List;
+
+import io.ona.kujaku.helpers.OfflineServiceHelper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class OfflineMapQueueRepositoryTest extends BaseUnitTest {
+
+    @Rule
+    public MockitoRule rule = MockitoJUnit.rule();
+
+    @Mock
+    private SQLiteDatabase database;
+
+    private OfflineMapQueueRepository queueRepository;
+
+    @Before
+    public void setUp() {
+        queueRepository = Mockito.spy(new OfflineMapQueueRepository());
+        doReturn(database).when(queueRepository).getWritableDatabase();
+    }
+
+    @Test
+    public void testAddMapReplacesTheRegionsOfTheMap() {
+        OfflineServiceHelper.ZoomRange zoomRange = new OfflineServiceHelper.ZoomRange(13.5, 21);
+        queueRepository.addMap("oa_1", Arrays.asList(new OfflineMapHelper.DownloadRegion("oa_1_part_1", -14, 32, -14.1, 32.1, zoomRange, 10),
+                new OfflineMapHelper.DownloadRegion("oa_1", -14.1, 32, -14.2, 32.1, zoomRange, 10)));
+
+        verify(database).delete(OfflineMapQueueRepository.OFFLINE_MAP_QUEUE_TABLE, "map_name = ?", new String[]{"oa_1"});
+        verify(database, times(2)).replace(eq(OfflineMapQueueRepository.OFFLINE_MAP_QUEUE_TABLE), isNull(), any());
+        verify(database).setTransactionSuccessful();
+        verify(database).endTransaction();
+    }
+
+    @Test
+    public void testGetQueuedRegions() {
+        MatrixCursor cursor = new MatrixCursor(new String[]{"region_name", "map_name", "north", "west", "south", "east",
+                "min_zoom", "max_zoom", "tile_count", "completed"});
+        cursor.addRow(new Object[]{"oa_1_part_1", "oa_1", -14d, 32d, -14.1d, 32.1d, 13.5d, 21d, 10L, 1});
+        cursor.addRow(new Object[]{"oa_1", "oa_1", -14.1d, 32d, -14.2d, 32.1d, 13.5d, 21d, 20L, 0});
+        when(database.rawQuery(anyString(), (String[]) isNull())).thenReturn(cursor);
+
+        List<OfflineMapQueueEntry> queuedRegions = queueRepository.getQueuedRegions();
+
+        assertEquals(2, queuedRegions.size());
+        assertEquals("oa_1_part_1", queuedRegions.get(0).getRegion().getName());
+        assertTrue(queuedRegions.get(0).isCompleted());
+        assertFalse(queuedRegions.get(1).isCompleted());
+        assertEquals("oa_1", queuedRegions.get(1).getMapName());
+        assertEquals(-14.2, queuedRegions.get(1).getRegion().getBottomLeft().getLatitude(), 0);
+        assertEquals(21, queuedRegions.get(1).getRegion().getZoomRange().getMaxZoom(), 0);
+        assertEquals(20, queuedRegions.get(1).getRegion().getTileCount());
+    }
+}
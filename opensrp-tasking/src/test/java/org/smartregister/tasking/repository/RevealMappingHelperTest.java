@@ -0,0 +1,54 @@
+package org.smartregister.tasking.repository;
+
+import com.google.gson.Gson;
+
+import org.junit.Test;
+import org.smartregister.domain.Geometry;
+import org.smartregister.tasking.BaseUnitTest;
+import org.smartregister.tasking.model.GeometryMetadata;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class RevealMappingHelperTest extends BaseUnitTest {
+
+    private final RevealMappingHelper mappingHelper = new RevealMappingHelper();
+
+    @Test
+    public void testGetGeometryMetadata() {
+        String polygon = "{\"type\":\"Polygon\",\"coordinates\":[[[32.59,-14.17],[32.61,-14.17],[32.61,-14.15],[32.59,-14.15],[32.59,-14.17]]]}";
+
+        GeometryMetadata metadata = mappingHelper.getGeometryMetadata("oa_1", 12, polygon);
+
+        assertEquals("oa_1", metadata.getLocationId());
+        assertEquals(12, metadata.getServerVersion());
+        assertEquals(5, metadata.getVertexCount());
+        assertEquals(32.59, metadata.getBbox()[0], 0.00001);
+        assertEquals(-14.15, metadata.getBbox()[3], 0.00001);
+        assertEquals(32.6, metadata.getCenter().getLongitude(), 0.00001);
+        assertEquals(-14.16, metadata.getCenter().getLatitude(), 0.00001);
+    }
+
+    @Test
+    public void testGetGeometryMetadataCountsMultiPolygonVertices() {
+        String multiPolygon = "{\"type\":\"MultiPolygon\",\"coordinates\":[[[[0,0],[1,0],[1,1],[0,0]]],[[[2,2],[3,2],[3,3],[2,2]]]]}";
+
+        GeometryMetadata metadata = mappingHelper.getGeometryMetadata("oa_2", 1, multiPolygon);
+
+        assertEquals(8, metadata.getVertexCount());
+        assertEquals(3, metadata.getBbox()[2], 0);
+        assertEquals(1.5, metadata.getCenter().getLatitude(), 0);
+    }
+
+    @Test
+    public void testGetCenterFromStructureCoordinates() {
+        Geometry geometry = new Gson().fromJson("{\"type\":\"MultiPolygon\",\"coordinates\":[[[[0,0],[1,0],[1,1],[0,0]]],[[[2,2],[3,2],[3,3],[2,2]]]]}",
+                Geometry.class);
+
+        android.location.Location center = mappingHelper.getCenter(geometry);
+
+        assertEquals(1.5, center.getLongitude(), 0);
+        assertEquals(1.5, center.getLatitude(), 0);
+        assertNull(mappingHelper.getCenter((Geometry) null));
+    }
+}
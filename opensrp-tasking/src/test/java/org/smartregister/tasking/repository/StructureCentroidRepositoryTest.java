@@ -0,0 +1,81 @@
+package org.smartregister.tasking.repository;
+
+import com.google.gson.Gson;
+
+import net.sqlcipher.database.SQLiteDatabase;
+import net.sqlcipher.database.SQLiteStatement;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.smartregister.domain.Geometry;
+import org.smartregister.domain.Location;
+import org.smartregister.tasking.BaseUnitTest;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class StructureCentroidRepositoryTest extends BaseUnitTest {
+
+    @Rule
+    public MockitoRule rule = MockitoJUnit.rule();
+
+    @Mock
+    private SQLiteDatabase database;
+
+    @Mock
+    private SQLiteStatement statement;
+
+    private StructureCentroidRepository centroidRepository;
+
+    @Before
+    public void setUp() {
+        centroidRepository = Mockito.spy(new StructureCentroidRepository());
+        doReturn(database).when(centroidRepository).getWritableDatabase();
+        when(database.compileStatement(anyString())).thenReturn(statement);
+    }
+
+    private Location createStructure(String id, String geometry) {
+        Location structure = new Location();
+        structure.setId(id);
+        structure.setGeometry(geometry == null ? null : new Gson().fromJson(geometry, Geometry.class));
+        return structure;
+    }
+
+    @Test
+    public void testUpdateCentroidsSkipsStructuresWithoutIdOrGeometry() {
+        String polygon = "{\"type\":\"Polygon\",\"coordinates\":[[[32.59,-14.17],[32.61,-14.17],[32.61,-14.15],[32.59,-14.15],[32.59,-14.17]]]}";
+
+        int updated = centroidRepository.updateCentroids(Arrays.asList(createStructure("structure_1", polygon),
+                createStructure(null, polygon), createStructure("structure_3", null),
+                createStructure("structure_4", "{\"type\":\"Point\",\"coordinates\":[32.6,-14.16]}")));
+
+        assertEquals(2, updated);
+        verify(database).beginTransaction();
+        verify(database).compileStatement("UPDATE structure SET latitude = ?, longitude = ? WHERE _id = ? AND (latitude IS NULL OR longitude IS NULL)");
+        verify(statement, times(2)).execute();
+        verify(statement).bindString(3, "structure_1");
+        verify(statement).bindString(3, "structure_4");
+        verify(database).setTransactionSuccessful();
+        verify(database).endTransaction();
+        verify(statement).close();
+    }
+
+    @Test
+    public void testUpdateCentroidsWithoutStructures() {
+        assertEquals(0, centroidRepository.updateCentroids(Collections.<Location>emptyList()));
+        verify(database, never()).beginTransaction();
+    }
+}
@@ -0,0 +1,121 @@
+package org.smartregister.tasking.repository;
+
+import android.database.SQLException;
+
+import net.sqlcipher.database.SQLiteDatabase;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.smartregister.domain.Location;
+import org.smartregister.domain.Task;
+import org.smartregister.tasking.BaseUnitTest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class TaskStructureLinkRepositoryTest extends BaseUnitTest {
+
+    @Rule
+    public MockitoRule rule = MockitoJUnit.rule();
+
+    @Mock
+    private SQLiteDatabase database;
+
+    private TaskStructureLinkRepository linkRepository;
+
+    @Before
+    public void setUp() {
+        linkRepository = Mockito.spy(new TaskStructureLinkRepository());
+        doReturn(database).when(linkRepository).getWritableDatabase();
+    }
+
+    @Test
+    public void testLinkSyncedPageUpdatesOnlyTheIdsOfThePage() {
+        Task task = new Task();
+        task.setIdentifier("task_1");
+
+        assertTrue(linkRepository.linkSyncedPage(null, Collections.singletonList(task)));
+
+        ArgumentCaptor<String> queryCaptor = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Object[]> argsCaptor = ArgumentCaptor.forClass(Object[].class);
+        verify(database).execSQL(queryCaptor.capture(), argsCaptor.capture());
+        assertTrue(queryCaptor.getValue().startsWith("UPDATE task SET structure_id = task.for WHERE task._id IN (?) AND structure_id IS NULL"));
+        assertEquals("task_1", argsCaptor.getValue()[0]);
+        verify(database).execSQL("CREATE INDEX IF NOT EXISTS task_for_index ON task(for, structure_id)");
+        verify(database).execSQL("CREATE INDEX IF NOT EXISTS ec_family_member_structure_id_index ON ec_family_member(structure_id)");
+        verify(database).setTransactionSuccessful();
+        verify(database).endTransaction();
+    }
+
+    @Test
+    public void testLinkSyncedPageSplitsLargePages() {
+        List<Location> structures = new ArrayList<>();
+        for (int i = 0; i < TaskStructureLinkRepository.MAX_IDS_PER_STATEMENT + 100; i++) {
+            Location structure = new Location();
+            structure.setId("structure_" + i);
+            structures.add(structure);
+        }
+
+        linkRepository.linkSyncedPage(structures, null);
+
+        ArgumentCaptor<Object[]> argsCaptor = ArgumentCaptor.forClass(Object[].class);
+        verify(database, times(2)).execSQL(anyString(), argsCaptor.capture());
+        assertEquals(TaskStructureLinkRepository.MAX_IDS_PER_STATEMENT, argsCaptor.getAllValues().get(0).length);
+        assertEquals(100, argsCaptor.getAllValues().get(1).length);
+    }
+
+    @Test
+    public void testLinkSyncedPageSkipsEmptyPages() {
+        assertTrue(linkRepository.linkSyncedPage(null, Collections.<Task>emptyList()));
+
+        verify(database, never()).beginTransaction();
+    }
+
+    @Test
+    public void testLinkSyncedPageReportsFailures() {
+        Task task = new Task();
+        task.setIdentifier("task_1");
+        doThrow(new SQLException()).when(database).execSQL(anyString(), any(Object[].class));
+
+        assertFalse(linkRepository.linkSyncedPage(null, Collections.singletonList(task)));
+
+        verify(database, never()).setTransactionSuccessful();
+        verify(database).endTransaction();
+    }
+
+    @Test
+    public void testLinkClientTasksUpdatesTheEntitiesOfThePage() {
+        Task task = new Task();
+        task.setIdentifier("task_1");
+        task.setForEntity("person_1");
+
+        assertTrue(linkRepository.linkClientTasks(null, Collections.singletonList(task)));
+
+        ArgumentCaptor<String> queryCaptor = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Object[]> argsCaptor = ArgumentCaptor.forClass(Object[].class);
+        verify(database).execSQL(queryCaptor.capture(), argsCaptor.capture());
+        assertTrue(queryCaptor.getValue().contains("FROM ec_family_member WHERE ec_family_member.base_entity_id = task.for) " +
+                "WHERE task.for IN (?) AND structure_id IS NULL"));
+        assertEquals("person_1", argsCaptor.getValue()[0]);
+        verify(database).setTransactionSuccessful();
+        verify(database).endTransaction();
+    }
+}
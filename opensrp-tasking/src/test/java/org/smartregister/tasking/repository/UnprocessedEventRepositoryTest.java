@@ -0,0 +1,101 @@
+package org.smartregister.tasking.repository;
+
+import android.database.SQLException;
+
+import net.sqlcipher.MatrixCursor;
+import net.sqlcipher.database.SQLiteDatabase;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.smartregister.repository.BaseRepository;
+import org.smartregister.tasking.BaseUnitTest;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class UnprocessedEventRepositoryTest extends BaseUnitTest {
+
+    @Rule
+    public MockitoRule rule = MockitoJUnit.rule();
+
+    @Mock
+    private SQLiteDatabase database;
+
+    private UnprocessedEventRepository eventRepository;
+
+    @Before
+    public void setUp() {
+        eventRepository = Mockito.spy(new UnprocessedEventRepository());
+        doReturn(database).when(eventRepository).getReadableDatabase();
+    }
+
+    private MatrixCursor getCursor(long... serverVersions) {
+        MatrixCursor cursor = new MatrixCursor(new String[]{"json", "serverVersion", "rowid"});
+        for (int i = 0; i < serverVersions.length; i++) {
+            cursor.addRow(new Object[]{"{\"baseEntityId\":\"structure_1\",\"eventType\":\"Spray\"}", serverVersions[i], i + 1});
+        }
+        return cursor;
+    }
+
+    @Test
+    public void testChunksContinueAfterTheLastEventRead() {
+        when(database.rawQuery(anyString(), any(String[].class))).thenReturn(getCursor(10, 20), getCursor(30));
+
+        UnprocessedEventRepository.EventChunk chunk = eventRepository.getFirstChunk(Arrays.asList("structure_1", "structure_2"),
+                BaseRepository.TYPE_Task_Unprocessed, 2);
+        assertEquals(2, chunk.size());
+        assertEquals(2, chunk.getEventClients().size());
+        assertFalse(chunk.isComplete());
+
+        chunk = eventRepository.getNextChunk(chunk, 2);
+        assertEquals(1, chunk.size());
+        assertTrue(chunk.isComplete());
+
+        ArgumentCaptor<String> queryCaptor = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<String[]> argsCaptor = ArgumentCaptor.forClass(String[].class);
+        verify(database, times(2)).rawQuery(queryCaptor.capture(), argsCaptor.capture());
+        assertEquals("SELECT json, COALESCE(serverVersion, 0), rowid FROM event WHERE baseEntityId IN (?,?) AND syncStatus = ? " +
+                        "AND (COALESCE(serverVersion, 0) > -1 OR (COALESCE(serverVersion, 0) = -1 AND rowid > -1)) " +
+                        "ORDER BY COALESCE(serverVersion, 0), rowid LIMIT 2",
+                queryCaptor.getAllValues().get(0));
+        assertTrue(queryCaptor.getAllValues().get(1).contains("> 20 OR (COALESCE(serverVersion, 0) = 20 AND rowid > 2)"));
+        assertArrayEquals(new String[]{"structure_1", "structure_2", BaseRepository.TYPE_Task_Unprocessed}, argsCaptor.getAllValues().get(1));
+    }
+
+    @Test
+    public void testChunkSizeIsAtLeastOneEvent() {
+        when(database.rawQuery(anyString(), any(String[].class))).thenReturn(getCursor(10));
+
+        UnprocessedEventRepository.EventChunk chunk = eventRepository.getFirstChunk(Collections.singletonList("structure_1"),
+                BaseRepository.TYPE_Task_Unprocessed, 0);
+
+        assertFalse(chunk.isComplete());
+        ArgumentCaptor<String> queryCaptor = ArgumentCaptor.forClass(String.class);
+        verify(database).rawQuery(queryCaptor.capture(), any(String[].class));
+        assertTrue(queryCaptor.getValue().endsWith("LIMIT 1"));
+    }
+
+    @Test(expected = SQLException.class)
+    public void testQueryErrorsReachTheCaller() {
+        when(database.rawQuery(anyString(), any(String[].class))).thenThrow(new SQLException("no such table: event"));
+
+        eventRepository.getFirstChunk(Collections.singletonList("structure_1"), BaseRepository.TYPE_Task_Unprocessed, 2);
+    }
+}
@@ -1,22 +1,42 @@
 package org.smartregister.tasking.server;
 
+import android.content.ContentValues;
 import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
 
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.robolectric.RuntimeEnvironment;
+import org.robolectric.util.ReflectionHelpers;
 import org.smartregister.tasking.BaseUnitTest;
 import org.smartregister.tasking.R;
+import org.smartregister.tasking.TaskingLibrary;
+import org.smartregister.tasking.util.TaskingLibraryConfiguration;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
+import java.net.Socket;
 import java.net.URL;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
 
 /**
  * Created by Richard Kareko on 2/6/20.
@@ -25,9 +45,14 @@ import static org.junit.Assert.assertTrue;
 public class FileHTTPServerTest extends BaseUnitTest {
     private Context context = RuntimeEnvironment.application;
     private FileHTTPServer httpServer;
+    private TaskingLibraryConfiguration taskingLibraryConfiguration;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
 
     @Before
     public void setUp() {
+        taskingLibraryConfiguration = TaskingLibrary.getInstance().getTaskingLibraryConfiguration();
         try {
             httpServer = new FileHTTPServer(context, "map-download-style.json", "dummy_dg_id_placeholder");
             httpServer.start();
@@ -41,6 +66,7 @@ public class FileHTTPServerTest extends BaseUnitTest {
         if (httpServer != null) {
             httpServer.destroy();
         }
+        ReflectionHelpers.setField(TaskingLibrary.getInstance(), "taskingLibraryConfiguration", taskingLibraryConfiguration);
     }
 
     @Test
@@ -55,6 +81,141 @@ public class FileHTTPServerTest extends BaseUnitTest {
         assertTrue(actualMapboxStyleString.contains("layers"));
     }
 
+    @Test
+    public void testDestroyClosesOpenConnectionsOnTheServerThread() throws Exception {
+        Socket connection = new Socket("localhost", FileHTTPServer.PORT);
+        connection.setSoTimeout(1000);
+        connection.getOutputStream().write("GET / HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes());
+        InputStream inputStream = connection.getInputStream();
+        assertTrue(inputStream.read() >= 0);
+
+        httpServer.destroy();
+
+        assertFalse(httpServer.isStarted());
+        byte[] buffer = new byte[8 * 1024];
+        int read;
+        do {
+            read = inputStream.read(buffer);
+        } while (read >= 0);
+        connection.close();
+    }
+
+    @Test
+    public void testServerReturnsNotModifiedForMatchingEtag() throws Exception {
+        URL url = new URL(context.getString(R.string.localhost_url, FileHTTPServer.PORT));
+        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        assertEquals(HttpURLConnection.HTTP_OK, conn.getResponseCode());
+        String etag = conn.getHeaderField("ETag");
+        assertNotNull(etag);
+        conn.getInputStream().close();
+
+        conn = (HttpURLConnection) url.openConnection();
+        conn.setRequestProperty("If-None-Match", etag);
+        assertEquals(HttpURLConnection.HTTP_NOT_MODIFIED, conn.getResponseCode());
+    }
+
+    @Test
+    public void testServerEtagsDifferPerEncoding() throws Exception {
+        URL url = new URL(context.getString(R.string.localhost_url, FileHTTPServer.PORT));
+        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        String etag = conn.getHeaderField("ETag");
+        conn.getInputStream().close();
+        conn = (HttpURLConnection) url.openConnection();
+        conn.setRequestProperty("Accept-Encoding", "gzip");
+        String gzipEtag = conn.getHeaderField("ETag");
+        conn.getInputStream().close();
+        assertNotEquals(etag, gzipEtag);
+
+        conn = (HttpURLConnection) url.openConnection();
+        conn.setRequestProperty("Accept-Encoding", "gzip");
+        conn.setRequestProperty("If-None-Match", etag);
+        assertEquals(HttpURLConnection.HTTP_OK, conn.getResponseCode());
+        conn.getInputStream().close();
+
+        conn = (HttpURLConnection) url.openConnection();
+        conn.setRequestProperty("Accept-Encoding", "gzip");
+        conn.setRequestProperty("If-None-Match", "\"other\", W/" + gzipEtag);
+        assertEquals(HttpURLConnection.HTTP_NOT_MODIFIED, conn.getResponseCode());
+    }
+
+    @Test
+    public void testServerGzipsContentWhenAccepted() throws Exception {
+        URL url = new URL(context.getString(R.string.localhost_url, FileHTTPServer.PORT));
+        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        conn.setRequestProperty("Accept-Encoding", "gzip");
+        assertEquals("gzip", conn.getHeaderField("Content-Encoding"));
+
+        StringBuilder result = new StringBuilder();
+        BufferedReader rd = new BufferedReader(new InputStreamReader(new GZIPInputStream(conn.getInputStream())));
+        String line;
+        while ((line = rd.readLine()) != null) {
+            result.append(line);
+        }
+        rd.close();
+        assertEquals(getStyleJson(url.toString()), result.toString());
+    }
+
+    @Test
+    public void testServerReturnsTilesFromMBTilesPackages() throws Exception {
+        byte[] tile = new byte[]{1, 2, 3, 4};
+        startServerWithTilePackage("png", tile);
+
+        String baseUrl = context.getString(R.string.localhost_url, FileHTTPServer.PORT);
+        HttpURLConnection conn = (HttpURLConnection) new URL(baseUrl + "tiles/district/2/3/1.png").openConnection();
+        assertEquals(HttpURLConnection.HTTP_OK, conn.getResponseCode());
+        assertEquals("image/png", conn.getContentType());
+        byte[] body = new byte[tile.length];
+        try (InputStream input = conn.getInputStream()) {
+            assertEquals(tile.length, input.read(body));
+        }
+        assertArrayEquals(tile, body);
+
+        conn = (HttpURLConnection) new URL(baseUrl + "tiles/district/2/0/0.png").openConnection();
+        assertEquals(HttpURLConnection.HTTP_NOT_FOUND, conn.getResponseCode());
+    }
+
+    @Test
+    public void testServerDecompressesGzippedTilesForClientsWithoutGzip() throws Exception {
+        byte[] tile = "vector tile".getBytes();
+        ByteArrayOutputStream gzippedTile = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(gzippedTile)) {
+            gzip.write(tile);
+        }
+        startServerWithTilePackage("pbf", gzippedTile.toByteArray());
+
+        HttpURLConnection conn = (HttpURLConnection) new URL(context.getString(R.string.localhost_url, FileHTTPServer.PORT)
+                + "tiles/district/2/3/1.pbf").openConnection();
+        assertEquals(HttpURLConnection.HTTP_OK, conn.getResponseCode());
+        assertNull(conn.getHeaderField("Content-Encoding"));
+        byte[] body = new byte[tile.length];
+        try (InputStream input = conn.getInputStream()) {
+            assertEquals(tile.length, input.read(body));
+        }
+        assertArrayEquals(tile, body);
+    }
+
+    private void startServerWithTilePackage(String format, byte[] tile) throws Exception {
+        File packagesDirectory = temporaryFolder.newFolder();
+        SQLiteDatabase database = SQLiteDatabase.openOrCreateDatabase(new File(packagesDirectory, "district.mbtiles"), null);
+        database.execSQL("CREATE TABLE metadata (name TEXT, value TEXT)");
+        database.execSQL("INSERT INTO metadata VALUES ('format', ?)", new Object[]{format});
+        database.execSQL("CREATE TABLE tiles (zoom_level INTEGER, tile_column INTEGER, tile_row INTEGER, tile_data BLOB)");
+        ContentValues values = new ContentValues();
+        values.put("zoom_level", 2);
+        values.put("tile_column", 3);
+        values.put("tile_row", 2);
+        values.put("tile_data", tile);
+        database.insert("tiles", null, values);
+        database.close();
+
+        httpServer.destroy();
+        TaskingLibraryConfiguration configuration = spy(taskingLibraryConfiguration);
+        when(configuration.getOfflineMapPackagesDirectory()).thenReturn(packagesDirectory);
+        ReflectionHelpers.setField(TaskingLibrary.getInstance(), "taskingLibraryConfiguration", configuration);
+        httpServer = new FileHTTPServer(context, "map-download-style.json", "dummy_dg_id_placeholder");
+        httpServer.start();
+    }
+
     private String getStyleJson(String urlToRead) throws Exception {
         StringBuilder result = new StringBuilder();
         URL url = new URL(urlToRead);
@@ -0,0 +1,120 @@
+package org.smartregister.tasking.sync;
+
+import android.database.SQLException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.robolectric.util.ReflectionHelpers;
+import org.smartregister.domain.Location;
+import org.smartregister.domain.Task;
+import org.smartregister.repository.BaseRepository;
+import org.smartregister.tasking.BaseUnitTest;
+import org.smartregister.tasking.TaskingLibrary;
+import org.smartregister.tasking.repository.TaskStructureLinkRepository;
+import org.smartregister.tasking.repository.UnprocessedEventRepository;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class LocationTaskIntentServiceTest extends BaseUnitTest {
+
+    @Rule
+    public MockitoRule rule = MockitoJUnit.rule();
+
+    @Mock
+    private TaskStructureLinkRepository linkRepository;
+
+    @Mock
+    private UnprocessedEventRepository eventRepository;
+
+    @Mock
+    private UnprocessedEventRepository.EventChunk chunk;
+
+    private LocationTaskIntentService service;
+
+    private List<Location> structures;
+
+    private List<Task> tasks;
+
+    @Before
+    public void setUp() {
+        ReflectionHelpers.setField(TaskingLibrary.getInstance(), "taskStructureLinkRepository", linkRepository);
+        ReflectionHelpers.setField(TaskingLibrary.getInstance(), "unprocessedEventRepository", eventRepository);
+        service = new LocationTaskIntentService();
+
+        Location structure = new Location();
+        structure.setId("structure_1");
+        structures = Collections.singletonList(structure);
+        Task task = new Task();
+        task.setIdentifier("task_1");
+        task.setForEntity("person_1");
+        tasks = Collections.singletonList(task);
+
+        when(eventRepository.getFirstChunk(anyList(), eq(BaseRepository.TYPE_Task_Unprocessed), anyInt())).thenReturn(chunk);
+        when(chunk.isComplete()).thenReturn(true);
+    }
+
+    @After
+    public void tearDown() {
+        ReflectionHelpers.setField(TaskingLibrary.getInstance(), "taskStructureLinkRepository", null);
+        ReflectionHelpers.setField(TaskingLibrary.getInstance(), "unprocessedEventRepository", null);
+    }
+
+    @Test
+    public void testProcessSyncedPageLinksClientTasksAfterClientProcessing() {
+        when(linkRepository.linkSyncedPage(structures, tasks)).thenReturn(true);
+        when(linkRepository.linkClientTasks(structures, tasks)).thenReturn(true);
+
+        service.processSyncedPage(structures, tasks);
+
+        InOrder inOrder = inOrder(linkRepository, eventRepository);
+        inOrder.verify(linkRepository).linkSyncedPage(structures, tasks);
+        inOrder.verify(eventRepository).getFirstChunk(anyList(), eq(BaseRepository.TYPE_Task_Unprocessed), anyInt());
+        inOrder.verify(linkRepository).linkClientTasks(structures, tasks);
+        assertFalse((boolean) ReflectionHelpers.getField(service, "relinkRequired"));
+    }
+
+    @Test
+    public void testProcessSyncedPageRequiresRelinkWhenLinkingFails() {
+        when(linkRepository.linkSyncedPage(structures, tasks)).thenReturn(true);
+        when(linkRepository.linkClientTasks(structures, tasks)).thenReturn(false);
+
+        service.processSyncedPage(structures, tasks);
+
+        assertTrue((boolean) ReflectionHelpers.getField(service, "relinkRequired"));
+    }
+
+    @Test
+    public void testProcessSyncedPageKeepsEntitiesWhoseEventsFailedForRetry() {
+        when(linkRepository.linkSyncedPage(structures, tasks)).thenReturn(true);
+        when(linkRepository.linkClientTasks(structures, tasks)).thenReturn(true);
+        when(eventRepository.getFirstChunk(anyList(), eq(BaseRepository.TYPE_Task_Unprocessed), anyInt()))
+                .thenThrow(new SQLException("database is locked"));
+
+        service.processSyncedPage(structures, tasks);
+
+        assertTrue((boolean) ReflectionHelpers.getField(service, "relinkRequired"));
+        Set<String> failedEntityIds = ReflectionHelpers.getField(service, "failedEntityIds");
+        assertEquals(new HashSet<>(Arrays.asList("structure_1", "person_1")), failedEntityIds);
+        verify(linkRepository).linkClientTasks(structures, tasks);
+    }
+}
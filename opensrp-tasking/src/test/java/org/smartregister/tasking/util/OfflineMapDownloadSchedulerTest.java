@@ -0,0 +1,157 @@
+package org.smartregister.tasking.util;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.robolectric.RuntimeEnvironment;
+import org.smartregister.tasking.BaseUnitTest;
+import org.smartregister.tasking.TaskingLibrary;
+import org.smartregister.tasking.model.OfflineMapDownloadProgress;
+import org.smartregister.tasking.model.OfflineMapQueueEntry;
+import org.smartregister.tasking.repository.OfflineMapQueueRepository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import io.ona.kujaku.helpers.OfflineServiceHelper;
+import io.ona.kujaku.services.MapboxOfflineDownloaderService;
+
+import static io.ona.kujaku.services.MapboxOfflineDownloaderService.SERVICE_ACTION.DOWNLOAD_MAP;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class OfflineMapDownloadSchedulerTest extends BaseUnitTest {
+
+    private final List<String> requested = new ArrayList<>();
+
+    private final List<String> downloaded = new ArrayList<>();
+
+    private long elapsedTime;
+
+    private OfflineMapDownloadScheduler scheduler;
+
+    private final OfflineMapQueueRepository queueRepository = mock(OfflineMapQueueRepository.class);
+
+    @Before
+    public void setUp() {
+        scheduler = new OfflineMapDownloadScheduler(RuntimeEnvironment.application) {
+            @Override
+            protected void requestDownload(OfflineMapHelper.DownloadRegion region) {
+                requested.add(region.getName());
+            }
+
+            @Override
+            protected long getElapsedTime() {
+                return elapsedTime;
+            }
+
+            @Override
+            protected void onMapDownloaded(String mapName) {
+                downloaded.add(mapName);
+            }
+
+            @Override
+            protected OfflineMapQueueRepository getQueueRepository() {
+                return queueRepository;
+            }
+        };
+    }
+
+    private static OfflineMapHelper.DownloadRegion getRegion(String name, long tileCount) {
+        return new OfflineMapHelper.DownloadRegion(name, -14, 32, -14.1, 32.1, new OfflineServiceHelper.ZoomRange(13.5, 21), tileCount);
+    }
+
+    @Test
+    public void testRegionNamedAfterMapIsDownloadedLast() {
+        scheduler.enqueue("oa_1", Arrays.asList(getRegion("oa_1_part_1", 100), getRegion("oa_1", 100)));
+        scheduler.enqueue("oa_2", Collections.singletonList(getRegion("oa_2", 50)));
+
+        assertEquals(Arrays.asList("oa_1_part_1", "oa_2"), requested);
+
+        scheduler.onDownloadStatus("oa_1_part_1", DOWNLOAD_MAP, null, "100");
+
+        assertEquals(Arrays.asList("oa_1_part_1", "oa_2", "oa_1"), requested);
+    }
+
+    @Test
+    public void testPriorityMapIsDownloadedFirst() {
+        scheduler.enqueue("oa_1", Collections.singletonList(getRegion("oa_1", 10)));
+        scheduler.enqueue("oa_2", Collections.singletonList(getRegion("oa_2", 10)));
+        scheduler.enqueue("oa_3", Collections.singletonList(getRegion("oa_3", 10)));
+        scheduler.enqueue("oa_4", Collections.singletonList(getRegion("oa_4", 10)));
+        scheduler.setPriorityMapName("oa_4");
+
+        scheduler.onDownloadStatus("oa_1", DOWNLOAD_MAP, null, "100");
+
+        assertEquals(Arrays.asList("oa_1", "oa_2", "oa_4"), requested);
+        assertFalse(scheduler.isScheduled("oa_1"));
+        assertEquals(Collections.singletonList("oa_1"), downloaded);
+    }
+
+    @Test
+    public void testGetProgressEstimatesRateAndTimeLeft() {
+        long averageTileSize = TaskingLibrary.getInstance().getTaskingLibraryConfiguration().getOfflineMapAverageTileSize();
+        scheduler.enqueue("oa_1", Arrays.asList(getRegion("oa_1_part_1", 100), getRegion("oa_1", 100)));
+
+        elapsedTime = 1000;
+        scheduler.onDownloadStatus("oa_1_part_1", DOWNLOAD_MAP, null, "0");
+        assertEquals(OfflineMapDownloadProgress.UNKNOWN, scheduler.getProgress("oa_1").getBytesPerSecond());
+
+        elapsedTime = 2000;
+        scheduler.onDownloadStatus("oa_1_part_1", DOWNLOAD_MAP, null, "50");
+        OfflineMapDownloadProgress progress = scheduler.getProgress("oa_1");
+
+        assertEquals(25, progress.getPercentage(), 0.001);
+        assertEquals(50 * averageTileSize, progress.getBytesPerSecond());
+        assertEquals(3, progress.getRemainingSeconds());
+        assertNull(scheduler.getProgress("oa_2"));
+    }
+
+    @Test
+    public void testFailedRegionIsRetried() {
+        scheduler.enqueue("oa_1", Collections.singletonList(getRegion("oa_1", 10)));
+
+        scheduler.onDownloadStatus("oa_1", DOWNLOAD_MAP, MapboxOfflineDownloaderService.SERVICE_ACTION_RESULT.FAILED.name(), "error");
+
+        assertEquals(Arrays.asList("oa_1", "oa_1"), requested);
+    }
+
+    @Test
+    public void testStoppedMapIsRemoved() {
+        scheduler.enqueue("oa_1", Arrays.asList(getRegion("oa_1_part_1", 100), getRegion("oa_1", 100)));
+
+        scheduler.onDownloadStatus("oa_1_part_1", MapboxOfflineDownloaderService.SERVICE_ACTION.STOP_CURRENT_DOWNLOAD, null, "stopped");
+
+        assertFalse(scheduler.isScheduled("oa_1"));
+        assertEquals(Collections.singletonList("oa_1_part_1"), requested);
+    }
+
+    @Test
+    public void testRestoreKeepsRegionNamedAfterMapUntilPartsAreDownloaded() {
+        scheduler.restore(Arrays.asList(new OfflineMapQueueEntry("oa_1", getRegion("oa_1_part_1", 100), false),
+                new OfflineMapQueueEntry("oa_1", getRegion("oa_1", 100), false),
+                new OfflineMapQueueEntry("oa_2", getRegion("oa_2_part_1", 100), true),
+                new OfflineMapQueueEntry("oa_2", getRegion("oa_2", 100), false)));
+
+        assertTrue(scheduler.isScheduled("oa_1"));
+        assertEquals(Arrays.asList("oa_1_part_1", "oa_2"), requested);
+        assertEquals(50, scheduler.getProgress("oa_2").getPercentage(), 0.001);
+
+        scheduler.onDownloadStatus("oa_1_part_1", DOWNLOAD_MAP, null, "100");
+
+        assertEquals(Arrays.asList("oa_1_part_1", "oa_2", "oa_1"), requested);
+    }
+
+    @Test
+    public void testRestoreSkipsMapsAlreadyScheduled() {
+        scheduler.enqueue("oa_1", Collections.singletonList(getRegion("oa_1", 10)));
+
+        scheduler.restore(Collections.singletonList(new OfflineMapQueueEntry("oa_1", getRegion("oa_1", 10), false)));
+
+        assertEquals(Collections.singletonList("oa_1"), requested);
+    }
+}
@@ -8,12 +8,16 @@ import org.junit.Before;
 import org.junit.Test;
 import org.smartregister.tasking.BaseUnitTest;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Created by Richard Kareko on 1/30/20.
@@ -49,5 +53,91 @@ public class OfflineMapHelperTest extends BaseUnitTest {
         assertNotNull(modelMap.get(TestingUtils.DUMMY_OPERATIONAL_AREA));
     }
 
+    @Test
+    public void testGetDownloadRegionsSplitsOperationalAreaIntoRectangles() {
+        List<OfflineMapHelper.DownloadRegion> regions = OfflineMapHelper.getDownloadRegions(TileCoverTest.getLShapedPolygon(), "oa_1");
+
+        assertEquals(2, regions.size());
+        assertEquals("oa_1_part_1", regions.get(0).getName());
+        assertEquals("oa_1", regions.get(1).getName());
+        assertEquals(-14.0, regions.get(0).getTopLeft().getLatitude(), 0.01);
+        assertEquals(32.3, regions.get(0).getTopRight().getLongitude(), 0.01);
+    }
+
+    @Test
+    public void testGetRegionPartNames() {
+        assertEquals("oa_1", OfflineMapHelper.getMapName("oa_1_part_2"));
+        assertEquals("oa_1", OfflineMapHelper.getMapName("oa_1"));
 
+        List<String> regionPartNames = OfflineMapHelper.getRegionPartNames("oa_1", Arrays.asList("oa_1", "oa_1_part_1", "oa_2_part_1"));
+
+        assertEquals(Collections.singletonList("oa_1_part_1"), regionPartNames);
+    }
+
+    @Test
+    public void testGetPrefetchRegionsCoversStructureClustersAtHighZoom() {
+        List<double[]> structures = Arrays.asList(new double[]{32.1, -14.005}, new double[]{32.1005, -14.0052}, new double[]{32.005, -14.2});
+
+        List<OfflineMapHelper.DownloadRegion> regions = OfflineMapHelper.getPrefetchRegions(TileCoverTest.getLShapedPolygon(), structures, "oa_1");
+
+        assertEquals(6, regions.size());
+        assertEquals(18, regions.get(1).getZoomRange().getMaxZoom(), 0);
+        assertEquals(19, regions.get(2).getZoomRange().getMinZoom(), 0);
+        assertEquals(21, regions.get(5).getZoomRange().getMaxZoom(), 0);
+        assertEquals("oa_1_part_3", regions.get(2).getName());
+        assertEquals("oa_1", regions.get(5).getName());
+        assertEquals(32.1, regions.get(2).getTopLeft().getLongitude(), 0.01);
+    }
+
+    @Test
+    public void testMergeRectanglesCapsScatteredClusters() {
+        List<double[]> structures = new ArrayList<>();
+        for (int column = 0; column < 5; column++) {
+            for (int row = 0; row < 4; row++) {
+                structures.add(new double[]{32.0 + column * 0.01, -14.1 - row * 0.01});
+            }
+        }
+        TileCover tileCover = TileCover.computeAroundPoints(structures, 100, 19, 21);
+        List<int[]> rectangles = tileCover.getRectangles(19);
+        assertTrue(rectangles.size() > Constants.Map.MAX_DOWNLOAD_REGIONS);
+
+        List<int[]> merged = OfflineMapHelper.mergeRectangles(tileCover, rectangles, 19, Constants.Map.MAX_DOWNLOAD_REGIONS);
+
+        assertEquals(Constants.Map.MAX_DOWNLOAD_REGIONS, merged.size());
+        for (int[] rectangle : rectangles) {
+            boolean covered = false;
+            for (int[] mergedRectangle : merged) {
+                covered |= mergedRectangle[0] <= rectangle[0] && mergedRectangle[1] <= rectangle[1]
+                        && mergedRectangle[2] >= rectangle[2] && mergedRectangle[3] >= rectangle[3];
+            }
+            assertTrue(covered);
+        }
+
+        List<OfflineMapHelper.DownloadRegion> regions = OfflineMapHelper.getPrefetchRegions(TileCoverTest.getLShapedPolygon(), structures, "oa_1");
+        assertTrue(regions.size() <= Constants.Map.MAX_DOWNLOAD_REGIONS + Constants.Map.MAX_PREFETCH_REGIONS);
+    }
+
+    @Test
+    public void testGetPrefetchRegionsKeepsOneRegionPerDistantCluster() {
+        List<double[]> structures = new ArrayList<>();
+        for (int column = 0; column < 5; column++) {
+            for (int row = 0; row < 4; row++) {
+                structures.add(new double[]{32.0 + column * 0.05, -14.0 - row * 0.05});
+            }
+        }
+        TileCover structuresCover = TileCover.computeAroundPoints(structures, Constants.Map.PREFETCH_BUFFER_METERS, 19, 21);
+
+        List<OfflineMapHelper.DownloadRegion> regions = OfflineMapHelper.getPrefetchRegions(TileCoverTest.getLShapedPolygon(), structures, "oa_1");
+
+        int structureRegionCount = 0;
+        long structureTileCount = 0;
+        for (OfflineMapHelper.DownloadRegion region : regions) {
+            if (region.getZoomRange().getMinZoom() == 19) {
+                structureRegionCount++;
+                structureTileCount += region.getTileCount();
+            }
+        }
+        assertEquals(structures.size(), structureRegionCount);
+        assertEquals(structuresCover.getTileCount(), structureTileCount);
+    }
 }
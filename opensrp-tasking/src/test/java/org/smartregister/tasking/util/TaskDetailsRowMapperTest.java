@@ -0,0 +1,170 @@
+package org.smartregister.tasking.util;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import net.sqlcipher.MatrixCursor;
+
+import org.junit.Test;
+import org.smartregister.domain.Task;
+import org.smartregister.tasking.BaseUnitTest;
+import org.smartregister.tasking.model.TaskDetails;
+import org.smartregister.tasking.util.Constants.BusinessStatus;
+import org.smartregister.tasking.util.Constants.Intervention;
+import org.smartregister.tasking.util.TaskDetailsRowMapper.Projection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.BEDNET_DISTRIBUTED_COUNT;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.BLOOD_SCREENING_COMPLETE_COUNT;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.BLOOD_SCREENING_TASK_COUNT;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.BUSINESS_STATUS;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.CASE_CONFIRMED_COUNT;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.CODE;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.COMPLETED_TASK_COUNT;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.FAMILY_NAME;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.FAMILY_REGISTERED_COUNT;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.FOR;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.FULLY_RECEIVED_COUNT;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.GROUPED_STRUCTURE_TASK_CODE_AND_STATUS;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.ID;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.LATITUDE;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.LONGITUDE;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.MDA_ADHERED_COUNT;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.MDA_DISPENSE_TASK_COUNT;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.NAME;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.NONE_RECEIVED_COUNT;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.NOT_ELIGIBLE_COUNT;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.NOT_SRAYED_OTHER_REASON;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.NOT_SRAYED_REASON;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.REFERENCE_REASON;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.REGISTER_FAMILY_TASK_COUNT;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.STATUS;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.STRUCTURE_ID;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.STRUCTURE_NAME;
+import static org.smartregister.tasking.util.Constants.DatabaseKeys.TASK_COUNT;
+
+public class TaskDetailsRowMapperTest extends BaseUnitTest {
+
+    @Test
+    public void testMapStructureTask() {
+        MatrixCursor cursor = new MatrixCursor(new String[]{ID, CODE, FOR, BUSINESS_STATUS, STATUS, LATITUDE, LONGITUDE,
+                NAME, STRUCTURE_NAME, FAMILY_NAME, NOT_SRAYED_REASON, NOT_SRAYED_OTHER_REASON, STRUCTURE_ID});
+        cursor.addRow(new Object[]{"task_1", Intervention.IRS, "structure_1", BusinessStatus.NOT_SPRAYED,
+                Task.TaskStatus.COMPLETED.name(), -14.15, 32.64, "", "Structure 976", "Ali", "other", "Locked", "structure_1"});
+        cursor.moveToFirst();
+
+        TaskDetails task = TaskDetailsRowMapper.create(cursor, Projection.STRUCTURE_TASKS, "House").map(cursor);
+
+        assertEquals("task_1", task.getTaskId());
+        assertEquals(Intervention.IRS, task.getTaskCode());
+        assertEquals(-14.15, task.getLocation().getLatitude(), 0);
+        assertEquals(32.64, task.getLocation().getLongitude(), 0);
+        assertEquals("Structure 976", task.getStructureName());
+        assertEquals("Ali House", task.getFamilyName());
+        assertEquals("Locked", task.getTaskDetails());
+        assertNull(task.getSprayStatus());
+        assertEquals("structure_1", task.getStructureId());
+    }
+
+    @Test
+    public void testMapGroupedStructureTask() {
+        MatrixCursor cursor = new MatrixCursor(new String[]{ID, CODE, FOR, BUSINESS_STATUS, STATUS, LATITUDE, LONGITUDE,
+                NAME, STRUCTURE_ID, TASK_COUNT, COMPLETED_TASK_COUNT, GROUPED_STRUCTURE_TASK_CODE_AND_STATUS});
+        cursor.addRow(new Object[]{"task_1", Intervention.BLOOD_SCREENING, "person_1", BusinessStatus.COMPLETE,
+                Task.TaskStatus.COMPLETED.name(), -14.15, 32.64, "Structure 976", "structure_1", 3, 2, "Blood Screening-Complete"});
+        cursor.moveToFirst();
+
+        TaskDetails task = TaskDetailsRowMapper.create(cursor, Projection.GROUPED_STRUCTURE_TASKS, "House").map(cursor);
+
+        assertEquals(3, task.getTaskCount().intValue());
+        assertEquals(2, task.getCompleteTaskCount().intValue());
+        assertEquals("Structure 976", task.getStructureName());
+        assertNull(task.getFamilyName());
+        assertNull(task.getHouseNumber());
+    }
+
+    @Test
+    public void testMapGroupedStructureTaskReadsAggregateColumns() {
+        MatrixCursor cursor = new MatrixCursor(new String[]{ID, CODE, FOR, BUSINESS_STATUS, STATUS, LATITUDE, LONGITUDE,
+                NAME, STRUCTURE_ID, TASK_COUNT, COMPLETED_TASK_COUNT, GROUPED_STRUCTURE_TASK_CODE_AND_STATUS,
+                REGISTER_FAMILY_TASK_COUNT, FAMILY_REGISTERED_COUNT, BEDNET_DISTRIBUTED_COUNT, BLOOD_SCREENING_TASK_COUNT,
+                BLOOD_SCREENING_COMPLETE_COUNT, CASE_CONFIRMED_COUNT, MDA_ADHERED_COUNT, MDA_DISPENSE_TASK_COUNT,
+                FULLY_RECEIVED_COUNT, NONE_RECEIVED_COUNT, NOT_ELIGIBLE_COUNT});
+        cursor.addRow(new Object[]{"task_1", Intervention.REGISTER_FAMILY, "structure_1", BusinessStatus.COMPLETE,
+                Task.TaskStatus.COMPLETED.name(), -14.15, 32.64, "Structure 976", "structure_1", 4, 2, null,
+                1, 1, 0, 0, 0, 1, 0, 2, 1, 0, 0});
+        cursor.moveToFirst();
+
+        TaskDetails task = TaskDetailsRowMapper.create(cursor, Projection.GROUPED_STRUCTURE_TASKS, "House").map(cursor);
+
+        assertTrue(task.isFamilyRegTaskExists());
+        assertTrue(task.isFamilyRegistered());
+        assertFalse(task.isBednetDistributed());
+        assertTrue(task.isBloodScreeningDone());
+        assertFalse(task.isMdaAdhered());
+        assertTrue(task.isPartiallyReceived());
+        assertFalse(task.isFullyReceived());
+    }
+
+    @Test
+    public void testGroupedStructureTaskAggregateColumnsCountTasksOfEachStructure() {
+        SQLiteDatabase database = SQLiteDatabase.create(null);
+        database.execSQL("CREATE TABLE task (_id VARCHAR PRIMARY KEY, structure_id VARCHAR, code VARCHAR, business_status VARCHAR)");
+        // the structure columns share the names of the task columns so unqualified aggregate columns would be ambiguous
+        database.execSQL("CREATE TABLE structure (_id VARCHAR PRIMARY KEY, code VARCHAR, business_status VARCHAR)");
+        database.execSQL("INSERT INTO structure VALUES ('structure_1', NULL, NULL), ('structure_2', NULL, NULL)");
+        database.execSQL("INSERT INTO task VALUES ('task_1', 'structure_1', ?, ?)", new Object[]{Intervention.REGISTER_FAMILY, BusinessStatus.COMPLETE});
+        database.execSQL("INSERT INTO task VALUES ('task_2', 'structure_1', ?, ?)", new Object[]{Intervention.REGISTER_FAMILY, BusinessStatus.NOT_VISITED});
+        database.execSQL("INSERT INTO task VALUES ('task_3', 'structure_1', ?, ?)", new Object[]{Intervention.BEDNET_DISTRIBUTION, BusinessStatus.NOT_VISITED});
+        database.execSQL("INSERT INTO task VALUES ('task_4', 'structure_1', ?, ?)", new Object[]{Intervention.CASE_CONFIRMATION, BusinessStatus.COMPLETE});
+        database.execSQL("INSERT INTO task VALUES ('task_5', 'structure_2', ?, ?)", new Object[]{Intervention.MDA_DISPENSE, BusinessStatus.FULLY_RECEIVED});
+        database.execSQL("INSERT INTO task VALUES ('task_6', 'structure_2', ?, ?)", new Object[]{Intervention.MDA_DISPENSE, BusinessStatus.NONE_RECEIVED});
+
+        Cursor result = database.rawQuery("SELECT structure._id AS structure_id, " + Utils.getGroupedStructureTaskAggregateColumns("task") +
+                " FROM task JOIN structure ON task.structure_id = structure._id GROUP BY structure._id ORDER BY structure._id", null);
+        MatrixCursor cursor = new MatrixCursor(result.getColumnNames());
+        while (result.moveToNext()) {
+            Object[] row = new Object[result.getColumnCount()];
+            for (int i = 0; i < row.length; i++) {
+                row[i] = result.getString(i);
+            }
+            cursor.addRow(row);
+        }
+        result.close();
+        database.close();
+
+        TaskDetailsRowMapper rowMapper = TaskDetailsRowMapper.create(cursor, Projection.GROUPED_STRUCTURE_TASKS, "House");
+        cursor.moveToFirst();
+        TaskDetails task = rowMapper.map(cursor);
+        assertEquals("structure_1", task.getStructureId());
+        assertTrue(task.isFamilyRegTaskExists());
+        assertTrue(task.isFamilyRegistered());
+        assertFalse(task.isBednetDistributed());
+        assertTrue(task.isBloodScreeningDone());
+
+        cursor.moveToNext();
+        task = rowMapper.map(cursor);
+        assertEquals("structure_2", task.getStructureId());
+        assertFalse(task.isFamilyRegTaskExists());
+        assertTrue(task.isPartiallyReceived());
+        assertFalse(task.isFullyReceived());
+    }
+
+    @Test
+    public void testMapOperationalAreaTaskDoesNotReadLocation() {
+        MatrixCursor cursor = new MatrixCursor(new String[]{ID, CODE, FOR, BUSINESS_STATUS, STATUS, STRUCTURE_ID, REFERENCE_REASON});
+        cursor.addRow(new Object[]{"task_1", Intervention.CASE_CONFIRMATION, "index_case", BusinessStatus.NOT_VISITED,
+                Task.TaskStatus.READY.name(), "structure_1", "event_1"});
+        cursor.moveToFirst();
+
+        TaskDetails task = TaskDetailsRowMapper.create(cursor, Projection.OPERATIONAL_AREA_TASKS, "House").map(cursor);
+
+        assertEquals("event_1", task.getReasonReference());
+        assertEquals("structure_1", task.getStructureId());
+        assertNull(task.getLocation());
+        assertNull(task.getTaskCount());
+    }
+}
@@ -0,0 +1,82 @@
+package org.smartregister.tasking.util;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.smartregister.tasking.BaseUnitTest;
+import org.smartregister.tasking.model.TaskDetails;
+import org.smartregister.tasking.util.Constants.BusinessStatus;
+import org.smartregister.tasking.util.Constants.Filter;
+import org.smartregister.tasking.util.Constants.Intervention;
+import org.smartregister.tasking.util.Constants.InterventionType;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TaskFacetIndexTest extends BaseUnitTest {
+
+    private TaskDetails task1;
+
+    private TaskDetails task2;
+
+    private TaskDetails task3;
+
+    private TaskFacetIndex facetIndex;
+
+    @Before
+    public void setUp() {
+        task1 = TestingUtils.getTaskDetails();
+        task2 = new TaskDetails("task2");
+        task2.setBusinessStatus(BusinessStatus.BLOOD_SCREENING_COMPLETE);
+        task2.setTaskCode(Intervention.BLOOD_SCREENING);
+        task3 = new TaskDetails("task3");
+        task3.setBusinessStatus(BusinessStatus.NOT_VISITED);
+        task3.setTaskCode(Intervention.REGISTER_FAMILY + "~" + Intervention.BEDNET_DISTRIBUTION);
+        facetIndex = new TaskFacetIndex(Arrays.asList(task1, task2, task3));
+    }
+
+    @Test
+    public void testFilterCombinesCategories() {
+        Map<String, Set<String>> filters = new HashMap<>();
+        filters.put(Filter.CODE, new HashSet<>(Arrays.asList(Intervention.IRS, Intervention.BEDNET_DISTRIBUTION)));
+        assertEquals(Arrays.asList(task1, task3), facetIndex.filter(filters));
+
+        filters.put(Filter.STATUS, Collections.singleton(BusinessStatus.NOT_VISITED));
+        assertEquals(Collections.singletonList(task3), facetIndex.filter(filters));
+
+        filters.put(Filter.INTERVENTION_UNIT, Collections.singleton(InterventionType.OPERATIONAL_AREA));
+        assertTrue(facetIndex.filter(filters).isEmpty());
+    }
+
+    @Test
+    public void testCountIgnoresCheckedOptionsOfSameCategory() {
+        Map<String, Set<String>> filters = new HashMap<>();
+        filters.put(Filter.STATUS, Collections.singleton(BusinessStatus.NOT_VISITED));
+        assertEquals(1, facetIndex.count(Filter.STATUS, BusinessStatus.BLOOD_SCREENING_COMPLETE, filters));
+        assertEquals(1, facetIndex.count(Filter.CODE, Intervention.REGISTER_FAMILY, filters));
+        assertEquals(0, facetIndex.count(Filter.CODE, Intervention.IRS, filters));
+        assertEquals(1, facetIndex.count(Filter.INTERVENTION_UNIT, InterventionType.PERSON, null));
+    }
+
+    @Test
+    public void testCountsAreAvailableAfterSerialization() throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        new ObjectOutputStream(outputStream).writeObject(facetIndex);
+        TaskFacetIndex restored = (TaskFacetIndex) new ObjectInputStream(new ByteArrayInputStream(outputStream.toByteArray())).readObject();
+
+        assertEquals(2, restored.count(Filter.INTERVENTION_UNIT, InterventionType.STRUCTURE, null));
+        List<TaskDetails> filtered = restored.filter(null);
+        assertTrue(filtered.isEmpty());
+    }
+}
@@ -0,0 +1,59 @@
+package org.smartregister.tasking.util;
+
+import org.junit.Test;
+import org.smartregister.tasking.BaseUnitTest;
+import org.smartregister.tasking.model.TaskDetails;
+import org.smartregister.tasking.util.Constants.BusinessStatus;
+import org.smartregister.tasking.util.Constants.Intervention;
+import org.smartregister.tasking.util.TaskOrdinals.TaskCode;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TaskOrdinalsTest extends BaseUnitTest {
+
+    @Test
+    public void testInterventionsHaveFixedOrdinals() {
+        assertEquals(TaskCode.IRS, TaskOrdinals.getTaskCodeOrdinal(Intervention.IRS));
+        assertEquals(TaskCode.CASE_CONFIRMATION, TaskOrdinals.getTaskCodeOrdinal(Intervention.CASE_CONFIRMATION));
+        assertEquals(TaskOrdinals.BusinessStatus.NOT_SPRAYABLE, TaskOrdinals.getBusinessStatusOrdinal(BusinessStatus.NOT_SPRAYABLE));
+        assertEquals(Intervention.REGISTER_FAMILY, TaskOrdinals.getTaskCode(TaskCode.REGISTER_FAMILY));
+        assertEquals(TaskOrdinals.UNKNOWN, TaskOrdinals.getTaskCodeOrdinal(null));
+    }
+
+    @Test
+    public void testRegisterConfigurationValues() {
+        TaskingLibraryConfiguration configuration = mock(TaskingLibraryConfiguration.class);
+        List<String> taskCodes = Collections.singletonList("Spatial Repellent");
+        List<String> businessStatuses = Collections.singletonList("Repellent Installed");
+        when(configuration.getAdditionalTaskCodes()).thenReturn(taskCodes);
+        when(configuration.getAdditionalBusinessStatuses()).thenReturn(businessStatuses);
+
+        TaskOrdinals.register(configuration);
+
+        assertTrue(TaskOrdinals.getTaskCodeOrdinal("Spatial Repellent") > TaskCode.IRS_VERIFICATION);
+        assertTrue(TaskOrdinals.getBusinessStatusOrdinal("Repellent Installed") > TaskOrdinals.BusinessStatus.PARTIALLY_SPRAYED);
+        TaskDetails task = new TaskDetails("task1");
+        task.setTaskCode("Spatial Repellent");
+        assertEquals(TaskOrdinals.getTaskCodeOrdinal("Spatial Repellent"), task.getTaskCodeOrdinal());
+    }
+
+    @Test
+    public void testTaskCodeOrdinalIsResolvedWhenRead() {
+        TaskDetails task = new TaskDetails("task1");
+        task.setTaskCode("Larvicide Application");
+        assertEquals(TaskOrdinals.UNKNOWN, task.getTaskCodeOrdinal());
+
+        TaskingLibraryConfiguration configuration = mock(TaskingLibraryConfiguration.class);
+        when(configuration.getAdditionalTaskCodes()).thenReturn(Collections.singletonList("Larvicide Application"));
+        TaskOrdinals.register(configuration);
+
+        assertTrue(task.getTaskCodeOrdinal() > TaskCode.IRS_VERIFICATION);
+        assertEquals("Larvicide Application", TaskOrdinals.getTaskCode(task.getTaskCodeOrdinal()));
+    }
+}
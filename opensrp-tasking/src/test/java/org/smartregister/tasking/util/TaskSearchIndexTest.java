@@ -0,0 +1,71 @@
+package org.smartregister.tasking.util;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.smartregister.tasking.BaseUnitTest;
+import org.smartregister.tasking.model.TaskDetails;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TaskSearchIndexTest extends BaseUnitTest {
+
+    private TaskDetails task1;
+
+    private TaskDetails task2;
+
+    private TaskDetails task3;
+
+    private TaskSearchIndex searchIndex;
+
+    private List<TaskDetails> tasks;
+
+    @Before
+    public void setUp() {
+        task1 = new TaskDetails("task1");
+        task1.setStructureName("Kenny House");
+        task2 = new TaskDetails("task2");
+        task2.setFamilyMemberNames("Jane Doe,John Doe,Kenny Rodger");
+        task3 = new TaskDetails("task3");
+        task3.setFamilyName("Otala House");
+        task3.setHouseNumber("A-12");
+        tasks = Arrays.asList(task1, task2, task3);
+        searchIndex = new TaskSearchIndex(tasks);
+    }
+
+    @Test
+    public void testSearchMatchesWordPrefixes() {
+        assertEquals(Arrays.asList(task1, task2), searchIndex.search("Kenny"));
+        assertEquals(Arrays.asList(task1, task2), searchIndex.search("ken"));
+        assertEquals(Collections.singletonList(task2), searchIndex.search("Jane Doe"));
+        assertEquals(Collections.singletonList(task3), searchIndex.search("12"));
+        assertTrue(searchIndex.search("enny").isEmpty());
+    }
+
+    @Test
+    public void testSearchNarrowsPreviousResults() {
+        assertEquals(Arrays.asList(task1, task2), searchIndex.search("K"));
+        assertEquals(Arrays.asList(task1, task2), searchIndex.search("Kenny"));
+        assertEquals(Collections.singletonList(task1), searchIndex.search("Kenny H"));
+        assertTrue(searchIndex.search("Kenny Hx").isEmpty());
+        assertEquals(Arrays.asList(task1, task3), searchIndex.search("House"));
+    }
+
+    @Test
+    public void testSearchWithRegexCharacters() {
+        assertTrue(searchIndex.search("(").isEmpty());
+        assertEquals(Collections.singletonList(task3), searchIndex.search("otala ("));
+        assertEquals(Collections.singletonList(task3), searchIndex.search("A-12"));
+    }
+
+    @Test
+    public void testIsIndexOf() {
+        assertTrue(searchIndex.isIndexOf(tasks));
+        assertFalse(searchIndex.isIndexOf(Arrays.asList(task1, task2, task3)));
+    }
+}
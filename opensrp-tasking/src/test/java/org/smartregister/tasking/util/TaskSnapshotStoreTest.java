@@ -0,0 +1,62 @@
+package org.smartregister.tasking.util;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.smartregister.tasking.BaseUnitTest;
+import org.smartregister.tasking.model.TaskSnapshot;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class TaskSnapshotStoreTest extends BaseUnitTest {
+
+    private TaskSnapshotStore store;
+
+    private TaskSnapshot snapshot;
+
+    @Before
+    public void setUp() {
+        store = new TaskSnapshotStore();
+        snapshot = TaskSnapshot.of(Collections.singletonList(TestingUtils.getTaskDetails()));
+    }
+
+    @Test
+    public void testSnapshotIsSharedWhileHeld() {
+        assertNull(store.acquire("oa_1", "plan_1"));
+        store.put("oa_1", "plan_1", snapshot, store.getVersion());
+
+        assertSame(snapshot, store.acquire("oa_1", "plan_1"));
+        assertNull(store.get("oa_1", "plan_2"));
+
+        store.release("oa_1", "plan_1");
+        assertSame(snapshot, store.get("oa_1", "plan_1"));
+
+        store.release("oa_1", "plan_1");
+        assertNull(store.get("oa_1", "plan_1"));
+    }
+
+    @Test
+    public void testPutIgnoresSnapshotsThatAreNotHeld() {
+        store.put("oa_1", "plan_1", snapshot, store.getVersion());
+
+        assertNull(store.acquire("oa_1", "plan_1"));
+    }
+
+    @Test
+    public void testInvalidateDropsSnapshotsAndStaleLoads() {
+        store.acquire("oa_1", "plan_1");
+        int version = store.getVersion();
+        store.put("oa_1", "plan_1", snapshot, version);
+
+        store.invalidate();
+        assertNull(store.get("oa_1", "plan_1"));
+
+        store.put("oa_1", "plan_1", snapshot, version);
+        assertNull(store.get("oa_1", "plan_1"));
+
+        store.put("oa_1", "plan_1", snapshot, store.getVersion());
+        assertSame(snapshot, store.get("oa_1", "plan_1"));
+    }
+}
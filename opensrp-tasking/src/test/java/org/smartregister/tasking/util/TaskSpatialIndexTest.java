@@ -0,0 +1,123 @@
+package org.smartregister.tasking.util;
+
+import android.location.Location;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.smartregister.tasking.BaseUnitTest;
+import org.smartregister.tasking.model.TaskDetails;
+import org.smartregister.tasking.util.Constants.Intervention;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TaskSpatialIndexTest extends BaseUnitTest {
+
+    private List<TaskDetails> tasks;
+
+    private Location userLocation;
+
+    @Before
+    public void setUp() {
+        userLocation = createLocation(-14.152197, 32.643570);
+        tasks = new ArrayList<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 500; i++) {
+            TaskDetails task = TestingUtils.getTaskDetails();
+            task.setLocation(createLocation(-14.152197 + (random.nextDouble() - 0.5) * 0.02,
+                    32.643570 + (random.nextDouble() - 0.5) * 0.02));
+            tasks.add(task);
+        }
+        TaskDetails bccTask = TestingUtils.getTaskDetails();
+        bccTask.setTaskCode(Intervention.BCC);
+        bccTask.setDistanceFromUser(-2);
+        tasks.add(bccTask);
+    }
+
+    @Test
+    public void testCountWithinMatchesIndexedDistances() {
+        TaskSpatialIndex index = new TaskSpatialIndex(tasks, 70);
+        index.updateDistances(userLocation);
+        int expected = 0;
+        for (TaskDetails task : tasks) {
+            if (task.getDistanceFromUser() >= 0 && task.getDistanceFromUser() <= 150) {
+                expected++;
+            }
+        }
+        assertTrue(expected > 0);
+        assertEquals(expected, index.countWithin(userLocation, 150));
+    }
+
+    @Test
+    public void testNearestReturnsClosestTasksInOrder() {
+        TaskSpatialIndex index = new TaskSpatialIndex(tasks, 70);
+        index.updateDistances(userLocation);
+        List<TaskDetails> expected = new ArrayList<>(tasks.subList(0, 500));
+        Collections.sort(expected);
+
+        List<TaskDetails> nearest = index.nearest(userLocation, 5);
+
+        assertEquals(5, nearest.size());
+        assertEquals(expected.subList(0, 5), nearest);
+    }
+
+    @Test
+    public void testUpdateDistancesSkipsBCCTasks() {
+        TaskSpatialIndex index = new TaskSpatialIndex(tasks, 70);
+        index.updateDistances(userLocation);
+        for (TaskDetails task : tasks.subList(0, 500)) {
+            assertEquals(task.getLocation().distanceTo(userLocation), task.getDistanceFromUser(), 0.01 * task.getDistanceFromUser() + 1);
+            assertFalse(task.isDistanceFromCenter());
+        }
+        assertEquals(-2, tasks.get(500).getDistanceFromUser(), 0);
+    }
+
+    @Test
+    public void testOrderByDistanceReSortsAllTasksAfterASmallMove() {
+        TaskSpatialIndex index = new TaskSpatialIndex(tasks, 70);
+        index.orderByDistance(userLocation);
+        Location movedLocation = createLocation(-14.152497, 32.643570);
+
+        List<TaskDetails> ordered = index.orderByDistance(movedLocation);
+
+        List<TaskDetails> expected = new ArrayList<>(tasks.subList(0, 500));
+        Collections.sort(expected);
+        assertEquals(501, ordered.size());
+        assertEquals(Intervention.BCC, ordered.get(0).getTaskCode());
+        assertEquals(expected, ordered.subList(1, 501));
+        assertTrue(index.isIndexOf(ordered));
+    }
+
+    @Test
+    public void testOrderByDistanceSortsAllTasksAfterALongMove() {
+        TaskSpatialIndex index = new TaskSpatialIndex(tasks, 70);
+        index.orderByDistance(userLocation);
+        Location movedLocation = createLocation(-14.157197, 32.643570);
+
+        List<TaskDetails> ordered = index.orderByDistance(movedLocation);
+
+        List<TaskDetails> expected = new ArrayList<>(tasks.subList(0, 500));
+        Collections.sort(expected);
+        assertEquals(expected, ordered.subList(1, 501));
+    }
+
+    @Test
+    public void testIsIndexOf() {
+        TaskSpatialIndex index = new TaskSpatialIndex(tasks, 70);
+        assertTrue(index.isIndexOf(tasks));
+        assertFalse(index.isIndexOf(new ArrayList<>(tasks)));
+    }
+
+    private Location createLocation(double latitude, double longitude) {
+        Location location = new Location("Test");
+        location.setLatitude(latitude);
+        location.setLongitude(longitude);
+        return location;
+    }
+}
@@ -0,0 +1,85 @@
+package org.smartregister.tasking.util;
+
+import com.mapbox.geojson.Point;
+import com.mapbox.geojson.Polygon;
+
+import org.junit.Test;
+import org.smartregister.tasking.BaseUnitTest;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TileCoverTest extends BaseUnitTest {
+
+    public static Polygon getLShapedPolygon() {
+        return Polygon.fromLngLats(Collections.singletonList(Arrays.asList(Point.fromLngLat(32.0, -14.0),
+                Point.fromLngLat(32.3, -14.0), Point.fromLngLat(32.3, -14.01), Point.fromLngLat(32.01, -14.01),
+                Point.fromLngLat(32.01, -14.3), Point.fromLngLat(32.0, -14.3), Point.fromLngLat(32.0, -14.0))));
+    }
+
+    @Test
+    public void testComputeCoversOnlyTilesOfThePolygon() {
+        TileCover tileCover = TileCover.compute(getLShapedPolygon(), 13.5, 21);
+
+        assertEquals(13, tileCover.getMinZoom());
+        assertEquals(21, tileCover.getMaxZoom());
+        assertEquals(209526, tileCover.getTileCount(21));
+        assertEquals(0, tileCover.getTileCount(22));
+        assertTrue(tileCover.getTileCount() * 10 < tileCover.getBoundingBoxTileCount());
+        assertEquals(tileCover.getTileCount() * 1024, tileCover.getEstimatedBytes(1024));
+    }
+
+    @Test
+    public void testComputeExcludesHoles() {
+        List<Point> outer = Arrays.asList(Point.fromLngLat(0, 0), Point.fromLngLat(1, 0), Point.fromLngLat(1, 1),
+                Point.fromLngLat(0, 1), Point.fromLngLat(0, 0));
+        List<Point> hole = Arrays.asList(Point.fromLngLat(0.2, 0.2), Point.fromLngLat(0.8, 0.2), Point.fromLngLat(0.8, 0.8),
+                Point.fromLngLat(0.2, 0.8), Point.fromLngLat(0.2, 0.2));
+
+        long solid = TileCover.compute(Polygon.fromLngLats(Collections.singletonList(outer)), 12, 12).getTileCount(12);
+        long withHole = TileCover.compute(Polygon.fromLngLats(Arrays.asList(outer, hole)), 12, 12).getTileCount(12);
+
+        assertTrue(withHole < solid);
+        assertNull(TileCover.compute(Point.fromLngLat(0, 0), 12, 12));
+    }
+
+    @Test
+    public void testGetRectanglesCoverTheSameTiles() {
+        TileCover tileCover = TileCover.compute(getLShapedPolygon(), 16, 16);
+
+        long tileCount = 0;
+        for (int[] rectangle : tileCover.getRectangles(16)) {
+            tileCount += TileCover.getRectangleTileCount(rectangle, 16, 16);
+        }
+
+        assertEquals(2, tileCover.getRectangles(16).size());
+        assertEquals(tileCover.getTileCount(16), tileCount);
+    }
+
+    @Test
+    public void testTileToCoordinates() {
+        assertEquals(-180, TileCover.tileToLongitude(0, 1), 0);
+        assertEquals(0, TileCover.tileToLongitude(1, 1), 0);
+        assertEquals(0, TileCover.tileToLatitude(1, 1), 0.000001);
+        assertEquals(85.0511, TileCover.tileToLatitude(0, 0), 0.0001);
+        assertEquals(4, TileCover.getRectangleTileCount(new int[]{1, 1, 1, 1}, 1, 2));
+        assertEquals(1, TileCover.getRectangleTileCount(new int[]{2, 2, 3, 3}, 2, 1));
+    }
+
+    @Test
+    public void testComputeAroundPointsMergesClusters() {
+        List<double[]> points = Arrays.asList(new double[]{32.1, -14.005}, new double[]{32.1005, -14.0052}, new double[]{32.005, -14.2});
+
+        TileCover tileCover = TileCover.computeAroundPoints(points, 100, 19, 21);
+
+        assertEquals(35, tileCover.getTileCount(19));
+        assertEquals(4, tileCover.getRectangles(21).size());
+        assertTrue(tileCover.getTileCount() < TileCover.compute(getLShapedPolygon(), 19, 21).getTileCount() / 10);
+        assertNull(TileCover.computeAroundPoints(Collections.<double[]>emptyList(), 100, 19, 21));
+    }
+}